@@ -1,48 +1,70 @@
 package fr.utbm.da53;
 
+import fr.utbm.da53.io.TokenDumpSink;
+import fr.utbm.da53.io.TokenStreamWriter;
 import fr.utbm.da53.lexer.Lexer;
+import fr.utbm.da53.lexer.ParallelLexer;
+import fr.utbm.da53.scanner.AsciiScanner;
+import fr.utbm.da53.scanner.LineIndex;
 import fr.utbm.da53.scanner.Scanner;
-import fr.utbm.da53.symboltable.SymbolTable;
+import fr.utbm.da53.symboltable.ConcurrentSymbolTable;
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.token.IDToken;
 import fr.utbm.da53.token.Token;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Main class for running the Lexer on an input file, displaying tokens in console output,
  * and managing the Symbol Table.
+ * <p>
+ * With the {@code --parallel} argument, the input is loaded in memory and lexed on several
+ * threads by a {@link ParallelLexer}. With the {@code --quiet} argument, the tokens are only
+ * written to the output file. With the {@code --binary} argument, the tokens are also written
+ * in the binary format of {@link TokenStreamWriter}, for tools reading them back.
  */
 public class Main {
     public static void main(String[] args) {
         String inputFilePath = "src/main/resources/input.txt";
         String outputFilePath = "src/main/resources/lexerOutput.txt";
+        String binaryOutputFilePath = "src/main/resources/lexerOutput.tok";
+        List<String> options = Arrays.asList(args);
+        boolean echo = !options.contains("--quiet");
+
+        if (options.contains("--parallel")) {
+            runParallel(inputFilePath, outputFilePath, echo);
+            return;
+        }
 
         // Process input file and write output to file
-        try (FileReader fileReader = new FileReader(inputFilePath);
-             PrintWriter outputWriter = new PrintWriter(new FileWriter(outputFilePath))) {
+        try (TokenDumpSink output = new TokenDumpSink(Paths.get(outputFilePath), echo);
+             TokenStreamWriter binaryOutput = options.contains("--binary")
+                     ? new TokenStreamWriter(Paths.get(binaryOutputFilePath)) : null) {
 
-            // Initialize Scanner, Lexer, and Symbol Table
-            Scanner scanner = new Scanner(fileReader);
+            // Initialize Scanner, Lexer, and Symbol Table; ASCII input is scanned as bytes
+            Scanner scanner = AsciiScanner.open(Paths.get(inputFilePath));
             Lexer lexer = new Lexer(scanner);
-            SymbolTable symbolTable = new SymbolTable();
-
-            Token token = lexer.getNextSymbol();
+            InternedSymbolTable symbolTable = new InternedSymbolTable();
 
-            // Process tokens until EOF
-            while (!token.getTokenType().equals("EOF")) {
+            // Process tokens until EOF, pulling them lazily from the lexer
+            for (Token token : lexer) {
 
-                // Format token output
-                String tokenOutput = formatTokenOutput(token);
+                // Write token output, in the background
                 //System.out.println("Token: " + token);
-                System.out.print(tokenOutput);
-                outputWriter.print(tokenOutput);
+                output.write(token);
+                if (binaryOutput != null) {
+                    binaryOutput.write(token);
+                }
 
-                // Add token to symbol table
-                symbolTable.addSymbol(token, token.getLine(), token.getLine(), token.getColumn(), token.getColumn());
-
-                token = lexer.getNextSymbol();
+                // Add identifiers to symbol table
+                if (token instanceof IDToken) {
+                    symbolTable.intern((IDToken) token);
+                }
             }
 
             //System.out.println("\n\nSymbol Table:");
@@ -50,37 +72,36 @@ public class Main {
 
             scanner.close();
 
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             System.err.println("An error occurred while processing the file: " + e.getMessage());
         }
     }
 
     /**
-     * Formats the output for a given token based on its type and lexeme.
+     * Lexes the input file on several threads, which intern the identifiers in a shared symbol
+     * table, then writes the tokens in source order.
      *
-     * @param token the token to format.
-     * @return a string formatted as <TOKEN_TYPE,LEXEME> for display.
+     * @param inputFilePath the path of the file to lex.
+     * @param outputFilePath the path of the file to write the tokens to.
+     * @param echo true to also print the tokens to the console.
      */
-    private static String formatTokenOutput(Token token) {
-        String lexeme = token.getLexeme();
-        String tokenType = token.getTokenType();
+    private static void runParallel(String inputFilePath, String outputFilePath, boolean echo) {
+        try (TokenDumpSink output = new TokenDumpSink(Paths.get(outputFilePath), echo)) {
+            char[] source = Files.readString(Paths.get(inputFilePath)).toCharArray();
+            ConcurrentSymbolTable symbolTable = new ConcurrentSymbolTable();
+            // The chunks are split at the line starts found by the vectorized pre-pass
+            LineIndex lineIndex = LineIndex.build(source, 0, source.length);
+            List<Token> tokens = new ParallelLexer().tokenize(lineIndex, symbolTable);
 
-        // Format output based on token type and lexeme
-        switch (tokenType) {
-            case "CR":
-                return "<CR>\n";
-            case "ID":
-                return "<ID," + lexeme + "> ";
-            case "RELOP":
-                return "<RELOP," + lexeme + "> ";
-            case "OP":
-                return "<OP," + lexeme + "> ";
-            case "NUM":
-                return "<NUM," + lexeme + "> ";
-            case "STRING":
-                return "<STRING,\"" + lexeme + "\"> ";
-            default:
-                return "<" + tokenType + "> ";
+            for (Token token : tokens) {
+                if (token.getTokenType().equals("EOF")) {
+                    break;
+                }
+                output.write(token);
+            }
+
+        } catch (IOException e) {
+            System.err.println("An error occurred while processing the file: " + e.getMessage());
         }
     }
 }
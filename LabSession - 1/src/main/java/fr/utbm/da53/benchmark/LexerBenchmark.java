@@ -0,0 +1,92 @@
+package fr.utbm.da53.benchmark;
+
+import fr.utbm.da53.lexer.ParallelLexer;
+import fr.utbm.da53.lexer.TableDrivenLexer;
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.symboltable.ConcurrentSymbolTable;
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.token.Token;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the sequential lexing of an in-memory source with the parallel lexing of
+ * {@link ParallelLexer}, both with the table-driven lexer and interning the identifiers in a
+ * symbol table, which the chunks of the parallel lexing share.
+ * <p>
+ * Usage: {@code LexerBenchmark [file]}. Without argument, a TinyBasic listing of about
+ * 100 MB is generated in a temporary file.
+ */
+public class LexerBenchmark {
+
+    private static final int GENERATED_LINES = 5_000_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        Path file;
+        boolean generated = args.length == 0;
+        if (generated) {
+            file = Files.createTempFile("tinybasic", ".bas");
+            ScannerBenchmark.generate(file, GENERATED_LINES);
+        } else {
+            file = Paths.get(args[0]);
+        }
+
+        char[] source;
+        try {
+            source = Files.readString(file).toCharArray();
+        } finally {
+            if (generated) {
+                Files.deleteIfExists(file);
+            }
+        }
+        System.out.println("Input: " + file + " (" + source.length + " chars)");
+
+        long sequential = Long.MAX_VALUE;
+        long parallel = Long.MAX_VALUE;
+        int tokens = 0;
+        ParallelLexer parallelLexer = new ParallelLexer(ForkJoinPool.commonPool(), TableDrivenLexer::new,
+                ParallelLexer.DEFAULT_CHUNK_SIZE);
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            tokens = lexSequentially(source);
+            sequential = Math.min(sequential, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<Token> result = parallelLexer.tokenize(source, 0, source.length, new ConcurrentSymbolTable());
+            parallel = Math.min(parallel, System.nanoTime() - start);
+            if (result.size() != tokens) {
+                throw new IllegalStateException("Token count mismatch: " + result.size() + " != " + tokens);
+            }
+        }
+        System.out.printf("%-12s %8.1f ms  (%d tokens)%n", "Sequential", sequential / 1e6, tokens);
+        System.out.printf("%-12s %8.1f ms  (x%.2f)%n", "Parallel", parallel / 1e6, (double) sequential / parallel);
+    }
+
+    /**
+     * Lexes the whole source on the current thread, the way Main does.
+     *
+     * @param source the characters to lex.
+     * @return the number of tokens, including EOF.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static int lexSequentially(char[] source) throws IOException {
+        TableDrivenLexer lexer = new TableDrivenLexer(new BufferedScanner(source, 0, source.length));
+        lexer.setSymbolTable(new InternedSymbolTable());
+        int count = 0;
+        Token token;
+        do {
+            token = lexer.getNextSymbol();
+            if (token == null) {
+                continue;
+            }
+            count++;
+        } while (token == null || !token.getTokenType().equals("EOF"));
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+package fr.utbm.da53.benchmark;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.scanner.MappedFileScanner;
+import fr.utbm.da53.scanner.Scanner;
+
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compares the character throughput of the Scanner backends: the original one-char-per-call
+ * Reader path, the block-buffered path and the memory-mapped path.
+ * <p>
+ * Usage: {@code ScannerBenchmark [file]}. Without argument, a TinyBasic listing is generated
+ * in a temporary file.
+ */
+public class ScannerBenchmark {
+
+    private static final int GENERATED_LINES = 500_000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * A factory of scanners over the benchmarked file.
+     */
+    private interface ScannerFactory {
+        Scanner open(Path file) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file;
+        boolean generated = args.length == 0;
+        if (generated) {
+            file = Files.createTempFile("tinybasic", ".bas");
+            generate(file, GENERATED_LINES);
+        } else {
+            file = Paths.get(args[0]);
+        }
+
+        try {
+            long size = Files.size(file);
+            System.out.println("Input: " + file + " (" + size + " bytes)");
+            run("Reader (per char)", file, size, f -> new Scanner(new FileReader(f.toFile())));
+            run("Buffered block", file, size, f -> new BufferedScanner(new FileReader(f.toFile())));
+            run("Memory-mapped", file, size, MappedFileScanner::new);
+        } finally {
+            if (generated) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Scans the whole file several times with the given backend and prints the best throughput.
+     *
+     * @param name the name of the backend.
+     * @param file the file to scan.
+     * @param size the size of the file in bytes.
+     * @param factory the factory of scanners.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void run(String name, Path file, long size, ScannerFactory factory) throws IOException {
+        long best = Long.MAX_VALUE;
+        int lines = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            Scanner scanner = factory.open(file);
+            while (scanner.hasNext()) {
+                scanner.get();
+            }
+            lines = scanner.getCurrentLine();
+            scanner.close();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double seconds = best / 1e9;
+        System.out.printf("%-20s %8.1f ms  %8.1f MB/s  (%d lines)%n",
+                name, best / 1e6, size / seconds / (1024 * 1024), lines);
+    }
+
+    /**
+     * Writes a generated TinyBasic listing.
+     *
+     * @param file the file to write.
+     * @param lines the number of lines to generate.
+     * @throws IOException if an I/O error occurs.
+     */
+    static void generate(Path file, int lines) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 1; i <= lines; i++) {
+                int number = i * 10;
+                switch (i % 5) {
+                    case 0:
+                        writer.write(number + " LET S" + (i % 97) + " = S" + (i % 97) + " + V * 2\n");
+                        break;
+                    case 1:
+                        writer.write(number + " INPUT NUM\n");
+                        break;
+                    case 2:
+                        writer.write(number + " IF N <= 0 THEN GOTO " + (number + 20) + "\n");
+                        break;
+                    case 3:
+                        writer.write(number + " PRINT S/NUM\n");
+                        break;
+                    default:
+                        writer.write(number + " LET N = N - 1.5\n");
+                        break;
+                }
+            }
+            writer.write((lines + 1) * 10 + " END");
+        }
+    }
+}
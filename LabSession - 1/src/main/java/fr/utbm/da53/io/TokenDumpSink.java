@@ -0,0 +1,256 @@
+package fr.utbm.da53.io;
+
+import fr.utbm.da53.token.Token;
+import fr.utbm.da53.token.TokenKind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes the token dump of the lexer ({@code <ID,X> <NUM,5> <CR>}) to a file.
+ * <p>
+ * Tokens are formatted directly into a reusable block of characters. Full blocks are handed
+ * to a background thread which encodes them and writes them to the file through a
+ * {@link FileChannel}, and optionally echoes them to the console, so lexing is not slowed
+ * down by I/O. A small pool of blocks is recycled between the two threads.
+ */
+public class TokenDumpSink implements Closeable {
+
+    /**
+     * Default size of a block, in chars.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final int BLOCK_COUNT = 4;
+
+    /**
+     * A block of formatted characters.
+     */
+    private static final class Block {
+        private final char[] chars;
+        private int length;
+
+        private Block(int size) {
+            this.chars = new char[size];
+        }
+    }
+
+    // Sent to the writer thread to stop it
+    private static final Block END = new Block(0);
+
+    private final FileChannel channel;
+    private final PrintStream echo;
+    private final BlockingQueue<Block> freeBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT);
+    private final BlockingQueue<Block> fullBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT + 1);
+    private final Thread writer;
+    private volatile IOException failure;
+    private Block current;
+    private boolean closed;
+
+    /**
+     * Constructs a TokenDumpSink writing to a file, which is created or truncated.
+     *
+     * @param file the file to write to.
+     * @param echo true to also print the dump to the standard output.
+     * @throws IOException if the file cannot be opened.
+     */
+    public TokenDumpSink(Path file, boolean echo) throws IOException {
+        this(file, echo ? System.out : null, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a TokenDumpSink writing to a file, which is created or truncated.
+     *
+     * @param file the file to write to.
+     * @param echo the stream to also print the dump to, or null.
+     * @param blockSize the size of a block, in chars.
+     * @throws IOException if the file cannot be opened.
+     */
+    public TokenDumpSink(Path file, PrintStream echo, int blockSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.echo = echo;
+        // A block must hold at least the longest fixed part of a token
+        int size = Math.max(blockSize, 64);
+        for (int i = 0; i < BLOCK_COUNT - 1; i++) {
+            freeBlocks.add(new Block(size));
+        }
+        this.current = new Block(size);
+        this.writer = new Thread(this::writeBlocks, "token-dump-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Appends the dump of a token.
+     *
+     * @param token the token to write.
+     * @throws IOException if a previous write failed.
+     */
+    public void write(Token token) throws IOException {
+        switch (TokenKind.of(token)) {
+            case CR:
+                append("<CR>\n");
+                break;
+            case ID:
+                append("<ID,");
+                append(token.getLexemeSequence());
+                append("> ");
+                break;
+            case NUM:
+                append("<NUM,");
+                append(token.getLexemeSequence());
+                append("> ");
+                break;
+            case STRING:
+                append("<STRING,\"");
+                append(token.getLexemeSequence());
+                append("\"> ");
+                break;
+            default:
+                append('<');
+                append(token.getTokenType());
+                append("> ");
+                break;
+        }
+    }
+
+    /**
+     * Appends characters to the dump.
+     *
+     * @param text the characters to write.
+     * @throws IOException if a previous write failed.
+     */
+    public void append(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    /**
+     * Appends a character to the dump.
+     *
+     * @param c the character to write.
+     * @throws IOException if a previous write failed.
+     */
+    public void append(char c) throws IOException {
+        Block block = current;
+        if (block.length == block.chars.length) {
+            submit();
+            block = current;
+        }
+        block.chars[block.length++] = c;
+    }
+
+    /**
+     * Writes the pending characters and waits until everything has been written.
+     *
+     * @throws IOException if a write failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (current.length > 0) {
+                submit();
+            }
+            put(fullBlocks, END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the token dump", e);
+        } finally {
+            channel.close();
+        }
+        if (echo != null) {
+            echo.flush();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Hands the current block to the writer thread and takes a free one.
+     *
+     * @throws IOException if a previous write failed.
+     */
+    private void submit() throws IOException {
+        checkFailure();
+        put(fullBlocks, current);
+        try {
+            current = freeBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the token dump", e);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Failed to write the token dump", e);
+        }
+    }
+
+    private static void put(BlockingQueue<Block> queue, Block block) throws IOException {
+        try {
+            queue.put(block);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the token dump", e);
+        }
+    }
+
+    /**
+     * Body of the writer thread: encodes and writes the full blocks until the end marker.
+     * After a failure, blocks are still recycled so the lexing thread never blocks.
+     */
+    private void writeBlocks() {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        ByteBuffer bytes = ByteBuffer.allocate((int) (current.chars.length * encoder.maxBytesPerChar()));
+        try {
+            Block block;
+            while ((block = fullBlocks.take()) != END) {
+                if (failure == null) {
+                    try {
+                        bytes.clear();
+                        encoder.reset();
+                        CharBuffer chars = CharBuffer.wrap(block.chars, 0, block.length);
+                        CoderResult result = encoder.encode(chars, bytes, true);
+                        if (result.isError()) {
+                            result.throwException();
+                        }
+                        encoder.flush(bytes);
+                        bytes.flip();
+                        if (echo != null) {
+                            echo.write(bytes.array(), 0, bytes.limit());
+                        }
+                        while (bytes.hasRemaining()) {
+                            channel.write(bytes);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                block.length = 0;
+                freeBlocks.put(block);
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException("Token dump writer interrupted", e);
+        }
+    }
+}
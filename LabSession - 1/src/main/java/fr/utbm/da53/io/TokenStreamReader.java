@@ -0,0 +1,269 @@
+package fr.utbm.da53.io;
+
+import fr.utbm.da53.token.Token;
+import fr.utbm.da53.token.TokenKind;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a token file written by {@link TokenStreamWriter}. The file is memory-mapped, and its
+ * tokens are iterated by a {@link Cursor} which decodes them in place, without allocating
+ * per token. Each lexeme of the table is decoded into a String once, the first time it is used.
+ */
+public class TokenStreamReader {
+
+    private static final int KIND_COUNT = TokenKind.values().length;
+
+    // A varint of an int has at most 5 bytes, the last one holding the 4 high bits
+    private static final int MAX_VARINT_SHIFT = 28;
+
+    private final ByteBuffer bytes;
+    private final long tokenCount;
+    private final int tokensEnd;
+    private final int[] lexemeOffsets;
+    private final int[] lexemeLengths;
+    private final String[] lexemes;
+
+    /**
+     * Constructs a TokenStreamReader over the content of a token file.
+     *
+     * @param bytes the content of the file, from its header.
+     * @throws IOException if the content is not a valid token file.
+     */
+    public TokenStreamReader(ByteBuffer bytes) throws IOException {
+        this.bytes = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.bytes.limit() < TokenStreamWriter.HEADER_SIZE
+                || this.bytes.getInt(0) != TokenStreamWriter.MAGIC) {
+            throw new IOException("Not a token file");
+        }
+        int version = this.bytes.getInt(4);
+        if (version != TokenStreamWriter.VERSION) {
+            throw new IOException("Unsupported token file version: " + version);
+        }
+        this.tokenCount = this.bytes.getLong(8);
+        long tableOffset = this.bytes.getLong(16);
+        int lexemeCount = this.bytes.getInt(24);
+        if (tableOffset < TokenStreamWriter.HEADER_SIZE || tableOffset > this.bytes.limit() || lexemeCount < 0) {
+            throw new IOException("Corrupted token file header");
+        }
+        this.tokensEnd = (int) tableOffset;
+
+        this.lexemeOffsets = new int[lexemeCount];
+        this.lexemeLengths = new int[lexemeCount];
+        this.lexemes = new String[lexemeCount];
+        int limit = this.bytes.limit();
+        int position = tokensEnd;
+        for (int i = 0; i < lexemeCount; i++) {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= limit || shift > MAX_VARINT_SHIFT) {
+                    throw new IOException("Corrupted token file lexeme table");
+                }
+                b = this.bytes.get(position++);
+                length |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (length < 0 || length > limit - position) {
+                throw new IOException("Corrupted token file lexeme table");
+            }
+            lexemeOffsets[i] = position;
+            lexemeLengths[i] = length;
+            position += length;
+        }
+    }
+
+    /**
+     * Opens a token file, which is memory-mapped.
+     *
+     * @param file the file to read.
+     * @return the reader.
+     * @throws IOException if the file cannot be mapped or is not a valid token file.
+     */
+    public static TokenStreamReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Token file too large to be mapped: " + size + " bytes");
+            }
+            // The mapping stays valid after the channel is closed
+            return new TokenStreamReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Gets the number of tokens of the file.
+     *
+     * @return the number of tokens.
+     */
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Gets the number of distinct lexemes of the file.
+     *
+     * @return the size of the lexeme table.
+     */
+    public int getLexemeCount() {
+        return lexemes.length;
+    }
+
+    /**
+     * Gets a lexeme of the table.
+     *
+     * @param id the index of the lexeme.
+     * @return the lexeme.
+     */
+    public String getLexeme(int id) {
+        String lexeme = lexemes[id];
+        if (lexeme == null) {
+            byte[] chunk = new byte[lexemeLengths[id]];
+            bytes.get(lexemeOffsets[id], chunk);
+            lexeme = new String(chunk, StandardCharsets.UTF_8);
+            lexemes[id] = lexeme;
+        }
+        return lexeme;
+    }
+
+    /**
+     * Creates a cursor before the first token.
+     *
+     * @return a new cursor.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Iterates the tokens of the file. The cursor is positioned before the first token, and
+     * {@link #next()} moves it to the following token.
+     */
+    public final class Cursor {
+        private int position = TokenStreamWriter.HEADER_SIZE;
+        private TokenKind kind;
+        private int line;
+        private int column;
+        private int lexemeId = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves to the next token.
+         *
+         * @return true if the cursor is on a token, false if there are no more tokens.
+         * @throws IOException if the token is not valid.
+         */
+        public boolean next() throws IOException {
+            if (position >= tokensEnd) {
+                kind = null;
+                return false;
+            }
+            int header = readVarint();
+            int ordinal = header >>> 1;
+            if (ordinal >= KIND_COUNT) {
+                throw new IOException("Corrupted token file: invalid token kind " + ordinal);
+            }
+            kind = TokenKind.valueOf(ordinal);
+            int zigzag = readVarint();
+            line += (zigzag >>> 1) ^ -(zigzag & 1);
+            column = readVarint();
+            lexemeId = -1;
+            if ((header & 1) != 0) {
+                lexemeId = readVarint();
+                if (lexemeId < 0 || lexemeId >= lexemes.length) {
+                    throw new IOException("Corrupted token file: invalid lexeme index " + lexemeId);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Goes back before the first token.
+         */
+        public void rewind() {
+            position = TokenStreamWriter.HEADER_SIZE;
+            kind = null;
+            line = 0;
+            column = 0;
+            lexemeId = -1;
+        }
+
+        /**
+         * Gets the kind of the current token.
+         *
+         * @return the kind.
+         */
+        public TokenKind kind() {
+            return kind;
+        }
+
+        /**
+         * Gets the line of the current token.
+         *
+         * @return the line.
+         */
+        public int line() {
+            return line;
+        }
+
+        /**
+         * Gets the column of the current token.
+         *
+         * @return the column.
+         */
+        public int column() {
+            return column;
+        }
+
+        /**
+         * Gets the index of the lexeme of the current token in the lexeme table.
+         *
+         * @return the index, or -1 if the token has the fixed lexeme of its kind.
+         */
+        public int lexemeId() {
+            return lexemeId;
+        }
+
+        /**
+         * Gets the lexeme of the current token.
+         *
+         * @return the lexeme, shared by all the tokens with the same lexeme.
+         */
+        public String lexeme() {
+            return lexemeId < 0 ? kind.getImage() : getLexeme(lexemeId);
+        }
+
+        /**
+         * Creates a token from the current token.
+         *
+         * @return a new token.
+         */
+        public Token token() {
+            return kind.newToken(lexeme(), line, column);
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= tokensEnd || shift > MAX_VARINT_SHIFT) {
+                    throw new IOException("Corrupted token file: invalid token at offset " + position);
+                }
+                b = bytes.get(position++);
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package fr.utbm.da53.io;
+
+import fr.utbm.da53.token.Token;
+import fr.utbm.da53.token.TokenKind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes tokens to a file in a compact binary format, read back by {@link TokenStreamReader}.
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes, in little endian:
+ * <ul>
+ *     <li>the magic number {@link #MAGIC} and the format {@link #VERSION} (4 bytes each),</li>
+ *     <li>the number of tokens (8 bytes),</li>
+ *     <li>the offset and the number of entries of the lexeme table (8 and 4 bytes),</li>
+ *     <li>4 reserved bytes.</li>
+ * </ul>
+ * It is followed by the tokens, each written as unsigned varints: the ordinal of its
+ * {@link TokenKind} shifted left by one, with bit 0 set when the token has a lexeme in the
+ * table, the difference between its line and the line of the previous token (zigzag
+ * encoded), its column, and if bit 0 is set, the index of its lexeme in the table. Only the
+ * tokens whose lexeme differs from the fixed lexeme of their kind refer to the table.
+ * The lexeme table ends the file: each distinct lexeme is written once, as its length in
+ * bytes (varint) followed by its UTF-8 bytes.
+ * <p>
+ * Tokens are streamed to the file as they are written; the lexeme table and the header are
+ * written by {@link #close()}.
+ */
+public class TokenStreamWriter implements Closeable {
+
+    /**
+     * Magic number of the format, "TBTK" in ASCII.
+     */
+    public static final int MAGIC = 0x4b544254;
+
+    /**
+     * Version of the format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header, in bytes.
+     */
+    public static final int HEADER_SIZE = 32;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Maximum size of an encoded token: four varints of at most 5 bytes
+    private static final int MAX_TOKEN_SIZE = 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final Map<String, Integer> lexemeIds = new HashMap<>();
+    private final List<String> lexemes = new ArrayList<>();
+    private long tokenCount;
+    private int previousLine;
+    private boolean closed;
+
+    /**
+     * Constructs a TokenStreamWriter writing to a file, which is created or truncated.
+     *
+     * @param file the file to write to.
+     * @throws IOException if the file cannot be opened.
+     */
+    public TokenStreamWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        // The header is written on close, once the counts are known
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Writes a token.
+     *
+     * @param token the token to write.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void write(Token token) throws IOException {
+        if (closed) {
+            throw new IOException("Token stream is closed");
+        }
+        if (buffer.remaining() < MAX_TOKEN_SIZE) {
+            flush();
+        }
+        TokenKind kind = TokenKind.of(token);
+        int line = token.getLine();
+        int lineDelta = line - previousLine;
+        previousLine = line;
+        String lexeme = token.getLexeme();
+        boolean hasLexeme = !lexeme.equals(kind.getImage());
+        putVarint(kind.ordinal() << 1 | (hasLexeme ? 1 : 0));
+        putVarint((lineDelta << 1) ^ (lineDelta >> 31));
+        putVarint(token.getColumn());
+        if (hasLexeme) {
+            putVarint(intern(lexeme));
+        }
+        tokenCount++;
+    }
+
+    /**
+     * Gets the number of tokens written so far.
+     *
+     * @return the number of tokens.
+     */
+    public long getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Writes the lexeme table and the header, then closes the file.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            long tableOffset = channel.position();
+            for (String lexeme : lexemes) {
+                byte[] bytes = lexeme.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < bytes.length + 5) {
+                    flush();
+                }
+                putVarint(bytes.length);
+                if (bytes.length > buffer.remaining()) {
+                    // Larger than the whole buffer
+                    flush();
+                    ByteBuffer large = ByteBuffer.wrap(bytes);
+                    while (large.hasRemaining()) {
+                        channel.write(large);
+                    }
+                } else {
+                    buffer.put(bytes);
+                }
+            }
+            flush();
+
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(tokenCount).putLong(tableOffset)
+                    .putInt(lexemes.size()).putInt(0);
+            buffer.flip();
+            long position = 0;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Gets the index of a lexeme in the table, adding it if it is new.
+     *
+     * @param lexeme the lexeme.
+     * @return the index of the lexeme.
+     */
+    private int intern(String lexeme) {
+        Integer id = lexemeIds.get(lexeme);
+        if (id == null) {
+            id = lexemes.size();
+            lexemeIds.put(lexeme, id);
+            lexemes.add(lexeme);
+        }
+        return id;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,503 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.scanner.Scanner;
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.symboltable.SymbolTableEntry;
+import fr.utbm.da53.symboltable.SymbolTablePointer;
+import fr.utbm.da53.token.IDToken;
+import fr.utbm.da53.token.Token;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Keeps the tokens and the symbol table of a source text up to date while the text is edited.
+ * <p>
+ * Each line of the text is lexed on its own, since TinyBasic lines are lexically independent.
+ * On an edit, only the lines touched by the edit are lexed again. The lines are grouped in
+ * blocks which know their first line and offset, and the lines of a block are positioned
+ * relatively to it, so an edit adding or removing lines only shifts the following blocks.
+ * <p>
+ * The tokens of a line keep the line number they were lexed at, and are moved to the current
+ * number of their line when they are read. Likewise, an edit updates the symbol table entries
+ * of the identifiers of the lines lexed again; when it changes the number of lines, the other
+ * entries are updated the next time the symbol table is read.
+ */
+public class IncrementalLexer {
+
+    /**
+     * Number of lines above which a block is split.
+     */
+    private static final int BLOCK_SIZE = 64;
+
+    private static final Comparator<Line> LINE_ORDER = Comparator.comparingInt(Line::index);
+
+    private final Function<Scanner, Lexer> lexerFactory;
+    private final StringBuilder text;
+    private final List<Block> blocks = new ArrayList<>();
+    private final InternedSymbolTable symbolTable = new InternedSymbolTable();
+    private final Map<SymbolTablePointer, TreeMap<Line, List<Token>>> occurrences = new HashMap<>();
+    private int lineCount;
+    private boolean staleEntries;
+
+    /**
+     * Consecutive lines of the text.
+     */
+    private static final class Block {
+        private int firstLine;
+        private int start;
+        private int length;
+        private final List<Line> lines;
+
+        private Block(List<Line> lines) {
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * A line of the text, with its length, the offset of its first character in its block and
+     * its tokens. The tokens include the CR token ending the line, but not the EOF token, which
+     * is only kept by the last line. They are numbered for the line index {@code lexedLine}.
+     */
+    private static final class Line {
+        private Block block;
+        private int indexInBlock;
+        private int start;
+        private final int length;
+        private final List<Token> tokens;
+        private Token eofToken;
+        private int lexedLine;
+
+        private Line(int length, int lexedLine) {
+            this.length = length;
+            this.tokens = new ArrayList<>();
+            this.lexedLine = lexedLine;
+        }
+
+        private int index() {
+            return block.firstLine + indexInBlock;
+        }
+
+        private int start() {
+            return block.start + start;
+        }
+
+        /**
+         * Moves the tokens of the line to its current line number.
+         */
+        private void relocate() {
+            int shift = index() - lexedLine;
+            if (shift != 0) {
+                for (Token token : tokens) {
+                    token.setLine(token.getLine() + shift);
+                }
+                if (eofToken != null) {
+                    eofToken.setLine(eofToken.getLine() + shift);
+                }
+                lexedLine += shift;
+            }
+        }
+    }
+
+    /**
+     * Constructs an IncrementalLexer over a text, lexed by table-driven lexers.
+     *
+     * @param source the initial text.
+     * @throws IOException if a lexer fails.
+     */
+    public IncrementalLexer(CharSequence source) throws IOException {
+        this(source, TableDrivenLexer::new);
+    }
+
+    /**
+     * Constructs an IncrementalLexer over a text.
+     *
+     * @param source the initial text.
+     * @param lexerFactory the factory creating the lexer of each line.
+     * @throws IOException if a lexer fails.
+     */
+    public IncrementalLexer(CharSequence source, Function<Scanner, Lexer> lexerFactory) throws IOException {
+        this.lexerFactory = lexerFactory;
+        this.text = new StringBuilder(source);
+        List<Line> newLines = lexLines(0, text.length(), 0, true);
+        blocks.addAll(toBlocks(newLines));
+        renumber(0);
+        Set<SymbolTablePointer> touched = new HashSet<>();
+        register(newLines, touched);
+        refresh(touched);
+    }
+
+    /**
+     * Applies an edit to the text and lexes the lines it touches again.
+     *
+     * @param offset the offset of the edit in the text.
+     * @param removedLength the number of characters removed at the offset.
+     * @param insertedText the text inserted at the offset.
+     * @return the number of lines lexed again.
+     * @throws IOException if a lexer fails.
+     * @throws IndexOutOfBoundsException if the removed range is not in the text.
+     */
+    public int edit(int offset, int removedLength, CharSequence insertedText) throws IOException {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > text.length()) {
+            throw new IndexOutOfBoundsException("Invalid edit range: " + offset + "+" + removedLength);
+        }
+        Line firstLine = lineAt(offset);
+        Line lastLine = lineAt(offset + removedLength);
+        int firstIndex = firstLine.index();
+        boolean atEnd = lastLine.index() == lineCount - 1;
+        int regionStart = firstLine.start();
+        int regionEnd = atEnd ? text.length() : line(lastLine.index() + 1).start();
+
+        text.replace(offset, offset + removedLength, insertedText.toString());
+        int delta = insertedText.length() - removedLength;
+
+        // The lines after the edit still start after a newline, so the region still ends on a line boundary
+        int firstBlockIndex = blocks.indexOf(firstLine.block);
+        int lastBlockIndex = blocks.indexOf(lastLine.block);
+        List<Line> oldLines = new ArrayList<>();
+        for (int b = firstBlockIndex; b <= lastBlockIndex; b++) {
+            List<Line> blockLines = blocks.get(b).lines;
+            int from = b == firstBlockIndex ? firstLine.indexInBlock : 0;
+            int to = b == lastBlockIndex ? lastLine.indexInBlock + 1 : blockLines.size();
+            oldLines.addAll(blockLines.subList(from, to));
+        }
+        Set<SymbolTablePointer> touched = new HashSet<>();
+        unregister(oldLines, touched);
+        List<Line> newLines = lexLines(regionStart, regionEnd + delta, firstIndex, atEnd);
+        int lineDelta = newLines.size() - oldLines.size();
+
+        // Rebuild the blocks holding the replaced lines, absorbing the next one if they became small
+        List<Line> lines = new ArrayList<>(firstLine.block.lines.subList(0, firstLine.indexInBlock));
+        lines.addAll(newLines);
+        lines.addAll(lastLine.block.lines.subList(lastLine.indexInBlock + 1, lastLine.block.lines.size()));
+        if (lines.size() < BLOCK_SIZE / 2 && lastBlockIndex + 1 < blocks.size()) {
+            lastBlockIndex++;
+            lines.addAll(blocks.get(lastBlockIndex).lines);
+        }
+        List<Block> range = blocks.subList(firstBlockIndex, lastBlockIndex + 1);
+        range.clear();
+        range.addAll(toBlocks(lines));
+        renumber(firstBlockIndex);
+
+        register(newLines, touched);
+        refresh(touched);
+        if (lineDelta != 0) {
+            // The occurrences after the edit have moved
+            staleEntries = true;
+        }
+        return newLines.size();
+    }
+
+    /**
+     * Gets the current text.
+     *
+     * @return the text.
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * Gets the symbol table of the identifiers of the text. The occurrences of the entries are
+     * the ones of the current text until the next edit.
+     *
+     * @return the symbol table.
+     */
+    public InternedSymbolTable getSymbolTable() {
+        if (staleEntries) {
+            refresh(occurrences.keySet());
+            staleEntries = false;
+        }
+        return symbolTable;
+    }
+
+    /**
+     * Gets the number of lines of the text.
+     *
+     * @return the number of lines.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Gets the tokens of a line, including the CR token ending it.
+     *
+     * @param line the index of the line, starting at 0.
+     * @return an unmodifiable list of the tokens of the line.
+     * @throws IndexOutOfBoundsException if there is no such line.
+     */
+    public List<Token> getLineTokens(int line) {
+        Line l = line(line);
+        l.relocate();
+        return Collections.unmodifiableList(l.tokens);
+    }
+
+    /**
+     * Gets all the tokens of the text, ending with the EOF token.
+     *
+     * @return a new list of the tokens.
+     */
+    public List<Token> getTokens() {
+        List<Token> tokens = new ArrayList<>();
+        Line last = null;
+        for (Block block : blocks) {
+            for (Line line : block.lines) {
+                line.relocate();
+                tokens.addAll(line.tokens);
+                last = line;
+            }
+        }
+        tokens.add(last.eofToken);
+        return tokens;
+    }
+
+    /**
+     * Finds a line by its index.
+     *
+     * @param index the index of the line.
+     * @return the line.
+     * @throws IndexOutOfBoundsException if there is no such line.
+     */
+    private Line line(int index) {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("No line " + index);
+        }
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks.get(mid).firstLine <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        Block block = blocks.get(low);
+        return block.lines.get(index - block.firstLine);
+    }
+
+    /**
+     * Finds the line containing an offset.
+     *
+     * @param offset the offset in the text.
+     * @return the line.
+     */
+    private Line lineAt(int offset) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks.get(mid).start <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        Block block = blocks.get(low);
+        int relative = offset - block.start;
+        low = 0;
+        high = block.lines.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (block.lines.get(mid).start <= relative) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return block.lines.get(low);
+    }
+
+    /**
+     * Groups lines into blocks, and positions each line in its block.
+     *
+     * @param lines the lines.
+     * @return the blocks.
+     */
+    private static List<Block> toBlocks(List<Line> lines) {
+        int blockCount = Math.max((lines.size() + BLOCK_SIZE - 1) / BLOCK_SIZE, 1);
+        List<Block> result = new ArrayList<>(blockCount);
+        for (int b = 0; b < blockCount; b++) {
+            Block block = new Block(new ArrayList<>(lines.subList(lines.size() * b / blockCount, lines.size() * (b + 1) / blockCount)));
+            for (int i = 0; i < block.lines.size(); i++) {
+                Line line = block.lines.get(i);
+                line.block = block;
+                line.indexInBlock = i;
+                line.start = block.length;
+                block.length += line.length;
+            }
+            result.add(block);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the first line and the offset of the blocks from a given one, from the sizes of the
+     * blocks before them.
+     *
+     * @param from the index of the first block to number.
+     */
+    private void renumber(int from) {
+        Block previous = from == 0 ? null : blocks.get(from - 1);
+        int firstLine = previous == null ? 0 : previous.firstLine + previous.lines.size();
+        int start = previous == null ? 0 : previous.start + previous.length;
+        for (int b = from; b < blocks.size(); b++) {
+            Block block = blocks.get(b);
+            block.firstLine = firstLine;
+            block.start = start;
+            firstLine += block.lines.size();
+            start += block.length;
+        }
+        lineCount = firstLine;
+    }
+
+    /**
+     * Lexes the lines of a region of the text. If the region ends the text, the last line
+     * gets the EOF token, and a text ending with a newline gets a last empty line.
+     *
+     * @param from the offset of the first line of the region.
+     * @param to the offset after the region, which is a line boundary.
+     * @param firstLine the index of the first line of the region.
+     * @param atTextEnd true if the region ends the text.
+     * @return the lexed lines, which are not in a block yet.
+     * @throws IOException if a lexer fails.
+     */
+    private List<Line> lexLines(int from, int to, int firstLine, boolean atTextEnd) throws IOException {
+        int length = to - from;
+        char[] buffer = new char[length];
+        text.getChars(from, to, buffer, 0);
+
+        List<Line> result = new ArrayList<>();
+        int start = 0;
+        while (true) {
+            int end = start;
+            while (end < length && buffer[end] != '\n') {
+                end++;
+            }
+            boolean hasNewline = end < length;
+            if (hasNewline) {
+                end++;
+            }
+            int lineIndex = firstLine + result.size();
+            Line line = new Line(end - start, lineIndex);
+            lexLine(buffer, start, end, line, atTextEnd && !hasNewline);
+            result.add(line);
+            start = end;
+            if (start == length && (!hasNewline || !atTextEnd)) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Lexes a single line.
+     *
+     * @param buffer the characters of the region.
+     * @param start the index of the line in the buffer.
+     * @param end the index after the line in the buffer.
+     * @param line the line receiving the tokens, without the EOF token.
+     * @param last true if the line is the last one of the text, which keeps the EOF token.
+     * @throws IOException if the lexer fails.
+     */
+    private void lexLine(char[] buffer, int start, int end, Line line, boolean last) throws IOException {
+        Lexer lexer = lexerFactory.apply(new BufferedScanner(buffer, start, end));
+        Token token;
+        while (true) {
+            token = lexer.getNextSymbol();
+            if (token == null) {
+                continue;
+            }
+            // The lexer numbers the lines of its input from 1
+            token.setLine(token.getLine() + line.lexedLine);
+            if (token.getTokenType().equals("EOF")) {
+                break;
+            }
+            line.tokens.add(token);
+        }
+        if (last) {
+            line.eofToken = token;
+        }
+    }
+
+    /**
+     * Records the identifier occurrences of lexed lines in the symbol table.
+     *
+     * @param newLines the lexed lines, which are positioned in the blocks.
+     * @param touched the set receiving the entries whose occurrences changed.
+     */
+    private void register(Collection<Line> newLines, Set<SymbolTablePointer> touched) {
+        for (Line line : newLines) {
+            for (Token token : line.tokens) {
+                if (token instanceof IDToken) {
+                    SymbolTablePointer pointer = symbolTable.intern((IDToken) token);
+                    occurrences.computeIfAbsent(pointer, p -> new TreeMap<>(LINE_ORDER))
+                            .computeIfAbsent(line, l -> new ArrayList<>(1)).add(token);
+                    touched.add(pointer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the identifier occurrences of lines about to be replaced.
+     *
+     * @param oldLines the replaced lines, which are still positioned in the blocks.
+     * @param touched the set receiving the entries whose occurrences changed.
+     */
+    private void unregister(Collection<Line> oldLines, Set<SymbolTablePointer> touched) {
+        for (Line line : oldLines) {
+            for (Token token : line.tokens) {
+                if (token instanceof IDToken) {
+                    SymbolTablePointer pointer = ((IDToken) token).getSymbolPointer();
+                    occurrences.get(pointer).remove(line);
+                    touched.add(pointer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the occurrence ranges of entries from the occurrences of their identifier,
+     * and removes the entries of identifiers which no longer occur.
+     *
+     * @param touched the entries to update.
+     */
+    private void refresh(Collection<SymbolTablePointer> touched) {
+        List<SymbolTablePointer> removed = new ArrayList<>();
+        for (SymbolTablePointer pointer : touched) {
+            TreeMap<Line, List<Token>> lines = occurrences.get(pointer);
+            SymbolTableEntry entry = pointer.getSymbolTableEntry();
+            if (lines.isEmpty()) {
+                removed.add(pointer);
+                continue;
+            }
+            Line firstLine = lines.firstKey();
+            Line lastLine = lines.lastKey();
+            firstLine.relocate();
+            lastLine.relocate();
+            List<Token> lastTokens = lines.get(lastLine);
+            Token first = lines.get(firstLine).get(0);
+            Token last = lastTokens.get(lastTokens.size() - 1);
+            entry.setFirstOccurrenceLine(first.getLine());
+            entry.setFirstOccurrenceColumn(first.getColumn());
+            entry.setLastOccurrenceLine(last.getLine());
+            entry.setLastOccurrenceColumn(last.getColumn());
+        }
+        for (SymbolTablePointer pointer : removed) {
+            occurrences.remove(pointer);
+            symbolTable.remove(pointer.getSymbolTableEntry().getToken().getLexeme());
+        }
+    }
+}
@@ -4,11 +4,40 @@ import fr.utbm.da53.scanner.Scanner;
 import fr.utbm.da53.token.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class Lexer {
+public class Lexer implements Iterable<Token> {
 
     private Scanner scanner;
 
+    private static final TokenKind[] KEYWORDS = {
+            TokenKind.PRINT, TokenKind.IF, TokenKind.THEN, TokenKind.GOTO, TokenKind.GOSUB,
+            TokenKind.LET, TokenKind.INPUT, TokenKind.RETURN, TokenKind.END
+    };
+
+    /**
+     * Offset in the input of the first character of the last token returned.
+     */
+    protected int tokenOffset;
+
+    // State of the last token scanned, reused from one token to the next
+    private final StringBuilder lexeme = new StringBuilder();
+    private boolean lexemeFolded;
+    private int tokenLine;
+    private int tokenColumn;
+
+    // Value of the number being scanned: its digits, ignoring the decimal points
+    private long mantissa;
+    private int digits;
+    private int scale;
+    private int dots;
+
     /**
      * Default constructor for Lexer.
      */
@@ -42,7 +71,113 @@ public class Lexer {
      * @throws IOException if an I/O error occurs.
      */
     public Token getNextSymbol() throws IOException {
-        StringBuilder lexeme = new StringBuilder();
+        TokenKind kind = scan();
+        if (kind == null) {
+            return null;
+        }
+        if (kind == TokenKind.NUM) {
+            return numberToken();
+        }
+        String lex = kind.hasFixedImage() ? kind.getImage() : lexeme.toString();
+        return kind.newToken(lex, tokenLine, tokenColumn);
+    }
+
+    /**
+     * Returns an iterator over the remaining tokens of the input. Comments and unknown
+     * characters are skipped, and the iteration ends before the EOF token. Tokens are read
+     * lazily from the scanner, so the lexer can only be iterated once.
+     *
+     * @return the iterator over the tokens.
+     * @throws UncheckedIOException if an I/O error occurs while iterating.
+     */
+    @Override
+    public Iterator<Token> iterator() {
+        return new Iterator<Token>() {
+
+            private Token next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        Token token;
+                        do {
+                            token = getNextSymbol();
+                        } while (token == null);
+                        if (token.getTokenType().equals("EOF")) {
+                            done = true;
+                        } else {
+                            next = token;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Token next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Token token = next;
+                next = null;
+                return token;
+            }
+        };
+    }
+
+    /**
+     * Returns a sequential stream of the remaining tokens of the input, as returned by {@link #iterator()}.
+     *
+     * @return the stream of tokens.
+     */
+    public Stream<Token> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Lexes the whole input into a token buffer, up to and including the EOF token.
+     * Comments are skipped.
+     *
+     * @param buffer the buffer to append the tokens to.
+     * @return the number of tokens appended.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int tokenize(TokenBuffer buffer) throws IOException {
+        CharSequence source = scanner.getSource();
+        int count = 0;
+        TokenKind kind;
+        do {
+            kind = scan();
+            if (kind == null) {
+                continue;
+            }
+            int length = scanner.getCurrentOffset() - tokenOffset;
+            if (kind.hasFixedImage()) {
+                buffer.append(kind, tokenOffset, length, tokenLine, tokenColumn);
+            } else if (source != null && !lexemeFolded) {
+                buffer.append(kind, tokenOffset, length, tokenLine, tokenColumn, source, tokenOffset, length);
+            } else {
+                buffer.append(kind, tokenOffset, length, tokenLine, tokenColumn, lexeme, 0, lexeme.length());
+            }
+            count++;
+        } while (kind != TokenKind.EOF);
+        return count;
+    }
+
+    /**
+     * Scans the next token without creating it. Its position is stored in {@link #tokenOffset},
+     * {@link #tokenLine} and {@link #tokenColumn}, and the lexeme of identifiers and numbers in
+     * {@link #lexeme}.
+     *
+     * @return the kind of the token, or null if a comment or an unknown character was consumed.
+     * @throws IOException if an I/O error occurs.
+     */
+    private TokenKind scan() throws IOException {
         char currentChar = scanner.peek();
 
         // Skip whitespaces
@@ -50,148 +185,180 @@ public class Lexer {
             scanner.get();
             currentChar = scanner.peek();
         }
+        tokenOffset = scanner.getCurrentOffset();
 
-        // Handle End of File
+        TokenKind kind;
         if (currentChar == (char) -1) {
-            return new EOFToken("", scanner.getCurrentLine(), scanner.getCurrentColumn());
-        }
-
-        // Handle End of Line
-        if (currentChar == '\r') {
+            // Handle End of File
+            kind = TokenKind.EOF;
+        } else if (currentChar == '\r') {
+            // Handle End of Line
             scanner.get();
             if (scanner.peek() == '\n') {
                 scanner.get();
             }
-            return new CReturnToken("\n", scanner.getCurrentLine(), scanner.getCurrentColumn());
+            kind = TokenKind.CR;
         } else if (currentChar == '\n') {
             scanner.get();
-            return new CReturnToken("\n", scanner.getCurrentLine(), scanner.getCurrentColumn());
-        }
-
-
-        // Handle comments beginning with "REM"
-        if (currentChar == 'R') {
-            if (scanComment()) {
-                return null;  // Skip comment content
-            }
-        }
-
-        // Handle keywords, identifiers, and specific tokens
-        if (Character.isLetter(currentChar) || currentChar == '_') {
-            return handleIdentifiersOrKeywords(lexeme);
+            kind = TokenKind.CR;
+        } else if (currentChar == 'R' && scanComment()) {
+            // Skip comment content
+            return null;
+        } else if (Character.isLetter(currentChar) || currentChar == '_') {
+            // Handle keywords, identifiers, and specific tokens
+            kind = handleIdentifiersOrKeywords();
+        } else if (Character.isDigit(currentChar)) {
+            // Handle numbers
+            kind = handleNumber();
+        } else {
+            // Handle single-character tokens
+            kind = handleSingleCharacterTokens(currentChar);
         }
-
-        // Handle numbers
-        if (Character.isDigit(currentChar)) {
-            return handleNumber(lexeme);
-        }
-
-        // Handle single-character tokens
-        return handleSingleCharacterTokens(currentChar, lexeme);
+        tokenLine = scanner.getCurrentLine();
+        tokenColumn = scanner.getCurrentColumn();
+        return kind;
     }
 
     /**
      * Skips characters until the end of a line for comments starting with "REM".
+     * The input is only consumed if it starts with "REM", so that other identifiers starting
+     * with R are left intact. The end of line is not consumed, so it still produces a CR token.
      *
      * @return true if a comment was detected and processed, false otherwise.
      * @throws IOException if an I/O error occurs.
      */
     private boolean scanComment() throws IOException {
-        StringBuilder commentStart = new StringBuilder();
-        commentStart.append(scanner.get())
-                .append(scanner.get())
-                .append(scanner.get());
-
-        if (commentStart.toString().equals("REM")) {
-            char currentChar;
-            do {
-                currentChar = scanner.get();  // Skip characters until end of line or file
-            } while (currentChar != '\n' && currentChar != (char) -1);
-            return true;
+        if (scanner.peek(0) != 'R' || scanner.peek(1) != 'E' || scanner.peek(2) != 'M') {
+            return false;
         }
-        return false;
+
+        char currentChar = scanner.peek();
+        while (currentChar != '\n' && currentChar != '\r' && currentChar != (char) -1) {
+            scanner.get();  // Skip characters until end of line or file
+            currentChar = scanner.peek();
+        }
+        return true;
     }
 
     /**
-     * Handles the lexing of identifiers or keywords.
+     * Handles the lexing of identifiers or keywords. The lexeme, in upper case, is left in
+     * {@link #lexeme}.
      *
-     * @param lexeme the lexeme to populate.
-     * @return a Token instance for the identified keyword or identifier.
+     * @return the kind of the keyword, or {@link TokenKind#ID} for an identifier.
      * @throws IOException if an I/O error occurs.
      */
-    private Token handleIdentifiersOrKeywords(StringBuilder lexeme) throws IOException {
+    private TokenKind handleIdentifiersOrKeywords() throws IOException {
+        lexeme.setLength(0);
+        lexemeFolded = false;
+        boolean ascii = true;
         char currentChar = scanner.peek();
-        if (Character.isLetter(currentChar) || currentChar == '_') {
-            while (Character.isLetterOrDigit(currentChar) || currentChar == '_') {
-                lexeme.append(scanner.get());
-                currentChar = scanner.peek();
-            }
+        while (Character.isLetterOrDigit(currentChar) || currentChar == '_') {
+            lexeme.append(scanner.get());
+            ascii &= currentChar < 128;
+            currentChar = scanner.peek();
+        }
 
-            String lex = lexeme.toString().toUpperCase();
-            switch (lex) {
-                case "PRINT":
-                    return new PrintToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "IF":
-                    return new IFToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "THEN":
-                    return new ThenToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "GOTO":
-                    return new GotoToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "GOSUB":
-                    return new GosubToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "LET":
-                    return new LetToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "INPUT":
-                    return new InputToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "RETURN":
-                    return new ReturnToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                case "END":
-                    return new EndToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn());
-                default:
-                    return new IDToken(lex, scanner.getCurrentLine(), scanner.getCurrentColumn(), null);
+        if (ascii) {
+            for (int i = 0; i < lexeme.length(); i++) {
+                char c = lexeme.charAt(i);
+                if (c >= 'a' && c <= 'z') {
+                    lexeme.setCharAt(i, (char) (c - ('a' - 'A')));
+                    lexemeFolded = true;
+                }
+            }
+        } else {
+            // Upper-casing may change the length of the lexeme outside of ASCII
+            String upper = lexeme.toString().toUpperCase();
+            if (!upper.contentEquals(lexeme)) {
+                lexeme.setLength(0);
+                lexeme.append(upper);
+                lexemeFolded = true;
+            }
+        }
+        for (TokenKind keyword : KEYWORDS) {
+            if (keyword.getImage().contentEquals(lexeme)) {
+                return keyword;
             }
         }
-        return null;
+        return TokenKind.ID;
     }
 
     /**
-     * Handles the lexing of numeric tokens.
+     * Handles the lexing of numeric tokens. The lexeme is left in {@link #lexeme} and the value
+     * accumulated while scanning in {@link #mantissa}, {@link #digits}, {@link #scale} and {@link #dots}.
      *
-     * @param lexeme the lexeme to populate.
-     * @return a NumToken if the lexeme is a valid number.
+     * @return {@link TokenKind#NUM}.
      * @throws IOException if an I/O error occurs.
      */
-    private Token handleNumber(StringBuilder lexeme) throws IOException {
+    private TokenKind handleNumber() throws IOException {
+        // Accumulate the value while scanning, so integers never need to be parsed
+        lexeme.setLength(0);
+        lexemeFolded = false;
+        mantissa = 0;
+        digits = 0;
+        scale = 0;
+        dots = 0;
         char currentChar = scanner.peek();
         while (Character.isDigit(currentChar) || currentChar == '.') {
             lexeme.append(scanner.get());
+            if (currentChar == '.') {
+                dots++;
+            } else {
+                mantissa = mantissa * 10 + Character.digit(currentChar, 10);
+                digits++;
+                if (dots > 0) {
+                    scale++;
+                }
+            }
             currentChar = scanner.peek();
         }
-        return new NumToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn(), Float.parseFloat(lexeme.toString()));
+        return TokenKind.NUM;
+    }
+
+    /**
+     * Creates the token of the number just scanned, from the value accumulated while scanning.
+     * With an in-memory source, the lexeme refers to the source instead of being copied.
+     *
+     * @return the number token.
+     */
+    private NumToken numberToken() {
+        boolean integer = dots == 0 && digits <= NumToken.MAX_INTEGER_DIGITS;
+        float value = integer ? 0 : NumToken.toFloat(mantissa, digits, scale, dots, lexeme);
+        CharSequence source = scanner.getSource();
+        if (source != null) {
+            int length = lexeme.length();
+            if (integer) {
+                return new NumToken(source, tokenOffset, length, tokenLine, tokenColumn, mantissa);
+            }
+            return new NumToken(source, tokenOffset, length, tokenLine, tokenColumn, value);
+        }
+        String text = lexeme.toString();
+        if (integer) {
+            return new NumToken(text, tokenLine, tokenColumn, mantissa);
+        }
+        return new NumToken(text, tokenLine, tokenColumn, value);
     }
 
     /**
      * Handles single-character tokens such as operators and punctuation.
      *
      * @param currentChar the character to process.
-     * @param lexeme      the lexeme to populate.
-     * @return a Token instance for the detected character.
+     * @return the kind of the detected character, or null if it is unknown.
      * @throws IOException if an I/O error occurs.
      */
-    private Token handleSingleCharacterTokens(char currentChar, StringBuilder lexeme) throws IOException {
+    private TokenKind handleSingleCharacterTokens(char currentChar) throws IOException {
         if (currentChar == '<' || currentChar == '>' || currentChar == '=') {
             return handleRelationalOperator(currentChar);
         }
-        lexeme.append(scanner.get());
+        scanner.get();
         switch (currentChar) {
-            case '+': return new PlusToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
-            case '-': return new MinusToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
-            case '*': return new MultiplyToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
-            case '/': return new DivideToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
-            case '=': return new EqualToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
-            case '(': return new OParentToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
-            case ')': return new CParentToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
-            case ',': return new CommaToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
+            case '+': return TokenKind.PLUS;
+            case '-': return TokenKind.MINUS;
+            case '*': return TokenKind.MULTIPLY;
+            case '/': return TokenKind.DIVIDE;
+            case '(': return TokenKind.OPARENT;
+            case ')': return TokenKind.CPARENT;
+            case ',': return TokenKind.COMMA;
             default: return null;
         }
     }
@@ -200,22 +367,25 @@ public class Lexer {
      * Handles the lexing of relational operators.
      *
      * @param currentChar the character to process.
-     * @return a RelOpToken instance for the detected relational operator.
+     * @return the kind of the detected relational operator.
      * @throws IOException if an I/O error occurs.
      */
-    private Token handleRelationalOperator(char currentChar) throws IOException {
-        StringBuilder lexeme = new StringBuilder();
-        lexeme.append(scanner.get());
+    private TokenKind handleRelationalOperator(char currentChar) throws IOException {
+        scanner.get();
 
         char nextChar = scanner.peek();
 
         // Check for compound relational operators
-        if ((currentChar == '<' && (nextChar == '=' || nextChar == '>')) ||
-                (currentChar == '>' && nextChar == '=')) {
-            lexeme.append(scanner.get());  // Consume the second character
+        if (currentChar == '<' && nextChar == '=') {
+            scanner.get();
+            return TokenKind.LE;
+        } else if (currentChar == '<' && nextChar == '>') {
+            scanner.get();
+            return TokenKind.NQ;
+        } else if (currentChar == '>' && nextChar == '=') {
+            scanner.get();
+            return TokenKind.GE;
         }
-
-        // Create the RelOpToken with the full lexeme
-        return new RelOpToken(lexeme.toString(), scanner.getCurrentLine(), scanner.getCurrentColumn());
+        return currentChar == '<' ? TokenKind.LT : currentChar == '>' ? TokenKind.GT : TokenKind.EQ;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,364 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.scanner.Scanner;
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.token.IDToken;
+import fr.utbm.da53.token.Token;
+import fr.utbm.da53.token.TokenKind;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the tokens of source lines, for lexing many programs sharing most of
+ * their lines. TinyBasic lines are lexically independent, so the tokens of a line only depend
+ * on its text: a line seen before gets its tokens from the cache, moved to its line number,
+ * and only the new lines are lexed.
+ * <p>
+ * Lines are looked up by a 64-bit hash of their characters, including the newline ending them,
+ * and the characters are compared on a hit. The least recently used lines are evicted when the
+ * cache is full. The cache can be shared by several threads: a line missed by several threads
+ * at the same time is lexed by the first one, and the others wait for its tokens.
+ */
+public class LineTokenCache {
+
+    /**
+     * Default maximum number of lines kept in the cache.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Function<Scanner, Lexer> lexerFactory;
+    private final int capacity;
+    private final Map<Long, Entry> entries;
+    private final Map<Long, CompletableFuture<Entry>> loading = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * The tokens of a line, as lexed alone from line 1.
+     */
+    private static final class Entry {
+        private final char[] text;
+        private final TokenKind[] kinds;
+        private final String[] lexemes;
+        private final int[] lines;
+        private final int[] columns;
+
+        private Entry(char[] text, List<Token> tokens) {
+            int size = tokens.size();
+            this.text = text;
+            this.kinds = new TokenKind[size];
+            this.lexemes = new String[size];
+            this.lines = new int[size];
+            this.columns = new int[size];
+            for (int i = 0; i < size; i++) {
+                Token token = tokens.get(i);
+                kinds[i] = TokenKind.of(token);
+                lexemes[i] = token.getLexeme();
+                lines[i] = token.getLine() - 1;
+                columns[i] = token.getColumn();
+            }
+        }
+
+        private boolean matches(char[] source, int start, int end) {
+            return Arrays.equals(text, 0, text.length, source, start, end);
+        }
+    }
+
+    /**
+     * Constructs a LineTokenCache of the default capacity over table-driven lexers.
+     */
+    public LineTokenCache() {
+        this(DEFAULT_CAPACITY, TableDrivenLexer::new);
+    }
+
+    /**
+     * Constructs a LineTokenCache.
+     *
+     * @param capacity the maximum number of lines kept in the cache.
+     * @param lexerFactory the factory creating the lexer of each new line.
+     */
+    public LineTokenCache(int capacity, Function<Scanner, Lexer> lexerFactory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid cache capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.lexerFactory = lexerFactory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > LineTokenCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Lexes a text, taking the tokens of the lines already seen from the cache.
+     *
+     * @param source the text to lex.
+     * @return the tokens, ending with the EOF token.
+     * @throws IOException if a lexer fails.
+     */
+    public List<Token> tokenize(CharSequence source) throws IOException {
+        char[] chars = source.toString().toCharArray();
+        return tokenize(chars, 0, chars.length, null);
+    }
+
+    /**
+     * Lexes a range of characters, taking the tokens of the lines already seen from the cache.
+     * The tokens are the same as the ones of a lexer over the whole range.
+     *
+     * @param source the characters to lex.
+     * @param start the index of the first character to lex.
+     * @param end the index after the last character to lex.
+     * @return new tokens, ending with the EOF token.
+     * @throws IOException if a lexer fails.
+     */
+    public List<Token> tokenize(char[] source, int start, int end) throws IOException {
+        return tokenize(source, start, end, null);
+    }
+
+    /**
+     * Lexes a range of characters, taking the tokens of the lines already seen from the cache,
+     * and interns the identifiers in a symbol table like a {@link TableDrivenLexer} given this
+     * symbol table. The cached lines are shared by all the symbol tables, so the identifiers
+     * are interned when their tokens are created for this call.
+     *
+     * @param source the characters to lex.
+     * @param start the index of the first character to lex.
+     * @param end the index after the last character to lex.
+     * @param symbolTable the symbol table interning the identifiers, or null.
+     * @return new tokens, ending with the EOF token.
+     * @throws IOException if a lexer fails.
+     */
+    public List<Token> tokenize(char[] source, int start, int end, InternedSymbolTable symbolTable) throws IOException {
+        List<Token> tokens = new ArrayList<>(Math.max((end - start) / 4, 16));
+        int lineStart = start;
+        int line = 1;
+        while (true) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && source[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            boolean hasNewline = lineEnd < end;
+            if (hasNewline) {
+                lineEnd++;
+            }
+            Entry entry = lookup(source, lineStart, lineEnd);
+            // Every line but the last one drops the EOF token of its lexing
+            boolean last = !hasNewline || lineEnd == end;
+            int count = last ? entry.kinds.length : entry.kinds.length - 1;
+            for (int i = 0; i < count; i++) {
+                Token token = entry.kinds[i].newToken(entry.lexemes[i], entry.lines[i] + line, entry.columns[i]);
+                if (symbolTable != null && token instanceof IDToken) {
+                    symbolTable.intern((IDToken) token);
+                }
+                tokens.add(token);
+            }
+            if (last) {
+                return tokens;
+            }
+            lineStart = lineEnd;
+            line++;
+        }
+    }
+
+    /**
+     * Gets the tokens of a line from the cache, or lexes the line and adds it to the cache.
+     *
+     * @param source the characters.
+     * @param start the index of the first character of the line.
+     * @param end the index after the line, including its newline.
+     * @return the entry of the line.
+     * @throws IOException if the lexer fails.
+     */
+    private Entry lookup(char[] source, int start, int end) throws IOException {
+        Long key = hash(source, start, end);
+        CompletableFuture<Entry> future;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.matches(source, start, end)) {
+                hits++;
+                return entry;
+            }
+            future = loading.get(key);
+            if (future == null) {
+                misses++;
+                loading.put(key, new CompletableFuture<>());
+            } else {
+                hits++;
+            }
+        }
+        if (future != null) {
+            Entry entry = await(future);
+            // A line with the same hash but other characters is lexed without the cache
+            return entry.matches(source, start, end) ? entry : new Entry(Arrays.copyOfRange(source, start, end), lex(source, start, end));
+        }
+
+        Entry entry;
+        try {
+            entry = new Entry(Arrays.copyOfRange(source, start, end), lex(source, start, end));
+        } catch (IOException | RuntimeException | Error e) {
+            synchronized (this) {
+                loading.remove(key).completeExceptionally(e);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            entries.put(key, entry);
+            loading.remove(key).complete(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Waits for a line lexed by another thread.
+     *
+     * @param future the tokens of the line.
+     * @return the entry of the line.
+     * @throws IOException if the lexer of the other thread failed.
+     */
+    private static Entry await(CompletableFuture<Entry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Lexes a single line from line 1.
+     *
+     * @param source the characters.
+     * @param start the index of the first character of the line.
+     * @param end the index after the line.
+     * @return the tokens of the line, ending with the EOF token.
+     * @throws IOException if the lexer fails.
+     */
+    private List<Token> lex(char[] source, int start, int end) throws IOException {
+        Lexer lexer = lexerFactory.apply(new BufferedScanner(source, start, end));
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.getNextSymbol();
+            if (token != null) {
+                tokens.add(token);
+            }
+        } while (token == null || !token.getTokenType().equals("EOF"));
+        return tokens;
+    }
+
+    /**
+     * Computes the FNV-1a hash of a range of characters.
+     */
+    private static long hash(char[] source, int start, int end) {
+        long h = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            h = (h ^ source[i]) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    /**
+     * Gets the maximum number of lines kept in the cache.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of lines in the cache.
+     *
+     * @return the number of cached lines.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of lines found in the cache, including the lines being lexed by another
+     * thread when they were looked up.
+     *
+     * @return the number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lines which were lexed because they were not in the cache.
+     *
+     * @return the number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of lines removed from the cache to make room for new ones.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the ratio of the lines found in the cache.
+     *
+     * @return the hit ratio, between 0 and 1.
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Removes all the lines from the cache and resets the statistics.
+     */
+    public synchronized void clear() {
+        // The lines being lexed are still put in the cache
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LineTokenCache{" +
+                "size=" + entries.size() +
+                ", capacity=" + capacity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
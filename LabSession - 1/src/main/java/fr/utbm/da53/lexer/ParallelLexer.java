@@ -0,0 +1,236 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.scanner.LineIndex;
+import fr.utbm.da53.scanner.Scanner;
+import fr.utbm.da53.symboltable.ConcurrentSymbolTable;
+import fr.utbm.da53.token.IDToken;
+import fr.utbm.da53.token.Token;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Lexes an in-memory source on several threads. TinyBasic lines are lexically independent,
+ * so the source is split into chunks at newline offsets and each chunk is lexed by its own
+ * Scanner and Lexer in a fork/join pool.
+ * <p>
+ * Each chunk is lexed as if it started at line 1. With a line index, a chunk moves its tokens
+ * to their line in the source by itself, and interns its identifiers in a symbol table shared
+ * by all the chunks; once the chunks are joined, the new identifiers are renumbered in the
+ * order of their first occurrence, so their ids do not depend on the scheduling. Otherwise the lines of the tokens are shifted by the number of lines of
+ * the preceding chunks when the chunks are merged in source order. Either way, the result is
+ * the same as a sequential lexing.
+ */
+public class ParallelLexer {
+
+    /**
+     * Default number of characters under which a chunk is not split any further.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final ForkJoinPool pool;
+    private final Function<Scanner, Lexer> lexerFactory;
+    private final int chunkSize;
+
+    /**
+     * Constructs a ParallelLexer running the reference {@link Lexer} in the common fork/join
+     * pool, so that its tokens are the ones of a sequential lexing.
+     */
+    public ParallelLexer() {
+        this(ForkJoinPool.commonPool(), Lexer::new, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a ParallelLexer.
+     *
+     * @param pool the pool running the lexing tasks.
+     * @param lexerFactory the factory creating the lexer of each chunk.
+     * @param chunkSize the number of characters under which a chunk is not split any further.
+     */
+    public ParallelLexer(ForkJoinPool pool, Function<Scanner, Lexer> lexerFactory, int chunkSize) {
+        this.pool = pool;
+        this.lexerFactory = lexerFactory;
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    /**
+     * Lexes a range of characters. The returned tokens end with a single EOF token.
+     *
+     * @param source the characters to lex. The array must not be modified while lexing.
+     * @param start the index of the first character to lex.
+     * @param end the index after the last character to lex.
+     * @param symbolTable the symbol table interning the identifiers, or null. The chunks need
+     *                    their first line to intern them, so a line index is built first.
+     * @return the tokens, in source order.
+     * @throws IOException if a lexer fails.
+     */
+    public List<Token> tokenize(char[] source, int start, int end, ConcurrentSymbolTable symbolTable) throws IOException {
+        if (symbolTable != null) {
+            return tokenize(LineIndex.build(source, start, end), symbolTable);
+        }
+        return tokenize(new LexTask(source, start, end, null, null));
+    }
+
+    /**
+     * Lexes the range of characters covered by a line index. The chunks are split at the
+     * line starts of the index instead of searching for newlines.
+     *
+     * @param lineIndex the index of the characters to lex.
+     * @param symbolTable the symbol table interning the identifiers, or null.
+     * @return the tokens, in source order.
+     * @throws IOException if a lexer fails.
+     */
+    public List<Token> tokenize(LineIndex lineIndex, ConcurrentSymbolTable symbolTable) throws IOException {
+        return tokenize(new LexTask(lineIndex.getSource(), lineIndex.getStart(), lineIndex.getEnd(),
+                symbolTable, lineIndex));
+    }
+
+    private List<Token> tokenize(LexTask task) throws IOException {
+        int firstNewId = task.symbolTable == null ? 0 : task.symbolTable.size();
+        List<Chunk> chunks;
+        try {
+            chunks = pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (task.symbolTable != null) {
+            task.symbolTable.sortByFirstOccurrence(firstNewId);
+        }
+
+        int size = 0;
+        for (Chunk chunk : chunks) {
+            size += chunk.tokens.size();
+        }
+        List<Token> tokens = new ArrayList<>(size);
+
+        // Merge in source order, dropping the EOF token of every chunk but the last
+        boolean relative = task.lineIndex == null;
+        int lineOffset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            List<Token> chunkTokens = chunk.tokens;
+            int count = i == chunks.size() - 1 ? chunkTokens.size() : chunkTokens.size() - 1;
+            if (relative) {
+                for (int j = 0; j < count; j++) {
+                    Token token = chunkTokens.get(j);
+                    token.setLine(token.getLine() + lineOffset);
+                }
+                lineOffset += chunk.lineCount;
+            }
+            tokens.addAll(chunkTokens.subList(0, count));
+        }
+        return tokens;
+    }
+
+    /**
+     * The tokens of a chunk, with lines relative to the start of the chunk when there is no
+     * line index.
+     */
+    private static final class Chunk {
+        private final List<Token> tokens;
+        private final int lineCount;
+
+        private Chunk(List<Token> tokens, int lineCount) {
+            this.tokens = tokens;
+            this.lineCount = lineCount;
+        }
+    }
+
+    /**
+     * Lexes a range of the source, splitting it in two halves at a newline while it is larger
+     * than the chunk size.
+     */
+    private final class LexTask extends RecursiveTask<List<Chunk>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final char[] source;
+        private final int start;
+        private final int end;
+        private final transient ConcurrentSymbolTable symbolTable;
+        private final transient LineIndex lineIndex;
+
+        private LexTask(char[] source, int start, int end, ConcurrentSymbolTable symbolTable, LineIndex lineIndex) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.symbolTable = symbolTable;
+            this.lineIndex = lineIndex;
+        }
+
+        @Override
+        protected List<Chunk> compute() {
+            if (end - start > chunkSize) {
+                int split = lineStartAfter(start + (end - start) / 2);
+                if (split < end) {
+                    LexTask left = new LexTask(source, start, split, symbolTable, lineIndex);
+                    left.fork();
+                    List<Chunk> right = new LexTask(source, split, end, symbolTable, lineIndex).compute();
+                    List<Chunk> chunks = left.join();
+                    chunks.addAll(right);
+                    return chunks;
+                }
+            }
+            try {
+                List<Chunk> chunks = new ArrayList<>();
+                chunks.add(lex());
+                return chunks;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Finds the start of the first line beginning at or after the given index.
+         *
+         * @param index the index to search from.
+         * @return the index following the next newline, or the end of the range.
+         */
+        private int lineStartAfter(int index) {
+            if (lineIndex != null) {
+                return Math.min(lineIndex.getLineEnd(lineIndex.getLineAt(index)), end);
+            }
+            while (index < end && source[index] != '\n') {
+                index++;
+            }
+            return Math.min(index + 1, end);
+        }
+
+        /**
+         * Lexes the whole range as a single chunk.
+         *
+         * @return the chunk.
+         * @throws IOException if the lexer fails.
+         */
+        private Chunk lex() throws IOException {
+            Scanner scanner = new BufferedScanner(source, start, end);
+            Lexer lexer = lexerFactory.apply(scanner);
+            // The chunk starts a line, whose index is the number of lines before the chunk
+            int firstLine = lineIndex == null ? 0 : lineIndex.getLineAt(start);
+            List<Token> tokens = new ArrayList<>(Math.max((end - start) / 4, 16));
+            Token token;
+            do {
+                token = lexer.getNextSymbol();
+                if (token == null) {
+                    continue;
+                }
+                if (firstLine != 0) {
+                    token.setLine(token.getLine() + firstLine);
+                }
+                if (symbolTable != null && token instanceof IDToken) {
+                    symbolTable.intern((IDToken) token);
+                }
+                tokens.add(token);
+            } while (token == null || !token.getTokenType().equals("EOF"));
+            int lineCount = scanner.getCurrentLine() - 1;
+            scanner.close();
+            return new Chunk(tokens, lineCount);
+        }
+    }
+}
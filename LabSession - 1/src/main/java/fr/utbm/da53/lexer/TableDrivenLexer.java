@@ -0,0 +1,528 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.LineIndex;
+import fr.utbm.da53.scanner.Scanner;
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.symboltable.SymbolTablePointer;
+import fr.utbm.da53.token.*;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A Lexer engine driven by a precomputed character-class table and a state-transition matrix.
+ * <p>
+ * Keywords are recognized with a case-insensitive perfect hash computed while the identifier
+ * is scanned, so no intermediate String is built for them. The tokens are the ones of
+ * {@link Lexer}: a comment starts with an upper-case "REM", even when it begins a longer word
+ * such as "REMARK", and is skipped up to the end of the line, {@code null} being returned for
+ * it as for an unknown character; "&gt;&lt;" is two operators.
+ * <p>
+ * When a whole in-memory source is lexed into a {@link TokenBuffer}, its characters are first
+ * classified in bulk by {@link LineIndex#classify(char[], int, int)}, and the runs of spaces,
+ * letters and digits are consumed at once instead of going through the transition matrix.
+ */
+public class TableDrivenLexer extends Lexer {
+
+    // Character classes
+    private static final int C_OTHER = 0;
+    private static final int C_LETTER = 1;
+    private static final int C_DIGIT = 2;
+    private static final int C_DOT = 3;
+    private static final int C_SPACE = 4;
+    private static final int C_CR = 5;
+    private static final int C_LF = 6;
+    private static final int C_LT = 7;
+    private static final int C_GT = 8;
+    private static final int C_EQ = 9;
+    private static final int C_SINGLE = 10;
+    private static final int C_EOF = 11;
+    private static final int CLASS_COUNT = 12;
+
+    // Scanning states
+    private static final int S_START = 0;
+    private static final int S_ID = 1;
+    private static final int S_NUM = 2;
+    private static final int S_LT = 3;
+    private static final int S_GT = 4;
+    private static final int S_CR = 5;
+
+    // Final states, left as soon as they are reached
+    private static final int S_FINAL = 6;
+    private static final int S_SINGLE = 6;
+    private static final int S_EQ = 7;
+    private static final int S_LE = 8;
+    private static final int S_NE = 9;
+    private static final int S_GE = 10;
+    private static final int S_LF = 11;
+    private static final int S_EOF = 12;
+    private static final int S_ERROR = 13;
+
+    /**
+     * Marks a transition that ends the current token without consuming the character.
+     */
+    private static final int ACCEPT = -1;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+    private static final int[][] TRANSITIONS = new int[S_FINAL][CLASS_COUNT];
+
+    // Perfect hash of the keywords: h = h * 33 + (c | 0x20), slot = (h >>> 13) & 15
+    private static final int HASH_MULTIPLIER = 33;
+    private static final int HASH_SHIFT = 13;
+    private static final int HASH_MASK = 15;
+    private static final String[] KEYWORDS = new String[HASH_MASK + 1];
+    private static final TokenKind[] KEYWORD_KINDS = new TokenKind[HASH_MASK + 1];
+
+    // Kinds of the tokens ending in each final state, and of the single-character tokens
+    private static final TokenKind[] STATE_KINDS = new TokenKind[S_ERROR];
+    private static final TokenKind[] SINGLE_KINDS = new TokenKind[128];
+
+    private static final char EOF_CHAR = (char) -1;
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = C_LETTER;
+            CHAR_CLASSES[Character.toUpperCase(c)] = C_LETTER;
+        }
+        CHAR_CLASSES['_'] = C_LETTER;
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = C_DIGIT;
+        }
+        CHAR_CLASSES['.'] = C_DOT;
+        CHAR_CLASSES[' '] = C_SPACE;
+        CHAR_CLASSES['\t'] = C_SPACE;
+        CHAR_CLASSES['\f'] = C_SPACE;
+        CHAR_CLASSES['\r'] = C_CR;
+        CHAR_CLASSES['\n'] = C_LF;
+        CHAR_CLASSES['<'] = C_LT;
+        CHAR_CLASSES['>'] = C_GT;
+        CHAR_CLASSES['='] = C_EQ;
+        for (char c : "+-*/(),".toCharArray()) {
+            CHAR_CLASSES[c] = C_SINGLE;
+        }
+
+        for (int[] row : TRANSITIONS) {
+            Arrays.fill(row, ACCEPT);
+        }
+        int[] start = TRANSITIONS[S_START];
+        Arrays.fill(start, S_ERROR);
+        start[C_LETTER] = S_ID;
+        start[C_DIGIT] = S_NUM;
+        start[C_CR] = S_CR;
+        start[C_LF] = S_LF;
+        start[C_LT] = S_LT;
+        start[C_GT] = S_GT;
+        start[C_EQ] = S_EQ;
+        start[C_SINGLE] = S_SINGLE;
+        start[C_EOF] = S_EOF;
+        TRANSITIONS[S_ID][C_LETTER] = S_ID;
+        TRANSITIONS[S_ID][C_DIGIT] = S_ID;
+        TRANSITIONS[S_NUM][C_DIGIT] = S_NUM;
+        TRANSITIONS[S_NUM][C_DOT] = S_NUM;
+        TRANSITIONS[S_LT][C_EQ] = S_LE;
+        TRANSITIONS[S_LT][C_GT] = S_NE;
+        TRANSITIONS[S_GT][C_EQ] = S_GE;
+        TRANSITIONS[S_CR][C_LF] = S_LF;
+
+        STATE_KINDS[S_LT] = TokenKind.LT;
+        STATE_KINDS[S_GT] = TokenKind.GT;
+        STATE_KINDS[S_CR] = TokenKind.CR;
+        STATE_KINDS[S_LF] = TokenKind.CR;
+        STATE_KINDS[S_EQ] = TokenKind.EQ;
+        STATE_KINDS[S_LE] = TokenKind.LE;
+        STATE_KINDS[S_NE] = TokenKind.NQ;
+        STATE_KINDS[S_GE] = TokenKind.GE;
+        STATE_KINDS[S_EOF] = TokenKind.EOF;
+        SINGLE_KINDS['+'] = TokenKind.PLUS;
+        SINGLE_KINDS['-'] = TokenKind.MINUS;
+        SINGLE_KINDS['*'] = TokenKind.MULTIPLY;
+        SINGLE_KINDS['/'] = TokenKind.DIVIDE;
+        SINGLE_KINDS['('] = TokenKind.OPARENT;
+        SINGLE_KINDS[')'] = TokenKind.CPARENT;
+        SINGLE_KINDS[','] = TokenKind.COMMA;
+
+        for (String keyword : new String[]{"PRINT", "IF", "THEN", "GOTO", "GOSUB", "LET", "INPUT", "RETURN", "END"}) {
+            int hash = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                hash = hash * HASH_MULTIPLIER + (keyword.charAt(i) | 0x20);
+            }
+            int slot = (hash >>> HASH_SHIFT) & HASH_MASK;
+            if (KEYWORDS[slot] != null) {
+                throw new IllegalStateException("Keyword hash collision: " + keyword + " and " + KEYWORDS[slot]);
+            }
+            KEYWORDS[slot] = keyword;
+            KEYWORD_KINDS[slot] = TokenKind.valueOf(keyword);
+        }
+    }
+
+    private char[] lexeme = new char[64];
+    private int lexemeLength;
+    private boolean lexemeFolded;
+
+    // Value of the number being scanned: its digits, ignoring the decimal points
+    private long mantissa;
+    private int digits;
+    private int scale;
+    private int dots;
+    private int tokenLine;
+    private int tokenColumn;
+    private InternedSymbolTable symbolTable;
+
+    // Classes of the in-memory source while tokenizing it, indexed by offset minus classesBase
+    private char[] classifiedChars;
+    private int classifiedStart;
+    private byte[] classes;
+    private int classesBase;
+
+    /**
+     * Default constructor for TableDrivenLexer.
+     */
+    public TableDrivenLexer() {
+    }
+
+    /**
+     * Constructs a TableDrivenLexer with the specified Scanner.
+     *
+     * @param scanner the Scanner to read characters from.
+     */
+    public TableDrivenLexer(Scanner scanner) {
+        super(scanner);
+    }
+
+    public InternedSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Sets the symbol table in which identifiers are interned while they are scanned.
+     * Identifier tokens then share the lexeme and the pointer of their symbol table entry.
+     *
+     * @param symbolTable the symbol table, or null to disable interning.
+     */
+    public void setSymbolTable(InternedSymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Returns the class of a character.
+     *
+     * @param c the character.
+     * @return the character class.
+     */
+    private static int classOf(char c) {
+        if (c < 128) {
+            return CHAR_CLASSES[c];
+        }
+        if (c == EOF_CHAR) {
+            return C_EOF;
+        }
+        if (Character.isLetter(c)) {
+            return C_LETTER;
+        }
+        return Character.isDigit(c) ? C_DIGIT : C_OTHER;
+    }
+
+    /**
+     * Retrieves the next token from the input stream, skipping whitespace.
+     *
+     * @return the next identified Token, or null if a comment or an unknown character is found.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public Token getNextSymbol() throws IOException {
+        TokenKind kind = scan(getScanner());
+        if (kind == null) {
+            return null;
+        }
+        if (kind.hasFixedImage()) {
+            return kind.newToken(kind.getImage(), tokenLine, tokenColumn);
+        }
+        if (kind == TokenKind.ID && symbolTable != null) {
+            SymbolTablePointer pointer = symbolTable.intern(lexeme, 0, lexemeLength, tokenLine, tokenColumn);
+            String interned = pointer.getSymbolTableEntry().getToken().getLexeme();
+            return new IDToken(interned, tokenLine, tokenColumn, pointer);
+        }
+
+        // Refer to the lexeme in an in-memory source instead of copying it, unless it was upper-cased
+        CharSequence source = getScanner().getSource();
+        if (kind == TokenKind.NUM) {
+            return numberToken(source);
+        }
+        if (source != null && kind == TokenKind.ID && !lexemeFolded) {
+            return new IDToken(source, tokenOffset, lexemeLength, tokenLine, tokenColumn, null);
+        }
+        return kind.newToken(new String(lexeme, 0, lexemeLength), tokenLine, tokenColumn);
+    }
+
+    /**
+     * Creates the token of the number just scanned, from the value accumulated while scanning.
+     *
+     * @param source the in-memory source, or null if the lexeme must be copied.
+     * @return the number token.
+     */
+    private NumToken numberToken(CharSequence source) {
+        boolean integer = dots == 0 && digits <= NumToken.MAX_INTEGER_DIGITS;
+        if (source != null) {
+            if (integer) {
+                return new NumToken(source, tokenOffset, lexemeLength, tokenLine, tokenColumn, mantissa);
+            }
+            float value = NumToken.toFloat(mantissa, digits, scale, dots, CharBuffer.wrap(lexeme, 0, lexemeLength));
+            return new NumToken(source, tokenOffset, lexemeLength, tokenLine, tokenColumn, value);
+        }
+        String text = new String(lexeme, 0, lexemeLength);
+        if (integer) {
+            return new NumToken(text, tokenLine, tokenColumn, mantissa);
+        }
+        return new NumToken(text, tokenLine, tokenColumn, NumToken.toFloat(mantissa, digits, scale, dots, text));
+    }
+
+    /**
+     * Lexes the whole input into a token buffer, up to and including the EOF token,
+     * without creating any Token object.
+     *
+     * @param buffer the buffer to append the tokens to.
+     * @return the number of tokens appended.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public int tokenize(TokenBuffer buffer) throws IOException {
+        Scanner scanner = getScanner();
+        classify(scanner);
+        try {
+            return tokenize(scanner, buffer);
+        } finally {
+            classifiedChars = null;
+            classes = null;
+        }
+    }
+
+    private int tokenize(Scanner scanner, TokenBuffer buffer) throws IOException {
+        int count = 0;
+        TokenKind kind;
+        do {
+            kind = scan(scanner);
+            if (kind == null) {
+                continue;
+            }
+            int length = scanner.getCurrentOffset() - tokenOffset;
+            if (kind.hasFixedImage()) {
+                buffer.append(kind, tokenOffset, length, tokenLine, tokenColumn);
+            } else {
+                buffer.append(kind, tokenOffset, length, tokenLine, tokenColumn, lexeme, 0, lexemeLength);
+            }
+            count++;
+        } while (kind != TokenKind.EOF);
+        return count;
+    }
+
+    /**
+     * Classifies the remaining characters of the scanner when they are an array in memory.
+     *
+     * @param scanner the Scanner to read characters from.
+     */
+    private void classify(Scanner scanner) {
+        if (!(scanner.getSource() instanceof CharBuffer)) {
+            return;
+        }
+        CharBuffer source = (CharBuffer) scanner.getSource();
+        if (!source.hasArray()) {
+            return;
+        }
+        // The source is indexed by offset, and the scanner may have consumed some characters
+        classesBase = scanner.getCurrentOffset();
+        classifiedChars = source.array();
+        classifiedStart = source.arrayOffset() + classesBase;
+        classes = LineIndex.classify(classifiedChars, classifiedStart, source.arrayOffset() + source.limit());
+    }
+
+    /**
+     * Gets the end of the run of the given classes starting at the next character.
+     *
+     * @param scanner the Scanner to read characters from.
+     * @param first a class of the run.
+     * @param second another class of the run, or the same one.
+     * @return the offset of the index after the run, which is the current offset if there is none.
+     */
+    private int runEnd(Scanner scanner, byte first, byte second) {
+        int index = scanner.getCurrentOffset() - classesBase;
+        while (index < classes.length && (classes[index] == first || classes[index] == second)) {
+            index = LineIndex.runEnd(classes, index);
+        }
+        return index + classesBase;
+    }
+
+    /**
+     * Consumes the ASCII letters and digits following the first character of an identifier,
+     * or the digits of a number, from the classes of the source.
+     *
+     * @param scanner the Scanner to read characters from.
+     * @param state the state of the token, {@link #S_ID} or {@link #S_NUM}.
+     * @param hash the keyword hash of the characters already scanned.
+     * @return the keyword hash of the identifier.
+     * @throws IOException if an I/O error occurs.
+     */
+    private int scanRun(Scanner scanner, int state, int hash) throws IOException {
+        int offset = scanner.getCurrentOffset();
+        int end = state == S_ID
+                ? runEnd(scanner, LineIndex.CLASS_LETTER, LineIndex.CLASS_DIGIT)
+                : runEnd(scanner, LineIndex.CLASS_DIGIT, LineIndex.CLASS_DIGIT);
+        int start = classifiedStart + offset - classesBase;
+        for (int i = start; i < start + end - offset; i++) {
+            char c = classifiedChars[i];
+            if (state == S_ID) {
+                hash = hash * HASH_MULTIPLIER + (c | 0x20);
+                if (c >= 'a' && c <= 'z') {
+                    c -= 'a' - 'A';
+                    lexemeFolded = true;
+                }
+                append(c);
+            } else {
+                append(c);
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dots > 0) {
+                    scale++;
+                }
+            }
+        }
+        scanner.skip(end - offset);
+        return hash;
+    }
+
+    /**
+     * Scans the next token. Its position is stored in {@link #tokenOffset}, {@link #tokenLine}
+     * and {@link #tokenColumn}, and the lexeme of identifiers and numbers in {@link #lexeme}.
+     *
+     * @param scanner the Scanner to read characters from.
+     * @return the kind of the token, or null if a comment or an unknown character was consumed.
+     * @throws IOException if an I/O error occurs.
+     */
+    private TokenKind scan(Scanner scanner) throws IOException {
+        if (classes != null) {
+            scanner.skip(runEnd(scanner, LineIndex.CLASS_SPACE, LineIndex.CLASS_SPACE) - scanner.getCurrentOffset());
+        }
+        int cls = classOf(scanner.peek());
+        while (cls == C_SPACE) {
+            scanner.get();
+            cls = classOf(scanner.peek());
+        }
+        tokenOffset = scanner.getCurrentOffset();
+
+        // Comments start with "REM", case-sensitive, as in Lexer
+        if (scanner.peek() == 'R' && scanner.peek(1) == 'E' && scanner.peek(2) == 'M') {
+            skipComment(scanner);
+            return null;
+        }
+
+        int state = S_START;
+        int hash = 0;
+        char last = 0;
+        lexemeLength = 0;
+        lexemeFolded = false;
+        mantissa = 0;
+        digits = 0;
+        scale = 0;
+        dots = 0;
+        while (true) {
+            int next = TRANSITIONS[state][cls];
+            if (next == ACCEPT) {
+                break;
+            }
+            state = next;
+            if (state == S_EOF) {
+                break;
+            }
+            last = scanner.get();
+            if (state == S_ID) {
+                hash = hash * HASH_MULTIPLIER + (last | 0x20);
+                char upper = Character.toUpperCase(last);
+                lexemeFolded |= upper != last;
+                append(upper);
+            } else if (state == S_NUM) {
+                append(last);
+                if (last == '.') {
+                    dots++;
+                } else {
+                    mantissa = mantissa * 10 + (last < 128 ? last - '0' : Character.digit(last, 10));
+                    digits++;
+                    if (dots > 0) {
+                        scale++;
+                    }
+                }
+            }
+            if (state >= S_FINAL) {
+                break;
+            }
+            if (classes != null && (state == S_ID || state == S_NUM)) {
+                hash = scanRun(scanner, state, hash);
+            }
+            cls = classOf(scanner.peek());
+        }
+
+        tokenLine = scanner.getCurrentLine();
+        tokenColumn = scanner.getCurrentColumn();
+        switch (state) {
+            case S_ID: {
+                int slot = (hash >>> HASH_SHIFT) & HASH_MASK;
+                String keyword = KEYWORDS[slot];
+                if (keyword != null && matchesLexeme(keyword)) {
+                    return KEYWORD_KINDS[slot];
+                }
+                return TokenKind.ID;
+            }
+            case S_NUM:
+                return TokenKind.NUM;
+            case S_SINGLE:
+                return SINGLE_KINDS[last];
+            case S_ERROR:
+                return null;
+            default:
+                return STATE_KINDS[state];
+        }
+    }
+
+    /**
+     * Appends a character to the lexeme being scanned, growing the buffer if needed.
+     *
+     * @param c the character to append.
+     */
+    private void append(char c) {
+        if (lexemeLength == lexeme.length) {
+            lexeme = Arrays.copyOf(lexeme, lexemeLength * 2);
+        }
+        lexeme[lexemeLength++] = c;
+    }
+
+    /**
+     * Checks if the scanned lexeme, already in upper case, is the given keyword.
+     *
+     * @param keyword the keyword to compare with.
+     * @return true if the lexeme is the keyword, false otherwise.
+     */
+    private boolean matchesLexeme(String keyword) {
+        if (keyword.length() != lexemeLength) {
+            return false;
+        }
+        for (int i = 0; i < lexemeLength; i++) {
+            if (lexeme[i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips the content of a comment, up to but excluding the end of the line.
+     *
+     * @param scanner the Scanner to read characters from.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void skipComment(Scanner scanner) throws IOException {
+        int cls = classOf(scanner.peek());
+        while (cls != C_LF && cls != C_CR && cls != C_EOF) {
+            scanner.get();
+            cls = classOf(scanner.peek());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.scanner.Scanner;
+import fr.utbm.da53.token.Token;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A spliterator over the tokens of an in-memory source, which splits on line boundaries so
+ * that the tokens can be consumed by a parallel stream.
+ * <p>
+ * Each part is lexed lazily by its own Scanner and Lexer once it starts being traversed.
+ * When a part is split, the number of lines of its first half is counted so the tokens of
+ * the second half keep their lines in the whole source. As with {@link Lexer#iterator()},
+ * comments are skipped and the EOF token is not returned.
+ */
+public class TokenSpliterator implements Spliterator<Token> {
+
+    /**
+     * Number of characters under which a part is not split any further.
+     */
+    public static final int MIN_SPLIT_SIZE = 64 * 1024;
+
+    private final char[] source;
+    private final Function<Scanner, Lexer> lexerFactory;
+    private int start;
+    private final int end;
+    private int lineOffset;
+    private Lexer lexer;
+    private boolean done;
+
+    /**
+     * Constructs a TokenSpliterator over a range of characters, lexed by table-driven lexers.
+     *
+     * @param source the characters to lex. The array must not be modified while lexing.
+     * @param start the index of the first character to lex.
+     * @param end the index after the last character to lex.
+     */
+    public TokenSpliterator(char[] source, int start, int end) {
+        this(source, start, end, TableDrivenLexer::new);
+    }
+
+    /**
+     * Constructs a TokenSpliterator over a range of characters.
+     *
+     * @param source the characters to lex. The array must not be modified while lexing.
+     * @param start the index of the first character to lex.
+     * @param end the index after the last character to lex.
+     * @param lexerFactory the factory creating the lexer of each part.
+     */
+    public TokenSpliterator(char[] source, int start, int end, Function<Scanner, Lexer> lexerFactory) {
+        this(source, start, end, lexerFactory, 0);
+    }
+
+    private TokenSpliterator(char[] source, int start, int end, Function<Scanner, Lexer> lexerFactory, int lineOffset) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.lexerFactory = lexerFactory;
+        this.lineOffset = lineOffset;
+    }
+
+    /**
+     * Creates a stream of the tokens of a range of characters.
+     *
+     * @param source the characters to lex. The array must not be modified while lexing.
+     * @param start the index of the first character to lex.
+     * @param end the index after the last character to lex.
+     * @param parallel true to create a parallel stream, false for a sequential one.
+     * @return the stream of tokens.
+     */
+    public static Stream<Token> stream(char[] source, int start, int end, boolean parallel) {
+        return StreamSupport.stream(new TokenSpliterator(source, start, end), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Token> action) {
+        if (done) {
+            return false;
+        }
+        if (lexer == null) {
+            lexer = lexerFactory.apply(new BufferedScanner(source, start, end));
+        }
+        Token token;
+        try {
+            do {
+                token = lexer.getNextSymbol();
+            } while (token == null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (token.getTokenType().equals("EOF")) {
+            done = true;
+            return false;
+        }
+        token.setLine(token.getLine() + lineOffset);
+        action.accept(token);
+        return true;
+    }
+
+    /**
+     * Splits off the first half of the remaining lines, if this part has not started being
+     * traversed and is large enough.
+     *
+     * @return a spliterator over the first half, or null if this part cannot be split.
+     */
+    @Override
+    public Spliterator<Token> trySplit() {
+        if (lexer != null || done || end - start < 2 * MIN_SPLIT_SIZE) {
+            return null;
+        }
+        int split = start + (end - start) / 2;
+        while (split < end && source[split] != '\n') {
+            split++;
+        }
+        if (split + 1 >= end) {
+            return null;
+        }
+        split++;
+
+        TokenSpliterator prefix = new TokenSpliterator(source, start, split, lexerFactory, lineOffset);
+        for (int i = start; i < split; i++) {
+            if (source[i] == '\n') {
+                lineOffset++;
+            }
+        }
+        start = split;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // A TinyBasic token is a few characters long on average
+        return done ? 0 : (end - start) / 4 + 1;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,302 @@
+package fr.utbm.da53.scanner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A Scanner reading an in-memory or memory-mapped input directly as bytes. ASCII bytes are
+ * returned as characters without going through a charset decoder.
+ * <p>
+ * On the first non-ASCII byte, the rest of the input is decoded with the charset of the input
+ * and scanned by a {@link BufferedScanner}, to which all the calls are then delegated.
+ * Until then, {@link #getSource()} gives a view of the bytes as characters, so tokens can
+ * refer to their lexeme without copying it.
+ */
+public class AsciiScanner extends Scanner {
+
+    private final ByteBuffer bytes;
+    private final int start;
+    private final int limit;
+    private final Charset charset;
+    private final CharSequence source;
+    private int position;
+
+    // Scanner of the decoded input, after the first non-ASCII byte
+    private BufferedScanner decoded;
+
+    private int markPosition = -1;
+    private int markLine;
+    private int markColumn;
+    private int markOffset;
+
+    /**
+     * Constructs an AsciiScanner over an array of UTF-8 encoded bytes.
+     *
+     * @param bytes the bytes to scan.
+     */
+    public AsciiScanner(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructs an AsciiScanner over the remaining bytes of a buffer.
+     * The buffer must not be modified while the scanner is in use.
+     *
+     * @param bytes the bytes to scan.
+     * @param charset the encoding of the bytes, used from the first non-ASCII byte.
+     */
+    public AsciiScanner(ByteBuffer bytes, Charset charset) {
+        this.bytes = bytes;
+        this.start = bytes.position();
+        this.limit = bytes.limit();
+        this.position = this.start;
+        this.charset = charset;
+        this.source = new AsciiSequence(this.start, this.limit);
+        this.currentLine = 1;
+        this.currentColumn = 1;
+    }
+
+    /**
+     * Opens a scanner over a UTF-8 encoded file. Files up to 2 GB are memory-mapped and
+     * scanned as bytes; larger files are scanned by a {@link MappedFileScanner}.
+     *
+     * @param file the file to scan.
+     * @return the scanner.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static Scanner open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return new MappedFileScanner(file);
+            }
+            // The mapping stays valid after the channel is closed
+            return new AsciiScanner(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Checks if the input is now scanned through the charset decoder.
+     *
+     * @return true if a non-ASCII byte was found, false otherwise.
+     */
+    public boolean isDecoding() {
+        return decoded != null;
+    }
+
+    /**
+     * Switches to the decoding path at the current position, or at the mark if there is one.
+     */
+    private void startDecoding() {
+        int from = markPosition >= 0 ? markPosition : position;
+        ByteBuffer rest = bytes.duplicate();
+        rest.limit(limit).position(from);
+        CharBuffer chars = charset.decode(rest);
+        decoded = new BufferedScanner(chars);
+        if (markPosition < 0) {
+            decoded.currentLine = currentLine;
+            decoded.currentColumn = currentColumn;
+            decoded.currentOffset = currentOffset;
+            return;
+        }
+        decoded.currentLine = markLine;
+        decoded.currentColumn = markColumn;
+        decoded.currentOffset = markOffset;
+        decoded.mark();
+        // Catch up with the current position; the bytes since the mark are all ASCII
+        try {
+            for (int i = from; i < position; i++) {
+                decoded.get();
+            }
+        } catch (IOException e) {
+            // An in-memory BufferedScanner never reads
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int getCurrentLine() {
+        return decoded != null ? decoded.getCurrentLine() : currentLine;
+    }
+
+    @Override
+    public void setCurrentLine(int currentLine) {
+        if (decoded != null) {
+            decoded.setCurrentLine(currentLine);
+        }
+        this.currentLine = currentLine;
+    }
+
+    @Override
+    public int getCurrentColumn() {
+        return decoded != null ? decoded.getCurrentColumn() : currentColumn;
+    }
+
+    @Override
+    public void setCurrentColumn(int currentColumn) {
+        if (decoded != null) {
+            decoded.setCurrentColumn(currentColumn);
+        }
+        this.currentColumn = currentColumn;
+    }
+
+    @Override
+    public int getCurrentOffset() {
+        return decoded != null ? decoded.getCurrentOffset() : currentOffset;
+    }
+
+    /**
+     * Gets a view of the input bytes as characters, while the input is pure ASCII.
+     *
+     * @return the input, indexed by offset, or null once the input is decoded.
+     */
+    @Override
+    public CharSequence getSource() {
+        return decoded != null ? null : source;
+    }
+
+    @Override
+    public char peek() {
+        if (decoded == null) {
+            if (position >= limit) {
+                return (char) -1;
+            }
+            byte b = bytes.get(position);
+            if (b >= 0) {
+                return (char) b;
+            }
+            startDecoding();
+        }
+        return decoded.peek();
+    }
+
+    @Override
+    public char peek(int n) throws IOException {
+        if (n < 0 || n >= LOOKAHEAD) {
+            throw new IllegalArgumentException("Lookahead out of range: " + n);
+        }
+        if (decoded == null) {
+            int end = Math.min(position + n, limit - 1);
+            for (int i = position; i <= end; i++) {
+                if (bytes.get(i) < 0) {
+                    startDecoding();
+                    return decoded.peek(n);
+                }
+            }
+            return position + n < limit ? (char) bytes.get(position + n) : (char) -1;
+        }
+        return decoded.peek(n);
+    }
+
+    @Override
+    public char get() throws IOException {
+        if (decoded == null) {
+            if (position >= limit) {
+                currentColumn++;
+                return (char) -1;
+            }
+            byte b = bytes.get(position);
+            if (b >= 0) {
+                position++;
+                currentOffset++;
+                if (b == '\n') {
+                    currentLine++;
+                    currentColumn = 1;
+                } else {
+                    currentColumn++;
+                }
+                return (char) b;
+            }
+            startDecoding();
+        }
+        return decoded.get();
+    }
+
+    @Override
+    public void mark() {
+        if (decoded != null) {
+            decoded.mark();
+            return;
+        }
+        markPosition = position;
+        markLine = currentLine;
+        markColumn = currentColumn;
+        markOffset = currentOffset;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (decoded != null) {
+            decoded.reset();
+            return;
+        }
+        if (markPosition < 0) {
+            throw new IOException("No valid mark to reset to");
+        }
+        position = markPosition;
+        currentLine = markLine;
+        currentColumn = markColumn;
+        currentOffset = markOffset;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return decoded != null ? decoded.hasNext() : position < limit;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release: the bytes are in memory or mapped
+    }
+
+    @Override
+    public String toString() {
+        return "AsciiScanner{" +
+                "currentLine=" + getCurrentLine() +
+                ", currentColumn=" + getCurrentColumn() +
+                ", decoding=" + isDecoding() +
+                '}';
+    }
+
+    /**
+     * A view of a range of ASCII bytes as characters.
+     */
+    private final class AsciiSequence implements CharSequence {
+        private final int from;
+        private final int to;
+
+        private AsciiSequence(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes.get(from + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int subStart, int subEnd) {
+            return new AsciiSequence(from + subStart, from + subEnd);
+        }
+
+        @Override
+        public String toString() {
+            byte[] chunk = new byte[to - from];
+            bytes.get(from, chunk);
+            return new String(chunk, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package fr.utbm.da53.scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * A Scanner backend that reads the input in large blocks of characters instead of one
+ * character at a time. Characters are served from a {@code char[]} block, and the block is
+ * refilled only when it has been fully consumed.
+ * <p>
+ * The scanner can also wrap a source that is already in memory (a {@code char[]} range or a
+ * {@link CharBuffer}), in which case no copy and no refill ever happen.
+ * <p>
+ * Lookahead and marks work within the block: when the block runs out, the characters still
+ * needed are moved to its start before reading the next characters.
+ */
+public class BufferedScanner extends Scanner {
+
+    /**
+     * Default size of a character block, in chars.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final int MIN_BLOCK_SIZE = 16;
+
+    private final Reader reader;
+    private CharSequence source;
+    private char[] block;
+    private int position;
+    private int limit;
+    private boolean ended;
+
+    // Block index saved by mark(), or -1
+    private int markPosition = -1;
+    private int markLine;
+    private int markColumn;
+    private int markOffset;
+
+    /**
+     * Constructs a BufferedScanner reading from the given reader with the default block size.
+     *
+     * @param reader the Reader to read characters from.
+     * @throws IOException if an I/O error occurs.
+     */
+    public BufferedScanner(Reader reader) throws IOException {
+        this(reader, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a BufferedScanner reading from the given reader.
+     *
+     * @param reader the Reader to read characters from.
+     * @param blockSize the number of characters read at once from the reader.
+     * @throws IOException if an I/O error occurs.
+     */
+    public BufferedScanner(Reader reader, int blockSize) throws IOException {
+        this.reader = reader;
+        this.block = new char[Math.max(blockSize, MIN_BLOCK_SIZE)];
+        this.currentLine = 1;
+        this.currentColumn = 1;
+        readFirstBlock();
+    }
+
+    /**
+     * Constructs a BufferedScanner over a range of an in-memory character array.
+     * The array is used as is and must not be modified while the scanner is in use.
+     *
+     * @param source the characters to scan.
+     * @param start the index of the first character to scan.
+     * @param end the index after the last character to scan.
+     */
+    public BufferedScanner(char[] source, int start, int end) {
+        this.reader = null;
+        this.block = source;
+        this.position = start;
+        this.limit = end;
+        this.source = CharBuffer.wrap(source, start, end - start).slice();
+        this.currentLine = 1;
+        this.currentColumn = 1;
+    }
+
+    /**
+     * Constructs a BufferedScanner over the remaining characters of a CharBuffer.
+     * Array-backed buffers are scanned in place; other buffers are copied once.
+     *
+     * @param source the characters to scan.
+     */
+    public BufferedScanner(CharBuffer source) {
+        this.reader = null;
+        if (source.hasArray()) {
+            this.block = source.array();
+            this.position = source.arrayOffset() + source.position();
+            this.limit = source.arrayOffset() + source.limit();
+        } else {
+            this.block = new char[source.remaining()];
+            source.duplicate().get(this.block);
+            this.position = 0;
+            this.limit = this.block.length;
+        }
+        this.source = CharBuffer.wrap(this.block, this.position, this.limit - this.position).slice();
+        this.currentLine = 1;
+        this.currentColumn = 1;
+    }
+
+    /**
+     * Constructor for subclasses that provide their own {@link #fill(char[], int, int)}.
+     * Subclasses must call {@link #refill()} once their own state is initialized.
+     *
+     * @param blockSize the number of characters to request at once from {@link #fill(char[], int, int)}.
+     */
+    protected BufferedScanner(int blockSize) {
+        this.reader = null;
+        this.block = new char[Math.max(blockSize, MIN_BLOCK_SIZE)];
+        this.currentLine = 1;
+        this.currentColumn = 1;
+    }
+
+    /**
+     * Reads the next characters of the input into the given block.
+     *
+     * @param buffer the block to fill.
+     * @param offset the index of the first char to write.
+     * @param length the maximum number of chars to write.
+     * @return the number of chars written, or -1 at the end of the input.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected int fill(char[] buffer, int offset, int length) throws IOException {
+        if (reader == null) {
+            return -1;
+        }
+        return reader.read(buffer, offset, length);
+    }
+
+    /**
+     * Reads the next characters of the input into the block, after the characters which are
+     * still needed: the unconsumed ones, and the ones since the mark. An in-memory source is
+     * never refilled.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    protected final void refill() throws IOException {
+        if (source != null || ended) {
+            return;
+        }
+        int keep = markPosition >= 0 ? markPosition : position;
+        if (keep == 0 && limit == block.length) {
+            // The mark holds the whole block
+            markPosition = -1;
+            keep = position;
+        }
+        if (keep > 0) {
+            System.arraycopy(block, keep, block, 0, limit - keep);
+            position -= keep;
+            limit -= keep;
+            if (markPosition >= 0) {
+                markPosition -= keep;
+            }
+        }
+        int count;
+        do {
+            count = fill(block, limit, block.length - limit);
+        } while (count == 0);
+        if (count < 0) {
+            ended = true;
+        } else {
+            limit += count;
+        }
+    }
+
+    /**
+     * Reads the first block from the reader. Unlike {@link #refill()}, it does not go through
+     * {@link #fill(char[], int, int)}, so that no subclass code runs before the subclass is
+     * initialized.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void readFirstBlock() throws IOException {
+        int count;
+        do {
+            count = reader.read(block, 0, block.length);
+        } while (count == 0);
+        if (count < 0) {
+            ended = true;
+        } else {
+            limit = count;
+        }
+    }
+
+    /**
+     * Gets the scanned characters when the scanner was created over an in-memory array or buffer.
+     *
+     * @return the input, indexed by offset, or null if the input is read from a reader.
+     */
+    @Override
+    public CharSequence getSource() {
+        return source;
+    }
+
+    @Override
+    public char peek() {
+        return position < limit ? block[position] : (char) -1;
+    }
+
+    @Override
+    public char peek(int n) throws IOException {
+        if (n < 0 || n >= LOOKAHEAD) {
+            throw new IllegalArgumentException("Lookahead out of range: " + n);
+        }
+        while (position + n >= limit && !ended && source == null) {
+            refill();
+        }
+        return position + n < limit ? block[position + n] : (char) -1;
+    }
+
+    /**
+     * Saves the current position, so that {@link #reset()} can go back to it. The mark stays
+     * valid as long as the characters consumed since the mark and the lookahead fit in a block.
+     */
+    @Override
+    public void mark() {
+        markPosition = position;
+        markLine = currentLine;
+        markColumn = currentColumn;
+        markOffset = currentOffset;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (markPosition < 0) {
+            throw new IOException("No valid mark to reset to");
+        }
+        position = markPosition;
+        currentLine = markLine;
+        currentColumn = markColumn;
+        currentOffset = markOffset;
+    }
+
+    @Override
+    public char get() throws IOException {
+        if (position >= limit) {
+            currentColumn++;
+            return (char) -1;
+        }
+
+        char currentChar = block[position++];
+        currentOffset++;
+        if (currentChar == '\n') {
+            currentLine++;
+            currentColumn = 1;
+        } else {
+            currentColumn++;
+        }
+
+        if (position == limit) {
+            refill();
+        }
+        return currentChar;
+    }
+
+    /**
+     * Consumes characters which are known not to contain a newline. An in-memory source moves
+     * its position at once instead of reading the characters one by one.
+     *
+     * @param count the number of characters to consume.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void skip(int count) throws IOException {
+        if (source == null) {
+            super.skip(count);
+            return;
+        }
+        int n = Math.min(count, limit - position);
+        position += n;
+        currentOffset += n;
+        currentColumn += n;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < limit;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BufferedScanner{" +
+                "currentLine=" + currentLine +
+                ", currentColumn=" + currentColumn +
+                ", nextChar=" + peek() +
+                '}';
+    }
+}
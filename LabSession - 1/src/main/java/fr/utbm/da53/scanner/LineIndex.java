@@ -0,0 +1,304 @@
+package fr.utbm.da53.scanner;
+
+import java.util.Arrays;
+
+/**
+ * An index of the lines of an in-memory TinyBasic source: the offset where each line starts,
+ * and the line number written at the start of each line. It allows to split the source on
+ * line boundaries, or to scan a given line directly.
+ * <p>
+ * The newline search and the character classification are done with SIMD instructions
+ * through the Vector API when the {@code jdk.incubator.vector} module is available
+ * ({@code --add-modules jdk.incubator.vector}), and with plain loops otherwise.
+ */
+public class LineIndex {
+
+    /**
+     * Character class of the characters which are not in the other classes.
+     */
+    public static final byte CLASS_OTHER = 0;
+
+    /**
+     * Character class of spaces, tabulations and form feeds.
+     */
+    public static final byte CLASS_SPACE = 1;
+
+    /**
+     * Character class of ASCII digits.
+     */
+    public static final byte CLASS_DIGIT = 2;
+
+    /**
+     * Character class of ASCII letters and underscores.
+     */
+    public static final byte CLASS_LETTER = 3;
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final char[] source;
+    private final int start;
+    private final int end;
+    private final int[] lineStarts;
+    private final int[] labels;
+
+    // Line numbers and line indices of the numbered lines, packed as (number << 32 | index) and sorted
+    private final long[] labelKeys;
+
+    private LineIndex(char[] source, int start, int end, int[] lineStarts) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.lineStarts = lineStarts;
+        this.labels = new int[lineStarts.length];
+        long[] keys = new long[lineStarts.length];
+        int labelCount = 0;
+        for (int line = 0; line < lineStarts.length; line++) {
+            int label = parseLabel(line);
+            labels[line] = label;
+            if (label >= 0) {
+                keys[labelCount++] = ((long) label << 32) | line;
+            }
+        }
+        this.labelKeys = Arrays.copyOf(keys, labelCount);
+        Arrays.sort(this.labelKeys);
+    }
+
+    /**
+     * Builds the index of a range of characters.
+     *
+     * @param source the characters to index. The array must not be modified while the index is in use.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return the index.
+     */
+    public static LineIndex build(char[] source, int start, int end) {
+        int[] lineStarts;
+        if (VECTORIZED) {
+            lineStarts = new int[VectorLineIndexer.countNewlines(source, start, end) + 1];
+            lineStarts[0] = start;
+            VectorLineIndexer.indexNewlines(source, start, end, lineStarts, 1);
+        } else {
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                if (source[i] == '\n') {
+                    count++;
+                }
+            }
+            lineStarts = new int[count + 1];
+            lineStarts[0] = start;
+            count = 1;
+            for (int i = start; i < end; i++) {
+                if (source[i] == '\n') {
+                    lineStarts[count++] = i + 1;
+                }
+            }
+        }
+        return new LineIndex(source, start, end, lineStarts);
+    }
+
+    /**
+     * Checks if the index is built with the Vector API.
+     *
+     * @return true if the Vector API is available, false otherwise.
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Classifies the characters of a range in bulk.
+     *
+     * @param source the characters to classify.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return the class of each character, {@link #CLASS_SPACE}, {@link #CLASS_DIGIT},
+     *         {@link #CLASS_LETTER} or {@link #CLASS_OTHER}, indexed from start.
+     */
+    public static byte[] classify(char[] source, int start, int end) {
+        byte[] classes = new byte[end - start];
+        if (VECTORIZED) {
+            VectorLineIndexer.classify(source, start, end, classes);
+        } else {
+            for (int i = start; i < end; i++) {
+                classes[i - start] = classOf(source[i]);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Finds the end of the run of characters of the same class.
+     *
+     * @param classes the classes returned by {@link #classify(char[], int, int)}.
+     * @param index the index of the first character of the run.
+     * @return the index after the last character of the run.
+     */
+    public static int runEnd(byte[] classes, int index) {
+        byte cls = classes[index];
+        int i = index + 1;
+        while (i < classes.length && classes[i] == cls) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the class of a single character.
+     *
+     * @param c the character.
+     * @return the class of the character.
+     */
+    static byte classOf(char c) {
+        if (c == ' ' || c == '\t' || c == '\f') {
+            return CLASS_SPACE;
+        }
+        if (c >= '0' && c <= '9') {
+            return CLASS_DIGIT;
+        }
+        char lower = (char) (c | 0x20);
+        if ((lower >= 'a' && lower <= 'z') || c == '_') {
+            return CLASS_LETTER;
+        }
+        return CLASS_OTHER;
+    }
+
+    /**
+     * Gets the indexed characters.
+     *
+     * @return the source array.
+     */
+    public char[] getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the index of the first indexed character.
+     *
+     * @return the start of the indexed range.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the index after the last indexed character.
+     *
+     * @return the end of the indexed range.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the number of lines. A source ending with a newline has a last empty line.
+     *
+     * @return the number of lines.
+     */
+    public int getLineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * Gets the offset of the first character of a line.
+     *
+     * @param line the index of the line, starting at 0.
+     * @return the index of the line in the source array.
+     */
+    public int getLineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * Gets the offset after the last character of a line, including its newline.
+     *
+     * @param line the index of the line, starting at 0.
+     * @return the index after the line in the source array.
+     */
+    public int getLineEnd(int line) {
+        return line + 1 < lineStarts.length ? lineStarts[line + 1] : end;
+    }
+
+    /**
+     * Finds the line containing a character.
+     *
+     * @param offset the index of the character in the source array.
+     * @return the index of the line, starting at 0.
+     */
+    public int getLineAt(int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        // A negative result gives the insertion point, after the line containing the offset
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Gets the number written at the start of a line.
+     *
+     * @param line the index of the line, starting at 0.
+     * @return the line number, or -1 if the line does not start with a number.
+     */
+    public int getLabel(int line) {
+        return labels[line];
+    }
+
+    /**
+     * Finds the line starting with a line number.
+     *
+     * @param label the line number.
+     * @return the index of the first line with this number, or -1 if there is none.
+     */
+    public int findLine(int label) {
+        int index = Arrays.binarySearch(labelKeys, (long) label << 32);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        if (index < labelKeys.length && (int) (labelKeys[index] >>> 32) == label) {
+            return (int) labelKeys[index];
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a scanner starting at a line and going to the end of the source.
+     * Its line counter starts at the number of the line in the source.
+     *
+     * @param line the index of the line, starting at 0.
+     * @return the scanner.
+     */
+    public BufferedScanner openLine(int line) {
+        BufferedScanner scanner = new BufferedScanner(source, lineStarts[line], end);
+        scanner.setCurrentLine(line + 1);
+        return scanner;
+    }
+
+    /**
+     * Parses the number at the start of a line, after optional spaces.
+     *
+     * @param line the index of the line.
+     * @return the number, or -1 if there is none or if it is too large.
+     */
+    private int parseLabel(int line) {
+        int i = lineStarts[line];
+        int lineEnd = getLineEnd(line);
+        while (i < lineEnd && classOf(source[i]) == CLASS_SPACE) {
+            i++;
+        }
+        long value = -1;
+        while (i < lineEnd && source[i] >= '0' && source[i] <= '9') {
+            value = (value < 0 ? 0 : value * 10) + (source[i] - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+            i++;
+        }
+        return (int) value;
+    }
+
+    @Override
+    public String toString() {
+        return "LineIndex{" +
+                "lineCount=" + lineStarts.length +
+                ", numberedLines=" + labelKeys.length +
+                ", vectorized=" + VECTORIZED +
+                '}';
+    }
+}
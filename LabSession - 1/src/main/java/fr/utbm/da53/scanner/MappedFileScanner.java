@@ -0,0 +1,115 @@
+package fr.utbm.da53.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A BufferedScanner that memory-maps its input file through a {@link FileChannel} and decodes
+ * the mapped bytes block by block, without going through a Reader.
+ * <p>
+ * Files are mapped in windows of at most {@link #WINDOW_SIZE} bytes, so inputs larger than
+ * the 2 GB limit of a single mapping are supported.
+ * <p>
+ * The class is final because its constructor reads the first block, through
+ * {@link #fill(char[], int, int)}.
+ */
+public final class MappedFileScanner extends BufferedScanner {
+
+    /**
+     * Maximum number of bytes mapped at once.
+     */
+    public static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final long fileSize;
+    private ByteBuffer window;
+    private long windowEnd;
+    private boolean finished;
+
+    /**
+     * Constructs a MappedFileScanner over a UTF-8 encoded file.
+     *
+     * @param file the file to scan.
+     * @throws IOException if an I/O error occurs.
+     */
+    public MappedFileScanner(Path file) throws IOException {
+        this(file, StandardCharsets.UTF_8, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a MappedFileScanner over a file.
+     *
+     * @param file the file to scan.
+     * @param charset the encoding of the file.
+     * @param blockSize the number of characters decoded at once.
+     * @throws IOException if an I/O error occurs.
+     */
+    public MappedFileScanner(Path file, Charset charset, int blockSize) throws IOException {
+        super(blockSize);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.fileSize = channel.size();
+        mapWindow(0);
+        refill();
+    }
+
+    /**
+     * Maps the window of the file starting at the given byte position.
+     *
+     * @param start the position of the first byte to map.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void mapWindow(long start) throws IOException {
+        windowEnd = Math.min(fileSize, start + WINDOW_SIZE);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowEnd - start);
+    }
+
+    @Override
+    protected int fill(char[] buffer, int offset, int length) throws IOException {
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        while (out.position() == offset && !finished) {
+            boolean lastWindow = windowEnd == fileSize;
+            CoderResult result = decoder.decode(window, out, lastWindow);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isUnderflow()) {
+                if (lastWindow) {
+                    decoder.flush(out);
+                    finished = true;
+                } else {
+                    // Remap from the first byte not consumed yet, which may be a partial character
+                    mapWindow(windowEnd - window.remaining());
+                }
+            }
+        }
+        int count = out.position() - offset;
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedFileScanner{" +
+                "currentLine=" + currentLine +
+                ", currentColumn=" + currentColumn +
+                ", nextChar=" + peek() +
+                '}';
+    }
+}
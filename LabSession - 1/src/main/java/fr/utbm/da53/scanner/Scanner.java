@@ -5,13 +5,40 @@ import java.io.Reader;
 
 /**
  * A Scanner class that reads characters from an input stream and tracks line and column numbers.
+ * <p>
+ * Characters read ahead are kept in a small ring buffer, which allows to look up to
+ * {@link #LOOKAHEAD} characters ahead with {@link #peek(int)}, and to go back to a position
+ * saved by {@link #mark()} with {@link #reset()}.
  */
 public class Scanner {
 
+    /**
+     * Maximum number of characters that can be looked ahead with {@link #peek(int)}.
+     */
+    public static final int LOOKAHEAD = 16;
+
+    // Size of the ring buffer: the lookahead plus the characters kept since the mark
+    private static final int RING_SIZE = 64;
+    private static final int RING_MASK = RING_SIZE - 1;
+
     private Reader fileReader;
-    private int currentLine;
-    private int currentColumn;
-    private int nextChar;
+    protected int currentLine;
+    protected int currentColumn;
+    protected int currentOffset;
+
+    // Absolute indices in the input: next character to consume, next character to read, end of input
+    private final char[] ring = new char[RING_SIZE];
+    private long position;
+    private long readPosition;
+    private long endPosition = Long.MAX_VALUE;
+
+    /**
+     * Position saved by {@link #mark()}, or -1 if there is no valid mark.
+     */
+    private long markPosition = -1;
+    private int markLine;
+    private int markColumn;
+    private int markOffset;
 
     /**
      * Default constructor for Scanner.
@@ -27,7 +54,7 @@ public class Scanner {
      */
     public Scanner(Reader fileReader) throws IOException {
         this.fileReader = fileReader;
-        this.nextChar = fileReader.read();
+        fill(0);
         this.currentLine = 1;
         this.currentColumn = 1;
     }
@@ -50,13 +77,99 @@ public class Scanner {
         this.currentColumn = currentColumn;
     }
 
+    /**
+     * Gets the number of characters consumed so far, i.e. the offset of the next character.
+     *
+     * @return the offset of the next character in the input.
+     */
+    public int getCurrentOffset() {
+        return currentOffset;
+    }
+
+    /**
+     * Gets the whole input when it is held in memory, so that tokens can refer to their
+     * characters instead of copying them.
+     *
+     * @return the input, indexed by offset, or null if the input is read as a stream.
+     */
+    public CharSequence getSource() {
+        return null;
+    }
+
     /**
      * Gets the next character in the stream without advancing.
      *
      * @return the next character as a char.
      */
     public char peek() {
-        return (char) nextChar;
+        return position < readPosition ? ring[(int) position & RING_MASK] : (char) -1;
+    }
+
+    /**
+     * Gets a character ahead in the stream without advancing.
+     *
+     * @param n the number of characters to skip, 0 for the next character.
+     * @return the character, or {@code (char) -1} if it is after the end of the input.
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalArgumentException if n is negative or not less than {@link #LOOKAHEAD}.
+     */
+    public char peek(int n) throws IOException {
+        if (n < 0 || n >= LOOKAHEAD) {
+            throw new IllegalArgumentException("Lookahead out of range: " + n);
+        }
+        fill(n);
+        long index = position + n;
+        return index < readPosition ? ring[(int) index & RING_MASK] : (char) -1;
+    }
+
+    /**
+     * Saves the current position, so that {@link #reset()} can go back to it. The mark stays
+     * valid as long as fewer than {@code RING_SIZE - LOOKAHEAD} characters are consumed.
+     */
+    public void mark() {
+        markPosition = position;
+        markLine = currentLine;
+        markColumn = currentColumn;
+        markOffset = currentOffset;
+    }
+
+    /**
+     * Goes back to the position saved by the last call to {@link #mark()}.
+     *
+     * @throws IOException if there is no mark, or if too many characters were consumed since the mark.
+     */
+    public void reset() throws IOException {
+        if (markPosition < 0) {
+            throw new IOException("No valid mark to reset to");
+        }
+        position = markPosition;
+        currentLine = markLine;
+        currentColumn = markColumn;
+        currentOffset = markOffset;
+    }
+
+    /**
+     * Reads characters into the ring buffer until the character n positions ahead is available
+     * or the end of the input is reached. The mark is dropped if it prevents reading.
+     *
+     * @param n the number of characters ahead of the current position.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void fill(int n) throws IOException {
+        while (readPosition <= position + n && readPosition < endPosition) {
+            long retained = markPosition >= 0 ? markPosition : position;
+            if (readPosition - retained >= RING_SIZE) {
+                markPosition = -1;
+                continue;
+            }
+            int c = fileReader.read();
+            if (c == -1) {
+                endPosition = readPosition;
+            } else {
+                ring[(int) readPosition & RING_MASK] = (char) c;
+                readPosition++;
+            }
+        }
     }
 
     /**
@@ -66,8 +179,13 @@ public class Scanner {
      * @throws IOException if an I/O error occurs.
      */
     public char get() throws IOException {
-        char currentChar = (char) nextChar;
-        nextChar = fileReader.read();
+        char currentChar = peek();
+        if (position < readPosition) {
+            position++;
+            currentOffset++;
+            // Keep the next character loaded, so that peek() never reads
+            fill(0);
+        }
 
         if (currentChar == '\n') {
             currentLine++;
@@ -79,13 +197,26 @@ public class Scanner {
         return currentChar;
     }
 
+    /**
+     * Consumes characters which are known not to contain a newline, such as a run of spaces,
+     * letters or digits found by {@link LineIndex#classify(char[], int, int)}.
+     *
+     * @param count the number of characters to consume.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void skip(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            get();
+        }
+    }
+
     /**
      * Checks if there are more characters to read.
      *
      * @return true if there are more characters, false otherwise.
      */
     public boolean hasNext() {
-        return nextChar != -1;
+        return position < readPosition;
     }
 
     /**
@@ -102,7 +233,7 @@ public class Scanner {
         return "Scanner{" +
                 "currentLine=" + currentLine +
                 ", currentColumn=" + currentColumn +
-                ", nextChar=" + (char) nextChar +
+                ", nextChar=" + peek() +
                 '}';
     }
 }
@@ -0,0 +1,110 @@
+package fr.utbm.da53.scanner;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the passes of {@link LineIndex}, with the incubating Vector API.
+ * Characters are processed as vectors of shorts of the preferred size of the platform.
+ * <p>
+ * This class is only loaded when the {@code jdk.incubator.vector} module is available.
+ */
+final class VectorLineIndexer {
+
+    private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+
+    // Byte vectors with as many lanes as CHARS, for the character classes
+    private static final VectorSpecies<Byte> CLASSES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(CHARS.vectorBitSize() / 2));
+
+    private VectorLineIndexer() {
+    }
+
+    /**
+     * Counts the newlines of a range.
+     *
+     * @param source the characters.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return the number of '\n' characters.
+     */
+    static int countNewlines(char[] source, int start, int end) {
+        int count = 0;
+        int i = start;
+        int bound = start + CHARS.loopBound(end - start);
+        for (; i < bound; i += CHARS.length()) {
+            count += ShortVector.fromCharArray(CHARS, source, i).eq((short) '\n').trueCount();
+        }
+        for (; i < end; i++) {
+            if (source[i] == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stores the index following each newline of a range.
+     *
+     * @param source the characters.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @param lineStarts the array receiving the indices.
+     * @param count the index of the first element to store in the array.
+     * @return the index after the last stored element.
+     */
+    static int indexNewlines(char[] source, int start, int end, int[] lineStarts, int count) {
+        int i = start;
+        int bound = start + CHARS.loopBound(end - start);
+        for (; i < bound; i += CHARS.length()) {
+            long bits = ShortVector.fromCharArray(CHARS, source, i).eq((short) '\n').toLong();
+            while (bits != 0) {
+                lineStarts[count++] = i + Long.numberOfTrailingZeros(bits) + 1;
+                bits &= bits - 1;
+            }
+        }
+        for (; i < end; i++) {
+            if (source[i] == '\n') {
+                lineStarts[count++] = i + 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Classifies each character of a range.
+     *
+     * @param source the characters.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @param classes the array receiving the class of source[start + i] at index i.
+     */
+    static void classify(char[] source, int start, int end, byte[] classes) {
+        int i = start;
+        int bound = start + CHARS.loopBound(end - start);
+        ShortVector none = ShortVector.zero(CHARS);
+        for (; i < bound; i += CHARS.length()) {
+            ShortVector v = ShortVector.fromCharArray(CHARS, source, i);
+            VectorMask<Short> space = v.eq((short) ' ').or(v.eq((short) '\t')).or(v.eq((short) '\f'));
+            VectorMask<Short> digit = v.compare(VectorOperators.GE, (short) '0')
+                    .and(v.compare(VectorOperators.LE, (short) '9'));
+            // Setting bit 0x20 maps upper case ASCII letters to lower case
+            ShortVector lower = v.or((short) 0x20);
+            VectorMask<Short> letter = lower.compare(VectorOperators.GE, (short) 'a')
+                    .and(lower.compare(VectorOperators.LE, (short) 'z'))
+                    .or(v.eq((short) '_'));
+            ShortVector cls = none
+                    .blend((short) LineIndex.CLASS_SPACE, space)
+                    .blend((short) LineIndex.CLASS_DIGIT, digit)
+                    .blend((short) LineIndex.CLASS_LETTER, letter);
+            ((ByteVector) cls.convertShape(VectorOperators.S2B, CLASSES, 0)).intoArray(classes, i - start);
+        }
+        for (; i < end; i++) {
+            classes[i - start] = LineIndex.classOf(source[i]);
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package fr.utbm.da53.symboltable;
+
+import fr.utbm.da53.token.IDToken;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A symbol table which can be shared by threads lexing or parsing at the same time. Each
+ * distinct identifier gets an integer id, allocated in the order the identifiers are first
+ * interned. As this order depends on the scheduling of the threads, the ids given while
+ * lexing a source can be put back in the order of the source by
+ * {@link #sortByFirstOccurrence(int)} once the threads are done.
+ * <p>
+ * The table is split into segments selected by the hash of the lexeme, each one being an
+ * open-addressing hash table with linear probing like {@link InternedSymbolTable}. Looking up
+ * a known identifier does not lock: the slots of a segment are only ever filled, and a
+ * segment which grows publishes a new array. Only the insertion of a new identifier locks
+ * its segment, so threads declaring different identifiers rarely wait for each other.
+ * <p>
+ * The first and last occurrences of each identifier are kept as atomic positions, and copied
+ * into its {@link SymbolTableEntry} by {@link #getPointer(int)}.
+ */
+public class ConcurrentSymbolTable {
+
+    private static final int SEGMENT_CAPACITY = 16;
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    // Symbols by id, in chunks allocated on demand
+    private final AtomicReferenceArray<AtomicReferenceArray<Symbol>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /**
+     * An identifier of the table. Its fields are final, so it is safely visible to the threads
+     * reading it from a slot; only its id is changed, while no thread uses the table.
+     */
+    private static final class Symbol {
+        private int id;
+        private final int hash;
+        private final String lexeme;
+        private final SymbolTablePointer pointer;
+        private final AtomicLong firstOccurrence;
+        private final AtomicLong lastOccurrence;
+
+        private Symbol(int id, int hash, IDToken token) {
+            long position = position(token.getLine(), token.getColumn());
+            this.id = id;
+            this.hash = hash;
+            this.lexeme = token.getLexeme();
+            this.pointer = new SymbolTablePointer(new SymbolTableEntry(token, token.getLine(), token.getLine(),
+                    token.getColumn(), token.getColumn()));
+            this.firstOccurrence = new AtomicLong(position);
+            this.lastOccurrence = new AtomicLong(position);
+        }
+
+        private void occur(int line, int column) {
+            long position = position(line, column);
+            firstOccurrence.accumulateAndGet(position, Math::min);
+            lastOccurrence.accumulateAndGet(position, Math::max);
+        }
+    }
+
+    /**
+     * A part of the table. Its slots are written under its lock and read without locking.
+     */
+    private static final class Segment {
+        private volatile Symbol[] slots = new Symbol[SEGMENT_CAPACITY];
+        private int count;
+    }
+
+    /**
+     * Constructs an empty ConcurrentSymbolTable sized for the available processors.
+     */
+    public ConcurrentSymbolTable() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an empty ConcurrentSymbolTable.
+     *
+     * @param concurrencyLevel the expected number of threads inserting identifiers at the same time.
+     */
+    public ConcurrentSymbolTable(int concurrencyLevel) {
+        // Several segments per thread keep the chance of two threads inserting in the same one low
+        int segmentCount = Integer.highestOneBit(Math.max(concurrencyLevel, 1) * 8 - 1) << 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * Records an occurrence of an identifier given by a range of characters.
+     * If the identifier is new, its entry is created with an IDToken for this occurrence.
+     *
+     * @param chars the array containing the lexeme.
+     * @param offset the index of the lexeme in the array.
+     * @param length the length of the lexeme.
+     * @param line the line of the occurrence.
+     * @param column the column of the occurrence.
+     * @return the id of the identifier.
+     */
+    public int intern(char[] chars, int offset, int length, int line, int column) {
+        int hash = hash(chars, offset, length);
+        Symbol symbol = find(segmentFor(hash).slots, hash, chars, offset, length);
+        if (symbol == null) {
+            symbol = insert(hash, new IDToken(new String(chars, offset, length), line, column, null));
+        }
+        symbol.occur(line, column);
+        return symbol.id;
+    }
+
+    /**
+     * Records an occurrence of an identifier token and sets its symbol table pointer.
+     * If the identifier is new, the token becomes the token of its entry.
+     *
+     * @param token the identifier token.
+     * @return the id of the identifier.
+     */
+    public int intern(IDToken token) {
+        String lexeme = token.getLexeme();
+        int hash = hash(lexeme);
+        Symbol symbol = find(segmentFor(hash).slots, hash, lexeme);
+        if (symbol == null) {
+            symbol = insert(hash, token);
+        }
+        symbol.occur(token.getLine(), token.getColumn());
+        token.setSymbolPointer(symbol.pointer);
+        return symbol.id;
+    }
+
+    /**
+     * Gets the id of an identifier.
+     *
+     * @param lexeme the lexeme of the identifier.
+     * @return the id, or -1 if the identifier is not in the table.
+     */
+    public int getId(String lexeme) {
+        int hash = hash(lexeme);
+        Symbol symbol = find(segmentFor(hash).slots, hash, lexeme);
+        return symbol == null ? -1 : symbol.id;
+    }
+
+    /**
+     * Gets the lexeme of an identifier.
+     *
+     * @param id the id of the identifier.
+     * @return the lexeme.
+     * @throws IndexOutOfBoundsException if there is no identifier with this id.
+     */
+    public String getLexeme(int id) {
+        return symbol(id).lexeme;
+    }
+
+    /**
+     * Gets the pointer to the entry of an identifier, with the first and last occurrences
+     * recorded so far.
+     *
+     * @param id the id of the identifier.
+     * @return the pointer to the entry.
+     * @throws IndexOutOfBoundsException if there is no identifier with this id.
+     */
+    public SymbolTablePointer getPointer(int id) {
+        Symbol symbol = symbol(id);
+        SymbolTableEntry entry = symbol.pointer.getSymbolTableEntry();
+        long first = symbol.firstOccurrence.get();
+        long last = symbol.lastOccurrence.get();
+        synchronized (entry) {
+            entry.setFirstOccurrenceLine((int) (first >>> 32));
+            entry.setFirstOccurrenceColumn((int) first);
+            entry.setLastOccurrenceLine((int) (last >>> 32));
+            entry.setLastOccurrenceColumn((int) last);
+        }
+        return symbol.pointer;
+    }
+
+    /**
+     * Gets the number of distinct identifiers in the table. The ids of the identifiers go
+     * from 0 to this number, excluded; while other threads insert identifiers, the last ids
+     * may not be readable yet.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return nextId.get();
+    }
+
+    /**
+     * Prints the entries in the symbol table to the standard output, in the order of their id.
+     * It should be called once the threads filling the table are done.
+     */
+    public void displayEntries() {
+        int size = size();
+        for (int id = 0; id < size; id++) {
+            System.out.println("Entry " + (id + 1) + ": " + getPointer(id).getSymbolTableEntry());
+        }
+    }
+
+    /**
+     * Renumbers the identifiers whose id is at least the given one in the order of their first
+     * occurrence, so that their ids are the ones a sequential interning would have given.
+     * The pointers of the identifiers are kept. It must be called once the threads filling the
+     * table are done.
+     *
+     * @param fromId the first id to renumber, usually the size of the table before the threads
+     *               started; the identifiers with a smaller id keep it.
+     */
+    public void sortByFirstOccurrence(int fromId) {
+        int size = size();
+        if (size - fromId < 2) {
+            return;
+        }
+        Symbol[] symbols = new Symbol[size - fromId];
+        for (int id = fromId; id < size; id++) {
+            symbols[id - fromId] = symbol(id);
+        }
+        Arrays.sort(symbols, Comparator.comparingLong(symbol -> symbol.firstOccurrence.get()));
+        for (int i = 0; i < symbols.length; i++) {
+            int id = fromId + i;
+            symbols[i].id = id;
+            chunks.get(id >>> CHUNK_BITS).set(id & (CHUNK_SIZE - 1), symbols[i]);
+        }
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> segmentShift];
+    }
+
+    private Symbol symbol(int id) {
+        AtomicReferenceArray<Symbol> chunk = id >= 0 && id < size() ? chunks.get(id >>> CHUNK_BITS) : null;
+        // An id being allocated by another thread is not stored yet
+        Symbol symbol = chunk == null ? null : chunk.get(id & (CHUNK_SIZE - 1));
+        if (symbol == null) {
+            throw new IndexOutOfBoundsException("No identifier with id " + id);
+        }
+        return symbol;
+    }
+
+    /**
+     * Inserts an identifier in its segment, unless another thread inserted it first.
+     *
+     * @param hash the hash of the lexeme.
+     * @param token the token of the first occurrence.
+     * @return the symbol of the identifier.
+     */
+    private Symbol insert(int hash, IDToken token) {
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            Symbol[] slots = segment.slots;
+            String lexeme = token.getLexeme();
+            Symbol symbol = find(slots, hash, lexeme);
+            if (symbol != null) {
+                return symbol;
+            }
+            int id = nextId.getAndIncrement();
+            if (id >>> CHUNK_BITS >= MAX_CHUNKS) {
+                throw new IllegalStateException("Too many identifiers");
+            }
+            symbol = new Symbol(id, hash, token);
+            AtomicReferenceArray<Symbol> chunk = chunks.get(id >>> CHUNK_BITS);
+            if (chunk == null) {
+                // Another segment may allocate the same chunk at the same time
+                chunks.compareAndSet(id >>> CHUNK_BITS, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+                chunk = chunks.get(id >>> CHUNK_BITS);
+            }
+            chunk.set(id & (CHUNK_SIZE - 1), symbol);
+            token.setSymbolPointer(symbol.pointer);
+
+            // Keep the load factor under 1/2 so probe sequences stay short
+            if ((segment.count + 1) * 2 > slots.length) {
+                slots = grow(slots);
+            }
+            int mask = slots.length - 1;
+            int index = hash & mask;
+            while (slots[index] != null) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = symbol;
+            segment.count++;
+            segment.slots = slots;
+            return symbol;
+        }
+    }
+
+    private static Symbol[] grow(Symbol[] slots) {
+        Symbol[] newSlots = new Symbol[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (Symbol symbol : slots) {
+            if (symbol != null) {
+                int index = symbol.hash & mask;
+                while (newSlots[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                newSlots[index] = symbol;
+            }
+        }
+        return newSlots;
+    }
+
+    private static Symbol find(Symbol[] slots, int hash, String lexeme) {
+        int mask = slots.length - 1;
+        int index = hash & mask;
+        Symbol symbol;
+        while ((symbol = slots[index]) != null) {
+            if (symbol.hash == hash && symbol.lexeme.equals(lexeme)) {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static Symbol find(Symbol[] slots, int hash, char[] chars, int offset, int length) {
+        int mask = slots.length - 1;
+        int index = hash & mask;
+        Symbol symbol;
+        while ((symbol = slots[index]) != null) {
+            if (symbol.hash == hash && matches(symbol.lexeme, chars, offset, length)) {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean matches(String lexeme, char[] chars, int offset, int length) {
+        if (lexeme.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (lexeme.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long position(int line, int column) {
+        return (long) line << 32 | (column & 0xffffffffL);
+    }
+
+    // Both hash functions must give the same result for the same characters
+
+    private static int hash(char[] chars, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return spread(h);
+    }
+
+    private static int hash(String lexeme) {
+        return spread(lexeme.hashCode());
+    }
+
+    private static int spread(int h) {
+        // The high bits select the segment and the low bits the slot, so mix both
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
@@ -0,0 +1,285 @@
+package fr.utbm.da53.symboltable;
+
+import fr.utbm.da53.token.IDToken;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A symbol table with one entry per distinct identifier, keyed on the characters of the lexeme.
+ * <p>
+ * Entries are stored in an open-addressing hash table with linear probing, so looking up a
+ * known identifier costs one hash of its characters and usually one probe, without building a
+ * String. All the occurrences of an identifier share the same {@link SymbolTablePointer}, and
+ * the last occurrence of the entry is updated in place.
+ * <p>
+ * Each slot also records the position of its pointer in the list of pointers, so an entry is
+ * removed in constant time by moving the last pointer of the list into its place.
+ */
+public class InternedSymbolTable {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private SymbolTablePointer[] slots;
+    private int[] hashes;
+    private int[] positions;
+    private final List<SymbolTablePointer> pointers = new ArrayList<>();
+
+    /**
+     * Constructs an empty InternedSymbolTable.
+     */
+    public InternedSymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty InternedSymbolTable able to hold the given number of identifiers without growing.
+     *
+     * @param expectedSize the expected number of distinct identifiers.
+     */
+    public InternedSymbolTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        this.slots = new SymbolTablePointer[capacity];
+        this.hashes = new int[capacity];
+        this.positions = new int[capacity];
+    }
+
+    /**
+     * Records an occurrence of an identifier given by a range of characters.
+     * If the identifier is new, its entry is created with an IDToken for this occurrence.
+     *
+     * @param chars the array containing the lexeme.
+     * @param offset the index of the lexeme in the array.
+     * @param length the length of the lexeme.
+     * @param line the line of the occurrence.
+     * @param column the column of the occurrence.
+     * @return the pointer shared by all the occurrences of the identifier.
+     */
+    public SymbolTablePointer intern(char[] chars, int offset, int length, int line, int column) {
+        int hash = hash(chars, offset, length);
+        int mask = slots.length - 1;
+        int index = hash & mask;
+        SymbolTablePointer pointer;
+        while ((pointer = slots[index]) != null) {
+            if (hashes[index] == hash && matches(pointer, chars, offset, length)) {
+                updateLastOccurrence(pointer, line, column);
+                return pointer;
+            }
+            index = (index + 1) & mask;
+        }
+        IDToken token = new IDToken(new String(chars, offset, length), line, column, null);
+        return insert(index, hash, token);
+    }
+
+    /**
+     * Records an occurrence of an identifier token and sets its symbol table pointer.
+     * If the identifier is new, the token becomes the token of its entry.
+     *
+     * @param token the identifier token.
+     * @return the pointer shared by all the occurrences of the identifier.
+     */
+    public SymbolTablePointer intern(IDToken token) {
+        String lexeme = token.getLexeme();
+        int hash = hash(lexeme);
+        int mask = slots.length - 1;
+        int index = hash & mask;
+        SymbolTablePointer pointer;
+        while ((pointer = slots[index]) != null) {
+            if (hashes[index] == hash && lexemeOf(pointer).equals(lexeme)) {
+                updateLastOccurrence(pointer, token.getLine(), token.getColumn());
+                token.setSymbolPointer(pointer);
+                return pointer;
+            }
+            index = (index + 1) & mask;
+        }
+        return insert(index, hash, token);
+    }
+
+    /**
+     * Retrieves the entry of an identifier.
+     *
+     * @param lexeme the lexeme of the identifier.
+     * @return the pointer to the entry of the identifier, or null if it is not in the table.
+     */
+    public SymbolTablePointer get(String lexeme) {
+        int hash = hash(lexeme);
+        int mask = slots.length - 1;
+        int index = hash & mask;
+        SymbolTablePointer pointer;
+        while ((pointer = slots[index]) != null) {
+            if (hashes[index] == hash && lexemeOf(pointer).equals(lexeme)) {
+                return pointer;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the entry of an identifier.
+     *
+     * @param lexeme the lexeme of the identifier.
+     * @return the pointer to the removed entry, or null if the identifier is not in the table.
+     */
+    public SymbolTablePointer remove(String lexeme) {
+        int hash = hash(lexeme);
+        int mask = slots.length - 1;
+        int index = hash & mask;
+        SymbolTablePointer pointer;
+        while ((pointer = slots[index]) != null) {
+            if (hashes[index] == hash && lexemeOf(pointer).equals(lexeme)) {
+                break;
+            }
+            index = (index + 1) & mask;
+        }
+        if (pointer == null) {
+            return null;
+        }
+        // The probe sequences must be intact to find the slot of the moved pointer
+        removePointer(positions[index], mask);
+        slots[index] = null;
+
+        // Move back the following entries of the probe sequence that can no longer be reached
+        int hole = index;
+        int i = (index + 1) & mask;
+        while (slots[i] != null) {
+            int home = hashes[i] & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                slots[hole] = slots[i];
+                hashes[hole] = hashes[i];
+                positions[hole] = positions[i];
+                slots[i] = null;
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        return pointer;
+    }
+
+    /**
+     * Gets the number of distinct identifiers in the table.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return pointers.size();
+    }
+
+    /**
+     * Gets the pointers to the entries, in the order of the first occurrence of their identifier.
+     * Removing an entry moves the last pointer of the list to the position of the removed one.
+     *
+     * @return an unmodifiable list of the pointers.
+     */
+    public List<SymbolTablePointer> getPointers() {
+        return Collections.unmodifiableList(pointers);
+    }
+
+    /**
+     * Prints the entries in the symbol table to the standard output.
+     */
+    public void displayEntries() {
+        int i = 1;
+        for (SymbolTablePointer pointer : pointers) {
+            System.out.println("Entry " + i + ": " + pointer.getSymbolTableEntry());
+            i++;
+        }
+    }
+
+    private SymbolTablePointer insert(int index, int hash, IDToken token) {
+        SymbolTableEntry entry = new SymbolTableEntry(token, token.getLine(), token.getLine(), token.getColumn(), token.getColumn());
+        SymbolTablePointer pointer = new SymbolTablePointer(entry);
+        token.setSymbolPointer(pointer);
+        slots[index] = pointer;
+        hashes[index] = hash;
+        positions[index] = pointers.size();
+        pointers.add(pointer);
+        // Keep the load factor under 1/2 so probe sequences stay short
+        if (pointers.size() * 2 > slots.length) {
+            rehash();
+        }
+        return pointer;
+    }
+
+    /**
+     * Removes a pointer from the list by moving the last pointer to its position.
+     *
+     * @param position the position of the pointer in the list.
+     * @param mask the mask of the slot indexes.
+     */
+    private void removePointer(int position, int mask) {
+        SymbolTablePointer last = pointers.remove(pointers.size() - 1);
+        if (position == pointers.size()) {
+            return;
+        }
+        pointers.set(position, last);
+        int index = hash(lexemeOf(last)) & mask;
+        while (slots[index] != last) {
+            index = (index + 1) & mask;
+        }
+        positions[index] = position;
+    }
+
+    private void rehash() {
+        SymbolTablePointer[] newSlots = new SymbolTablePointer[slots.length * 2];
+        int[] newHashes = new int[newSlots.length];
+        int[] newPositions = new int[newSlots.length];
+        int mask = newSlots.length - 1;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != null) {
+                int index = hashes[i] & mask;
+                while (newSlots[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                newSlots[index] = slots[i];
+                newHashes[index] = hashes[i];
+                newPositions[index] = positions[i];
+            }
+        }
+        slots = newSlots;
+        hashes = newHashes;
+        positions = newPositions;
+    }
+
+    private static void updateLastOccurrence(SymbolTablePointer pointer, int line, int column) {
+        SymbolTableEntry entry = pointer.getSymbolTableEntry();
+        entry.setLastOccurrenceLine(line);
+        entry.setLastOccurrenceColumn(column);
+    }
+
+    private static String lexemeOf(SymbolTablePointer pointer) {
+        return pointer.getSymbolTableEntry().getToken().getLexeme();
+    }
+
+    private static boolean matches(SymbolTablePointer pointer, char[] chars, int offset, int length) {
+        String lexeme = lexemeOf(pointer);
+        if (lexeme.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (lexeme.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Both hash functions must give the same result for the same characters
+
+    private static int hash(char[] chars, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return spread(h);
+    }
+
+    private static int hash(String lexeme) {
+        return spread(lexeme.hashCode());
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -32,6 +32,21 @@ public class IDToken extends Token {
         this.symbolPointer = symbolPointer;
     }
 
+    /**
+     * Creates an identifier token whose lexeme is a range of the source text.
+     *
+     * @param source        the source text.
+     * @param offset        the offset of the lexeme in the source.
+     * @param length        the length of the lexeme.
+     * @param line          the line where the lexeme appears.
+     * @param column        the column where the lexeme starts.
+     * @param symbolPointer the symbol table pointer.
+     */
+    public IDToken(CharSequence source, int offset, int length, int line, int column, SymbolTablePointer symbolPointer) {
+        super(source, offset, length, line, column);
+        this.symbolPointer = symbolPointer;
+    }
+
     /**
      * Gets the symbol table pointer for this identifier token.
      *
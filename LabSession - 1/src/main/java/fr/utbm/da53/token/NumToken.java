@@ -9,7 +9,21 @@ import java.util.regex.Matcher;
 public class NumToken extends Token {
 
     private static final Pattern NUMBER_PATTERN = Pattern.compile("[0-9]+(\\.[0-9]+)?");
+    private static final float[] POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    // Integers up to 2^24 are exact in a float
+    private static final long MAX_EXACT_MANTISSA = 1L << 24;
+
+    /**
+     * Maximum number of digits of an integer literal held in a long.
+     */
+    public static final int MAX_INTEGER_DIGITS = 18;
+
     private float tokenValue;
+    private long integerValue;
+    private boolean integer;
 
     public NumToken() {
     }
@@ -27,6 +41,53 @@ public class NumToken extends Token {
         this.tokenValue = tokenValue;
     }
 
+    /**
+     * Creates a new integer token with the given lexeme, line, column and value.
+     *
+     * @param lexeme the lexeme of the token.
+     * @param line the line where the token is located.
+     * @param column the column where the token is located.
+     * @param integerValue the integer value of the token.
+     */
+    public NumToken(String lexeme, int line, int column, long integerValue) {
+        super(lexeme, line, column);
+        this.tokenValue = integerValue;
+        this.integerValue = integerValue;
+        this.integer = true;
+    }
+
+    /**
+     * Creates a new integer token whose lexeme is a range of the source text.
+     *
+     * @param source the source text.
+     * @param offset the offset of the lexeme in the source.
+     * @param length the length of the lexeme.
+     * @param line the line where the token is located.
+     * @param column the column where the token is located.
+     * @param integerValue the integer value of the token.
+     */
+    public NumToken(CharSequence source, int offset, int length, int line, int column, long integerValue) {
+        super(source, offset, length, line, column);
+        this.tokenValue = integerValue;
+        this.integerValue = integerValue;
+        this.integer = true;
+    }
+
+    /**
+     * Creates a new numeric token whose lexeme is a range of the source text.
+     *
+     * @param source the source text.
+     * @param offset the offset of the lexeme in the source.
+     * @param length the length of the lexeme.
+     * @param line the line where the token is located.
+     * @param column the column where the token is located.
+     * @param tokenValue the numeric value of the token.
+     */
+    public NumToken(CharSequence source, int offset, int length, int line, int column, float tokenValue) {
+        super(source, offset, length, line, column);
+        this.tokenValue = tokenValue;
+    }
+
     /**
      * Gets the numeric value of the token.
      *
@@ -37,12 +98,84 @@ public class NumToken extends Token {
     }
 
     /**
-     * Sets the numeric value of the token.
+     * Sets the numeric value of the token. The token is no longer an integer.
      *
      * @param tokenValue the numeric value to set.
      */
     public void setTokenValue(float tokenValue) {
         this.tokenValue = tokenValue;
+        this.integer = false;
+    }
+
+    /**
+     * Checks if the literal is an integer, without fractional part.
+     *
+     * @return true if the value is available as an integer, false otherwise.
+     */
+    public boolean isInteger() {
+        return integer;
+    }
+
+    /**
+     * Gets the integer value of the token.
+     *
+     * @return the integer value, or the truncated numeric value if the literal is not an integer.
+     */
+    public long getIntegerValue() {
+        return integer ? integerValue : (long) tokenValue;
+    }
+
+    /**
+     * Creates a numeric token from its lexeme, computing its value from the digits without
+     * going through {@link Float#parseFloat(String)} when possible.
+     *
+     * @param lexeme the lexeme of the token.
+     * @param line the line where the token is located.
+     * @param column the column where the token is located.
+     * @return the new token.
+     */
+    public static NumToken parse(String lexeme, int line, int column) {
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int dots = 0;
+        for (int i = 0; i < lexeme.length(); i++) {
+            char c = lexeme.charAt(i);
+            if (c == '.') {
+                dots++;
+            } else {
+                mantissa = mantissa * 10 + Character.digit(c, 10);
+                digits++;
+                if (dots > 0) {
+                    scale++;
+                }
+            }
+        }
+        if (dots == 0 && digits <= MAX_INTEGER_DIGITS) {
+            return new NumToken(lexeme, line, column, mantissa);
+        }
+        return new NumToken(lexeme, line, column, toFloat(mantissa, digits, scale, dots, lexeme));
+    }
+
+    /**
+     * Computes the value of a decimal literal from the digits accumulated while scanning it.
+     * When the digits and the power of ten are both exact in a float, a single division gives
+     * the correctly rounded result; otherwise the lexeme is parsed.
+     *
+     * @param mantissa the value of all the digits, ignoring the decimal point.
+     * @param digits the number of digits.
+     * @param scale the number of digits after the decimal point.
+     * @param dots the number of decimal points.
+     * @param lexeme the lexeme of the literal.
+     * @return the value of the literal.
+     * @throws NumberFormatException if the lexeme is not a valid number.
+     */
+    public static float toFloat(long mantissa, int digits, int scale, int dots, CharSequence lexeme) {
+        if (dots <= 1 && digits <= MAX_INTEGER_DIGITS && mantissa <= MAX_EXACT_MANTISSA
+                && scale < POWERS_OF_TEN.length) {
+            return mantissa / POWERS_OF_TEN[scale];
+        }
+        return Float.parseFloat(lexeme.toString());
     }
 
     @Override
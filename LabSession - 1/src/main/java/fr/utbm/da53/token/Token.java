@@ -1,5 +1,7 @@
 package fr.utbm.da53.token;
 
+import java.nio.CharBuffer;
+
 /**
  * Abstract base class for different types of tokens in the source code.
  * Each token represents a lexeme, its line, and column position in the source file.
@@ -7,6 +9,9 @@ package fr.utbm.da53.token;
 public abstract class Token implements Comparable<Token> {
 
     private String lexeme;
+    private CharSequence source;
+    private int offset;
+    private int length;
     private int line;
     private int column;
 
@@ -23,6 +28,25 @@ public abstract class Token implements Comparable<Token> {
         this.column = column;
     }
 
+    /**
+     * Constructs a Token whose lexeme is a range of a source text. The lexeme is only copied
+     * into a String when {@link #getLexeme()} is called, so the source must not be modified
+     * while the token is in use.
+     *
+     * @param source the source text.
+     * @param offset the offset of the lexeme in the source.
+     * @param length the length of the lexeme.
+     * @param line the line number where the token appears.
+     * @param column the column number where the token starts.
+     */
+    public Token(CharSequence source, int offset, int length, int line, int column) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.line = line;
+        this.column = column;
+    }
+
     /**
      * Default constructor for Token.
      */
@@ -35,6 +59,22 @@ public abstract class Token implements Comparable<Token> {
      * @return the lexeme string.
      */
     public String getLexeme() {
+        if (lexeme == null && source != null) {
+            lexeme = source.subSequence(offset, offset + length).toString();
+            source = null;
+        }
+        return lexeme;
+    }
+
+    /**
+     * Gets the lexeme of the token without copying it out of the source text.
+     *
+     * @return the lexeme, as a view of the source if it has not been materialized yet.
+     */
+    public CharSequence getLexemeSequence() {
+        if (lexeme == null && source != null) {
+            return CharBuffer.wrap(source, offset, offset + length);
+        }
         return lexeme;
     }
 
@@ -45,6 +85,7 @@ public abstract class Token implements Comparable<Token> {
      */
     public void setLexeme(String lexeme) {
         this.lexeme = lexeme;
+        this.source = null;
     }
 
     /**
@@ -120,7 +161,7 @@ public abstract class Token implements Comparable<Token> {
     @Override
     public String toString() {
         return "Token{" +
-                "lexeme='" + lexeme + '\'' +
+                "lexeme='" + getLexeme() + '\'' +
                 ", line=" + line +
                 ", column=" + column +
                 '}';
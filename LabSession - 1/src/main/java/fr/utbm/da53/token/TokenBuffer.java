@@ -0,0 +1,274 @@
+package fr.utbm.da53.token;
+
+import java.util.Arrays;
+
+/**
+ * A stream of tokens stored as parallel primitive arrays instead of Token objects: for each
+ * token, its kind, start offset and length in the source, line and column.
+ * <p>
+ * Tokens with a fixed lexeme (keywords, operators) store nothing else. The lexemes of
+ * identifiers and numbers are appended to a shared char pool. Tokens are read back through a
+ * {@link Cursor}, which only creates Token objects on request.
+ */
+public class TokenBuffer {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private byte[] kinds;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    private int[] textOffsets;
+    private char[] text;
+    private int textLength;
+    private int size;
+
+    /**
+     * Constructs an empty TokenBuffer.
+     */
+    public TokenBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty TokenBuffer able to hold the given number of tokens without growing.
+     *
+     * @param capacity the initial capacity, in tokens.
+     */
+    public TokenBuffer(int capacity) {
+        capacity = Math.max(capacity, 16);
+        this.kinds = new byte[capacity];
+        this.offsets = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.columns = new int[capacity];
+        this.textOffsets = new int[capacity];
+        this.text = new char[capacity * 4];
+    }
+
+    /**
+     * Gets the number of tokens in the buffer.
+     *
+     * @return the number of tokens.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the tokens, keeping the allocated arrays.
+     */
+    public void clear() {
+        size = 0;
+        textLength = 0;
+    }
+
+    /**
+     * Appends a token whose lexeme is the fixed image of its kind.
+     *
+     * @param kind the kind of the token.
+     * @param offset the offset of the first character of the token in the source.
+     * @param length the number of characters of the token in the source.
+     * @param line the line of the token.
+     * @param column the column of the token.
+     */
+    public void append(TokenKind kind, int offset, int length, int line, int column) {
+        if (size == kinds.length) {
+            grow();
+        }
+        int i = size++;
+        kinds[i] = (byte) kind.ordinal();
+        offsets[i] = offset;
+        lengths[i] = length;
+        lines[i] = line;
+        columns[i] = column;
+        textOffsets[i] = textLength;
+    }
+
+    /**
+     * Appends a token with its own lexeme, which is copied into the char pool of the buffer.
+     *
+     * @param kind the kind of the token.
+     * @param offset the offset of the first character of the token in the source.
+     * @param length the number of characters of the token in the source.
+     * @param line the line of the token.
+     * @param column the column of the token.
+     * @param lexeme the array containing the lexeme.
+     * @param lexemeStart the index of the lexeme in the array.
+     * @param lexemeLength the length of the lexeme.
+     */
+    public void append(TokenKind kind, int offset, int length, int line, int column,
+                       char[] lexeme, int lexemeStart, int lexemeLength) {
+        append(kind, offset, length, line, column);
+        if (textLength + lexemeLength > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + lexemeLength));
+        }
+        System.arraycopy(lexeme, lexemeStart, text, textLength, lexemeLength);
+        textLength += lexemeLength;
+    }
+
+    /**
+     * Appends a token with its own lexeme, read from a character sequence such as the source
+     * and copied into the char pool of the buffer.
+     *
+     * @param kind the kind of the token.
+     * @param offset the offset of the first character of the token in the source.
+     * @param length the number of characters of the token in the source.
+     * @param line the line of the token.
+     * @param column the column of the token.
+     * @param lexeme the sequence containing the lexeme.
+     * @param lexemeStart the index of the lexeme in the sequence.
+     * @param lexemeLength the length of the lexeme.
+     */
+    public void append(TokenKind kind, int offset, int length, int line, int column,
+                       CharSequence lexeme, int lexemeStart, int lexemeLength) {
+        append(kind, offset, length, line, column);
+        if (textLength + lexemeLength > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + lexemeLength));
+        }
+        for (int i = 0; i < lexemeLength; i++) {
+            text[textLength + i] = lexeme.charAt(lexemeStart + i);
+        }
+        textLength += lexemeLength;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+        textOffsets = Arrays.copyOf(textOffsets, capacity);
+    }
+
+    // Random access to the token at a given index
+
+    public TokenKind getKind(int index) {
+        return TokenKind.valueOf(kinds[index]);
+    }
+
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Gets the lexeme of the token at the given index. Only identifiers and numbers allocate a String.
+     *
+     * @param index the index of the token.
+     * @return the lexeme.
+     */
+    public String getLexeme(int index) {
+        TokenKind kind = getKind(index);
+        if (kind.hasFixedImage()) {
+            return kind.getImage();
+        }
+        int start = textOffsets[index];
+        int end = index + 1 < size ? textOffsets[index + 1] : textLength;
+        return new String(text, start, end - start);
+    }
+
+    /**
+     * Gets an object view of the token at the given index. Keywords, operators and punctuation
+     * return the shared flyweight of their kind, whose line and column are not set.
+     *
+     * @param index the index of the token.
+     * @return the token.
+     */
+    public Token getToken(int index) {
+        TokenKind kind = getKind(index);
+        if (kind.hasFixedImage()) {
+            return kind.flyweight();
+        }
+        return kind.newToken(getLexeme(index), lines[index], columns[index]);
+    }
+
+    /**
+     * Creates a cursor positioned before the first token.
+     *
+     * @return the new cursor.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBuffer{" +
+                "size=" + size +
+                ", textLength=" + textLength +
+                '}';
+    }
+
+    /**
+     * A forward cursor over the tokens of the buffer.
+     */
+    public class Cursor {
+
+        private int index = -1;
+
+        /**
+         * Moves to the next token.
+         *
+         * @return true if the cursor is on a token, false if there are no more tokens.
+         */
+        public boolean next() {
+            if (index < size) {
+                index++;
+            }
+            return index < size;
+        }
+
+        /**
+         * Moves the cursor back before the first token.
+         */
+        public void rewind() {
+            index = -1;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public TokenKind kind() {
+            return getKind(index);
+        }
+
+        public int offset() {
+            return offsets[index];
+        }
+
+        public int length() {
+            return lengths[index];
+        }
+
+        public int line() {
+            return lines[index];
+        }
+
+        public int column() {
+            return columns[index];
+        }
+
+        public String lexeme() {
+            return getLexeme(index);
+        }
+
+        public Token token() {
+            return getToken(index);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package fr.utbm.da53.token;
+
+/**
+ * Enumerates the kinds of tokens produced by the lexer. The name of each kind is the token
+ * type returned by {@link Token#getTokenType()}.
+ * <p>
+ * Kinds whose lexeme is always the same (keywords, operators, punctuation) have a fixed image
+ * and share a flyweight Token instance.
+ */
+public enum TokenKind {
+
+    EOF(""),
+    CR("\n"),
+    PRINT("PRINT"),
+    IF("IF"),
+    THEN("THEN"),
+    GOTO("GOTO"),
+    GOSUB("GOSUB"),
+    LET("LET"),
+    INPUT("INPUT"),
+    RETURN("RETURN"),
+    END("END"),
+    ID(null),
+    NUM(null),
+    STRING(null),
+    PLUS("+"),
+    MINUS("-"),
+    MULTIPLY("*"),
+    DIVIDE("/"),
+    EQUAL("="),
+    EQ("="),
+    NQ("<>"),
+    LT("<"),
+    GT(">"),
+    LE("<="),
+    GE(">="),
+    OPARENT("("),
+    CPARENT(")"),
+    COMMA(",");
+
+    private static final TokenKind[] VALUES = values();
+
+    // Shared instances by ordinal, created with the class so that every thread sees them
+    private static final Token[] FLYWEIGHTS = new Token[VALUES.length];
+
+    static {
+        for (TokenKind kind : VALUES) {
+            if (kind.image != null) {
+                FLYWEIGHTS[kind.ordinal()] = kind.newToken(kind.image, 0, 0);
+            }
+        }
+    }
+
+    private final String image;
+
+    TokenKind(String image) {
+        this.image = image;
+    }
+
+    /**
+     * Returns the kind with the given ordinal, without copying the array of values.
+     *
+     * @param ordinal the ordinal of the kind.
+     * @return the kind.
+     */
+    public static TokenKind valueOf(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the kind of a token.
+     *
+     * @param token the token.
+     * @return the kind of the token.
+     */
+    public static TokenKind of(Token token) {
+        return valueOf(token.getTokenType());
+    }
+
+    /**
+     * Gets the fixed lexeme of this kind.
+     *
+     * @return the lexeme, or null if the lexeme of this kind varies (identifiers, numbers and strings).
+     */
+    public String getImage() {
+        return image;
+    }
+
+    /**
+     * Checks if all the tokens of this kind have the same lexeme.
+     *
+     * @return true if the lexeme is fixed, false otherwise.
+     */
+    public boolean hasFixedImage() {
+        return image != null;
+    }
+
+    /**
+     * Returns the shared instance of this kind. Its line and column are 0, and it must not be modified.
+     *
+     * @return the flyweight token.
+     * @throws IllegalStateException if the lexeme of this kind is not fixed.
+     */
+    public Token flyweight() {
+        if (image == null) {
+            throw new IllegalStateException("No flyweight for token kind " + this);
+        }
+        return FLYWEIGHTS[ordinal()];
+    }
+
+    /**
+     * Creates a new token of this kind.
+     *
+     * @param lexeme the lexeme of the token.
+     * @param line the line of the token.
+     * @param column the column of the token.
+     * @return the new token.
+     */
+    public Token newToken(String lexeme, int line, int column) {
+        switch (this) {
+            case EOF: return new EOFToken(lexeme, line, column);
+            case CR: return new CReturnToken(lexeme, line, column);
+            case PRINT: return new PrintToken(lexeme, line, column);
+            case IF: return new IFToken(lexeme, line, column);
+            case THEN: return new ThenToken(lexeme, line, column);
+            case GOTO: return new GotoToken(lexeme, line, column);
+            case GOSUB: return new GosubToken(lexeme, line, column);
+            case LET: return new LetToken(lexeme, line, column);
+            case INPUT: return new InputToken(lexeme, line, column);
+            case RETURN: return new ReturnToken(lexeme, line, column);
+            case END: return new EndToken(lexeme, line, column);
+            case ID: return new IDToken(lexeme, line, column, null);
+            case NUM: return NumToken.parse(lexeme, line, column);
+            case STRING: return new StringToken(lexeme, line, column);
+            case PLUS: return new PlusToken(lexeme, line, column);
+            case MINUS: return new MinusToken(lexeme, line, column);
+            case MULTIPLY: return new MultiplyToken(lexeme, line, column);
+            case DIVIDE: return new DivideToken(lexeme, line, column);
+            case EQUAL: return new EqualToken(lexeme, line, column);
+            case OPARENT: return new OParentToken(lexeme, line, column);
+            case CPARENT: return new CParentToken(lexeme, line, column);
+            case COMMA: return new CommaToken(lexeme, line, column);
+            default: return new RelOpToken(lexeme, line, column);
+        }
+    }
+}
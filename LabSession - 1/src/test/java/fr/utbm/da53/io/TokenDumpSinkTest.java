@@ -0,0 +1,128 @@
+package fr.utbm.da53.io;
+
+import fr.utbm.da53.lexer.Lexer;
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.token.Token;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that a {@link TokenDumpSink} writes the dump Main used to format token by token,
+ * whatever the size of its blocks, and reports the failures of its writer thread.
+ */
+class TokenDumpSinkTest {
+
+    private static final int[] BLOCK_SIZES = {1, 64, 100, TokenDumpSink.DEFAULT_BLOCK_SIZE};
+
+    @TempDir
+    Path directory;
+
+    private static String longInput() {
+        StringBuilder b = new StringBuilder("10 LET ÉTÉ = 1.25 * (A - B) / 3\r\n20 IF A <> B THEN GOSUB 100\n");
+        for (int i = 1; i <= 2000; i++) {
+            b.append(i * 10 + 100).append(" LET X").append(i % 17).append(" = X + ").append(i).append('\n');
+        }
+        return b.toString();
+    }
+
+    private static List<Token> lex(String input) throws IOException {
+        char[] chars = input.toCharArray();
+        Lexer lexer = new Lexer(new BufferedScanner(chars, 0, chars.length));
+        List<Token> tokens = new ArrayList<>();
+        for (Token token : lexer) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Formats a token the way Main did before the dump was written by a TokenDumpSink.
+     *
+     * @param token the token to format.
+     * @return a string formatted as <TOKEN_TYPE,LEXEME> for display.
+     */
+    private static String formatTokenOutput(Token token) {
+        String lexeme = token.getLexeme();
+        String tokenType = token.getTokenType();
+        switch (tokenType) {
+            case "CR":
+                return "<CR>\n";
+            case "ID":
+                return "<ID," + lexeme + "> ";
+            case "RELOP":
+                return "<RELOP," + lexeme + "> ";
+            case "OP":
+                return "<OP," + lexeme + "> ";
+            case "NUM":
+                return "<NUM," + lexeme + "> ";
+            case "STRING":
+                return "<STRING,\"" + lexeme + "\"> ";
+            default:
+                return "<" + tokenType + "> ";
+        }
+    }
+
+    @Test
+    void dumpMatchesFormattedTokens() throws IOException {
+        String input = longInput();
+        StringBuilder formatted = new StringBuilder();
+        for (Token token : lex(input)) {
+            formatted.append(formatTokenOutput(token));
+        }
+        byte[] expected = formatted.toString().getBytes(StandardCharsets.UTF_8);
+
+        for (int blockSize : BLOCK_SIZES) {
+            Path file = directory.resolve("dump-" + blockSize + ".txt");
+            ByteArrayOutputStream echoed = new ByteArrayOutputStream();
+            // Small blocks make many tokens cross a block boundary
+            try (TokenDumpSink sink = new TokenDumpSink(file, new PrintStream(echoed), blockSize)) {
+                for (Token token : lex(input)) {
+                    sink.write(token);
+                }
+            }
+            assertArrayEquals(expected, Files.readAllBytes(file), "block size " + blockSize);
+            assertArrayEquals(expected, echoed.toByteArray(), "block size " + blockSize);
+        }
+    }
+
+    @Test
+    void encodingFailureIsReportedByClose() throws IOException {
+        TokenDumpSink sink = new TokenDumpSink(directory.resolve("dump.txt"), null, 64);
+        sink.append("<ID,");
+        // An unpaired surrogate cannot be encoded
+        sink.append('\uD800');
+        sink.append("> ");
+        assertThrows(IOException.class, sink::close);
+    }
+
+    @Test
+    void writeFailureIsReported() throws IOException {
+        Path full = Paths.get("/dev/full");
+        assumeTrue(Files.isWritable(full));
+        List<Token> tokens = lex(longInput());
+        TokenDumpSink sink = new TokenDumpSink(full, null, 64);
+        // The failure is thrown by a later write once the writer thread saw it, or by close
+        assertThrows(IOException.class, () -> {
+            try (TokenDumpSink closing = sink) {
+                for (Token token : tokens) {
+                    closing.write(token);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package fr.utbm.da53.io;
+
+import fr.utbm.da53.token.TokenKind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a {@link TokenStreamReader} reads back the tokens of a {@link TokenStreamWriter},
+ * and rejects corrupted files with an IOException.
+ */
+class TokenStreamReaderTest {
+
+    @TempDir
+    Path directory;
+
+    private byte[] writeTokens() throws IOException {
+        Path file = directory.resolve("tokens.bin");
+        try (TokenStreamWriter writer = new TokenStreamWriter(file)) {
+            writer.write(TokenKind.NUM.newToken("10", 1, 3));
+            writer.write(TokenKind.LET.newToken("LET", 1, 7));
+            writer.write(TokenKind.ID.newToken("ÉTÉ", 1, 11));
+            writer.write(TokenKind.CR.newToken("\n", 2, 1));
+            writer.write(TokenKind.EOF.newToken("", 2, 1));
+        }
+        return Files.readAllBytes(file);
+    }
+
+    private static ByteBuffer wrap(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    void readsTheWrittenTokens() throws IOException {
+        TokenStreamReader reader = new TokenStreamReader(wrap(writeTokens()));
+        assertEquals(5, reader.getTokenCount());
+        TokenStreamReader.Cursor cursor = reader.cursor();
+        StringBuilder read = new StringBuilder();
+        while (cursor.next()) {
+            read.append(cursor.kind()).append(' ').append(cursor.lexeme()).append(" @").append(cursor.line()).append(':')
+                    .append(cursor.column()).append(';');
+        }
+        assertEquals("NUM 10 @1:3;LET LET @1:7;ID ÉTÉ @1:11;CR \n @2:1;EOF  @2:1;", read.toString());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void corruptedLexemeTableIsRejected() throws IOException {
+        byte[] bytes = writeTokens();
+        int tableOffset = (int) wrap(bytes).getLong(16);
+        // A length varint running past the end of the file
+        byte[] truncated = bytes.clone();
+        for (int i = tableOffset; i < truncated.length; i++) {
+            truncated[i] = (byte) 0xff;
+        }
+        IOException e = assertThrows(IOException.class, () -> new TokenStreamReader(wrap(truncated)));
+        assertEquals("Corrupted token file lexeme table", e.getMessage());
+
+        // A lexeme longer than the file
+        byte[] tooLong = bytes.clone();
+        tooLong[tableOffset] = (byte) 0x7f;
+        assertThrows(IOException.class, () -> new TokenStreamReader(wrap(tooLong)));
+
+        // More lexemes than the table holds
+        byte[] tooMany = bytes.clone();
+        wrap(tooMany).putInt(24, 1000);
+        assertThrows(IOException.class, () -> new TokenStreamReader(wrap(tooMany)));
+    }
+
+    @Test
+    void corruptedTokensAreRejected() throws IOException {
+        byte[] bytes = writeTokens();
+        byte[] badKind = bytes.clone();
+        badKind[TokenStreamWriter.HEADER_SIZE] = (byte) 0x7e;
+        TokenStreamReader.Cursor cursor = new TokenStreamReader(wrap(badKind)).cursor();
+        assertThrows(IOException.class, cursor::next);
+
+        // The varint of the first kind never ends before the lexeme table
+        int tableOffset = (int) wrap(bytes).getLong(16);
+        byte[] unterminated = bytes.clone();
+        for (int i = TokenStreamWriter.HEADER_SIZE; i < tableOffset; i++) {
+            unterminated[i] = (byte) 0x80;
+        }
+        TokenStreamReader.Cursor other = new TokenStreamReader(wrap(unterminated)).cursor();
+        assertThrows(IOException.class, other::next);
+
+        // The number refers to a lexeme which is not in the table
+        byte[] badLexeme = bytes.clone();
+        wrap(badLexeme).putInt(24, 0);
+        TokenStreamReader.Cursor third = new TokenStreamReader(wrap(badLexeme)).cursor();
+        assertThrows(IOException.class, third::next);
+    }
+}
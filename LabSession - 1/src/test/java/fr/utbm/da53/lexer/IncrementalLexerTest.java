@@ -0,0 +1,108 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.symboltable.SymbolTableEntry;
+import fr.utbm.da53.symboltable.SymbolTablePointer;
+import fr.utbm.da53.token.IDToken;
+import fr.utbm.da53.token.Token;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the tokens and the symbol table of an {@link IncrementalLexer} are the ones of a
+ * {@link Lexer} run over the whole edited text.
+ */
+class IncrementalLexerTest {
+
+    private static final String[] FRAGMENTS = {
+            "", "\n", "\n\n", "A", " B1 = A + 2", "10 LET X = Y\n", "20 REM X\n30 PRINT Y, Z\n", "GOTO", "\r\n", "<>", "9",
+    };
+
+    private static String listing(int lines) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 1; i <= lines; i++) {
+            b.append(i * 10).append(" LET V").append(i % 13).append(" = V").append(i % 7).append(" + ").append(i).append('\n');
+        }
+        return b.toString();
+    }
+
+    /**
+     * Describes the entries of a symbol table by lexeme and occurrence range.
+     *
+     * @param symbolTable the symbol table.
+     * @return the sorted descriptions.
+     */
+    private static TreeSet<String> entries(InternedSymbolTable symbolTable) {
+        TreeSet<String> entries = new TreeSet<>();
+        for (SymbolTablePointer pointer : symbolTable.getPointers()) {
+            SymbolTableEntry entry = pointer.getSymbolTableEntry();
+            entries.add(entry.getToken().getLexeme() + " " + entry.getFirstOccurrenceLine() + ":" + entry.getFirstOccurrenceColumn()
+                    + "-" + entry.getLastOccurrenceLine() + ":" + entry.getLastOccurrenceColumn());
+        }
+        return entries;
+    }
+
+    private static void assertMatchesLexer(IncrementalLexer incremental, String context) throws IOException {
+        String text = incremental.getText().toString();
+        List<Token> expected = TokenTraces.lex(Lexer::new, text);
+        // The symbol table first, since reading the tokens moves them to their current line
+        InternedSymbolTable symbolTable = new InternedSymbolTable();
+        for (Token token : expected) {
+            if (token instanceof IDToken) {
+                symbolTable.intern((IDToken) token);
+            }
+        }
+        assertEquals(entries(symbolTable), entries(incremental.getSymbolTable()), context);
+
+        assertEquals(TokenTraces.describe(expected), TokenTraces.describe(incremental.getTokens()), context);
+        List<Token> lineTokens = new ArrayList<>();
+        for (int line = 0; line < incremental.getLineCount(); line++) {
+            lineTokens.addAll(incremental.getLineTokens(line));
+        }
+        lineTokens.add(expected.get(expected.size() - 1));
+        assertEquals(TokenTraces.describe(expected), TokenTraces.describe(lineTokens), context);
+    }
+
+    @Test
+    void initialTextMatchesLexer() throws IOException {
+        for (String input : TokenTraces.INPUTS) {
+            assertMatchesLexer(new IncrementalLexer(input), input);
+        }
+    }
+
+    @Test
+    void editsMatchLexer() throws IOException {
+        Random random = new Random(42);
+        IncrementalLexer incremental = new IncrementalLexer(listing(300));
+        for (int i = 0; i < 400; i++) {
+            int length = incremental.getText().length();
+            int offset = random.nextInt(length + 1);
+            int removed = random.nextInt(Math.min(length - offset, i % 10 == 0 ? 400 : 12) + 1);
+            String inserted = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            if (i % 25 == 0) {
+                // Paste many lines at once, so blocks are split
+                inserted = listing(150);
+            }
+            incremental.edit(offset, removed, inserted);
+            assertMatchesLexer(incremental, "edit " + i + " at " + offset + "+" + removed);
+        }
+    }
+
+    @Test
+    void editsLexOnlyTheirLines() throws IOException {
+        IncrementalLexer incremental = new IncrementalLexer(listing(200));
+        int offset = incremental.getText().toString().indexOf("1000 LET");
+        assertEquals(1, incremental.edit(offset + 9, 2, "NEWNAME"));
+        assertMatchesLexer(incremental, "rename");
+        assertEquals(3, incremental.edit(offset, 0, "995 PRINT NEWNAME\n996 END\n"));
+        assertMatchesLexer(incremental, "insert");
+    }
+}
@@ -0,0 +1,91 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.token.IDToken;
+import fr.utbm.da53.token.Token;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that a {@link LineTokenCache} produces the tokens of a {@link Lexer}, from the cache
+ * or not, and lexes a line missed by several threads once.
+ */
+class LineTokenCacheTest {
+
+    @Test
+    void tokensMatchLexer() throws IOException {
+        LineTokenCache cache = new LineTokenCache(8, Lexer::new);
+        for (int round = 0; round < 2; round++) {
+            for (String input : TokenTraces.INPUTS) {
+                assertEquals(TokenTraces.describe(TokenTraces.lex(Lexer::new, input)), TokenTraces.describe(cache.tokenize(input)), input);
+            }
+        }
+        assertEquals(cache.getCapacity(), cache.size());
+    }
+
+    @Test
+    void cachedIdentifiersAreInterned() throws IOException {
+        LineTokenCache cache = new LineTokenCache();
+        char[] chars = "10 LET A = B\n20 LET A = B\n".toCharArray();
+        cache.tokenize(chars, 0, chars.length);
+        InternedSymbolTable symbolTable = new InternedSymbolTable();
+        List<Token> tokens = cache.tokenize(chars, 0, chars.length, symbolTable);
+        IDToken first = (IDToken) tokens.get(2);
+        IDToken second = (IDToken) tokens.get(8);
+        assertNotNull(first.getSymbolPointer());
+        assertSame(first.getSymbolPointer(), second.getSymbolPointer());
+        assertEquals(2, symbolTable.size());
+        assertEquals(2, symbolTable.get("A").getSymbolTableEntry().getLastOccurrenceLine());
+    }
+
+    @Test
+    void concurrentMissesLexOnce() throws Exception {
+        AtomicInteger lexed = new AtomicInteger();
+        LineTokenCache cache = new LineTokenCache(16, scanner -> {
+            lexed.incrementAndGet();
+            try {
+                // Keep the line loading while the other threads look it up
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Lexer(scanner);
+        });
+        String input = "10 PRINT \"SAME LINE\"";
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Token>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    ready.await();
+                    return cache.tokenize(input);
+                }));
+            }
+            ready.countDown();
+            List<String> expected = TokenTraces.describe(TokenTraces.lex(Lexer::new, input));
+            for (Future<List<Token>> result : results) {
+                assertEquals(expected, TokenTraces.describe(result.get()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, lexed.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(threads - 1, cache.getHits());
+    }
+}
@@ -0,0 +1,114 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.LineIndex;
+import fr.utbm.da53.symboltable.ConcurrentSymbolTable;
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.symboltable.SymbolTableEntry;
+import fr.utbm.da53.symboltable.SymbolTablePointer;
+import fr.utbm.da53.token.IDToken;
+import fr.utbm.da53.token.Token;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that the {@link ParallelLexer} produces the tokens and the identifiers of a
+ * sequential {@link Lexer}, whatever the size of its chunks.
+ */
+class ParallelLexerTest {
+
+    private static final int[] CHUNK_SIZES = {1, 7, 64, ParallelLexer.DEFAULT_CHUNK_SIZE};
+
+    private static String longInput() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 1; i <= 3000; i++) {
+            b.append(i * 10).append(i % 5 == 0 ? " REM comment " : " LET X").append(i % 23).append(" = X + ").append(i).append('\n');
+        }
+        return b.toString();
+    }
+
+    @Test
+    void defaultLexerMatchesSequentialLexer() throws IOException {
+        ParallelLexer parallelLexer = new ParallelLexer();
+        for (String input : TokenTraces.INPUTS) {
+            char[] chars = input.toCharArray();
+            assertEquals(TokenTraces.describe(TokenTraces.lex(Lexer::new, input)),
+                    TokenTraces.describe(parallelLexer.tokenize(chars, 0, chars.length, null)), input);
+        }
+    }
+
+    @Test
+    void chunksMatchSequentialLexer() throws IOException {
+        String[] inputs = TokenTraces.INPUTS.clone();
+        inputs[0] = longInput();
+        for (String input : inputs) {
+            List<String> expected = TokenTraces.describe(TokenTraces.lex(Lexer::new, input));
+            char[] chars = input.toCharArray();
+            for (int chunkSize : CHUNK_SIZES) {
+                ParallelLexer lexer = new ParallelLexer(ForkJoinPool.commonPool(), Lexer::new, chunkSize);
+                ParallelLexer tableDriven = new ParallelLexer(ForkJoinPool.commonPool(), TableDrivenLexer::new, chunkSize);
+                assertEquals(expected, TokenTraces.describe(lexer.tokenize(chars, 0, chars.length, null)), input);
+                assertEquals(expected, TokenTraces.describe(tableDriven.tokenize(chars, 0, chars.length, null)), input);
+                LineIndex lineIndex = LineIndex.build(chars, 0, chars.length);
+                assertEquals(expected, TokenTraces.describe(lexer.tokenize(lineIndex, null)), input);
+            }
+        }
+    }
+
+    private static String describe(SymbolTableEntry entry) {
+        return entry.getToken().getLexeme() + " " + entry.getFirstOccurrenceLine() + ":" + entry.getFirstOccurrenceColumn()
+                + "-" + entry.getLastOccurrenceLine() + ":" + entry.getLastOccurrenceColumn();
+    }
+
+    @Test
+    void chunksShareTheSymbolTable() throws IOException {
+        String input = longInput();
+        InternedSymbolTable sequential = new InternedSymbolTable();
+        for (Token token : TokenTraces.lex(Lexer::new, input)) {
+            if (token instanceof IDToken) {
+                sequential.intern((IDToken) token);
+            }
+        }
+        List<SymbolTablePointer> expected = sequential.getPointers();
+
+        char[] chars = input.toCharArray();
+        for (int chunkSize : CHUNK_SIZES) {
+            ConcurrentSymbolTable symbolTable = new ConcurrentSymbolTable();
+            List<Token> tokens = new ParallelLexer(ForkJoinPool.commonPool(), Lexer::new, chunkSize)
+                    .tokenize(chars, 0, chars.length, symbolTable);
+            // The ids are the ones of the sequential interning, whatever the scheduling
+            assertEquals(expected.size(), symbolTable.size());
+            for (int id = 0; id < symbolTable.size(); id++) {
+                SymbolTableEntry entry = expected.get(id).getSymbolTableEntry();
+                assertEquals(entry.getToken().getLexeme(), symbolTable.getLexeme(id), "id " + id);
+                assertEquals(describe(entry), describe(symbolTable.getPointer(id).getSymbolTableEntry()), "id " + id);
+            }
+            for (Token token : tokens) {
+                if (token instanceof IDToken) {
+                    int id = symbolTable.getId(token.getLexeme());
+                    assertSame(symbolTable.getPointer(id), ((IDToken) token).getSymbolPointer());
+                }
+            }
+        }
+    }
+
+    @Test
+    void knownIdentifiersKeepTheirId() throws IOException {
+        ConcurrentSymbolTable symbolTable = new ConcurrentSymbolTable();
+        char[] first = "10 LET ZZ = YY\n".toCharArray();
+        char[] second = longInput().toCharArray();
+        ParallelLexer lexer = new ParallelLexer(ForkJoinPool.commonPool(), Lexer::new, 64);
+        lexer.tokenize(first, 0, first.length, symbolTable);
+        lexer.tokenize(second, 0, second.length, symbolTable);
+        assertEquals("ZZ", symbolTable.getLexeme(0));
+        assertEquals("YY", symbolTable.getLexeme(1));
+        assertEquals("X1", symbolTable.getLexeme(2));
+        assertEquals("X", symbolTable.getLexeme(3));
+    }
+}
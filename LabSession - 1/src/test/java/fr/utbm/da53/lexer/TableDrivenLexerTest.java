@@ -0,0 +1,113 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.symboltable.InternedSymbolTable;
+import fr.utbm.da53.token.IDToken;
+import fr.utbm.da53.token.Token;
+import fr.utbm.da53.token.TokenBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that the {@link TableDrivenLexer} produces the tokens of the reference {@link Lexer}.
+ */
+class TableDrivenLexerTest {
+
+    @Test
+    void tokensMatchLexer() throws IOException {
+        for (String input : TokenTraces.INPUTS) {
+            List<String> expected = TokenTraces.describe(TokenTraces.lex(Lexer::new, input));
+            assertEquals(expected, TokenTraces.describe(TokenTraces.lex(TableDrivenLexer::new, input)), input);
+            // Through a reader, without an in-memory source
+            List<Token> read = TokenTraces.lex(new TableDrivenLexer(new BufferedScanner(new StringReader(input), 16)));
+            assertEquals(expected, TokenTraces.describe(read), input);
+        }
+    }
+
+    @Test
+    void bufferMatchesLexer() throws IOException {
+        for (String input : TokenTraces.INPUTS) {
+            char[] chars = input.toCharArray();
+            TokenBuffer expected = new TokenBuffer();
+            new Lexer(new BufferedScanner(chars, 0, chars.length)).tokenize(expected);
+            TokenBuffer actual = new TokenBuffer();
+            new TableDrivenLexer(new BufferedScanner(chars, 0, chars.length)).tokenize(actual);
+            assertEquals(TokenTraces.describe(expected), TokenTraces.describe(actual), input);
+            // Through a reader, the lexemes are copied instead of read from the source
+            TokenBuffer read = new TokenBuffer();
+            new Lexer(new BufferedScanner(new StringReader(input), 16)).tokenize(read);
+            assertEquals(TokenTraces.describe(expected), TokenTraces.describe(read), input);
+        }
+    }
+
+    @Test
+    void bufferMatchesTokens() throws IOException {
+        for (String input : TokenTraces.INPUTS) {
+            char[] chars = input.toCharArray();
+            TokenBuffer buffer = new TokenBuffer();
+            new Lexer(new BufferedScanner(chars, 0, chars.length)).tokenize(buffer);
+            List<Token> tokens = TokenTraces.lex(Lexer::new, input);
+            assertEquals(tokens.size(), buffer.size(), input);
+            for (int i = 0; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                String description = TokenTraces.describe(token);
+                assertEquals(token.getTokenType(), buffer.getKind(i).name(), description);
+                assertEquals(token.getLexeme(), buffer.getLexeme(i), description);
+                assertEquals(token.getLine(), buffer.getLine(i), description);
+                assertEquals(token.getColumn(), buffer.getColumn(i), description);
+            }
+        }
+    }
+
+    @Test
+    void classifiedRunsMatchLexer() throws IOException {
+        // Long runs of spaces, letters and digits, and a lexer which already read some tokens
+        String input = "10    LET   abcdefghijklmnopqrstuvwxyz_0123456789 = 123456789012.5678 + XYZ\t\t\f99\n"
+                + "20 PRINT ÉTÉ1abc + x1é2 REMARK\n";
+        char[] chars = input.toCharArray();
+        for (int skipped = 0; skipped < 4; skipped++) {
+            Lexer lexer = new Lexer(new BufferedScanner(chars, 0, chars.length));
+            TableDrivenLexer tableDriven = new TableDrivenLexer(new BufferedScanner(chars, 0, chars.length));
+            for (int i = 0; i < skipped; i++) {
+                assertEquals(TokenTraces.describe(lexer.getNextSymbol()), TokenTraces.describe(tableDriven.getNextSymbol()));
+            }
+            TokenBuffer expected = new TokenBuffer();
+            lexer.tokenize(expected);
+            TokenBuffer actual = new TokenBuffer();
+            tableDriven.tokenize(actual);
+            assertEquals(TokenTraces.describe(expected), TokenTraces.describe(actual), "after " + skipped + " tokens");
+        }
+    }
+
+    @Test
+    void commentsFollowLexer() throws IOException {
+        List<String> tokens = TokenTraces.describe(TokenTraces.lex(TableDrivenLexer::new, "10 REMARK X\n20 rem lower\n30 A >< B\n"));
+        assertEquals(List.of(
+                "NUM '10' @1:3 =10", "CR '\n' @2:1",
+                "NUM '20' @2:3 =20", "ID 'REM' @2:7", "ID 'LOWER' @2:13", "CR '\n' @3:1",
+                "NUM '30' @3:3 =30", "ID 'A' @3:5", "GT '>' @3:7", "LT '<' @3:8", "ID 'B' @3:10", "CR '\n' @4:1",
+                "EOF '' @4:1"), tokens);
+    }
+
+    @Test
+    void identifiersAreInterned() throws IOException {
+        char[] chars = "10 LET a = A + b\n".toCharArray();
+        TableDrivenLexer lexer = new TableDrivenLexer(new BufferedScanner(chars, 0, chars.length));
+        InternedSymbolTable symbolTable = new InternedSymbolTable();
+        lexer.setSymbolTable(symbolTable);
+        List<Token> tokens = TokenTraces.lex(lexer);
+        IDToken first = (IDToken) tokens.get(2);
+        IDToken second = (IDToken) tokens.get(4);
+        assertNotNull(first.getSymbolPointer());
+        assertSame(first.getSymbolPointer().getSymbolTableEntry(), second.getSymbolPointer().getSymbolTableEntry());
+        assertEquals("A", second.getLexeme());
+    }
+}
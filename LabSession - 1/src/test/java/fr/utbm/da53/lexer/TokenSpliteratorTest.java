@@ -0,0 +1,108 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.token.Token;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the tokens of {@link Lexer#iterator()} and of a {@link TokenSpliterator},
+ * sequential or parallel, are the ones of {@link Lexer#getNextSymbol()} without the EOF token.
+ */
+class TokenSpliteratorTest {
+
+    /**
+     * Builds a source larger than two split sizes, with both kinds of line ends.
+     *
+     * @param prefix the first line, which moves the middle of the source.
+     * @return the source.
+     */
+    private static String longInput(String prefix) {
+        StringBuilder b = new StringBuilder(prefix);
+        for (int i = 1; i <= 8000; i++) {
+            b.append(i * 10).append(i % 7 == 0 ? " REM comment" : " LET X").append(i % 23).append(" = X + ").append(i)
+                    .append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        return b.toString();
+    }
+
+    /**
+     * Describes the tokens of the sequential lexer, without the EOF token.
+     *
+     * @param input the source.
+     * @return one description per token.
+     */
+    private static List<String> expected(String input) throws IOException {
+        List<Token> tokens = TokenTraces.lex(Lexer::new, input);
+        return TokenTraces.describe(tokens.subList(0, tokens.size() - 1));
+    }
+
+    private static List<String> traverse(Spliterator<Token> spliterator) {
+        List<String> descriptions = new ArrayList<>();
+        spliterator.forEachRemaining(token -> descriptions.add(TokenTraces.describe(token)));
+        return descriptions;
+    }
+
+    @Test
+    void iteratorMatchesLexer() throws IOException {
+        for (String input : TokenTraces.INPUTS) {
+            char[] chars = input.toCharArray();
+            List<String> iterated = new ArrayList<>();
+            for (Token token : new Lexer(new BufferedScanner(chars, 0, chars.length))) {
+                iterated.add(TokenTraces.describe(token));
+            }
+            assertEquals(expected(input), iterated, input);
+            List<String> streamed = new TableDrivenLexer(new BufferedScanner(chars, 0, chars.length)).stream()
+                    .map(TokenTraces::describe).collect(Collectors.toList());
+            assertEquals(expected(input), streamed, input);
+        }
+    }
+
+    @Test
+    void parallelStreamMatchesLexer() throws IOException {
+        String input = longInput("");
+        assertTrue(input.length() > 2 * TokenSpliterator.MIN_SPLIT_SIZE);
+        char[] chars = input.toCharArray();
+        List<String> expected = expected(input);
+        assertEquals(expected, TokenSpliterator.stream(chars, 0, chars.length, false)
+                .map(TokenTraces::describe).collect(Collectors.toList()));
+        assertEquals(expected, TokenSpliterator.stream(chars, 0, chars.length, true)
+                .map(TokenTraces::describe).collect(Collectors.toList()));
+    }
+
+    @Test
+    void splitsOnLineEnds() throws IOException {
+        // Move the middle of the source onto a '\r', a '\n' and a character inside a line
+        boolean[] found = new boolean[3];
+        for (int pad = 0; pad < 256; pad++) {
+            String input = longInput("REM" + " ".repeat(pad) + "\n");
+            char[] chars = input.toCharArray();
+            char middle = chars[chars.length / 2];
+            int kind = middle == '\r' ? 0 : middle == '\n' ? 1 : 2;
+            if (found[kind]) {
+                continue;
+            }
+            found[kind] = true;
+
+            TokenSpliterator suffix = new TokenSpliterator(chars, 0, chars.length, Lexer::new);
+            Spliterator<Token> prefix = suffix.trySplit();
+            assertNotNull(prefix, "split around " + (int) middle);
+            List<String> tokens = traverse(prefix);
+            // The first half ends with a whole line
+            assertTrue(tokens.get(tokens.size() - 1).startsWith("CR "), tokens.get(tokens.size() - 1));
+            tokens.addAll(traverse(suffix));
+            assertEquals(expected(input), tokens, "split around " + (int) middle);
+        }
+        assertTrue(found[0] && found[1] && found[2]);
+    }
+}
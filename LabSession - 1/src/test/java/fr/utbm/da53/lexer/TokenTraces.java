@@ -0,0 +1,114 @@
+package fr.utbm.da53.lexer;
+
+import fr.utbm.da53.scanner.BufferedScanner;
+import fr.utbm.da53.token.NumToken;
+import fr.utbm.da53.token.Token;
+import fr.utbm.da53.token.TokenBuffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Inputs and helpers shared by the tests comparing the lexers.
+ */
+final class TokenTraces {
+
+    /**
+     * Sources exercising the corners of the lexical rules.
+     */
+    static final String[] INPUTS = {
+            "",
+            "10 PRINT \"HELLO\"\n20 GOTO 10\n",
+            "10 REMARK X\n20 IF A >< B THEN GOTO 10\n30 rem lower\n",
+            "10 LET A = 1\r\n20 LET B = A + 2\r\n30 END\r\n",
+            "10 LET A = 1\r20 PRINT A\r",
+            "10 let total_1 = (a + b) * c / 2 - 3.5\n",
+            "10 IF A <= B THEN IF A >= B THEN IF A <> B THEN PRINT A, B\n",
+            "10 GOSUB 100\n100 RETURN\n",
+            "10 PRINT 1.25, 123456789012345678901, .5, 7.\n",
+            "10 LET ÉTÉ = 1\n20 PRINT été\n30 LET X = ١٢\n",
+            "10 PRINT #$%&?\t\f\u000b!\n",
+            "REM\nREM first\n10 XREM = R + RE\n20 RETURN REM\nR",
+            "10 INPUT N\n20 END",
+            "\n\n\n",
+    };
+
+    private TokenTraces() {
+    }
+
+    /**
+     * Lexes a source up to and including the EOF token, skipping the null tokens.
+     *
+     * @param lexer the lexer to run.
+     * @return the tokens.
+     */
+    static List<Token> lex(Lexer lexer) throws IOException {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.getNextSymbol();
+            if (token != null) {
+                tokens.add(token);
+            }
+        } while (token == null || !token.getTokenType().equals("EOF"));
+        return tokens;
+    }
+
+    /**
+     * Lexes a source in memory.
+     *
+     * @param factory the factory of the lexer.
+     * @param source the source.
+     * @return the tokens, ending with the EOF token.
+     */
+    static List<Token> lex(Function<BufferedScanner, Lexer> factory, String source) throws IOException {
+        char[] chars = source.toCharArray();
+        return lex(factory.apply(new BufferedScanner(chars, 0, chars.length)));
+    }
+
+    /**
+     * Describes tokens by their type, lexeme, position and value.
+     *
+     * @param tokens the tokens.
+     * @return one description per token.
+     */
+    static List<String> describe(List<? extends Token> tokens) {
+        List<String> descriptions = new ArrayList<>(tokens.size());
+        for (Token token : tokens) {
+            descriptions.add(describe(token));
+        }
+        return descriptions;
+    }
+
+    /**
+     * Describes a token by its type, lexeme, position and value.
+     *
+     * @param token the token.
+     * @return the description.
+     */
+    static String describe(Token token) {
+        String description = token.getTokenType() + " '" + token.getLexeme() + "' @" + token.getLine() + ":" + token.getColumn();
+        if (token instanceof NumToken) {
+            NumToken number = (NumToken) token;
+            description += number.isInteger() ? " =" + number.getIntegerValue() : " =" + number.getTokenValue();
+        }
+        return description;
+    }
+
+    /**
+     * Describes the tokens of a buffer.
+     *
+     * @param buffer the buffer.
+     * @return one description per token.
+     */
+    static List<String> describe(TokenBuffer buffer) {
+        List<String> descriptions = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            descriptions.add(buffer.getKind(i) + " '" + buffer.getLexeme(i) + "' @" + buffer.getLine(i) + ":" + buffer.getColumn(i)
+                    + " +" + buffer.getOffset(i) + "/" + buffer.getLength(i));
+        }
+        return descriptions;
+    }
+}
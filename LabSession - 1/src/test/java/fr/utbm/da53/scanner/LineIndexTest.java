@@ -0,0 +1,82 @@
+package fr.utbm.da53.scanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the bulk passes of a {@link LineIndex}, vectorized or not, give the results of
+ * the scalar loops.
+ */
+class LineIndexTest {
+
+    private static final String ALPHABET = " \t\f\n\r_09azAZ@[`{/:.\"éĀŁ١Ａ￿";
+
+    private static char[] randomChars(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = random.nextInt(4) == 0 ? (char) random.nextInt(0x10000) : ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return chars;
+    }
+
+    @Test
+    void classifyMatchesClassOf() {
+        Random random = new Random(42);
+        for (int length : new int[]{0, 1, 7, 8, 15, 16, 31, 33, 64, 100, 1000}) {
+            char[] chars = randomChars(random, length + 10);
+            for (int start : new int[]{0, 3, 10}) {
+                int end = start + length;
+                byte[] classes = LineIndex.classify(chars, start, end);
+                assertEquals(length, classes.length);
+                for (int i = start; i < end; i++) {
+                    assertEquals(LineIndex.classOf(chars[i]), classes[i - start], "char " + (int) chars[i] + " at " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void classOfFollowsTheLexicalRules() {
+        for (char c = 0; c < 128; c++) {
+            byte expected = c == ' ' || c == '\t' || c == '\f' ? LineIndex.CLASS_SPACE
+                    : c >= '0' && c <= '9' ? LineIndex.CLASS_DIGIT
+                    : c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' ? LineIndex.CLASS_LETTER
+                    : LineIndex.CLASS_OTHER;
+            assertEquals(expected, LineIndex.classOf(c), "char " + (int) c);
+        }
+    }
+
+    @Test
+    void runEndStopsAtAnotherClass() {
+        byte[] classes = LineIndex.classify("  LET X1=42\n".toCharArray(), 0, 12);
+        assertEquals(2, LineIndex.runEnd(classes, 0));
+        assertEquals(5, LineIndex.runEnd(classes, 2));
+        assertEquals(7, LineIndex.runEnd(classes, 6));
+        assertEquals(8, LineIndex.runEnd(classes, 7));
+        assertEquals(11, LineIndex.runEnd(classes, 9));
+        assertEquals(12, LineIndex.runEnd(classes, 11));
+    }
+
+    @Test
+    void newlinesMatchScalarSearch() {
+        Random random = new Random(7);
+        for (int length : new int[]{0, 1, 9, 17, 100, 5000}) {
+            char[] chars = randomChars(random, length);
+            LineIndex index = LineIndex.build(chars, 0, length);
+            int line = 0;
+            assertEquals(0, index.getLineStart(0));
+            for (int i = 0; i < length; i++) {
+                // A newline belongs to the line it ends
+                assertEquals(line, index.getLineAt(i));
+                if (chars[i] == '\n') {
+                    line++;
+                    assertEquals(i + 1, index.getLineStart(line));
+                }
+            }
+            assertEquals(line + 1, index.getLineCount());
+        }
+    }
+}
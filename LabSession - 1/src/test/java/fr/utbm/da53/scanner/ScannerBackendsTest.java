@@ -0,0 +1,122 @@
+package fr.utbm.da53.scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that every Scanner backend reads the same characters, at the same positions, as the
+ * reference {@link Scanner}.
+ */
+class ScannerBackendsTest {
+
+    private static final String[] INPUTS = {
+            "",
+            "10 PRINT \"HELLO\"\n20 GOTO 10\n",
+            "10 LET A = 1\r\n20 LET B = A + 2\r\n",
+            "10 REM no newline at the end",
+            "\n\n\n",
+            "10 PRINT \"café\"\n20 LET ÉTÉ = 1\n",
+            longInput(),
+    };
+
+    @TempDir
+    Path directory;
+
+    private static String longInput() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 1; i <= 2000; i++) {
+            b.append(i * 10).append(" LET X").append(i % 17).append(" = X + ").append(i).append('\n');
+        }
+        return b.toString();
+    }
+
+    /**
+     * Reads the whole input, recording for each character the lookahead and the position.
+     *
+     * @param scanner the scanner to read.
+     * @param length the number of characters of the input.
+     * @return the trace of the scan.
+     */
+    private static List<String> trace(Scanner scanner, int length) throws IOException {
+        List<String> trace = new ArrayList<>();
+        for (int i = 0; i <= length; i++) {
+            trace.add((int) scanner.peek() + " " + (int) scanner.peek(1) + " " + (int) scanner.peek(Scanner.LOOKAHEAD - 1)
+                    + " @" + scanner.getCurrentLine() + ":" + scanner.getCurrentColumn() + "+" + scanner.getCurrentOffset()
+                    + " " + scanner.hasNext());
+            if (i % 7 == 3) {
+                // Read ahead and come back
+                scanner.mark();
+                for (int j = 0; j < 5; j++) {
+                    scanner.get();
+                }
+                scanner.reset();
+            }
+            trace.add(Integer.toString(scanner.get()));
+        }
+        return trace;
+    }
+
+    private List<Scanner> backends(String input) throws IOException {
+        Path file = directory.resolve("input" + input.hashCode() + ".txt");
+        Files.writeString(file, input, StandardCharsets.UTF_8);
+        char[] chars = input.toCharArray();
+        List<Scanner> scanners = new ArrayList<>();
+        scanners.add(new BufferedScanner(new StringReader(input)));
+        scanners.add(new BufferedScanner(new StringReader(input), 16));
+        scanners.add(new BufferedScanner(chars, 0, chars.length));
+        scanners.add(new BufferedScanner(CharBuffer.wrap(input)));
+        scanners.add(new MappedFileScanner(file));
+        scanners.add(new MappedFileScanner(file, StandardCharsets.UTF_8, 16));
+        scanners.add(new AsciiScanner(input.getBytes(StandardCharsets.UTF_8)));
+        scanners.add(AsciiScanner.open(file));
+        return scanners;
+    }
+
+    @Test
+    void backendsMatchScanner() throws IOException {
+        for (String input : INPUTS) {
+            List<String> expected = trace(new Scanner(new StringReader(input)), input.length());
+            for (Scanner scanner : backends(input)) {
+                assertEquals(expected, trace(scanner, input.length()), scanner.getClass().getSimpleName());
+                scanner.close();
+            }
+        }
+    }
+
+    @Test
+    void inMemorySourceIsTheInput() throws IOException {
+        String input = INPUTS[1];
+        char[] chars = ("##" + input + "##").toCharArray();
+        assertEquals(input, new BufferedScanner(chars, 2, chars.length - 2).getSource().toString());
+        assertEquals(input, new AsciiScanner(input.getBytes(StandardCharsets.US_ASCII)).getSource().toString());
+    }
+
+    @Test
+    void asciiScannerDecodesFromTheFirstNonAsciiByte() throws IOException {
+        String input = INPUTS[5];
+        AsciiScanner scanner = new AsciiScanner(input.getBytes(StandardCharsets.UTF_8));
+        StringBuilder read = new StringBuilder();
+        while (scanner.hasNext()) {
+            if (!scanner.isDecoding()) {
+                assertTrue(scanner.getSource() != null);
+            }
+            read.append(scanner.get());
+        }
+        assertTrue(scanner.isDecoding());
+        assertEquals(input, read.toString());
+        assertFalse(scanner.hasNext());
+    }
+}
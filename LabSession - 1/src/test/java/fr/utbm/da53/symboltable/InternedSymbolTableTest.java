@@ -0,0 +1,65 @@
+package fr.utbm.da53.symboltable;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks the interning and the removal of the entries of an {@link InternedSymbolTable}.
+ */
+class InternedSymbolTableTest {
+
+    private static SymbolTablePointer intern(InternedSymbolTable symbolTable, String lexeme, int line) {
+        char[] chars = ("  " + lexeme).toCharArray();
+        return symbolTable.intern(chars, 2, lexeme.length(), line, 1);
+    }
+
+    @Test
+    void occurrencesShareTheirEntry() {
+        InternedSymbolTable symbolTable = new InternedSymbolTable();
+        SymbolTablePointer first = intern(symbolTable, "A", 1);
+        SymbolTablePointer second = intern(symbolTable, "A", 3);
+        assertSame(first, second);
+        assertEquals(1, first.getSymbolTableEntry().getFirstOccurrenceLine());
+        assertEquals(3, first.getSymbolTableEntry().getLastOccurrenceLine());
+        assertEquals(1, symbolTable.size());
+    }
+
+    @Test
+    void removeKeepsTheOtherEntriesReachable() {
+        // A small table, so entries collide and the table grows
+        InternedSymbolTable symbolTable = new InternedSymbolTable(1);
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            intern(symbolTable, "X" + i, i);
+            expected.add("X" + i);
+        }
+        for (int i = 0; i < 500; i += 3) {
+            assertNotNull(symbolTable.remove("X" + i));
+            expected.remove("X" + i);
+        }
+        assertNull(symbolTable.remove("X0"));
+        assertEquals(expected.size(), symbolTable.size());
+
+        Set<String> listed = new HashSet<>();
+        for (SymbolTablePointer pointer : symbolTable.getPointers()) {
+            String lexeme = pointer.getSymbolTableEntry().getToken().getLexeme();
+            listed.add(lexeme);
+            assertSame(pointer, symbolTable.get(lexeme));
+        }
+        assertEquals(expected, listed);
+
+        // The moved pointers can still be removed
+        for (String lexeme : expected) {
+            assertNotNull(symbolTable.remove(lexeme));
+        }
+        assertEquals(0, symbolTable.size());
+        assertEquals(0, symbolTable.getPointers().size());
+    }
+}
@@ -0,0 +1,107 @@
+package fr.utbm.da53.token;
+
+import fr.utbm.da53.lexer.Lexer;
+import fr.utbm.da53.scanner.BufferedScanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the value of a {@link NumToken} computed from its digits is the one
+ * {@link Float#parseFloat(String)} gives for its lexeme.
+ */
+class NumTokenTest {
+
+    private static final String[] LEXEMES = {
+            "0", "7", "7.", ".5", "0.1", "1.25", "3.14159", "123.456", "0.0000001", "9999999.9",
+            "16777216", "16777217", "16777216.5", "1234567.891", "12345678901234567", "123456789012345678901",
+            "00012.500",
+    };
+
+    /**
+     * Computes the value of a lexeme the way the lexers do, accumulating its digits.
+     *
+     * @param lexeme the lexeme.
+     * @return the value.
+     */
+    private static float toFloat(String lexeme) {
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int dots = 0;
+        for (int i = 0; i < lexeme.length(); i++) {
+            char c = lexeme.charAt(i);
+            if (c == '.') {
+                dots++;
+            } else {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dots > 0) {
+                    scale++;
+                }
+            }
+        }
+        return NumToken.toFloat(mantissa, digits, scale, dots, lexeme);
+    }
+
+    @Test
+    void toFloatMatchesParseFloat() {
+        for (String lexeme : LEXEMES) {
+            assertEquals(Float.parseFloat(lexeme), toFloat(lexeme), lexeme);
+        }
+        // Every decimal with up to three fractional digits below 100
+        for (int i = 0; i < 100_000; i++) {
+            String lexeme = (i / 1000) + "." + String.format("%03d", i % 1000);
+            assertEquals(Float.parseFloat(lexeme), toFloat(lexeme), lexeme);
+        }
+    }
+
+    @Test
+    void toFloatRejectsSeveralDots() {
+        assertThrows(NumberFormatException.class, () -> toFloat("1.2.3"));
+    }
+
+    @Test
+    void parseKeepsIntegers() {
+        NumToken integer = NumToken.parse("12345678901234567", 1, 1);
+        assertTrue(integer.isInteger());
+        assertEquals(12345678901234567L, integer.getIntegerValue());
+        NumToken large = NumToken.parse("123456789012345678901", 1, 1);
+        assertFalse(large.isInteger());
+        assertEquals(Float.parseFloat("123456789012345678901"), large.getTokenValue());
+        NumToken decimal = NumToken.parse("2.5", 1, 1);
+        assertFalse(decimal.isInteger());
+        assertEquals(2.5f, decimal.getTokenValue());
+    }
+
+    @Test
+    void lexedNumbersReferToTheSource() throws IOException {
+        String source = "10 PRINT 2.5 * 16777216.5 + 42\n";
+        char[] chars = source.toCharArray();
+        Lexer inMemory = new Lexer(new BufferedScanner(chars, 0, chars.length));
+        Lexer read = new Lexer(new BufferedScanner(new StringReader(source), 16));
+        Token token;
+        do {
+            token = inMemory.getNextSymbol();
+            Token copy = read.getNextSymbol();
+            if (token instanceof NumToken) {
+                NumToken number = (NumToken) token;
+                NumToken copied = (NumToken) copy;
+                // The lexeme of the in-memory lexer is a view of the source until it is read
+                assertTrue(number.getLexemeSequence() instanceof CharBuffer, number.getLexeme());
+                assertEquals(copied.getLexeme(), number.getLexeme());
+                assertEquals(copied.isInteger(), number.isInteger());
+                assertEquals(copied.getTokenValue(), number.getTokenValue());
+                assertEquals(Float.parseFloat(number.getLexeme()), number.getTokenValue());
+            }
+        } while (token == null || !token.getTokenType().equals("EOF"));
+    }
+}
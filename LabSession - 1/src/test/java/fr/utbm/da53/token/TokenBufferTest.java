@@ -0,0 +1,91 @@
+package fr.utbm.da53.token;
+
+import fr.utbm.da53.lexer.Lexer;
+import fr.utbm.da53.scanner.BufferedScanner;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link TokenBuffer} gives back the tokens appended to it.
+ */
+class TokenBufferTest {
+
+    private static final String SOURCE = "10 LET A = B1 + 2.5 * (C - 3)\n20 IF A <= B1 THEN GOTO 10\n30 END\n";
+
+    private static List<Token> lex(String source) throws IOException {
+        char[] chars = source.toCharArray();
+        Lexer lexer = new Lexer(new BufferedScanner(chars, 0, chars.length));
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.getNextSymbol();
+            if (token != null) {
+                tokens.add(token);
+            }
+        } while (token == null || !token.getTokenType().equals("EOF"));
+        return tokens;
+    }
+
+    @Test
+    void cursorReplaysTheLexedTokens() throws IOException {
+        char[] chars = SOURCE.toCharArray();
+        TokenBuffer buffer = new TokenBuffer(1);
+        int count = new Lexer(new BufferedScanner(chars, 0, chars.length)).tokenize(buffer);
+        List<Token> expected = lex(SOURCE);
+        assertEquals(expected.size(), count);
+        assertEquals(expected.size(), buffer.size());
+
+        TokenBuffer.Cursor cursor = buffer.cursor();
+        for (Token token : expected) {
+            assertTrue(cursor.next());
+            assertEquals(token.getTokenType(), cursor.kind().name());
+            assertEquals(token.getLexeme(), cursor.lexeme());
+            assertEquals(token.getLine(), cursor.line());
+            assertEquals(token.getColumn(), cursor.column());
+            assertEquals(token.getLexeme(), SOURCE.substring(cursor.offset(), cursor.offset() + cursor.length()));
+            Token view = cursor.token();
+            assertEquals(token.getTokenType(), view.getTokenType());
+            assertEquals(token.getLexeme(), view.getLexeme());
+        }
+        assertFalse(cursor.next());
+        cursor.rewind();
+        assertTrue(cursor.next());
+        assertEquals(0, cursor.index());
+    }
+
+    @Test
+    void fixedKindsShareTheirFlyweight() throws Exception {
+        for (TokenKind kind : TokenKind.values()) {
+            if (!kind.hasFixedImage()) {
+                assertThrows(IllegalStateException.class, kind::flyweight);
+                continue;
+            }
+            Token flyweight = kind.flyweight();
+            assertEquals(kind.name(), flyweight.getTokenType());
+            assertEquals(kind.getImage(), flyweight.getLexeme());
+            assertSame(flyweight, kind.flyweight());
+            assertSame(flyweight, CompletableFuture.supplyAsync(kind::flyweight).get());
+        }
+    }
+
+    @Test
+    void clearKeepsNothing() throws IOException {
+        char[] chars = SOURCE.toCharArray();
+        TokenBuffer buffer = new TokenBuffer();
+        new Lexer(new BufferedScanner(chars, 0, chars.length)).tokenize(buffer);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertFalse(buffer.cursor().next());
+    }
+}
@@ -28,8 +28,17 @@ import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.error.ErrorRepository;
 import fr.utbm.info.da53.lw2.error.InterpreterException;
 import fr.utbm.info.da53.lw2.error.LoggableException;
+import fr.utbm.info.da53.lw2.parser.AsciiReader;
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
 import fr.utbm.info.da53.lw2.parser.BasicParser;
+import fr.utbm.info.da53.lw2.parser.CompilationCache;
+import fr.utbm.info.da53.lw2.parser.CompiledProgram;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.parser.HandWrittenTokenManager;
+import fr.utbm.info.da53.lw2.parser.LazyCompiler;
+import fr.utbm.info.da53.lw2.parser.ParallelCompiler;
 import fr.utbm.info.da53.lw2.parser.ParseException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 import fr.utbm.info.da53.lw2.ui.InterpreterDialog;
 
 /**
@@ -41,11 +50,25 @@ import fr.utbm.info.da53.lw2.ui.InterpreterDialog;
 public class BasicInterpreter {
 	
 	/** Run the parser and the interpreter.
+	 * <p>
+	 * With the system property <code>basic.lexer=handwritten</code>, files are
+	 * lexed by the {@link HandWrittenTokenManager} instead of the generated one.
+	 * With <code>basic.parser=handwritten</code>, they are parsed by the
+	 * {@link HandWrittenParser}, with <code>basic.parser=parallel</code>
+	 * by the {@link ParallelCompiler}, and with <code>basic.parser=lazy</code>
+	 * their lines are parsed when they are first run by the {@link LazyCompiler}.
+	 * With <code>basic.parser=cached</code>, the compiled programs are kept by
+	 * the shared {@link CompilationCache}, so a file which is run again in the
+	 * same virtual machine is not parsed again.
 	 * 
 	 * @param args
 	 */
 	public static void main(String args[]) {
-		BasicParser parser;
+		BasicParser parser = null;
+		HandWrittenParser handWrittenParser = null;
+		ParallelCompiler parallelCompiler = null;
+		LazyCompiler lazyCompiler = null;
+		BasicLexer cachedSource = null;
 		String filename;
 
 		if(args.length == 0){
@@ -56,9 +79,26 @@ public class BasicInterpreter {
 		else if(args.length == 1){
 			File f = new File(args[0]);
 			try {
-				parser = new BasicParser(new java.io.FileInputStream(f));
+				if ("handwritten".equals(System.getProperty("basic.parser"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					handWrittenParser = HandWrittenParser.read(AsciiReader.open(f));
+				}
+				else if ("parallel".equals(System.getProperty("basic.parser"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					parallelCompiler = ParallelCompiler.read(AsciiReader.open(f));
+				}
+				else if ("lazy".equals(System.getProperty("basic.parser"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					lazyCompiler = LazyCompiler.read(AsciiReader.open(f));
+				}
+				else if ("cached".equals(System.getProperty("basic.parser"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					cachedSource = BasicLexer.read(AsciiReader.open(f));
+				}
+				else if ("handwritten".equals(System.getProperty("basic.lexer"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					parser = HandWrittenTokenManager.newParser(AsciiReader.open(f));
+				}
+				else {
+					parser = new BasicParser(AsciiReader.open(f));
+				}
 			}
-			catch(java.io.FileNotFoundException e){
+			catch(java.io.IOException e){
 				e.printStackTrace();
 				return ;
 			}
@@ -68,8 +108,32 @@ public class BasicInterpreter {
 			return ;
 		}
 		SortedMap<Integer,Statement> code = null;
+		SymbolTable symbolTable = null;
 		try {
-			code = parser.executeCompiler();
+			if (handWrittenParser != null) {
+				code = handWrittenParser.executeCompiler();
+				symbolTable = handWrittenParser.getSymbolTable();
+			}
+			else if (parallelCompiler != null) {
+				// The chunks declare their identifiers into one ConcurrentSymbolTable
+				code = parallelCompiler.executeCompiler();
+				symbolTable = parallelCompiler.getSymbolTable();
+			}
+			else if (lazyCompiler != null) {
+				// The syntax errors are reported when the lines are run
+				code = lazyCompiler.executeCompiler();
+				symbolTable = lazyCompiler.getSymbolTable();
+			}
+			else if (cachedSource != null) {
+				// The statements are shared with the other runs of the same source, but not the symbol table
+				CompiledProgram program = CompilationCache.getDefault().get(cachedSource.getSource(), 0, cachedSource.getEnd());
+				code = program.getProgram();
+				symbolTable = program.newSymbolTable();
+			}
+			else {
+				code = parser.executeCompiler();
+				symbolTable = parser.getSymbolTable();
+			}
 		}
 		catch(LoggableException e) {
 			ErrorRepository.add(e);
@@ -81,7 +145,7 @@ public class BasicInterpreter {
 		DebugInterpreter debugContext = null;
 
 		if (code!=null && !code.isEmpty()) {
-			Interpreter interpreter = new LineBasedInterpreter(code, parser.getSymbolTable());
+			Interpreter interpreter = new LineBasedInterpreter(code, symbolTable);
 			try {
 				debugContext = interpreter.debug();
 			}
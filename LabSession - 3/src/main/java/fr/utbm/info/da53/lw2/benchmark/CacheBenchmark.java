@@ -0,0 +1,81 @@
+package fr.utbm.info.da53.lw2.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.CompilationCache;
+
+/**
+ * Compares the time of a source compiled by a {@link CompilationCache} which
+ * does not have it, with the time of a source found in the cache, which is
+ * the time of its digest. Then several threads look up a new source at the
+ * same time, which is compiled once.
+ * <p>
+ * Usage: <code>CacheBenchmark [file]</code>. Without argument, a TinyBasic
+ * listing is generated in memory.
+ */
+public class CacheBenchmark {
+
+	private static final int GENERATED_LINES = 100000;
+	private static final int ROUNDS = 5;
+	private static final int THREADS = 8;
+
+	/** Run the benchmark.
+	 *
+	 * @param args the optional file to read.
+	 * @throws IOException if the file cannot be read.
+	 * @throws InterruptedException if the benchmark is interrupted.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException, CompilerException {
+		final char[] source = args.length == 0
+				? TokenManagerBenchmark.generate(GENERATED_LINES)
+				: Files.readString(Paths.get(args[0])).toCharArray();
+		System.out.println("Input: " + source.length + " chars"); //$NON-NLS-1$ //$NON-NLS-2$
+		CompilationCache cache = new CompilationCache();
+		long miss = Long.MAX_VALUE;
+		long hit = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; ++round) {
+			cache.clear();
+			long start = System.nanoTime();
+			cache.get(source, 0, source.length);
+			miss = Math.min(miss, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			cache.get(source, 0, source.length);
+			hit = Math.min(hit, System.nanoTime() - start);
+		}
+		System.out.printf("  %-5s %8.2f ms%n", "Miss", miss / 1e6); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.printf("  %-5s %8.2f ms  (x%.1f)%n", "Hit", hit / 1e6, (double) miss / hit); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// A source not cached yet, since its last line differs
+		final char[] other = new StringBuilder().append(source).append("END\n").toString().toCharArray(); //$NON-NLS-1$
+		final CompilationCache shared = new CompilationCache();
+		final CountDownLatch ready = new CountDownLatch(1);
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; ++i) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						ready.await();
+						shared.get(other, 0, other.length);
+					}
+					catch (InterruptedException | CompilerException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		ready.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		System.out.printf("  %d threads: %s%n", THREADS, shared); //$NON-NLS-1$
+	}
+
+}
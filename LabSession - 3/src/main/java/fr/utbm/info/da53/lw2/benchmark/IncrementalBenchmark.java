@@ -0,0 +1,65 @@
+package fr.utbm.info.da53.lw2.benchmark;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.parser.IncrementalCompiler;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Compares the time of a line edited in an {@link IncrementalCompiler} with
+ * the time of a full compilation of the edited listing, parsed by the
+ * {@link HandWrittenParser} and generated again.
+ * <p>
+ * Usage: <code>IncrementalBenchmark [lines]</code>. The listing is the one of
+ * {@link PipelineBenchmark}, typed line by line.
+ */
+public class IncrementalBenchmark {
+
+	private static final int DEFAULT_LINES = 100000;
+	private static final int EDITS = 1000;
+	private static final int ROUNDS = 5;
+
+	/** Run the benchmark.
+	 *
+	 * @param args the optional number of lines.
+	 * @throws CompilerException if the listing is not valid.
+	 */
+	public static void main(String[] args) throws CompilerException {
+		int lines = args.length == 0 ? DEFAULT_LINES : Integer.parseInt(args[0]);
+		IncrementalCompiler compiler = new IncrementalCompiler();
+		StringBuilder listing = new StringBuilder();
+		StringBuilder line = new StringBuilder();
+		long start = System.nanoTime();
+		for (int i = 1; i <= lines; ++i) {
+			line.setLength(0);
+			PipelineBenchmark.appendLine(line, i);
+			compiler.edit(line);
+			listing.append(line);
+		}
+		System.out.printf("%d lines typed: %.1f ms%n", lines, (System.nanoTime() - start) / 1e6); //$NON-NLS-1$
+
+		long incremental = Long.MAX_VALUE;
+		long full = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; ++round) {
+			start = System.nanoTime();
+			for (int i = 0; i < EDITS; ++i) {
+				int lineNumber = ((i * 997 + round) % lines + 1) * 10;
+				compiler.edit(lineNumber + " LET X1 = Q + R * S"); //$NON-NLS-1$
+			}
+			// The records are put back in the order of the lines when the code is read
+			compiler.getThreeAddressCode();
+			incremental = Math.min(incremental, (System.nanoTime() - start) / EDITS);
+
+			start = System.nanoTime();
+			char[] source = listing.toString().toCharArray();
+			HandWrittenParser parser = new HandWrittenParser(new BasicLexer(source, 0, source.length));
+			new ThreeAddressCode(parser.getSymbolTable()).generate(parser.executeCompiler());
+			full = Math.min(full, System.nanoTime() - start);
+		}
+		System.out.printf("  %-11s %8.3f ms%n", "Edit", incremental / 1e6); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.printf("  %-11s %8.3f ms  (x%.0f)%n", "Recompile", full / 1e6, //$NON-NLS-1$ //$NON-NLS-2$
+				(double) full / incremental);
+	}
+
+}
@@ -0,0 +1,61 @@
+package fr.utbm.info.da53.lw2.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.parser.LazyCompiler;
+import fr.utbm.info.da53.lw2.parser.LazyStatement;
+import fr.utbm.info.da53.lw2.parser.LineIndex;
+
+/**
+ * Compares the time before the first statement of a source can run, when all
+ * the lines are parsed by the {@link HandWrittenParser}, and when they are
+ * only indexed by the {@link LazyCompiler} and the first one is parsed.
+ * <p>
+ * Usage: <code>LazyBenchmark [file]</code>. Without argument, a TinyBasic
+ * listing is generated in memory.
+ */
+public class LazyBenchmark {
+
+	private static final int GENERATED_LINES = 1000000;
+	private static final int ROUNDS = 5;
+
+	/** Run the benchmark.
+	 *
+	 * @param args the optional file to read.
+	 * @throws IOException if the file cannot be read.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public static void main(String[] args) throws IOException, CompilerException {
+		char[] source = args.length == 0
+				? TokenManagerBenchmark.generate(GENERATED_LINES)
+				: Files.readString(Paths.get(args[0])).toCharArray();
+		System.out.println("Input: " + source.length + " chars"); //$NON-NLS-1$ //$NON-NLS-2$
+		long eager = Long.MAX_VALUE;
+		long lazy = Long.MAX_VALUE;
+		int statements = 0;
+		for (int round = 0; round < ROUNDS; ++round) {
+			long start = System.nanoTime();
+			HandWrittenParser parser = new HandWrittenParser(new BasicLexer(source, 0, source.length));
+			statements = parser.executeCompiler().size();
+			eager = Math.min(eager, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			LazyCompiler compiler = new LazyCompiler(LineIndex.build(source, 0, source.length));
+			for (Statement statement : compiler.executeCompiler().values()) {
+				((LazyStatement) statement).getStatement();
+				break;
+			}
+			lazy = Math.min(lazy, System.nanoTime() - start);
+		}
+		System.out.printf("  %-6s %8.1f ms  (%d statements parsed)%n", "Eager", eager / 1e6, statements); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.printf("  %-6s %8.1f ms  (1 statement parsed, x%.2f)%n", "Lazy", lazy / 1e6, //$NON-NLS-1$ //$NON-NLS-2$
+				(double) eager / lazy);
+	}
+
+}
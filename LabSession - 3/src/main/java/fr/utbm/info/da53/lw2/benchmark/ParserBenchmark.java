@@ -0,0 +1,118 @@
+package fr.utbm.info.da53.lw2.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
+import fr.utbm.info.da53.lw2.parser.BasicParser;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.parser.HandWrittenTokenManager;
+import fr.utbm.info.da53.lw2.parser.ParseException;
+
+/**
+ * Compares the parser generated by JavaCC with the {@link HandWrittenParser},
+ * by building the statements of a source. Both parsers read their tokens from
+ * a {@link BasicLexer}, so only the parsing differs.
+ * <p>
+ * The generated parser rejects every expression, so it is also run on a
+ * listing of <code>RETURN</code> and <code>END</code> statements, which both
+ * parsers accept. As it recurses once per line, the benchmark runs in a
+ * thread with a large stack.
+ * <p>
+ * Usage: <code>ParserBenchmark [file]</code>. Without argument, TinyBasic
+ * listings are generated in memory.
+ */
+public class ParserBenchmark {
+
+	private static final int GENERATED_LINES = 1000000;
+	private static final int ROUNDS = 5;
+	private static final long STACK_SIZE = 1L << 30;
+
+	/** Run the benchmark.
+	 *
+	 * @param args the optional file to read.
+	 * @throws IOException if the file cannot be read.
+	 * @throws InterruptedException if the benchmark is interrupted.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final char[] file = args.length == 0 ? null : Files.readString(Paths.get(args[0])).toCharArray();
+		Thread thread = new Thread(null, () -> {
+			if (file == null) {
+				run("Statements", TokenManagerBenchmark.generate(GENERATED_LINES)); //$NON-NLS-1$
+				run("RETURN/END", generateKeywords(GENERATED_LINES)); //$NON-NLS-1$
+			}
+			else {
+				run(args[0], file);
+			}
+		}, "ParserBenchmark", STACK_SIZE); //$NON-NLS-1$
+		thread.start();
+		thread.join();
+	}
+
+	private static void run(String name, char[] source) {
+		System.out.println(name + ": " + source.length + " chars"); //$NON-NLS-1$ //$NON-NLS-2$
+		long generated = Long.MAX_VALUE;
+		long handWritten = Long.MAX_VALUE;
+		String generatedResult = null;
+		String handWrittenResult = null;
+		for (int round = 0; round < ROUNDS; ++round) {
+			long start = System.nanoTime();
+			try {
+				BasicParser parser = new BasicParser(new HandWrittenTokenManager(new BasicLexer(source, 0, source.length)));
+				generatedResult = parser.executeCompiler().size() + " statements"; //$NON-NLS-1$
+				generated = Math.min(generated, System.nanoTime() - start);
+			}
+			catch (CompilerException | ParseException | RuntimeException e) {
+				generatedResult = "failed: " + firstLine(e.getMessage()); //$NON-NLS-1$
+			}
+
+			start = System.nanoTime();
+			try {
+				HandWrittenParser parser = new HandWrittenParser(new BasicLexer(source, 0, source.length));
+				handWrittenResult = parser.executeCompiler().size() + " statements"; //$NON-NLS-1$
+				handWritten = Math.min(handWritten, System.nanoTime() - start);
+			}
+			catch (CompilerException e) {
+				handWrittenResult = "failed: " + firstLine(e.getMessage()); //$NON-NLS-1$
+			}
+		}
+		print("Generated", generated, generatedResult, generated); //$NON-NLS-1$
+		print("Hand-written", handWritten, handWrittenResult, generated); //$NON-NLS-1$
+	}
+
+	private static String firstLine(String message) {
+		int end = message == null ? -1 : message.indexOf('\n');
+		return end < 0 ? message : message.substring(0, end);
+	}
+
+	private static void print(String parser, long time, String result, long reference) {
+		if (time == Long.MAX_VALUE) {
+			System.out.printf("  %-12s %s%n", parser, result); //$NON-NLS-1$
+		}
+		else if (reference == Long.MAX_VALUE || reference == time) {
+			System.out.printf("  %-12s %8.1f ms  (%s)%n", parser, time / 1e6, result); //$NON-NLS-1$
+		}
+		else {
+			System.out.printf("  %-12s %8.1f ms  (%s, x%.2f)%n", parser, time / 1e6, result, //$NON-NLS-1$
+					(double) reference / time);
+		}
+	}
+
+	/** Generate a TinyBasic listing without expressions, nor a new line at
+	 * its end, which the generated parser would reject.
+	 *
+	 * @param lines the number of lines.
+	 * @return the characters of the listing.
+	 */
+	private static char[] generateKeywords(int lines) {
+		StringBuilder b = new StringBuilder(lines * 12);
+		for (int i = 1; i <= lines; ++i) {
+			b.append(i * 10).append(i % 2 == 0 ? " RETURN\n" : " END\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		b.setLength(b.length() - 1);
+		return b.toString().toCharArray();
+	}
+
+}
@@ -0,0 +1,118 @@
+package fr.utbm.info.da53.lw2.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.pipeline.CompilationPipeline;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Compares the compilation of a source into three-address code by the
+ * {@link HandWrittenParser} followed by the generator, one stage after the
+ * other, with the {@link CompilationPipeline}, whose stages run at the same
+ * time on three threads. The pipeline cannot be faster than its slowest
+ * stage, nor on a machine with less than three processors.
+ * <p>
+ * Usage: <code>PipelineBenchmark [file]</code>. Without argument, a TinyBasic
+ * listing is generated in memory. Its expressions have no number, which the
+ * generator of three-address code does not support.
+ */
+public class PipelineBenchmark {
+
+	private static final int GENERATED_LINES = 1000000;
+	private static final int ROUNDS = 5;
+
+	private static final String[] STATEMENTS = {
+		"LET X%d = X%d + A * (Y - B)", //$NON-NLS-1$
+		"PRINT \"VALUE\"", //$NON-NLS-1$
+		"IF A%d <= B THEN PRINT A%d", //$NON-NLS-1$
+		"INPUT N%d", //$NON-NLS-1$
+		"GOSUB X%d", //$NON-NLS-1$
+		"REM a comment about %d and %d", //$NON-NLS-1$
+		"RETURN", //$NON-NLS-1$
+	};
+
+	/** Run the benchmark.
+	 *
+	 * @param args the optional file to read.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		char[] source = args.length == 0
+				? generate(GENERATED_LINES)
+				: Files.readString(Paths.get(args[0])).toCharArray();
+		System.out.println(source.length + " chars, " //$NON-NLS-1$
+				+ Runtime.getRuntime().availableProcessors() + " processors"); //$NON-NLS-1$
+		long serial = Long.MAX_VALUE;
+		long pipelined = Long.MAX_VALUE;
+		String serialResult = null;
+		String pipelinedResult = null;
+		for (int round = 0; round < ROUNDS; ++round) {
+			long start = System.nanoTime();
+			try {
+				HandWrittenParser parser = new HandWrittenParser(new BasicLexer(source, 0, source.length));
+				parser.executeCompiler();
+				ThreeAddressCode code = new ThreeAddressCode(parser.getSymbolTable());
+				code.generate(parser.getProgram());
+				serialResult = code.getCode().size() + " records"; //$NON-NLS-1$
+				serial = Math.min(serial, System.nanoTime() - start);
+			}
+			catch (CompilerException | RuntimeException e) {
+				serialResult = "failed: " + e.getMessage(); //$NON-NLS-1$
+			}
+
+			start = System.nanoTime();
+			try {
+				ThreeAddressCode code = new CompilationPipeline(source, 0, source.length).compile();
+				pipelinedResult = code.getCode().size() + " records"; //$NON-NLS-1$
+				pipelined = Math.min(pipelined, System.nanoTime() - start);
+			}
+			catch (CompilerException | RuntimeException e) {
+				pipelinedResult = "failed: " + e.getMessage(); //$NON-NLS-1$
+			}
+		}
+		print("Serial", serial, serialResult, serial); //$NON-NLS-1$
+		print("Pipelined", pipelined, pipelinedResult, serial); //$NON-NLS-1$
+	}
+
+	/** Generate a TinyBasic listing.
+	 *
+	 * @param lines the number of lines.
+	 * @return the characters of the listing.
+	 */
+	private static char[] generate(int lines) {
+		StringBuilder b = new StringBuilder(lines * 24);
+		for (int i = 1; i <= lines; ++i) {
+			appendLine(b, i);
+		}
+		return b.toString().toCharArray();
+	}
+
+	/** Append a line of the generated listing.
+	 *
+	 * @param b the receiver of the line.
+	 * @param i the index of the line, starting at 1.
+	 */
+	static void appendLine(StringBuilder b, int i) {
+		b.append(i * 10).append(' ');
+		b.append(String.format(STATEMENTS[i % STATEMENTS.length], i % 97, i % 89)).append('\n');
+	}
+
+	private static void print(String compiler, long time, String result, long reference) {
+		if (time == Long.MAX_VALUE) {
+			System.out.printf("  %-10s %s%n", compiler, result); //$NON-NLS-1$
+		}
+		else if (reference == Long.MAX_VALUE || reference == time) {
+			System.out.printf("  %-10s %8.1f ms  (%s)%n", compiler, time / 1e6, result); //$NON-NLS-1$
+		}
+		else {
+			System.out.printf("  %-10s %8.1f ms  (%s, x%.2f)%n", compiler, time / 1e6, result, //$NON-NLS-1$
+					(double) reference / time);
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package fr.utbm.info.da53.lw2.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.pipeline.StreamingCompiler;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressRecord;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressRecordSink;
+
+/**
+ * Compiles a generated TinyBasic listing with the {@link StreamingCompiler},
+ * the listing being generated while it is read and the records being counted
+ * and dropped. It replies the heap used once the code is generated, which is
+ * the size of the symbol table and of the line mapping.
+ * <p>
+ * Usage: <code>StreamingBenchmark [lines]</code>. With a small heap
+ * (<code>-Xmx</code>), the number of lines which can be compiled is bounded by
+ * the symbol table and the line mapping only, not by the listing nor the code.
+ */
+public class StreamingBenchmark {
+
+	private static final int DEFAULT_LINES = 1000000;
+
+	/** Run the benchmark.
+	 *
+	 * @param args the optional number of lines.
+	 * @throws IOException if the records cannot be written.
+	 * @throws CompilerException if the listing is not valid.
+	 */
+	public static void main(String[] args) throws IOException, CompilerException {
+		int lines = args.length == 0 ? DEFAULT_LINES : Integer.parseInt(args[0]);
+		final long[] records = new long[1];
+		ThreeAddressRecordSink sink = new ThreeAddressRecordSink() {
+			@Override
+			public void write(ThreeAddressRecord record) {
+				++records[0];
+			}
+		};
+		long start = System.nanoTime();
+		ThreeAddressCode code = new StreamingCompiler(new ListingReader(lines), sink).compile();
+		long time = System.nanoTime() - start;
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		System.out.printf("%d lines: %.1f ms, %d records, %d temporary variables, %.1f MB of heap used%n", //$NON-NLS-1$
+				lines, time / 1e6, records[0], code.getTempVarCounter(), used / 1e6);
+	}
+
+	/** Reader generating the lines of the listing of {@link PipelineBenchmark} on demand.
+	 */
+	private static final class ListingReader extends Reader {
+
+		private final int lines;
+		private final StringBuilder line = new StringBuilder();
+		private int index;
+		private int position;
+
+		ListingReader(int lines) {
+			this.lines = lines;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read(char[] buffer, int offset, int length) {
+			int count = 0;
+			while (count < length) {
+				if (this.position == this.line.length()) {
+					if (this.index == this.lines) {
+						break;
+					}
+					this.line.setLength(0);
+					PipelineBenchmark.appendLine(this.line, ++this.index);
+					this.position = 0;
+				}
+				int n = Math.min(length - count, this.line.length() - this.position);
+				this.line.getChars(this.position, this.position + n, buffer, offset + count);
+				this.position += n;
+				count += n;
+			}
+			return count == 0 && length > 0 ? -1 : count;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() {
+			//
+		}
+
+	}
+
+}
@@ -0,0 +1,106 @@
+package fr.utbm.info.da53.lw2.benchmark;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
+import fr.utbm.info.da53.lw2.parser.BasicParserConstants;
+import fr.utbm.info.da53.lw2.parser.BasicParserTokenManager;
+import fr.utbm.info.da53.lw2.parser.HandWrittenTokenManager;
+import fr.utbm.info.da53.lw2.parser.SimpleCharStream;
+import fr.utbm.info.da53.lw2.parser.SourceCharStream;
+import fr.utbm.info.da53.lw2.parser.Token;
+
+/**
+ * Compares the token manager generated by JavaCC, reading a
+ * {@link SimpleCharStream} or a {@link SourceCharStream}, with the
+ * {@link HandWrittenTokenManager}, by reading all the tokens of a source.
+ * The token counts differ on <code>REM</code> lines, which the generated
+ * token manager splits into identifiers.
+ * <p>
+ * Usage: <code>TokenManagerBenchmark [file]</code>. Without argument, a
+ * TinyBasic listing is generated in memory.
+ */
+public class TokenManagerBenchmark {
+
+	private static final int GENERATED_LINES = 1000000;
+	private static final int ROUNDS = 5;
+
+	private static final String[] STATEMENTS = {
+		"LET X%d = X%d + 42 * (Y - 3.5)", //$NON-NLS-1$
+		"PRINT \"VALUE\" ", //$NON-NLS-1$
+		"IF A%d <= 10 THEN GOTO %d", //$NON-NLS-1$
+		"INPUT N%d", //$NON-NLS-1$
+		"GOSUB %d", //$NON-NLS-1$
+		"REM a comment about %d and %d", //$NON-NLS-1$
+		"RETURN", //$NON-NLS-1$
+	};
+
+	/** Run the benchmark.
+	 *
+	 * @param args the optional file to read.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		char[] source = args.length == 0 ? generate(GENERATED_LINES) : Files.readString(Paths.get(args[0])).toCharArray();
+		System.out.println("Input: " + source.length + " chars"); //$NON-NLS-1$ //$NON-NLS-2$
+
+		long generated = Long.MAX_VALUE;
+		long sourceStream = Long.MAX_VALUE;
+		long handWritten = Long.MAX_VALUE;
+		int generatedTokens = 0;
+		int handWrittenTokens = 0;
+		for (int round = 0; round < ROUNDS; ++round) {
+			long start = System.nanoTime();
+			generatedTokens = count(new BasicParserTokenManager(new SimpleCharStream(new CharArrayReader(source))));
+			generated = Math.min(generated, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			count(new BasicParserTokenManager(SourceCharStream.wrap(source, 0, source.length, 1)));
+			sourceStream = Math.min(sourceStream, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			handWrittenTokens = count(new HandWrittenTokenManager(new BasicLexer(source, 0, source.length)));
+			handWritten = Math.min(handWritten, System.nanoTime() - start);
+		}
+		System.out.printf("%-12s %8.1f ms  (%d tokens)%n", "Generated", generated / 1e6, generatedTokens); //$NON-NLS-1$ //$NON-NLS-2$
+		System.out.printf("%-12s %8.1f ms  (x%.2f)%n", "Source", sourceStream / 1e6, //$NON-NLS-1$ //$NON-NLS-2$
+				(double) generated / sourceStream);
+		System.out.printf("%-12s %8.1f ms  (%d tokens, x%.2f)%n", "Hand-written", handWritten / 1e6, //$NON-NLS-1$ //$NON-NLS-2$
+				handWrittenTokens, (double) generated / handWritten);
+	}
+
+	/** Read all the tokens of a token manager.
+	 *
+	 * @param tokenManager the token manager.
+	 * @return the number of tokens, including EOF.
+	 */
+	private static int count(BasicParserTokenManager tokenManager) {
+		int count = 0;
+		Token token;
+		do {
+			token = tokenManager.getNextToken();
+			++count;
+		}
+		while (token.kind != BasicParserConstants.EOF);
+		return count;
+	}
+
+	/** Generate a TinyBasic listing.
+	 *
+	 * @param lines the number of lines.
+	 * @return the characters of the listing.
+	 */
+	static char[] generate(int lines) {
+		StringBuilder b = new StringBuilder(lines * 24);
+		for (int i = 1; i <= lines; ++i) {
+			b.append(i * 10).append(' ');
+			b.append(String.format(STATEMENTS[i % STATEMENTS.length], i % 97, i * 10 % 1000));
+			b.append('\n');
+		}
+		return b.toString().toCharArray();
+	}
+
+}
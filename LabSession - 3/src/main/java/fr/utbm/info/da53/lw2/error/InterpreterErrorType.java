@@ -94,7 +94,11 @@ public enum InterpreterErrorType {
 
 	/** Type mismatch.
 	 */
-	TYPE_MISMATCH;
+	TYPE_MISMATCH,
+
+	/** A statement parsed at its first execution is not valid.
+	 */
+	INVALID_STATEMENT;
 
 
 	/** Replies the error message.
@@ -0,0 +1,132 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reader of an in-memory or memory-mapped source which widens ASCII bytes
+ * directly into chars, without going through a charset decoder.
+ * <p>
+ * On the first non-ASCII byte, the rest of the source is decoded with the
+ * charset of the source. This reader is intended to feed the
+ * {@link SimpleCharStream} of the parser.
+ * <p>
+ * A {@code MemorySegment} can be read through {@code segment.asByteBuffer()}.
+ */
+public class AsciiReader extends Reader {
+
+	private final ByteBuffer bytes;
+	private final Charset charset;
+	private int position;
+	private CharBuffer decoded;
+
+	/** Create a reader of UTF-8 encoded bytes.
+	 *
+	 * @param bytes the bytes to read.
+	 */
+	public AsciiReader(byte[] bytes) {
+		this(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8);
+	}
+
+	/** Create a reader of the remaining bytes of a buffer.
+	 * The buffer must not be modified while it is read.
+	 *
+	 * @param bytes the bytes to read.
+	 * @param charset the encoding of the bytes, used from the first non-ASCII byte.
+	 */
+	public AsciiReader(ByteBuffer bytes, Charset charset) {
+		this.bytes = bytes;
+		this.charset = charset;
+		this.position = bytes.position();
+	}
+
+	/** Create a reader of a UTF-8 encoded file. Files up to 2 GB are
+	 * memory-mapped and read by an {@link AsciiReader}; larger files, which
+	 * cannot be mapped at once, are decoded from a stream which must be closed.
+	 *
+	 * @param file the file to read.
+	 * @return the reader.
+	 * @throws IOException if the file cannot be opened or mapped.
+	 */
+	public static Reader open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8);
+			}
+			// The mapping stays valid after the channel is closed
+			return new AsciiReader(
+					channel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+					StandardCharsets.UTF_8);
+		}
+	}
+
+	/** Replies if the source is now read through the charset decoder.
+	 *
+	 * @return <code>true</code> if a non-ASCII byte was found.
+	 */
+	public boolean isDecoding() {
+		return this.decoded != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (this.decoded == null) {
+			int limit = this.bytes.limit();
+			if (this.position >= limit) {
+				return -1;
+			}
+			int end = Math.min(limit, this.position + len);
+			int start = this.position;
+			int i = start;
+			while (i < end) {
+				byte b = this.bytes.get(i);
+				if (b < 0) {
+					break;
+				}
+				cbuf[off + i - start] = (char) b;
+				++i;
+			}
+			this.position = i;
+			if (i < end) {
+				// Non-ASCII byte: decode the rest of the source
+				ByteBuffer rest = this.bytes.duplicate();
+				rest.limit(limit).position(i);
+				this.decoded = this.charset.decode(rest);
+			}
+			if (i > start) {
+				return i - start;
+			}
+		}
+		if (!this.decoded.hasRemaining()) {
+			return -1;
+		}
+		int count = Math.min(len, this.decoded.remaining());
+		this.decoded.get(cbuf, off, count);
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		//
+	}
+
+}
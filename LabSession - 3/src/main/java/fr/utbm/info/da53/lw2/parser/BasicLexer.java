@@ -0,0 +1,486 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Hand-written lexer of TinyBasic over an in-memory source, producing the
+ * tokens of {@link BasicParserConstants}. It is a port of the lexer of the
+ * first lab session: one pass over a char array with a switch on the current
+ * character, and keywords recognized among identifiers without building a
+ * String.
+ * <p>
+ * The tokens follow the lexical rules of <code>basic.jj</code>: spaces,
+ * tabulations and carriage returns are skipped, keywords are case insensitive,
+ * and the positions are the ones computed by {@link SimpleCharStream}, with
+ * tabulations aligned on 8 columns, as are the positions of the lexical
+ * errors. <code>REM</code> skips the rest of the line, and keywords are
+ * preferred to identifiers of the same text.
+ * <p>
+ * Tokens with a fixed text share a constant image; only identifiers, numbers
+ * and strings get a new image. {@link #scan()} reads a token without creating
+ * a {@link Token}: its kind, text and position are replied by the accessors
+ * of the lexer until the next token is read.
+ */
+public class BasicLexer implements BasicParserConstants, TokenCursor {
+
+	private static final int TAB_SIZE = 8;
+
+	private static final String[] KEYWORDS = {
+		"PRINT", "IF", "THEN", "ELSE", "GOTO", "GOSUB", "LET", "INPUT", "RETURN", "END", "REM", //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$//$NON-NLS-4$//$NON-NLS-5$//$NON-NLS-6$//$NON-NLS-7$//$NON-NLS-8$//$NON-NLS-9$//$NON-NLS-10$//$NON-NLS-11$
+	};
+
+	private static final int[] KEYWORD_KINDS = {
+		PRINT, IF, THEN, ELSE, GOTO, GOSUB, LET, INPUT, RETURN, END, REM,
+	};
+
+	private final char[] source;
+	private final int end;
+	private int position;
+
+	/** Position of the last read character, as computed by SimpleCharStream.
+	 */
+	private int line;
+	private int column;
+	private boolean prevCharIsCR;
+	private boolean prevCharIsLF;
+
+	/** Last scanned token. Its image is <code>null</code> when it is not a constant.
+	 */
+	private int kind = EOF;
+	private String image;
+	private int tokenStart;
+	private int tokenEnd;
+	private int beginLine;
+	private int beginColumn;
+	private int endLine;
+	private int endColumn;
+
+	/** Create a lexer over a range of characters.
+	 *
+	 * @param source the characters, which must not be modified while they are lexed.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 */
+	public BasicLexer(char[] source, int start, int end) {
+		this(source, start, end, 1);
+	}
+
+	/** Create a lexer over a range of characters which starts a line.
+	 *
+	 * @param source the characters, which must not be modified while they are lexed.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @param startLine the number of the line starting at <var>start</var>.
+	 */
+	public BasicLexer(char[] source, int start, int end, int startLine) {
+		this.source = source;
+		this.position = start;
+		this.end = end;
+		this.line = startLine;
+	}
+
+	/** Create a lexer over a text.
+	 *
+	 * @param source the text.
+	 */
+	public BasicLexer(CharSequence source) {
+		this(source.toString().toCharArray(), 0, source.length());
+	}
+
+	/** Create a lexer over the whole content of a reader.
+	 *
+	 * @param reader the reader, which is read until its end but not closed.
+	 * @return the lexer.
+	 * @throws IOException if the reader cannot be read.
+	 */
+	public static BasicLexer read(Reader reader) throws IOException {
+		char[] buffer = new char[8192];
+		int length = 0;
+		int count;
+		while ((count = reader.read(buffer, length, buffer.length - length)) >= 0) {
+			length += count;
+			if (length == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+		}
+		return new BasicLexer(buffer, 0, length);
+	}
+
+	/** Replies the next token. After the end of the source, EOF tokens are replied.
+	 *
+	 * @return the next token, never <code>null</code>.
+	 * @throws TokenMgrError if a character cannot start a token.
+	 */
+	public Token next() {
+		Token token = new Token(scan(), getImage());
+		token.beginLine = this.beginLine;
+		token.beginColumn = this.beginColumn;
+		token.endLine = this.endLine;
+		token.endColumn = this.endColumn;
+		return token;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int scan() {
+		while (this.position < this.end) {
+			char c = this.source[this.position];
+			switch (c) {
+			case ' ':
+			case '\t':
+			case '\r':
+				read();
+				break;
+			case '\n':
+				return single(CR, "\n"); //$NON-NLS-1$
+			case '=':
+				return single(EQ, "="); //$NON-NLS-1$
+			case '+':
+				return single(PLUS, "+"); //$NON-NLS-1$
+			case '-':
+				return single(MINUS, "-"); //$NON-NLS-1$
+			case '*':
+				return single(MULTIPLY, "*"); //$NON-NLS-1$
+			case '/':
+				return single(DIVIDE, "/"); //$NON-NLS-1$
+			case '(':
+				return single(OPAREN, "("); //$NON-NLS-1$
+			case ')':
+				return single(CPAREN, ")"); //$NON-NLS-1$
+			case '<':
+				if (lookahead('=')) {
+					return pair(LE, "<="); //$NON-NLS-1$
+				}
+				if (lookahead('>')) {
+					return pair(NE, "<>"); //$NON-NLS-1$
+				}
+				return single(LT, "<"); //$NON-NLS-1$
+			case '>':
+				if (lookahead('=')) {
+					return pair(GE, ">="); //$NON-NLS-1$
+				}
+				if (lookahead('<')) {
+					return pair(NE, "><"); //$NON-NLS-1$
+				}
+				return single(GT, ">"); //$NON-NLS-1$
+			case '"':
+				return string();
+			default:
+				if (c >= '0' && c <= '9') {
+					return number();
+				}
+				if (isLetter(c) || c == '_') {
+					int kind = word();
+					if (kind != REM) {
+						return kind;
+					}
+					break;
+				}
+				this.tokenStart = this.position;
+				read();
+				throw error(c);
+			}
+		}
+		this.tokenStart = this.tokenEnd = this.position;
+		if (this.column == 0) {
+			// Like SimpleCharStream, which has no position before its first character
+			this.line = 0;
+		}
+		setBegin();
+		setEnd();
+		return token(EOF, ""); //$NON-NLS-1$
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getImage() {
+		if (this.image != null) {
+			return this.image;
+		}
+		return new String(this.source, this.tokenStart, this.tokenEnd - this.tokenStart);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getSource() {
+		return this.source;
+	}
+
+	/** Replies the index after the last character of the source.
+	 *
+	 * @return the end of the source.
+	 */
+	public int getEnd() {
+		return this.end;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getTokenStart() {
+		return this.tokenStart;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getTokenEnd() {
+		return this.tokenEnd;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBeginLine() {
+		return this.beginLine;
+	}
+
+	/** Replies the column of the first character of the last scanned token.
+	 *
+	 * @return the column.
+	 */
+	public int getBeginColumn() {
+		return this.beginColumn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getEndLine() {
+		return this.endLine;
+	}
+
+	/** Replies the column of the last character of the last scanned token.
+	 *
+	 * @return the column.
+	 */
+	public int getEndColumn() {
+		return this.endColumn;
+	}
+
+	/** Update the position for a character, like {@link SimpleCharStream} does.
+	 *
+	 * @return the read character.
+	 */
+	private char read() {
+		char c = this.source[this.position++];
+		++this.column;
+		if (this.prevCharIsLF) {
+			this.prevCharIsLF = false;
+			this.line += (this.column = 1);
+		}
+		else if (this.prevCharIsCR) {
+			this.prevCharIsCR = false;
+			if (c == '\n') {
+				this.prevCharIsLF = true;
+			}
+			else {
+				this.line += (this.column = 1);
+			}
+		}
+		switch (c) {
+		case '\r':
+			this.prevCharIsCR = true;
+			break;
+		case '\n':
+			this.prevCharIsLF = true;
+			break;
+		case '\t':
+			--this.column;
+			this.column += (TAB_SIZE - (this.column % TAB_SIZE));
+			break;
+		default:
+			break;
+		}
+		return c;
+	}
+
+	private boolean lookahead(char c) {
+		return this.position + 1 < this.end && this.source[this.position + 1] == c;
+	}
+
+	private int token(int kind, String image) {
+		this.kind = kind;
+		this.image = image;
+		return kind;
+	}
+
+	private int single(int kind, String image) {
+		this.tokenStart = this.position;
+		read();
+		setBegin();
+		setEnd();
+		this.tokenEnd = this.position;
+		return token(kind, image);
+	}
+
+	private int pair(int kind, String image) {
+		this.tokenStart = this.position;
+		read();
+		setBegin();
+		read();
+		setEnd();
+		this.tokenEnd = this.position;
+		return token(kind, image);
+	}
+
+	private int string() {
+		this.tokenStart = this.position;
+		read();
+		setBegin();
+		char c = '"';
+		while (this.position < this.end) {
+			c = read();
+			if (c == '\n' || c == '\r') {
+				break;
+			}
+			if (c == '"') {
+				setEnd();
+				this.tokenEnd = this.position;
+				return token(STRING, null);
+			}
+		}
+		throw error(c);
+	}
+
+	private int number() {
+		this.tokenStart = this.position;
+		read();
+		setBegin();
+		skipDigits();
+		if (this.position + 1 < this.end && this.source[this.position] == '.'
+				&& isDigit(this.source[this.position + 1])) {
+			read();
+			skipDigits();
+		}
+		setEnd();
+		this.tokenEnd = this.position;
+		return token(NUMBER, null);
+	}
+
+	/** Read an identifier or a keyword.
+	 *
+	 * @return the kind of the token, or {@link #REM} if the word starts a comment.
+	 */
+	private int word() {
+		int start = this.position;
+		this.tokenStart = start;
+		read();
+		setBegin();
+		while (this.position < this.end && (isLetter(this.source[this.position]) || isDigit(this.source[this.position]))) {
+			read();
+		}
+		int length = this.position - start;
+		for (int i = 0; i < KEYWORDS.length; ++i) {
+			String keyword = KEYWORDS[i];
+			if (keyword.length() == length && isKeyword(keyword, start)) {
+				if (KEYWORD_KINDS[i] == REM) {
+					// The comment goes to the end of the line, which still produces a CR token
+					while (this.position < this.end && this.source[this.position] != '\n') {
+						read();
+					}
+					return REM;
+				}
+				setEnd();
+				this.tokenEnd = this.position;
+				return token(KEYWORD_KINDS[i], isImage(keyword, start) ? keyword : null);
+			}
+		}
+		setEnd();
+		this.tokenEnd = this.position;
+		return token(IDENTIFIER, null);
+	}
+
+	private boolean isKeyword(String keyword, int start) {
+		for (int i = 0; i < keyword.length(); ++i) {
+			// Clearing bit 0x20 maps lower case ASCII letters to upper case
+			if ((this.source[start + i] & ~0x20) != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isImage(String keyword, int start) {
+		for (int i = 0; i < keyword.length(); ++i) {
+			if (this.source[start + i] != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void skipDigits() {
+		while (this.position < this.end && isDigit(this.source[this.position])) {
+			read();
+		}
+	}
+
+	private void setBegin() {
+		this.beginLine = this.line;
+		this.beginColumn = this.column;
+	}
+
+	private void setEnd() {
+		this.endLine = this.line;
+		this.endColumn = this.column;
+	}
+
+	/** Create the error of the generated token manager for the last read character,
+	 * which cannot continue the token starting at {@link #tokenStart}.
+	 *
+	 * @param c the last read character.
+	 * @return the error.
+	 */
+	private TokenMgrError error(char c) {
+		boolean eofSeen = this.position >= this.end;
+		int errorLine = this.line;
+		int errorColumn = this.column;
+		int afterEnd = this.position;
+		if (eofSeen) {
+			// The position is the one after the last character
+			if (c == '\n' || c == '\r') {
+				++errorLine;
+				errorColumn = 0;
+			}
+			else {
+				++errorColumn;
+			}
+		}
+		else {
+			--afterEnd;
+		}
+		String after = this.position - this.tokenStart <= 1 ? "" //$NON-NLS-1$
+			: new String(this.source, this.tokenStart, afterEnd - this.tokenStart);
+		return new TokenMgrError(eofSeen, 0, errorLine, errorColumn, after, c, TokenMgrError.LEXICAL_ERROR);
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+}
@@ -0,0 +1,460 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+
+/**
+ * Cache of the {@link CompiledProgram}s of TinyBasic sources, by SHA-256
+ * digest of their text, so a source which is run again is not parsed again.
+ * <p>
+ * The most recently used programs are kept in a tier bounded by a number of
+ * programs. The least recently used one is then moved to a tier of soft
+ * references, which the garbage collector empties when the memory is
+ * needed; a program found there goes back to the first tier.
+ * <p>
+ * The threads looking up a source which is being compiled wait for this
+ * compilation instead of starting another one. The sources which are not
+ * valid are not cached: each lookup reports the error again.
+ */
+public class CompilationCache {
+
+	/** Default number of programs kept by strong references.
+	 */
+	public static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+	private static final int DIGEST_BUFFER_SIZE = 8192;
+
+	private final int maximumSize;
+
+	/** Programs by strong references, from the least to the most recently used.
+	 */
+	private final LinkedHashMap<Key,CompiledProgram> strong;
+
+	/** Programs evicted from the strong tier, until they are collected.
+	 */
+	private final Map<Key,SoftEntry> soft = new HashMap<Key,SoftEntry>();
+	private final ReferenceQueue<CompiledProgram> collected = new ReferenceQueue<CompiledProgram>();
+
+	/** Compilations in progress.
+	 */
+	private final ConcurrentMap<Key,CompletableFuture<CompiledProgram>> loading = new ConcurrentHashMap<Key,CompletableFuture<CompiledProgram>>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong softHitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong collapsedCount = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+	private final AtomicLong loadFailureCount = new AtomicLong();
+	private final AtomicLong totalLoadTime = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong collectedCount = new AtomicLong();
+
+	/** Create a cache with the default size.
+	 */
+	public CompilationCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/** Create a cache.
+	 *
+	 * @param maximumSize the number of programs kept by strong references.
+	 */
+	public CompilationCache(int maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException(Integer.toString(maximumSize));
+		}
+		this.maximumSize = maximumSize;
+		this.strong = new LinkedHashMap<Key,CompiledProgram>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,CompiledProgram> eldest) {
+				if (size() > CompilationCache.this.maximumSize) {
+					evict(eldest.getKey(), eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/** Replies the cache shared by the interpreters of the virtual machine.
+	 *
+	 * @return the shared cache.
+	 */
+	public static CompilationCache getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/** Replies the compiled program of the whole content of a reader.
+	 *
+	 * @param reader the source, read until its end but not closed.
+	 * @return the compiled program.
+	 * @throws IOException if the source cannot be read.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public CompiledProgram get(Reader reader) throws IOException, CompilerException {
+		BasicLexer lexer = BasicLexer.read(reader);
+		return get(lexer.getSource(), 0, lexer.getEnd());
+	}
+
+	/** Replies the compiled program of a source.
+	 *
+	 * @param source the source.
+	 * @return the compiled program.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public CompiledProgram get(CharSequence source) throws CompilerException {
+		char[] chars = source.toString().toCharArray();
+		return get(chars, 0, chars.length);
+	}
+
+	/** Replies the compiled program of a source, compiling it if it is not cached.
+	 *
+	 * @param source the buffer of the source, which is not modified during the call.
+	 * @param start the index of the first character of the source.
+	 * @param end the index after the last character of the source.
+	 * @return the compiled program.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public CompiledProgram get(char[] source, int start, int end) throws CompilerException {
+		Key key = new Key(digest(source, start, end));
+		CompiledProgram program = lookup(key, true);
+		if (program != null) {
+			return program;
+		}
+		this.missCount.incrementAndGet();
+		CompletableFuture<CompiledProgram> future = new CompletableFuture<CompiledProgram>();
+		CompletableFuture<CompiledProgram> running = this.loading.putIfAbsent(key, future);
+		if (running != null) {
+			this.collapsedCount.incrementAndGet();
+			return await(running);
+		}
+		try {
+			// The compilation may have ended between the lookup and the registration of the future
+			program = lookup(key, false);
+			if (program == null) {
+				program = compile(source, start, end);
+				synchronized (this) {
+					this.strong.put(key, program);
+				}
+			}
+			future.complete(program);
+			return program;
+		}
+		catch (CompilerException | RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			this.loading.remove(key, future);
+		}
+	}
+
+	/** Remove all the programs.
+	 */
+	public synchronized void clear() {
+		this.strong.clear();
+		this.soft.clear();
+		while (this.collected.poll() != null) {
+			//
+		}
+	}
+
+	/** Replies the number of programs kept by strong references.
+	 *
+	 * @return the number of programs.
+	 */
+	public synchronized int size() {
+		return this.strong.size();
+	}
+
+	/** Replies the number of programs kept by soft references, including the
+	 * ones collected since the last access to the cache.
+	 *
+	 * @return the number of programs.
+	 */
+	public synchronized int softSize() {
+		return this.soft.size();
+	}
+
+	/** Replies the number of lookups which found the program in the strong tier.
+	 *
+	 * @return the number of lookups.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	/** Replies the number of lookups which found the program in the soft tier.
+	 *
+	 * @return the number of lookups.
+	 */
+	public long getSoftHitCount() {
+		return this.softHitCount.get();
+	}
+
+	/** Replies the number of lookups which did not find the program, including
+	 * the ones which waited for the compilation of another thread.
+	 *
+	 * @return the number of lookups.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	/** Replies the number of lookups which waited for the compilation of another thread.
+	 *
+	 * @return the number of lookups.
+	 */
+	public long getCollapsedCount() {
+		return this.collapsedCount.get();
+	}
+
+	/** Replies the number of successful compilations.
+	 *
+	 * @return the number of compilations.
+	 */
+	public long getLoadCount() {
+		return this.loadCount.get();
+	}
+
+	/** Replies the number of compilations of sources which are not valid.
+	 *
+	 * @return the number of compilations.
+	 */
+	public long getLoadFailureCount() {
+		return this.loadFailureCount.get();
+	}
+
+	/** Replies the time spent by the compilations, successful or not.
+	 *
+	 * @return the time in nanoseconds.
+	 */
+	public long getTotalLoadTime() {
+		return this.totalLoadTime.get();
+	}
+
+	/** Replies the number of programs moved from the strong tier to the soft tier.
+	 *
+	 * @return the number of programs.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.get();
+	}
+
+	/** Replies the number of programs of the soft tier collected by the garbage collector.
+	 *
+	 * @return the number of programs.
+	 */
+	public long getCollectedCount() {
+		return this.collectedCount.get();
+	}
+
+	/** Replies the part of the lookups which found the program, in either tier.
+	 *
+	 * @return the hit rate between 0 and 1, or 1 if there was no lookup.
+	 */
+	public double getHitRate() {
+		long hits = getHitCount() + getSoftHitCount();
+		long lookups = hits + getMissCount();
+		return lookups == 0 ? 1. : (double) hits / lookups;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		long loads = getLoadCount() + getLoadFailureCount();
+		return String.format("hits=%d, softHits=%d, misses=%d, collapsed=%d, loads=%d, failures=%d, " //$NON-NLS-1$
+				+ "averageLoadTime=%.3f ms, evictions=%d, collected=%d, size=%d, softSize=%d", //$NON-NLS-1$
+				getHitCount(), getSoftHitCount(), getMissCount(), getCollapsedCount(), getLoadCount(),
+				getLoadFailureCount(), loads == 0 ? 0. : getTotalLoadTime() / 1e6 / loads, getEvictionCount(),
+				getCollectedCount(), size(), softSize());
+	}
+
+	/** Find a program in the strong tier, then in the soft tier.
+	 *
+	 * @param key the digest of the source.
+	 * @param count indicates if the hits are counted.
+	 * @return the program, or <code>null</code> if it is not cached.
+	 */
+	private synchronized CompiledProgram lookup(Key key, boolean count) {
+		purge();
+		CompiledProgram program = this.strong.get(key);
+		if (program != null) {
+			if (count) {
+				this.hitCount.incrementAndGet();
+			}
+			return program;
+		}
+		SoftEntry entry = this.soft.remove(key);
+		if (entry != null) {
+			program = entry.get();
+			if (program != null) {
+				if (count) {
+					this.softHitCount.incrementAndGet();
+				}
+				this.strong.put(key, program);
+				return program;
+			}
+			this.collectedCount.incrementAndGet();
+		}
+		return null;
+	}
+
+	/** Move a program of the strong tier to the soft tier. Called with the lock held.
+	 *
+	 * @param key the digest of the source.
+	 * @param program the program.
+	 */
+	private void evict(Key key, CompiledProgram program) {
+		this.soft.put(key, new SoftEntry(key, program, this.collected));
+		this.evictionCount.incrementAndGet();
+	}
+
+	/** Remove the collected programs from the soft tier. Called with the lock held.
+	 */
+	private void purge() {
+		SoftEntry entry;
+		while ((entry = (SoftEntry) this.collected.poll()) != null) {
+			// The key may have been cached again since then
+			if (this.soft.get(entry.key) == entry) {
+				this.soft.remove(entry.key);
+				this.collectedCount.incrementAndGet();
+			}
+		}
+	}
+
+	/** Compile a source which is not cached. Package-private so that a
+	 * compilation can be delayed while other threads look the source up.
+	 *
+	 * @param source the buffer of the source.
+	 * @param start the index of the first character of the source.
+	 * @param end the index after the last character of the source.
+	 * @return the compiled program.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	CompiledProgram compile(char[] source, int start, int end) throws CompilerException {
+		long begin = System.nanoTime();
+		boolean compiled = false;
+		try {
+			HandWrittenParser parser = new HandWrittenParser(new BasicLexer(source, start, end));
+			CompiledProgram program = new CompiledProgram(parser.executeCompiler(), parser.getSymbolTable());
+			compiled = true;
+			return program;
+		}
+		finally {
+			this.totalLoadTime.addAndGet(System.nanoTime() - begin);
+			(compiled ? this.loadCount : this.loadFailureCount).incrementAndGet();
+		}
+	}
+
+	private static CompiledProgram await(CompletableFuture<CompiledProgram> future) throws CompilerException {
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CompilerException) {
+				throw (CompilerException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/** Compute the digest of the characters of a source, as UTF-16 code units.
+	 *
+	 * @param source the buffer of the source.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @return the digest.
+	 */
+	private static byte[] digest(char[] source, int start, int end) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Every Java platform provides SHA-256
+			throw new IllegalStateException(e);
+		}
+		byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+		int n = 0;
+		for (int i = start; i < end; ++i) {
+			char c = source[i];
+			buffer[n++] = (byte) (c >> 8);
+			buffer[n++] = (byte) c;
+			if (n == buffer.length) {
+				digest.update(buffer, 0, n);
+				n = 0;
+			}
+		}
+		digest.update(buffer, 0, n);
+		return digest.digest();
+	}
+
+	/** Digest of a source.
+	 */
+	private static final class Key {
+		final byte[] digest;
+		final int hash;
+
+		Key(byte[] digest) {
+			this.digest = digest;
+			this.hash = Arrays.hashCode(digest);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.equals(this.digest, ((Key) obj).digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+	}
+
+	/** Soft reference to a program, which knows its key once it is collected.
+	 */
+	private static final class SoftEntry extends SoftReference<CompiledProgram> {
+		final Key key;
+
+		SoftEntry(Key key, CompiledProgram program, ReferenceQueue<CompiledProgram> queue) {
+			super(program, queue);
+			this.key = key;
+		}
+	}
+
+	/** Holder of the shared cache, created on first use.
+	 */
+	private static final class DefaultHolder {
+		static final CompilationCache INSTANCE = new CompilationCache();
+	}
+
+}
@@ -0,0 +1,74 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+
+/**
+ * Result of the compilation of a TinyBasic source, which can be run several
+ * times, and by several threads at the same time: the statements find their
+ * variables in the execution context, so they are shared by the runs, and
+ * each run gets its own symbol table from {@link #newSymbolTable()}.
+ */
+public final class CompiledProgram {
+
+	private final SortedMap<Integer,Statement> program;
+
+	/** Declared identifiers, and the lines where they first appear.
+	 */
+	private final String[] identifiers;
+	private final int[] lines;
+
+	/** Create a compiled program.
+	 *
+	 * @param program the statements, by line number, which are not modified afterwards.
+	 * @param symbolTable the symbol table filled by the compilation.
+	 */
+	CompiledProgram(SortedMap<Integer,Statement> program, SymbolTable symbolTable) {
+		this.program = Collections.unmodifiableSortedMap(new TreeMap<Integer,Statement>(program));
+		List<SymbolTableEntry> entries = new ArrayList<SymbolTableEntry>();
+		for (SymbolTableEntry entry : symbolTable) {
+			entries.add(entry);
+		}
+		this.identifiers = new String[entries.size()];
+		this.lines = new int[entries.size()];
+		for (int i = 0; i < this.identifiers.length; ++i) {
+			this.identifiers[i] = entries.get(i).id();
+			this.lines[i] = entries.get(i).line();
+		}
+	}
+
+	/**
+	 * @return the root of the parse tree (list of statements), which cannot be modified.
+	 */
+	public SortedMap<Integer,Statement> getProgram() {
+		return this.program;
+	}
+
+	/** Replies the number of identifiers declared by the program.
+	 *
+	 * @return the number of identifiers.
+	 */
+	public int getIdentifierCount() {
+		return this.identifiers.length;
+	}
+
+	/** Create a symbol table declaring the identifiers of the program, without values.
+	 *
+	 * @return a new symbol table.
+	 */
+	public SymbolTable newSymbolTable() {
+		SymbolTable symbolTable = new SymbolTable();
+		for (int i = 0; i < this.identifiers.length; ++i) {
+			symbolTable.declare(this.identifiers[i], this.lines[i]);
+		}
+		return symbolTable;
+	}
+
+}
@@ -0,0 +1,475 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilationErrorType;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.syntaxtree.abstractclasses.AbstractComparisonOperatorTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.abstractclasses.AbstractStatementTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.abstractclasses.AbstractValueTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.EndTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.GosubTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.GotoTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.IfThenElseTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.InputTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.LetTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.PrintTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.ReturnTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.operator.AdditionTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.operator.DivideTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.operator.MultiplyTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.operator.SubtractionTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.relop.EqualTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.relop.GreaterEqualTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.relop.GreaterThanTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.relop.LowerEqualTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.relop.LowerThanTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.relop.NotEqualTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.variables.IdentifierTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.variables.NumberTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.variables.StringTreeNode;
+import fr.utbm.info.da53.lw2.type.NumberUtil;
+import fr.utbm.info.da53.lw2.type.Value;
+
+/**
+ * Hand-written parser of TinyBasic, replacing {@link BasicParser} without
+ * its lookahead tables nor its {@link Token} objects: statements are parsed by
+ * recursive descent over {@link TokenCursor#scan()}, and expressions by an
+ * iterative precedence climbing on two stacks which are reused from one line
+ * to the next.
+ * <p>
+ * It accepts the language of <code>basic.jj</code>, with the fixes that the
+ * generated parser lacks: operators without a right-hand side, comparisons of
+ * <code>IF</code>, blank lines, and strings as operands. A line without
+ * number is stored under its line in the source. The identifiers are declared
+ * in the symbol table where they appear.
+ * <p>
+ * The source is parsed at once by {@link #executeCompiler()}, or line by line
+ * by {@link #nextLine()}.
+ */
+public class HandWrittenParser implements BasicParserConstants {
+
+	private final TokenCursor lexer;
+	private final SymbolTable symbolTable;
+	private final SortedMap<Integer,Statement> program = new TreeMap<Integer,Statement>();
+
+	/** Kind of the current token, or <code>-1</code> before the first one.
+	 */
+	private int token = -1;
+
+	/** Last parsed line.
+	 */
+	private int lineNumber;
+	private AbstractStatementTreeNode statement;
+
+	/** Stacks of the expression parser. An opening parenthesis on the
+	 * operator stack marks the start of a sub-expression.
+	 */
+	private AbstractValueTreeNode[] operands = new AbstractValueTreeNode[16];
+	private int[] operators = new int[16];
+	private int operandCount;
+	private int operatorCount;
+
+	/** Create a parser.
+	 *
+	 * @param lexer the lexer providing the tokens.
+	 */
+	public HandWrittenParser(TokenCursor lexer) {
+		this(lexer, new SymbolTable());
+	}
+
+	/** Create a parser declaring the identifiers in the given symbol table.
+	 *
+	 * @param lexer the lexer providing the tokens.
+	 * @param symbolTable the symbol table.
+	 */
+	public HandWrittenParser(TokenCursor lexer, SymbolTable symbolTable) {
+		this.lexer = lexer;
+		this.symbolTable = symbolTable;
+	}
+
+	/** Create a parser over the whole content of a reader.
+	 *
+	 * @param reader the source to parse, read until its end.
+	 * @return the parser.
+	 * @throws IOException if the source cannot be read.
+	 */
+	public static HandWrittenParser read(Reader reader) throws IOException {
+		return new HandWrittenParser(BasicLexer.read(reader));
+	}
+
+	/**
+	 * @return the symbol table used by the parser.
+	 */
+	public SymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+	/**
+	 * @return the root of the parse tree (list of statements).
+	 */
+	public SortedMap<Integer,Statement> getProgram() {
+		return this.program;
+	}
+
+	/** Parse the source.
+	 *
+	 * @return the statements, by line number.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public SortedMap<Integer,Statement> executeCompiler() throws CompilerException {
+		this.symbolTable.clear();
+		while (nextLine()) {
+			if (this.statement != null) {
+				this.program.put(Integer.valueOf(this.lineNumber), this.statement);
+			}
+		}
+		return this.program;
+	}
+
+	/** Parse the next line of the source. Its statement is replied by
+	 * {@link #getStatement()} and is not added to the program, so the parser
+	 * keeps nothing from one line to the next.
+	 *
+	 * @return <code>false</code> if there is no more line.
+	 * @throws CompilerException if the line is not valid.
+	 */
+	public boolean nextLine() throws CompilerException {
+		if (this.token < 0) {
+			this.operandCount = 0;
+			this.operatorCount = 0;
+			next();
+		}
+		if (this.token == EOF) {
+			return false;
+		}
+		lineOfCode();
+		if (this.token == CR) {
+			next();
+		}
+		else if (this.token != EOF) {
+			throw syntaxError();
+		}
+		return true;
+	}
+
+	/** Replies the line number of the last line parsed by {@link #nextLine()}.
+	 *
+	 * @return the TinyBasic line number, or the line in the source if it has none.
+	 */
+	public int getLineNumber() {
+		return this.lineNumber;
+	}
+
+	/** Replies the statement of the last line parsed by {@link #nextLine()}.
+	 *
+	 * @return the statement, or <code>null</code> if the line is blank.
+	 */
+	public Statement getStatement() {
+		return this.statement;
+	}
+
+	private void next() throws CompilerException {
+		try {
+			this.token = this.lexer.scan();
+		}
+		catch (TokenMgrError e) {
+			throw new CompilerException(CompilationErrorType.ILLEGAL_CHARACTER, this.lexer.getEndLine(), e.getMessage());
+		}
+	}
+
+	private int line() {
+		return this.lexer.getBeginLine();
+	}
+
+	private void expect(int kind) throws CompilerException {
+		if (this.token != kind) {
+			throw syntaxError();
+		}
+		next();
+	}
+
+	private CompilerException syntaxError() {
+		return new CompilerException(CompilationErrorType.SYNTAX_ERROR, line(),
+				"Unexpected " + (this.token == EOF ? "end of file" : tokenImage[this.token])); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/** Replies the text of the current token for the error messages.
+	 *
+	 * @return the image, empty at the end of a line.
+	 */
+	private String found() {
+		return this.token == EOF || this.token == CR ? "" : this.lexer.getImage(); //$NON-NLS-1$
+	}
+
+	private void lineOfCode() throws CompilerException {
+		int sourceLine = line();
+		int lineNumber = sourceLine;
+		if (this.token == NUMBER) {
+			long number = integerLiteral();
+			if (number < 0 || number > Integer.MAX_VALUE) {
+				throw new CompilerException(CompilationErrorType.INVALID_LINE_NUMBER, sourceLine, this.lexer.getImage());
+			}
+			lineNumber = (int) number;
+			next();
+		}
+		this.lineNumber = lineNumber;
+		this.statement = null;
+		if (this.token != CR && this.token != EOF) {
+			this.statement = statement();
+		}
+	}
+
+	private AbstractStatementTreeNode statement() throws CompilerException {
+		switch (this.token) {
+		case PRINT:
+			next();
+			return new PrintTreeNode(expression());
+		case IF:
+			next();
+			AbstractValueTreeNode left = expression();
+			AbstractComparisonOperatorTreeNode condition = relop();
+			condition.setOperands(left, expression());
+			expect(THEN);
+			IfThenElseTreeNode ifNode = new IfThenElseTreeNode(condition, statement());
+			if (this.token == ELSE) {
+				next();
+				ifNode.setElseStatement(statement());
+			}
+			return ifNode;
+		case GOTO:
+			next();
+			return new GotoTreeNode(expression());
+		case GOSUB:
+			next();
+			return new GosubTreeNode(expression());
+		case INPUT:
+			next();
+			variable();
+			return new InputTreeNode();
+		case LET:
+			next();
+			String variable = variable();
+			expect(EQ);
+			return new LetTreeNode(variable, expression());
+		case RETURN:
+			next();
+			return new ReturnTreeNode();
+		case END:
+			next();
+			return new EndTreeNode();
+		default:
+			throw syntaxError();
+		}
+	}
+
+	private String variable() throws CompilerException {
+		if (this.token != IDENTIFIER) {
+			throw syntaxError();
+		}
+		String identifier = this.lexer.getImage();
+		this.symbolTable.declare(identifier, line());
+		next();
+		return identifier;
+	}
+
+	private AbstractComparisonOperatorTreeNode relop() throws CompilerException {
+		AbstractComparisonOperatorTreeNode operator;
+		switch (this.token) {
+		case EQ:
+			operator = new EqualTreeNode();
+			break;
+		case NE:
+			operator = new NotEqualTreeNode();
+			break;
+		case LT:
+			operator = new LowerThanTreeNode();
+			break;
+		case LE:
+			operator = new LowerEqualTreeNode();
+			break;
+		case GT:
+			operator = new GreaterThanTreeNode();
+			break;
+		case GE:
+			operator = new GreaterEqualTreeNode();
+			break;
+		default:
+			throw new CompilerException(CompilationErrorType.EXPECTING_COMPARISON_OPERATOR, line(), found());
+		}
+		next();
+		return operator;
+	}
+
+	/** Parse an expression. Each operator is reduced as soon as the next one
+	 * does not bind tighter, so the operators of a level associate to the left.
+	 *
+	 * @return the expression.
+	 * @throws CompilerException if the expression is not valid.
+	 */
+	private AbstractValueTreeNode expression() throws CompilerException {
+		int operandBase = this.operandCount;
+		int operatorBase = this.operatorCount;
+		int depth = 0;
+		while (true) {
+			// An operand, possibly after opening parentheses
+			while (this.token == OPAREN) {
+				pushOperator(OPAREN);
+				++depth;
+				next();
+			}
+			pushOperand(operand(this.operandCount > operandBase));
+			next();
+
+			// Closing parentheses, then a binary operator or the end of the expression
+			while (this.token == CPAREN && depth > 0) {
+				while (this.operators[this.operatorCount - 1] != OPAREN) {
+					reduce();
+				}
+				--this.operatorCount;
+				--depth;
+				next();
+			}
+			int precedence = precedence(this.token);
+			if (precedence == 0) {
+				break;
+			}
+			while (this.operatorCount > operatorBase && precedence(this.operators[this.operatorCount - 1]) >= precedence) {
+				reduce();
+			}
+			pushOperator(this.token);
+			next();
+		}
+		if (depth > 0) {
+			throw new CompilerException(CompilationErrorType.SYNTAX_ERROR, line(), "Expecting ')'"); //$NON-NLS-1$
+		}
+		while (this.operatorCount > operatorBase) {
+			reduce();
+		}
+		AbstractValueTreeNode expression = this.operands[--this.operandCount];
+		// Do not retain the nodes once the expression is built
+		this.operands[this.operandCount] = null;
+		return expression;
+	}
+
+	private AbstractValueTreeNode operand(boolean afterOperator) throws CompilerException {
+		switch (this.token) {
+		case NUMBER:
+			return new NumberTreeNode(new Value(number()));
+		case IDENTIFIER:
+			String identifier = this.lexer.getImage();
+			this.symbolTable.declare(identifier, line());
+			return new IdentifierTreeNode(identifier);
+		case STRING:
+			char[] source = this.lexer.getSource();
+			int start = this.lexer.getTokenStart() + 1;
+			return new StringTreeNode(new String(source, start, this.lexer.getTokenEnd() - 1 - start));
+		default:
+			throw new CompilerException(
+					afterOperator ? CompilationErrorType.EXPECTING_RIGHT_OPERAND : CompilationErrorType.EXPECTING_EXPRESSION,
+					line(), found());
+		}
+	}
+
+	/** Replies the value of the current integer literal, read from the source
+	 * without building its image.
+	 *
+	 * @return the value, or <code>-1</code> if the literal is not an integer
+	 * or is too long.
+	 */
+	private long integerLiteral() {
+		char[] source = this.lexer.getSource();
+		int start = this.lexer.getTokenStart();
+		int end = this.lexer.getTokenEnd();
+		if (end - start > 18) {
+			return -1;
+		}
+		long value = 0;
+		for (int i = start; i < end; ++i) {
+			char c = source[i];
+			if (c == '.') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/** Replies the value of the current number literal, of the type chosen by
+	 * {@link NumberUtil#parse(String, int)}.
+	 *
+	 * @return the number.
+	 * @throws CompilerException if the literal is not a valid number.
+	 */
+	private Number number() throws CompilerException {
+		long value = integerLiteral();
+		// NumberUtil reads integers through a float, which is exact below 2^24
+		if (value >= 0 && value < (1 << 24)) {
+			if (value <= Byte.MAX_VALUE) {
+				return Byte.valueOf((byte) value);
+			}
+			if (value <= Short.MAX_VALUE) {
+				return Short.valueOf((short) value);
+			}
+			return Integer.valueOf((int) value);
+		}
+		return NumberUtil.parse(this.lexer.getImage(), line());
+	}
+
+	private static int precedence(int kind) {
+		switch (kind) {
+		case PLUS:
+		case MINUS:
+			return 1;
+		case MULTIPLY:
+		case DIVIDE:
+			return 2;
+		default:
+			return 0;
+		}
+	}
+
+	private void reduce() {
+		int operator = this.operators[--this.operatorCount];
+		AbstractValueTreeNode right = this.operands[--this.operandCount];
+		AbstractValueTreeNode left = this.operands[this.operandCount - 1];
+		this.operands[this.operandCount] = null;
+		AbstractValueTreeNode node;
+		switch (operator) {
+		case PLUS:
+			node = new AdditionTreeNode(left, right);
+			break;
+		case MINUS:
+			node = new SubtractionTreeNode(left, right);
+			break;
+		case MULTIPLY:
+			node = new MultiplyTreeNode(left, right);
+			break;
+		default:
+			node = new DivideTreeNode(left, right);
+			break;
+		}
+		this.operands[this.operandCount - 1] = node;
+	}
+
+	private void pushOperand(AbstractValueTreeNode operand) {
+		if (this.operandCount == this.operands.length) {
+			this.operands = Arrays.copyOf(this.operands, this.operandCount * 2);
+		}
+		this.operands[this.operandCount++] = operand;
+	}
+
+	private void pushOperator(int operator) {
+		if (this.operatorCount == this.operators.length) {
+			this.operators = Arrays.copyOf(this.operators, this.operatorCount * 2);
+		}
+		this.operators[this.operatorCount++] = operator;
+	}
+
+}
@@ -0,0 +1,54 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Token manager of {@link BasicParser} backed by the hand-written
+ * {@link BasicLexer} instead of the generated automaton. The parser is
+ * unchanged: it is only given this token manager.
+ * <pre>
+ * BasicParser parser = HandWrittenTokenManager.newParser(reader);
+ * </pre>
+ */
+public class HandWrittenTokenManager extends BasicParserTokenManager {
+
+	private final BasicLexer lexer;
+
+	/** Create a token manager.
+	 *
+	 * @param lexer the lexer providing the tokens.
+	 */
+	public HandWrittenTokenManager(BasicLexer lexer) {
+		// The char stream of the generated token manager is never used
+		super(null);
+		this.lexer = lexer;
+	}
+
+	/** Create a parser reading its tokens from a hand-written lexer.
+	 *
+	 * @param reader the source to parse, read until its end.
+	 * @return the parser.
+	 * @throws IOException if the source cannot be read.
+	 */
+	public static BasicParser newParser(Reader reader) throws IOException {
+		return new BasicParser(new HandWrittenTokenManager(BasicLexer.read(reader)));
+	}
+
+	/** Replies the lexer providing the tokens.
+	 *
+	 * @return the lexer.
+	 */
+	public BasicLexer getLexer() {
+		return this.lexer;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Token getNextToken() {
+		return this.lexer.next();
+	}
+
+}
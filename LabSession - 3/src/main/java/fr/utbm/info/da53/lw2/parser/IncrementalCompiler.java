@@ -0,0 +1,319 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilationErrorType;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressRecord;
+
+/**
+ * Compiler of a TinyBasic program edited line by line, as in an interactive
+ * session. Each edit parses the given line only, and updates in place the
+ * program, the symbol table and the three-address code.
+ * <p>
+ * The identifiers are counted by line: an identifier is declared when a
+ * first line uses it, and removed from the symbol table when the last line
+ * using it is removed. The records of each line are kept with the line, and
+ * replaced when the line is edited, so an edit only touches its own line.
+ * The records of the following lines are not generated again: they are put
+ * back in the order of the lines, and their line mappings updated, when the
+ * code is read. An edit which cannot be parsed, nor generated, changes
+ * nothing.
+ */
+public class IncrementalCompiler implements BasicParserConstants {
+
+	private final SymbolTable symbolTable = new SymbolTable();
+	private final SortedMap<Integer,Statement> program = new TreeMap<Integer,Statement>();
+	private final Map<Integer,Line> lines = new HashMap<Integer,Line>();
+
+	/** Number of lines using each identifier, by formatted identifier.
+	 */
+	private final Map<String,int[]> references = new HashMap<String,int[]>();
+
+	private final ThreeAddressCode code;
+
+	/** First line number whose records are not in place in the code, or
+	 * {@link Integer#MAX_VALUE} if the code is up to date.
+	 */
+	private int staleLine = Integer.MAX_VALUE;
+
+	/** Create a compiler generating the three-address code of the lines.
+	 */
+	public IncrementalCompiler() {
+		this(true);
+	}
+
+	/** Create a compiler.
+	 *
+	 * @param generateCode indicates if the three-address code of the lines is generated.
+	 */
+	public IncrementalCompiler(boolean generateCode) {
+		this.code = generateCode ? new ThreeAddressCode(this.symbolTable) : null;
+	}
+
+	/**
+	 * @return the symbol table, with the identifiers of the lines and the temporary variables of their code.
+	 */
+	public SymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+	/**
+	 * @return the root of the parse tree (list of statements), which cannot be modified.
+	 */
+	public SortedMap<Integer,Statement> getProgram() {
+		return Collections.unmodifiableSortedMap(this.program);
+	}
+
+	/** Replies the code of the program, whose records are put in the order of
+	 * the lines from the first line edited since the last call.
+	 *
+	 * @return the code of the program, or <code>null</code> if it is not generated.
+	 */
+	public ThreeAddressCode getThreeAddressCode() {
+		if (this.code != null && this.staleLine != Integer.MAX_VALUE) {
+			layOut();
+		}
+		return this.code;
+	}
+
+	/** Replies the number of lines using an identifier.
+	 *
+	 * @param identifier the identifier.
+	 * @return the number of lines.
+	 */
+	public int getReferenceCount(String identifier) {
+		int[] count = this.references.get(SymbolTable.formatIdentifier(identifier));
+		return count == null ? 0 : count[0];
+	}
+
+	/** Apply a line typed by the user: a line number followed by a statement
+	 * inserts or replaces the line, and a line number alone deletes it.
+	 *
+	 * @param line the text of the line.
+	 * @throws CompilerException if the line has no number, or is not valid.
+	 */
+	public void edit(CharSequence line) throws CompilerException {
+		char[] source = line.toString().toCharArray();
+		HandWrittenParser parser = new HandWrittenParser(new BasicLexer(source, 0, source.length), new SymbolTable());
+		Statement statement = parse(parser);
+		if (new BasicLexer(source, 0, source.length).scan() != NUMBER) {
+			throw new CompilerException(CompilationErrorType.INVALID_LINE_NUMBER, 1, line.toString());
+		}
+		apply(parser.getLineNumber(), statement, parser.getSymbolTable());
+	}
+
+	/** Insert or replace a line.
+	 *
+	 * @param lineNumber the line number.
+	 * @param statement the text of the statement, which may start with the same line number.
+	 *     A blank text or a comment deletes the line.
+	 * @throws CompilerException if the statement is not valid.
+	 */
+	public void put(int lineNumber, CharSequence statement) throws CompilerException {
+		if (lineNumber < 0) {
+			throw new CompilerException(CompilationErrorType.INVALID_LINE_NUMBER, lineNumber, Integer.toString(lineNumber));
+		}
+		char[] source = statement.toString().toCharArray();
+		// The errors are reported at the line number, which is also the one of an unnumbered statement
+		HandWrittenParser parser = new HandWrittenParser(new BasicLexer(source, 0, source.length, lineNumber), new SymbolTable());
+		Statement parsed = parse(parser);
+		if (parsed != null && parser.getLineNumber() != lineNumber) {
+			throw new CompilerException(CompilationErrorType.INVALID_LINE_NUMBER, lineNumber, statement.toString());
+		}
+		apply(lineNumber, parsed, parser.getSymbolTable());
+	}
+
+	/** Delete a line.
+	 *
+	 * @param lineNumber the line number.
+	 * @return <code>true</code> if the line was in the program.
+	 */
+	public boolean remove(int lineNumber) {
+		Line old = this.lines.remove(Integer.valueOf(lineNumber));
+		if (old == null) {
+			return false;
+		}
+		this.program.remove(Integer.valueOf(lineNumber));
+		if (this.code != null) {
+			this.code.unmapLine(lineNumber);
+			removeTemporaries(old.firstTemp, old.firstTemp + old.tempCount);
+			invalidate(lineNumber);
+		}
+		release(old.identifiers);
+		return true;
+	}
+
+	/** Parse a single line.
+	 *
+	 * @param parser the parser over the line, with an empty symbol table.
+	 * @return the statement, or <code>null</code> if the line is blank.
+	 * @throws CompilerException if the line is not valid, or is followed by another line.
+	 */
+	private static Statement parse(HandWrittenParser parser) throws CompilerException {
+		if (!parser.nextLine()) {
+			return null;
+		}
+		Statement statement = parser.getStatement();
+		int lineNumber = parser.getLineNumber();
+		if (parser.nextLine()) {
+			throw new CompilerException(CompilationErrorType.SYNTAX_ERROR, lineNumber,
+					"Unexpected " + tokenImage[CR]); //$NON-NLS-1$
+		}
+		return statement;
+	}
+
+	private void apply(int lineNumber, Statement statement, SymbolTable identifiers) throws CompilerException {
+		if (statement == null) {
+			remove(lineNumber);
+			return;
+		}
+		Integer key = Integer.valueOf(lineNumber);
+		Line old = this.lines.get(key);
+		List<String> ids = new ArrayList<String>();
+		for (SymbolTableEntry entry : identifiers) {
+			ids.add(entry.id());
+		}
+		Line line = new Line(ids.toArray(new String[ids.size()]));
+		// The new identifiers are counted before the old ones are released, so the shared ones stay declared
+		reference(line.identifiers, lineNumber);
+		if (this.code != null) {
+			try {
+				generate(lineNumber, statement, line, old);
+			}
+			catch (RuntimeException e) {
+				release(line.identifiers);
+				throw new CompilerException(CompilationErrorType.INTERNAL_ERROR, lineNumber, e);
+			}
+		}
+		if (old != null) {
+			release(old.identifiers);
+		}
+		this.lines.put(key, line);
+		this.program.put(key, statement);
+	}
+
+	/** Generate the code of a line, which replaces the code of the old line.
+	 *
+	 * @param lineNumber the line number.
+	 * @param statement the statement of the line.
+	 * @param line the description of the line, filled with its code.
+	 * @param old the description of the replaced line, or <code>null</code>.
+	 */
+	private void generate(int lineNumber, Statement statement, Line line, Line old) {
+		// The records are generated at the end of the code, then moved to the line
+		List<ThreeAddressRecord> records = this.code.getCode();
+		int size = records.size();
+		int firstTemp = this.code.getTempVarCounter();
+		try {
+			statement.generate(this.code);
+		}
+		catch (RuntimeException e) {
+			records.subList(size, records.size()).clear();
+			removeTemporaries(firstTemp, this.code.getTempVarCounter());
+			throw e;
+		}
+		List<ThreeAddressRecord> generated = records.subList(size, records.size());
+		line.records = new ArrayList<ThreeAddressRecord>(generated);
+		generated.clear();
+		line.firstTemp = firstTemp;
+		line.tempCount = this.code.getTempVarCounter() - firstTemp;
+		if (old != null) {
+			removeTemporaries(old.firstTemp, old.firstTemp + old.tempCount);
+		}
+		invalidate(lineNumber);
+	}
+
+	/** Mark the records of a line, and of the following lines, as not in place.
+	 *
+	 * @param lineNumber the line number.
+	 */
+	private void invalidate(int lineNumber) {
+		if (lineNumber < this.staleLine) {
+			this.staleLine = lineNumber;
+		}
+	}
+
+	/** Put the records of the lines in the order of the lines, from the first
+	 * line which is not in place, and map these lines to their first record.
+	 */
+	private void layOut() {
+		List<ThreeAddressRecord> records = this.code.getCode();
+		Integer stale = Integer.valueOf(this.staleLine);
+		// The lines before the stale one have not moved since the last call
+		SortedMap<Integer,Statement> before = this.program.headMap(stale);
+		int start = 0;
+		if (!before.isEmpty()) {
+			Integer previous = before.lastKey();
+			start = this.code.getLineMapping(previous.intValue()).intValue() + this.lines.get(previous).records.size();
+		}
+		records.subList(start, records.size()).clear();
+		for (Integer lineNumber : this.program.tailMap(stale).keySet()) {
+			this.code.mapLine(lineNumber.intValue(), records.size());
+			records.addAll(this.lines.get(lineNumber).records);
+		}
+		this.staleLine = Integer.MAX_VALUE;
+	}
+
+	private void reference(String[] identifiers, int lineNumber) {
+		for (String id : identifiers) {
+			int[] count = this.references.get(id);
+			if (count == null) {
+				this.references.put(id, new int[] {1});
+				this.symbolTable.declare(id, lineNumber);
+			}
+			else {
+				++count[0];
+			}
+		}
+	}
+
+	private void release(String[] identifiers) {
+		for (String id : identifiers) {
+			int[] count = this.references.get(id);
+			if (--count[0] == 0) {
+				this.references.remove(id);
+				this.symbolTable.remove(id);
+			}
+		}
+	}
+
+	/** Remove temporary variables from the symbol table, unless a line uses
+	 * an identifier with the same name.
+	 *
+	 * @param first the index of the first temporary variable.
+	 * @param end the index after the last temporary variable.
+	 */
+	private void removeTemporaries(int first, int end) {
+		for (int i = first; i < end; ++i) {
+			String id = SymbolTable.formatIdentifier("t" + i); //$NON-NLS-1$
+			if (!this.references.containsKey(id)) {
+				this.symbolTable.remove(id);
+			}
+		}
+	}
+
+	/** Identifiers and code of a line.
+	 */
+	private static final class Line {
+		final String[] identifiers;
+		List<ThreeAddressRecord> records;
+		int firstTemp;
+		int tempCount;
+
+		Line(String[] identifiers) {
+			this.identifiers = identifiers;
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+
+/**
+ * Compiler of TinyBasic which only indexes the lines of the source: the
+ * program maps the line numbers to {@link LazyStatement}s, each one parsed
+ * the first time it is run. The lines which are never reached are never
+ * parsed, and their identifiers are not declared.
+ * <p>
+ * The program has the keys of the one of a {@link HandWrittenParser}: a line
+ * without number is stored under its line in the source, and a line number
+ * used twice keeps its last line. The syntax errors are only detected when a
+ * line is parsed, and are thrown as interpreter errors by
+ * {@link LazyStatement#run(fr.utbm.info.da53.lw2.context.ExecutionContext)}.
+ */
+public class LazyCompiler {
+
+	private final LineIndex lineIndex;
+	private final SymbolTable symbolTable;
+	private SortedMap<Integer,Statement> program = new TreeMap<Integer,Statement>();
+	private int parsedCount;
+
+	/** Create a compiler.
+	 *
+	 * @param lineIndex the index of the source.
+	 */
+	public LazyCompiler(LineIndex lineIndex) {
+		this(lineIndex, new SymbolTable());
+	}
+
+	/** Create a compiler declaring the identifiers in the given symbol table.
+	 *
+	 * @param lineIndex the index of the source.
+	 * @param symbolTable the symbol table.
+	 */
+	public LazyCompiler(LineIndex lineIndex, SymbolTable symbolTable) {
+		this.lineIndex = lineIndex;
+		this.symbolTable = symbolTable;
+	}
+
+	/** Create a compiler over the whole content of a reader.
+	 *
+	 * @param reader the source to parse, read until its end.
+	 * @return the compiler.
+	 * @throws IOException if the source cannot be read.
+	 */
+	public static LazyCompiler read(Reader reader) throws IOException {
+		BasicLexer lexer = BasicLexer.read(reader);
+		return new LazyCompiler(LineIndex.build(lexer.getSource(), 0, lexer.getEnd()));
+	}
+
+	/**
+	 * @return the index of the source.
+	 */
+	public LineIndex getLineIndex() {
+		return this.lineIndex;
+	}
+
+	/**
+	 * @return the symbol table, filled as the lines are parsed.
+	 */
+	public SymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+	/**
+	 * @return the root of the parse tree (list of statements).
+	 */
+	public SortedMap<Integer,Statement> getProgram() {
+		return this.program;
+	}
+
+	/** Replies the number of lines parsed so far.
+	 *
+	 * @return the number of parsed lines.
+	 */
+	public int getParsedCount() {
+		return this.parsedCount;
+	}
+
+	/** Index the lines of the source, without parsing them.
+	 *
+	 * @return the statements, by line number.
+	 */
+	public SortedMap<Integer,Statement> executeCompiler() {
+		SortedMap<Integer,Statement> statements = new TreeMap<Integer,Statement>();
+		for (int line = 0; line < this.lineIndex.getLineCount(); ++line) {
+			if (!this.lineIndex.isBlank(line)) {
+				int label = this.lineIndex.getLabel(line);
+				int lineNumber = label < 0 ? line + 1 : label;
+				statements.put(Integer.valueOf(lineNumber), new LazyStatement(this, line, lineNumber));
+			}
+		}
+		this.symbolTable.clear();
+		this.parsedCount = 0;
+		this.program = statements;
+		return statements;
+	}
+
+	/** Parse a line.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return the statement of the line.
+	 * @throws CompilerException if the line is not valid.
+	 */
+	Statement parse(int line) throws CompilerException {
+		HandWrittenParser parser = new HandWrittenParser(this.lineIndex.openLexer(line, line + 1), this.symbolTable);
+		parser.nextLine();
+		++this.parsedCount;
+		return parser.getStatement();
+	}
+
+}
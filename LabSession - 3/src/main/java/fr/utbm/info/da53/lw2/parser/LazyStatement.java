@@ -0,0 +1,94 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import fr.utbm.info.da53.lw2.context.ExecutionContext;
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.error.InterpreterErrorType;
+import fr.utbm.info.da53.lw2.error.InterpreterException;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Statement of a line which is parsed the first time it is run or
+ * generated, by a {@link HandWrittenParser} over this line only. The parsed
+ * statement replaces the source from then on.
+ */
+public class LazyStatement implements Statement {
+
+	private final LazyCompiler compiler;
+	private final int line;
+	private final int lineNumber;
+	private volatile Statement statement;
+
+	/** Create a statement.
+	 *
+	 * @param compiler the compiler owning the source and the symbol table.
+	 * @param line the index of the line in the source, starting at 0.
+	 * @param lineNumber the TinyBasic line number.
+	 */
+	LazyStatement(LazyCompiler compiler, int line, int lineNumber) {
+		this.compiler = compiler;
+		this.line = line;
+		this.lineNumber = lineNumber;
+	}
+
+	/** Replies if the line is already parsed.
+	 *
+	 * @return <code>true</code> if the statement is parsed.
+	 */
+	public boolean isParsed() {
+		return this.statement != null;
+	}
+
+	/** Replies the parsed statement, parsing the line if it is not parsed yet.
+	 *
+	 * @return the statement.
+	 * @throws CompilerException if the line is not valid.
+	 */
+	public Statement getStatement() throws CompilerException {
+		Statement parsed = this.statement;
+		if (parsed == null) {
+			parsed = this.compiler.parse(this.line);
+			this.statement = parsed;
+		}
+		return parsed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ExecutionContext run(ExecutionContext context) throws InterpreterException {
+		Statement parsed;
+		try {
+			parsed = getStatement();
+		}
+		catch (CompilerException e) {
+			throw new InterpreterException(InterpreterErrorType.INVALID_STATEMENT, this.lineNumber, e.getMessage());
+		}
+		return parsed.run(context);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void generate(ThreeAddressCode code) {
+		try {
+			getStatement().generate(code);
+		}
+		catch (CompilerException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** Replies the parsed statement, or the source of the line if it is not parsed yet.
+	 *
+	 * @return the text of the statement.
+	 */
+	@Override
+	public String toString() {
+		Statement parsed = this.statement;
+		return parsed == null ? this.compiler.getLineIndex().getText(this.line).trim() : parsed.toString();
+	}
+
+}
@@ -0,0 +1,238 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.util.Arrays;
+
+/**
+ * Index of the lines of an in-memory TinyBasic source: the offset where each
+ * line starts, and the line number written at its start.
+ * <p>
+ * The newline search is done with SIMD instructions through the Vector API
+ * when the {@code jdk.incubator.vector} module is available, and with a plain
+ * loop otherwise. The index allows to start a {@link SimpleCharStream}, a
+ * parser or a {@link BasicLexer} directly at a given line.
+ */
+public class LineIndex {
+
+	private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(); //$NON-NLS-1$
+
+	private final char[] source;
+	private final int end;
+	private final int[] lineStarts;
+
+	/** Line numbers and indices of the numbered lines, packed as (number &lt;&lt; 32 | index) and sorted.
+	 */
+	private final long[] labelKeys;
+
+	private LineIndex(char[] source, int end, int[] lineStarts) {
+		this.source = source;
+		this.end = end;
+		this.lineStarts = lineStarts;
+		long[] keys = new long[lineStarts.length];
+		int count = 0;
+		for (int line = 0; line < lineStarts.length; ++line) {
+			int label = parseLabel(line);
+			if (label >= 0) {
+				keys[count++] = ((long) label << 32) | line;
+			}
+		}
+		this.labelKeys = Arrays.copyOf(keys, count);
+		Arrays.sort(this.labelKeys);
+	}
+
+	/** Build the index of a range of characters.
+	 *
+	 * @param source the characters to index, which must not be modified while the index is used.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @return the index.
+	 */
+	public static LineIndex build(char[] source, int start, int end) {
+		int count = VECTORIZED ? VectorLineIndexer.countNewlines(source, start, end) : countNewlines(source, start, end);
+		int[] lineStarts = new int[count + 1];
+		lineStarts[0] = start;
+		if (VECTORIZED) {
+			VectorLineIndexer.indexNewlines(source, start, end, lineStarts, 1);
+		}
+		else {
+			int n = 1;
+			for (int i = start; i < end; ++i) {
+				if (source[i] == '\n') {
+					lineStarts[n++] = i + 1;
+				}
+			}
+		}
+		return new LineIndex(source, end, lineStarts);
+	}
+
+	private static int countNewlines(char[] source, int start, int end) {
+		int count = 0;
+		for (int i = start; i < end; ++i) {
+			if (source[i] == '\n') {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/** Replies if the index is built with the Vector API.
+	 *
+	 * @return <code>true</code> if the Vector API is available.
+	 */
+	public static boolean isVectorized() {
+		return VECTORIZED;
+	}
+
+	/** Replies the number of lines.
+	 *
+	 * @return the number of lines.
+	 */
+	public int getLineCount() {
+		return this.lineStarts.length;
+	}
+
+	/** Replies the offset of the first character of a line.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return the index of the line in the source array.
+	 */
+	public int getLineStart(int line) {
+		return this.lineStarts[line];
+	}
+
+	/** Replies the offset after the last character of a line, including its newline.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return the index after the line in the source array.
+	 */
+	public int getLineEnd(int line) {
+		return line + 1 < this.lineStarts.length ? this.lineStarts[line + 1] : this.end;
+	}
+
+	/** Replies the TinyBasic line number written at the start of a line.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return the line number, or <code>-1</code> if the line has none.
+	 */
+	public int getLabel(int line) {
+		return parseLabel(line);
+	}
+
+	/** Replies if a line has no statement: it is empty, or contains only
+	 * spaces or a <code>REM</code> comment after its line number.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return <code>true</code> if there is nothing to parse after the line number.
+	 */
+	public boolean isBlank(int line) {
+		int i = this.lineStarts[line];
+		int lineEnd = getLineEnd(line);
+		while (i < lineEnd && isBlank(this.source[i])) {
+			++i;
+		}
+		while (i < lineEnd && this.source[i] >= '0' && this.source[i] <= '9') {
+			++i;
+		}
+		while (i < lineEnd && isBlank(this.source[i])) {
+			++i;
+		}
+		return i == lineEnd || this.source[i] == '\n' || isComment(i, lineEnd);
+	}
+
+	private boolean isComment(int i, int lineEnd) {
+		if (i + 3 > lineEnd) {
+			return false;
+		}
+		// Clearing bit 0x20 maps lower case ASCII letters to upper case
+		if ((this.source[i] & ~0x20) != 'R' || (this.source[i + 1] & ~0x20) != 'E' || (this.source[i + 2] & ~0x20) != 'M') {
+			return false;
+		}
+		if (i + 3 == lineEnd) {
+			return true;
+		}
+		char c = this.source[i + 3];
+		return !((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'));
+	}
+
+	private static boolean isBlank(char c) {
+		return c == ' ' || c == '\t' || c == '\r';
+	}
+
+	/** Replies the text of a line, without its newline.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return the text.
+	 */
+	public String getText(int line) {
+		int start = this.lineStarts[line];
+		int lineEnd = getLineEnd(line);
+		while (lineEnd > start && (this.source[lineEnd - 1] == '\n' || this.source[lineEnd - 1] == '\r')) {
+			--lineEnd;
+		}
+		return new String(this.source, start, lineEnd - start);
+	}
+
+	/** Replies the line starting with the given TinyBasic line number.
+	 *
+	 * @param label the line number.
+	 * @return the index of the first line with this number, or <code>-1</code>.
+	 */
+	public int findLine(int label) {
+		int index = Arrays.binarySearch(this.labelKeys, (long) label << 32);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		if (index < this.labelKeys.length && (int) (this.labelKeys[index] >>> 32) == label) {
+			return (int) this.labelKeys[index];
+		}
+		return -1;
+	}
+
+	/** Create a char stream starting at a line and going to the end of the source,
+	 * which reads the source in place.
+	 * The positions of the stream are the positions in the whole source.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return the char stream.
+	 */
+	public SourceCharStream openLine(int line) {
+		return SourceCharStream.wrap(this.source, this.lineStarts[line], this.end, line + 1);
+	}
+
+	/** Create a parser starting at a line and going to the end of the source.
+	 *
+	 * @param line the index of the line, starting at 0.
+	 * @return the parser.
+	 */
+	public BasicParser openParser(int line) {
+		return new BasicParser(new BasicParserTokenManager(openLine(line)));
+	}
+
+	/** Create a lexer over a range of lines.
+	 * The positions of its tokens are the positions in the whole source.
+	 *
+	 * @param firstLine the index of the first line, starting at 0.
+	 * @param endLine the index after the last line.
+	 * @return the lexer.
+	 */
+	public BasicLexer openLexer(int firstLine, int endLine) {
+		return new BasicLexer(this.source, this.lineStarts[firstLine], getLineEnd(endLine - 1), firstLine + 1);
+	}
+
+	private int parseLabel(int line) {
+		int i = this.lineStarts[line];
+		int lineEnd = getLineEnd(line);
+		while (i < lineEnd && (this.source[i] == ' ' || this.source[i] == '\t' || this.source[i] == '\f')) {
+			++i;
+		}
+		long value = -1;
+		while (i < lineEnd && this.source[i] >= '0' && this.source[i] <= '9') {
+			value = (value < 0 ? 0 : value * 10) + (this.source[i] - '0');
+			if (value > Integer.MAX_VALUE) {
+				return -1;
+			}
+			++i;
+		}
+		return (int) value;
+	}
+
+}
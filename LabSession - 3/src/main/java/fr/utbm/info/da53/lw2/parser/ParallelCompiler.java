@@ -0,0 +1,176 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.symbol.ConcurrentSymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+
+/**
+ * Compiler of TinyBasic parsing chunks of lines in parallel on a fork/join
+ * pool. Each chunk is parsed by its own {@link HandWrittenParser}, which is
+ * never shared between threads, and the statements of the chunks are merged
+ * in the order of the source. The parsers declare the identifiers in a single
+ * {@link ConcurrentSymbolTable}, which keeps the first line of each one.
+ * <p>
+ * The result is the one of a single {@link HandWrittenParser} over the whole
+ * source: a line number used twice keeps its last statement, an identifier
+ * keeps the line where it first appears, and when several chunks are invalid
+ * the error of the first one is thrown, with its line in the whole source.
+ */
+public class ParallelCompiler {
+
+	/** Default number of lines parsed by a task.
+	 */
+	public static final int DEFAULT_CHUNK_LINES = 4096;
+
+	private final LineIndex lineIndex;
+	private final ForkJoinPool pool;
+	private final int chunkLines;
+	private final ConcurrentSymbolTable symbolTable = new ConcurrentSymbolTable();
+	private SortedMap<Integer,Statement> program = new TreeMap<Integer,Statement>();
+
+	/** Create a compiler running on the common pool.
+	 *
+	 * @param lineIndex the index of the source.
+	 */
+	public ParallelCompiler(LineIndex lineIndex) {
+		this(lineIndex, ForkJoinPool.commonPool(), DEFAULT_CHUNK_LINES);
+	}
+
+	/** Create a compiler.
+	 *
+	 * @param lineIndex the index of the source.
+	 * @param pool the pool running the tasks.
+	 * @param chunkLines the number of lines under which a chunk is not split.
+	 */
+	public ParallelCompiler(LineIndex lineIndex, ForkJoinPool pool, int chunkLines) {
+		if (chunkLines < 1) {
+			throw new IllegalArgumentException("chunkLines"); //$NON-NLS-1$
+		}
+		this.lineIndex = lineIndex;
+		this.pool = pool;
+		this.chunkLines = chunkLines;
+	}
+
+	/** Create a compiler over the whole content of a reader, running on the common pool.
+	 *
+	 * @param reader the source to parse, read until its end.
+	 * @return the compiler.
+	 * @throws IOException if the source cannot be read.
+	 */
+	public static ParallelCompiler read(Reader reader) throws IOException {
+		BasicLexer lexer = BasicLexer.read(reader);
+		return new ParallelCompiler(LineIndex.build(lexer.getSource(), 0, lexer.getEnd()));
+	}
+
+	/**
+	 * @return the symbol table filled by the compiler.
+	 */
+	public SymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+	/**
+	 * @return the root of the parse tree (list of statements).
+	 */
+	public SortedMap<Integer,Statement> getProgram() {
+		return this.program;
+	}
+
+	/** Parse the source.
+	 *
+	 * @return the statements, by line number.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public SortedMap<Integer,Statement> executeCompiler() throws CompilerException {
+		this.symbolTable.clear();
+		Chunk result = this.pool.invoke(new ChunkTask(0, this.lineIndex.getLineCount()));
+		if (result.error != null) {
+			throw result.error;
+		}
+		this.program = result.program;
+		return this.program;
+	}
+
+	/** Result of the parsing of consecutive lines.
+	 */
+	private static final class Chunk {
+		final SortedMap<Integer,Statement> program;
+		final CompilerException error;
+
+		Chunk(SortedMap<Integer,Statement> program, CompilerException error) {
+			this.program = program;
+			this.error = error;
+		}
+
+		/** Append the lines following this chunk.
+		 *
+		 * @param next the next chunk.
+		 * @return the merged chunk.
+		 */
+		Chunk append(Chunk next) {
+			if (this.error != null) {
+				return this;
+			}
+			if (next.error != null) {
+				return next;
+			}
+			this.program.putAll(next.program);
+			return this;
+		}
+	}
+
+	/** Task parsing a range of lines, split in halves until it is small enough.
+	 */
+	private final class ChunkTask extends RecursiveTask<Chunk> {
+
+		private static final long serialVersionUID = -2315466730374871162L;
+
+		private final int firstLine;
+		private final int endLine;
+
+		ChunkTask(int firstLine, int endLine) {
+			this.firstLine = firstLine;
+			this.endLine = endLine;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected Chunk compute() {
+			if (this.endLine - this.firstLine <= ParallelCompiler.this.chunkLines) {
+				HandWrittenParser parser = new HandWrittenParser(
+						ParallelCompiler.this.lineIndex.openLexer(this.firstLine, this.endLine),
+						ParallelCompiler.this.symbolTable);
+				SortedMap<Integer,Statement> program = new TreeMap<Integer,Statement>();
+				try {
+					// Not executeCompiler(), which clears the shared symbol table
+					while (parser.nextLine()) {
+						if (parser.getStatement() != null) {
+							program.put(Integer.valueOf(parser.getLineNumber()), parser.getStatement());
+						}
+					}
+					return new Chunk(program, null);
+				}
+				catch (CompilerException e) {
+					return new Chunk(null, e);
+				}
+			}
+			int middle = (this.firstLine + this.endLine) >>> 1;
+			ChunkTask second = new ChunkTask(middle, this.endLine);
+			second.fork();
+			Chunk first = new ChunkTask(this.firstLine, middle).compute();
+			return first.append(second.join());
+		}
+
+	}
+
+}
@@ -0,0 +1,394 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Char stream of the parser which reads an in-memory or memory-mapped source
+ * in place, instead of copying it into the buffers of {@link SimpleCharStream}.
+ * <p>
+ * No position is stored per character: the offsets of the line starts are
+ * indexed once, and the line and column of a character are computed only when
+ * the token manager asks for them, with the same rules as
+ * {@link SimpleCharStream} (tabulations aligned on 8 columns, and
+ * <code>\r</code>, <code>\n</code> or <code>\r\n</code> ending a line).
+ * Consecutive requests on the same line continue from the previous column.
+ */
+public class SourceCharStream extends SimpleCharStream {
+
+	private static final int TAB_SIZE = 8;
+
+	private final CharSequence source;
+	private final int length;
+
+	/** Backing array of the source, if any, read directly instead of through the CharSequence.
+	 */
+	private final char[] array;
+	private final int arrayOffset;
+
+	private final int startLine;
+	private int[] lineStarts;
+	private int lineCount;
+
+	private int position;
+	private int tokenStart;
+
+	/** Last computed position: offset, index of its line and column.
+	 */
+	private int cachedOffset = -1;
+	private int cachedLine;
+	private int cachedColumn;
+
+	/** Adjustment of the positions set by {@link #adjustBeginLineColumn(int, int)}:
+	 * offset from which it applies, lines added, and columns added on the line
+	 * of this offset.
+	 */
+	private int adjustedOffset = Integer.MAX_VALUE;
+	private int adjustedLine;
+	private int lineShift;
+	private int columnShift;
+
+	/** Create a stream over a source, whose first line is line 1.
+	 *
+	 * @param source the characters, which must not be modified while they are read.
+	 */
+	public SourceCharStream(CharSequence source) {
+		this(source, 1);
+	}
+
+	/** Create a stream over a source.
+	 *
+	 * @param source the characters, which must not be modified while they are read.
+	 * @param startLine the number of the first line of the source.
+	 */
+	public SourceCharStream(CharSequence source, int startLine) {
+		// The buffers of the parent stream are not used
+		super((java.io.Reader) null, startLine, 1, 1);
+		this.source = source;
+		this.length = source.length();
+		if (source instanceof CharBuffer && ((CharBuffer) source).hasArray()) {
+			CharBuffer buffer = (CharBuffer) source;
+			this.array = buffer.array();
+			this.arrayOffset = buffer.arrayOffset() + buffer.position();
+		}
+		else {
+			this.array = null;
+			this.arrayOffset = 0;
+		}
+		this.startLine = startLine;
+		indexLines();
+	}
+
+	/** Create a stream over a UTF-8 encoded file. Files up to 2 GB are
+	 * memory-mapped: pure ASCII files are read in place, and other files are
+	 * decoded once. Larger files, which cannot be mapped at once nor indexed,
+	 * are read by a {@link SimpleCharStream}.
+	 *
+	 * @param file the file to read.
+	 * @return the stream.
+	 * @throws IOException if the file cannot be opened or mapped.
+	 */
+	public static SimpleCharStream open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				return new SimpleCharStream(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8));
+			}
+			// The mapping stays valid after the channel is closed
+			ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			for (int i = bytes.limit() - 1; i >= 0; --i) {
+				if (bytes.get(i) < 0) {
+					return new SourceCharStream(StandardCharsets.UTF_8.decode(bytes));
+				}
+			}
+			return new SourceCharStream(new AsciiSequence(bytes, 0, bytes.limit()));
+		}
+	}
+
+	private char charAt(int index) {
+		return this.array != null ? this.array[this.arrayOffset + index] : this.source.charAt(index);
+	}
+
+	private void indexLines() {
+		int length = this.length;
+		int[] starts = new int[Math.max(16, length / 32)];
+		int count = 1;
+		for (int i = 0; i < length; ++i) {
+			char c = charAt(i);
+			if (c == '\n' || (c == '\r' && (i + 1 >= length || charAt(i + 1) != '\n'))) {
+				if (count == starts.length) {
+					starts = Arrays.copyOf(starts, count * 2);
+				}
+				starts[count++] = i + 1;
+			}
+		}
+		this.lineStarts = starts;
+		this.lineCount = count;
+	}
+
+	/** Compute the position of a character into the cache.
+	 *
+	 * @param offset the offset of the character.
+	 */
+	private void locate(int offset) {
+		if (offset == this.cachedOffset) {
+			return;
+		}
+		int lineIndex;
+		int from;
+		int column;
+		if (this.cachedOffset >= 0 && offset > this.cachedOffset) {
+			// The token manager reads forward, so the line is usually the same or the next one
+			lineIndex = this.cachedLine;
+			while (lineIndex + 1 < this.lineCount && this.lineStarts[lineIndex + 1] <= offset) {
+				++lineIndex;
+			}
+			if (lineIndex == this.cachedLine) {
+				from = this.cachedOffset + 1;
+				column = this.cachedColumn;
+			}
+			else {
+				from = this.lineStarts[lineIndex];
+				column = 0;
+			}
+		}
+		else {
+			int index = Arrays.binarySearch(this.lineStarts, 0, this.lineCount, offset);
+			lineIndex = index >= 0 ? index : -index - 2;
+			from = this.lineStarts[lineIndex];
+			column = 0;
+		}
+		for (int i = from; i <= offset; ++i) {
+			++column;
+			if (charAt(i) == '\t') {
+				--column;
+				column += TAB_SIZE - (column % TAB_SIZE);
+			}
+		}
+		this.cachedOffset = offset;
+		this.cachedLine = lineIndex;
+		this.cachedColumn = column;
+	}
+
+	private int lineAt(int offset) {
+		if (offset < 0) {
+			return 0;
+		}
+		locate(offset);
+		int line = this.startLine + this.cachedLine;
+		return offset >= this.adjustedOffset ? line + this.lineShift : line;
+	}
+
+	private int columnAt(int offset) {
+		if (offset < 0) {
+			return 0;
+		}
+		locate(offset);
+		if (offset >= this.adjustedOffset && this.cachedLine == this.adjustedLine) {
+			return this.cachedColumn + this.columnShift;
+		}
+		return this.cachedColumn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char BeginToken() throws IOException {
+		if (this.position >= this.length) {
+			// The EOF token is placed on the last character
+			this.tokenStart = this.position - 1;
+			throw new IOException();
+		}
+		this.tokenStart = this.position;
+		return charAt(this.position++);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char readChar() throws IOException {
+		if (this.position >= this.length) {
+			throw new IOException();
+		}
+		return charAt(this.position++);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void backup(int amount) {
+		this.position -= amount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String GetImage() {
+		int start = Math.max(this.tokenStart, 0);
+		if (this.array != null) {
+			return new String(this.array, this.arrayOffset + start, this.position - start);
+		}
+		return this.source.subSequence(start, this.position).toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] GetSuffix(int len) {
+		char[] suffix = new char[len];
+		for (int i = 0; i < len; ++i) {
+			suffix[i] = charAt(this.position - len + i);
+		}
+		return suffix;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBeginLine() {
+		return lineAt(this.tokenStart);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBeginColumn() {
+		return columnAt(this.tokenStart);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getEndLine() {
+		return lineAt(this.position - 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getEndColumn() {
+		return columnAt(this.position - 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Deprecated
+	@Override
+	public int getLine() {
+		return getEndLine();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Deprecated
+	@Override
+	public int getColumn() {
+		return getEndColumn();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void Done() {
+		//
+	}
+
+	/** Move the current token to a new position. The following lines are
+	 * moved by the same number of lines, and the following characters of the
+	 * line of the token by the same number of columns. The positions are
+	 * still computed when they are asked for, and a new adjustment replaces
+	 * the previous one from the current token.
+	 *
+	 * @param newLine the new line of the first character of the token.
+	 * @param newCol the new column of the first character of the token.
+	 */
+	@Override
+	public void adjustBeginLineColumn(int newLine, int newCol) {
+		int offset = Math.max(this.tokenStart, 0);
+		this.adjustedOffset = Integer.MAX_VALUE;
+		if (offset < this.length) {
+			locate(offset);
+			this.adjustedOffset = offset;
+			this.adjustedLine = this.cachedLine;
+			this.lineShift = newLine - (this.startLine + this.cachedLine);
+			this.columnShift = newCol - this.cachedColumn;
+		}
+	}
+
+	/** Replies the characters read by this stream.
+	 *
+	 * @return the source.
+	 */
+	public CharSequence getSource() {
+		return this.source;
+	}
+
+	/** Wrap a range of a char array without copying it.
+	 *
+	 * @param source the characters.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @param startLine the number of the first line of the range.
+	 * @return the stream.
+	 */
+	public static SourceCharStream wrap(char[] source, int start, int end, int startLine) {
+		return new SourceCharStream(CharBuffer.wrap(source, start, end - start).slice(), startLine);
+	}
+
+	/** View of ASCII bytes as characters.
+	 */
+	private static final class AsciiSequence implements CharSequence {
+		private final ByteBuffer bytes;
+		private final int from;
+		private final int to;
+
+		AsciiSequence(ByteBuffer bytes, int from, int to) {
+			this.bytes = bytes;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public int length() {
+			return this.to - this.from;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) this.bytes.get(this.from + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new AsciiSequence(this.bytes, this.from + start, this.from + end);
+		}
+
+		@Override
+		public String toString() {
+			byte[] chunk = new byte[this.to - this.from];
+			this.bytes.get(this.from, chunk);
+			return new String(chunk, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package fr.utbm.info.da53.lw2.parser;
+
+/**
+ * Source of the tokens read by the {@link HandWrittenParser}, one at a time.
+ * The current token is described by the accessors until the next call to
+ * {@link #scan()}; its text lies in {@link #getSource()}.
+ */
+public interface TokenCursor {
+
+	/** Move to the next token. After the end of the source, EOF is replied.
+	 *
+	 * @return the kind of the token, among {@link BasicParserConstants}.
+	 * @throws TokenMgrError if a character cannot start a token.
+	 */
+	int scan();
+
+	/** Replies the kind of the current token.
+	 *
+	 * @return the kind.
+	 */
+	int getKind();
+
+	/** Replies the image of the current token.
+	 *
+	 * @return the image.
+	 */
+	String getImage();
+
+	/** Replies the characters in which the current token lies.
+	 *
+	 * @return the characters, which must not be modified.
+	 */
+	char[] getSource();
+
+	/** Replies the index of the first character of the current token.
+	 *
+	 * @return the index in the source.
+	 */
+	int getTokenStart();
+
+	/** Replies the index after the last character of the current token.
+	 *
+	 * @return the index in the source.
+	 */
+	int getTokenEnd();
+
+	/** Replies the line of the first character of the current token.
+	 *
+	 * @return the line.
+	 */
+	int getBeginLine();
+
+	/** Replies the line of the last character of the current token.
+	 *
+	 * @return the line.
+	 */
+	int getEndLine();
+
+}
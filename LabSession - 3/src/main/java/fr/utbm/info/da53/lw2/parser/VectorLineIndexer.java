@@ -0,0 +1,68 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD newline search of {@link LineIndex}, with the incubating Vector API.
+ * This class is only loaded when the {@code jdk.incubator.vector} module is available.
+ */
+final class VectorLineIndexer {
+
+	private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+
+	private VectorLineIndexer() {
+		//
+	}
+
+	/** Count the newlines of a range.
+	 *
+	 * @param source the characters.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @return the number of newlines.
+	 */
+	static int countNewlines(char[] source, int start, int end) {
+		int count = 0;
+		int i = start;
+		int bound = start + CHARS.loopBound(end - start);
+		for (; i < bound; i += CHARS.length()) {
+			count += ShortVector.fromCharArray(CHARS, source, i).eq((short) '\n').trueCount();
+		}
+		for (; i < end; ++i) {
+			if (source[i] == '\n') {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/** Store the index following each newline of a range.
+	 *
+	 * @param source the characters.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @param lineStarts the array receiving the indices.
+	 * @param count the index of the first element to store.
+	 * @return the index after the last stored element.
+	 */
+	static int indexNewlines(char[] source, int start, int end, int[] lineStarts, int count) {
+		int n = count;
+		int i = start;
+		int bound = start + CHARS.loopBound(end - start);
+		for (; i < bound; i += CHARS.length()) {
+			long bits = ShortVector.fromCharArray(CHARS, source, i).eq((short) '\n').toLong();
+			while (bits != 0) {
+				lineStarts[n++] = i + Long.numberOfTrailingZeros(bits) + 1;
+				bits &= bits - 1;
+			}
+		}
+		for (; i < end; ++i) {
+			if (source[i] == '\n') {
+				lineStarts[n++] = i + 1;
+			}
+		}
+		return n;
+	}
+
+}
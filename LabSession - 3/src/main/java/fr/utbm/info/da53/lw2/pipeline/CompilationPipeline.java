@@ -0,0 +1,343 @@
+package fr.utbm.info.da53.lw2.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilationErrorType;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
+import fr.utbm.info.da53.lw2.parser.BasicParserConstants;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Compiler of TinyBasic into three-address code, whose lexer, parser and code
+ * generator run at the same time on three threads. The tokens go from the
+ * lexer to the parser through a {@link TokenRing}, and the parsed lines from
+ * the parser to the generator through a {@link SpscQueue}, so each stage works
+ * on a line as soon as the previous stage is done with it.
+ * <p>
+ * The code is generated in the order of the line numbers, each TinyBasic
+ * line being mapped to its first record, like the sequential compiler does.
+ * While the line numbers of the source are ascending, each line is generated
+ * as soon as it is parsed; once a line number is not greater than the
+ * previous one, the generator waits for the end of the parsing and generates
+ * the sorted program. The generator has its own symbol table: the identifiers
+ * first declared by a line are sent with it. When the source is not valid,
+ * the parsing error is thrown, like the sequential compiler would do, and an
+ * unexpected failure of the lexer or of the parser is thrown again.
+ */
+public class CompilationPipeline {
+
+	/** Default capacity of the queues between the stages.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/** Marks the end of the parsed lines.
+	 */
+	private static final ParsedLine DONE = new ParsedLine(0, null, null, null);
+
+	private final char[] source;
+	private final int start;
+	private final int end;
+	private final int capacity;
+
+	private SortedMap<Integer,Statement> program;
+	private ThreeAddressCode code;
+
+	/** Errors of the stages, read once the threads are joined.
+	 */
+	private CompilerException parseError;
+	private Throwable failure;
+	private RuntimeException generationError;
+
+	/** Set by the generator when a line number is not greater than the previous one.
+	 */
+	private boolean unordered;
+
+	/** Create a pipeline over a range of characters.
+	 *
+	 * @param source the characters, which must not be modified while they are compiled.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 */
+	public CompilationPipeline(char[] source, int start, int end) {
+		this(source, start, end, DEFAULT_CAPACITY);
+	}
+
+	/** Create a pipeline over a range of characters.
+	 *
+	 * @param source the characters, which must not be modified while they are compiled.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @param capacity the capacity of the queues between the stages.
+	 */
+	public CompilationPipeline(char[] source, int start, int end, int capacity) {
+		this.source = source;
+		this.start = start;
+		this.end = end;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @return the root of the parse tree (list of statements).
+	 */
+	public SortedMap<Integer,Statement> getProgram() {
+		return this.program;
+	}
+
+	/**
+	 * @return the symbol table of the generated code, with the identifiers and the temporary variables.
+	 */
+	public SymbolTable getSymbolTable() {
+		return this.code == null ? null : this.code.getSymbolTable();
+	}
+
+	/**
+	 * @return the generated code.
+	 */
+	public ThreeAddressCode getThreeAddressCode() {
+		return this.code;
+	}
+
+	/** Compile the source. The lexer and the parser run on new threads, and
+	 * the code is generated on the calling thread.
+	 *
+	 * @return the generated code.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	public ThreeAddressCode compile() throws CompilerException {
+		final TokenRing tokens = new TokenRing(this.source, this.capacity);
+		final SpscQueue<ParsedLine> lines = new SpscQueue<>(this.capacity);
+		final HandWrittenParser parser = new HandWrittenParser(tokens, new DeclarationRecorder());
+		final SortedMap<Integer,Statement> parsed = new TreeMap<Integer,Statement>();
+		Thread lexerThread = new Thread(() -> lex(tokens), "pipeline-lexer"); //$NON-NLS-1$
+		Thread parserThread = new Thread(() -> parse(parser, parsed, tokens, lines), "pipeline-parser"); //$NON-NLS-1$
+		this.parseError = null;
+		this.failure = null;
+		this.generationError = null;
+		this.unordered = false;
+		lexerThread.start();
+		parserThread.start();
+
+		SymbolTable identifiers = new SymbolTable();
+		ThreeAddressCode generated = generate(lines, identifiers);
+
+		try {
+			lexerThread.join();
+			parserThread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompilerException(CompilationErrorType.INTERNAL_ERROR, e);
+		}
+		if (this.parseError != null) {
+			throw this.parseError;
+		}
+		if (this.failure instanceof RuntimeException) {
+			throw (RuntimeException) this.failure;
+		}
+		if (this.failure != null) {
+			throw (Error) this.failure;
+		}
+		if (this.unordered && this.generationError == null) {
+			generated = generate(parsed, identifiers);
+		}
+		if (this.generationError != null) {
+			throw this.generationError;
+		}
+		this.program = parsed;
+		this.code = generated;
+		return generated;
+	}
+
+	/** Lexer stage.
+	 *
+	 * @param tokens the output of the stage.
+	 */
+	private void lex(TokenRing tokens) {
+		BasicLexer lexer = new BasicLexer(this.source, this.start, this.end);
+		try {
+			int kind;
+			do {
+				kind = lexer.scan();
+				if (!tokens.put(lexer)) {
+					// The parser has stopped
+					return;
+				}
+			}
+			while (kind != BasicParserConstants.EOF);
+		}
+		catch (Throwable e) {
+			// Lexical error or failure, thrown to the parser so it stops
+			tokens.putError(e, lexer.getEndLine());
+		}
+	}
+
+	/** Parser stage.
+	 *
+	 * @param parser the parser reading the tokens.
+	 * @param parsed the statements by line number, filled by the stage.
+	 * @param tokens the input of the stage.
+	 * @param lines the output of the stage.
+	 */
+	private void parse(HandWrittenParser parser, SortedMap<Integer,Statement> parsed,
+			TokenRing tokens, SpscQueue<ParsedLine> lines) {
+		DeclarationRecorder declarations = (DeclarationRecorder) parser.getSymbolTable();
+		try {
+			while (parser.nextLine()) {
+				Statement statement = parser.getStatement();
+				if (statement != null) {
+					parsed.put(Integer.valueOf(parser.getLineNumber()), statement);
+					lines.put(new ParsedLine(parser.getLineNumber(), statement,
+							declarations.identifiers(), declarations.lines()));
+				}
+			}
+		}
+		catch (CompilerException e) {
+			this.parseError = e;
+		}
+		catch (Throwable e) {
+			this.failure = e;
+		}
+		finally {
+			// Release the lexer if it waits for room
+			tokens.close();
+			lines.put(DONE);
+		}
+	}
+
+	/** Code generator stage. It reads all the lines, even after an error, so
+	 * the parser never waits forever. It stops generating at the first line
+	 * which is not after the previous one.
+	 *
+	 * @param lines the input of the stage.
+	 * @param identifiers the symbol table filled with the identifiers of all the lines.
+	 * @return the generated code.
+	 */
+	private ThreeAddressCode generate(SpscQueue<ParsedLine> lines, SymbolTable identifiers) {
+		ThreeAddressCode generated = new ThreeAddressCode(new SymbolTable());
+		int previous = Integer.MIN_VALUE;
+		ParsedLine line;
+		while ((line = lines.take()) != DONE) {
+			for (int i = 0; i < line.identifiers.length; ++i) {
+				identifiers.declare(line.identifiers[i], line.declarationLines[i]);
+			}
+			if (line.lineNumber <= previous) {
+				this.unordered = true;
+			}
+			previous = line.lineNumber;
+			if (this.generationError == null && !this.unordered) {
+				try {
+					for (int i = 0; i < line.identifiers.length; ++i) {
+						generated.getSymbolTable().declare(line.identifiers[i], line.declarationLines[i]);
+					}
+					generated.generate(line.lineNumber, line.statement);
+				}
+				catch (RuntimeException e) {
+					this.generationError = e;
+				}
+			}
+		}
+		return generated;
+	}
+
+	/** Generate a whole program, once it is parsed.
+	 *
+	 * @param parsed the statements by line number.
+	 * @param identifiers the identifiers declared by the parser.
+	 * @return the generated code.
+	 */
+	private ThreeAddressCode generate(SortedMap<Integer,Statement> parsed, SymbolTable identifiers) {
+		SymbolTable symbolTable = new SymbolTable();
+		for (SymbolTableEntry entry : identifiers) {
+			symbolTable.declare(entry.id(), entry.line());
+		}
+		ThreeAddressCode generated = new ThreeAddressCode(symbolTable);
+		try {
+			generated.generate(parsed);
+		}
+		catch (RuntimeException e) {
+			this.generationError = e;
+		}
+		return generated;
+	}
+
+	/** Statement of a line, with the identifiers first declared in this line.
+	 */
+	private static final class ParsedLine {
+		final int lineNumber;
+		final Statement statement;
+		final String[] identifiers;
+		final int[] declarationLines;
+
+		ParsedLine(int lineNumber, Statement statement, String[] identifiers, int[] declarationLines) {
+			this.lineNumber = lineNumber;
+			this.statement = statement;
+			this.identifiers = identifiers;
+			this.declarationLines = declarationLines;
+		}
+	}
+
+	/** Symbol table of the parser, which records the identifiers declared for
+	 * the first time since the last call to {@link #identifiers()}.
+	 */
+	private static final class DeclarationRecorder extends SymbolTable {
+
+		private static final String[] NO_IDENTIFIERS = new String[0];
+		private static final int[] NO_LINES = new int[0];
+
+		private final List<String> identifiers = new ArrayList<>();
+		private int[] lines = new int[8];
+
+		DeclarationRecorder() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public SymbolTableEntry declare(String identifier, int line) {
+			if (!contains(identifier)) {
+				if (this.identifiers.size() == this.lines.length) {
+					this.lines = Arrays.copyOf(this.lines, this.lines.length * 2);
+				}
+				this.lines[this.identifiers.size()] = line;
+				this.identifiers.add(SymbolTable.formatIdentifier(identifier));
+			}
+			return super.declare(identifier, line);
+		}
+
+		/** Replies the recorded identifiers, and forget them. The lines are
+		 * to be read by {@link #lines()} just after.
+		 *
+		 * @return the identifiers.
+		 */
+		String[] identifiers() {
+			if (this.identifiers.isEmpty()) {
+				return NO_IDENTIFIERS;
+			}
+			return this.identifiers.toArray(new String[this.identifiers.size()]);
+		}
+
+		/** Replies the lines of the identifiers replied by the last call to
+		 * {@link #identifiers()}, and forget them.
+		 *
+		 * @return the lines.
+		 */
+		int[] lines() {
+			int count = this.identifiers.size();
+			this.identifiers.clear();
+			return count == 0 ? NO_LINES : Arrays.copyOf(this.lines, count);
+		}
+
+	}
+
+}
@@ -0,0 +1,118 @@
+package fr.utbm.info.da53.lw2.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded queue between exactly one producer thread and one consumer thread,
+ * without lock. The elements are stored in a ring whose size is a power of
+ * two; the producer publishes an element by an ordered write of its tail
+ * index, and the consumer frees a slot by an ordered write of its head index.
+ * <p>
+ * A full or empty queue makes the waiting thread spin, then yield, then park
+ * for short periods. Closing the queue releases a producer waiting on a full
+ * queue whose consumer has stopped.
+ *
+ * @param <E> the type of the elements.
+ */
+public class SpscQueue<E> {
+
+	private final Object[] elements;
+	private final int mask;
+
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private volatile boolean closed;
+
+	/** Last value of the other index read by each side, to avoid reading the
+	 * shared index while the ring is known to have room or elements.
+	 */
+	private long cachedHead;
+	private long cachedTail;
+
+	/** Create a queue.
+	 *
+	 * @param capacity the minimal number of elements, rounded up to a power of two.
+	 */
+	public SpscQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.elements = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/** Add an element, waiting while the queue is full. Called by the producer only.
+	 *
+	 * @param element the element, not <code>null</code>.
+	 * @return <code>false</code> if the queue is closed and the element is dropped.
+	 */
+	public boolean put(E element) {
+		long t = this.tail.get();
+		int idle = 0;
+		while (t - this.cachedHead >= this.elements.length) {
+			if (this.closed) {
+				return false;
+			}
+			this.cachedHead = this.head.get();
+			idle = idle(idle);
+		}
+		this.elements[(int) t & this.mask] = element;
+		this.tail.lazySet(t + 1);
+		return true;
+	}
+
+	/** Remove the next element, waiting while the queue is empty. Called by the consumer only.
+	 *
+	 * @return the element.
+	 */
+	@SuppressWarnings("unchecked")
+	public E take() {
+		long h = this.head.get();
+		int idle = 0;
+		while (h >= this.cachedTail) {
+			this.cachedTail = this.tail.get();
+			if (h < this.cachedTail) {
+				break;
+			}
+			idle = idle(idle);
+		}
+		int index = (int) h & this.mask;
+		E element = (E) this.elements[index];
+		this.elements[index] = null;
+		this.head.lazySet(h + 1);
+		return element;
+	}
+
+	/** Close the queue: the producer does not wait for room anymore.
+	 * Called by the consumer when it stops reading.
+	 */
+	public void close() {
+		this.closed = true;
+	}
+
+	/** Replies if the queue is closed.
+	 *
+	 * @return <code>true</code> if {@link #close()} was called.
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	/** Wait a little, longer and longer.
+	 *
+	 * @param idle the number of times the caller has already waited.
+	 * @return the new number of times.
+	 */
+	static int idle(int idle) {
+		if (idle < 64) {
+			Thread.onSpinWait();
+		}
+		else if (idle < 128) {
+			Thread.yield();
+		}
+		else {
+			LockSupport.parkNanos(10000);
+		}
+		return idle + 1;
+	}
+
+}
@@ -0,0 +1,213 @@
+package fr.utbm.info.da53.lw2.pipeline;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilationErrorType;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.BasicLexer;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressRecordSink;
+
+/**
+ * Compiler of TinyBasic into three-address code in bounded memory. The source
+ * is read by blocks of whole lines, and the code of each line is generated as
+ * soon as the line is parsed, its records being written to a
+ * {@link ThreeAddressRecordSink}. Neither the source, nor the statements, nor
+ * the records are kept: only the symbol table and the mapping of the TinyBasic
+ * lines to the records grow with the program.
+ * <p>
+ * The code is generated in the order of the source, so the line numbers must
+ * be ascending: since the records already written cannot be moved, a line
+ * whose number is not greater than the one of the previous line is rejected,
+ * instead of generating a code which differs from the one of the sequential
+ * compiler.
+ * <p>
+ * A carriage return alone ends a line, as in the positions of the lexer, so
+ * the source can be split there. The sequential parser skips such a carriage
+ * return instead, and joins the lines it separates.
+ */
+public class StreamingCompiler {
+
+	/** Default number of characters read at once.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+	private final Reader reader;
+	private final ThreeAddressCode code;
+	private char[] buffer;
+
+	/** Create a compiler.
+	 *
+	 * @param reader the source, read until its end but not closed.
+	 * @param sink the sink of the records.
+	 */
+	public StreamingCompiler(Reader reader, ThreeAddressRecordSink sink) {
+		this(reader, sink, DEFAULT_BLOCK_SIZE);
+	}
+
+	/** Create a compiler.
+	 *
+	 * @param reader the source, read until its end but not closed.
+	 * @param sink the sink of the records.
+	 * @param blockSize the number of characters read at once, grown to hold a longer line.
+	 */
+	public StreamingCompiler(Reader reader, ThreeAddressRecordSink sink, int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("blockSize"); //$NON-NLS-1$
+		}
+		this.reader = reader;
+		this.code = new ThreeAddressCode(new SymbolTable(), sink);
+		this.buffer = new char[blockSize];
+	}
+
+	/**
+	 * @return the symbol table, with the identifiers and the temporary variables.
+	 */
+	public SymbolTable getSymbolTable() {
+		return this.code.getSymbolTable();
+	}
+
+	/**
+	 * @return the generated code, without its records.
+	 */
+	public ThreeAddressCode getThreeAddressCode() {
+		return this.code;
+	}
+
+	/** Compile the source. The records written before an error stay in the sink.
+	 *
+	 * @return the generated code, without its records.
+	 * @throws CompilerException if the source is not valid, or its line numbers are not ascending.
+	 * @throws IOException if the source cannot be read, or the sink fails.
+	 */
+	public ThreeAddressCode compile() throws CompilerException, IOException {
+		SymbolTable symbolTable = this.code.getSymbolTable();
+		symbolTable.clear();
+		int length = 0;
+		int line = 1;
+		int previous = Integer.MIN_VALUE;
+		boolean eof = false;
+		while (!eof) {
+			int count = this.reader.read(this.buffer, length, this.buffer.length - length);
+			if (count < 0) {
+				eof = true;
+			}
+			else {
+				length += count;
+				if (length < this.buffer.length) {
+					continue;
+				}
+			}
+			// Parse the whole lines only, unless there is nothing more to read
+			int end = eof ? length : lastLineEnd(length);
+			if (end > 0) {
+				int start = 0;
+				while (start < end) {
+					// The lexer skips a carriage return alone, so it is given the lines it ends one by one
+					int segmentEnd = nextSegmentEnd(start, end);
+					previous = compile(symbolTable, start, segmentEnd, line, previous);
+					line += countLines(start, segmentEnd);
+					start = segmentEnd;
+				}
+				length -= end;
+				System.arraycopy(this.buffer, end, this.buffer, 0, length);
+			}
+			else if (length == this.buffer.length) {
+				// A line longer than the buffer
+				this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+			}
+		}
+		return this.code;
+	}
+
+	/** Compile the lines of a part of the buffer.
+	 *
+	 * @param symbolTable the symbol table.
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @param line the number of the line starting at <var>start</var>.
+	 * @param previous the TinyBasic number of the last compiled line.
+	 * @return the TinyBasic number of the last compiled line.
+	 * @throws CompilerException if a line is not valid, or its number is not ascending.
+	 * @throws IOException if the sink fails.
+	 */
+	private int compile(SymbolTable symbolTable, int start, int end, int line, int previous)
+			throws CompilerException, IOException {
+		int last = previous;
+		HandWrittenParser parser = new HandWrittenParser(new BasicLexer(this.buffer, start, end, line), symbolTable);
+		try {
+			while (parser.nextLine()) {
+				Statement statement = parser.getStatement();
+				if (statement != null) {
+					int lineNumber = parser.getLineNumber();
+					if (lineNumber <= last) {
+						throw new CompilerException(CompilationErrorType.INVALID_LINE_NUMBER, lineNumber,
+								Integer.toString(lineNumber));
+					}
+					last = lineNumber;
+					this.code.generate(lineNumber, statement);
+				}
+			}
+		}
+		catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return last;
+	}
+
+	/** Replies the index after the last line end of the buffer. A CR at the
+	 * end of the buffer is not one, since it may be followed by a LF.
+	 *
+	 * @param length the number of characters in the buffer.
+	 * @return the index, or <code>0</code> if there is no line end.
+	 */
+	private int lastLineEnd(int length) {
+		for (int i = length - 1; i >= 0; --i) {
+			char c = this.buffer[i];
+			if (c == '\n' || (c == '\r' && i + 1 < length)) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/** Replies the index after the first CR alone of a part of the buffer.
+	 *
+	 * @param start the index of the first character.
+	 * @param end the index after the last character, which ends a line.
+	 * @return the index, or <var>end</var> if there is no CR alone.
+	 */
+	private int nextSegmentEnd(int start, int end) {
+		for (int i = start; i < end; ++i) {
+			if (this.buffer[i] == '\r' && (i + 1 >= end || this.buffer[i + 1] != '\n')) {
+				return i + 1;
+			}
+		}
+		return end;
+	}
+
+	/** Count the lines ended in a part of the buffer, as the lexer does: a CR
+	 * alone ends a line, as a LF or a CR-LF do.
+	 *
+	 * @param start the index of the first character.
+	 * @param end the index after the last character.
+	 * @return the number of lines.
+	 */
+	private int countLines(int start, int end) {
+		int count = 0;
+		for (int i = start; i < end; ++i) {
+			char c = this.buffer[i];
+			if (c == '\n' || (c == '\r' && (i + 1 >= end || this.buffer[i + 1] != '\n'))) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+}
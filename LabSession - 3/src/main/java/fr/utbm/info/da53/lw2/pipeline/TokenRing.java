@@ -0,0 +1,232 @@
+package fr.utbm.info.da53.lw2.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.utbm.info.da53.lw2.parser.BasicParserConstants;
+import fr.utbm.info.da53.lw2.parser.TokenCursor;
+import fr.utbm.info.da53.lw2.parser.TokenMgrError;
+
+/**
+ * Bounded ring of tokens between a lexer thread and a parser thread, without
+ * lock and without an object per token: the kind, bounds and lines of the
+ * tokens are stored in parallel arrays, and their text stays in the source
+ * shared by both threads. It follows the protocol of {@link SpscQueue}.
+ * <p>
+ * The producer copies the current token of a {@link TokenCursor} with
+ * {@link #put(TokenCursor)}. The consumer reads the ring as a
+ * {@link TokenCursor}, which replies EOF forever once the EOF token is read,
+ * and throws the error put by the producer with
+ * {@link #putError(Throwable, int)}.
+ */
+public class TokenRing implements TokenCursor {
+
+	private static final int ERROR = -1;
+
+	private final char[] source;
+	private final int[] kinds;
+	private final int[] starts;
+	private final int[] ends;
+	private final int[] beginLines;
+	private final int[] endLines;
+	private final int mask;
+
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private volatile boolean closed;
+
+	/** Written before the error token is published.
+	 */
+	private Throwable error;
+
+	private long cachedHead;
+	private long cachedTail;
+
+	/** Current token of the consumer.
+	 */
+	private int kind = -1;
+	private int start;
+	private int end;
+	private int beginLine;
+	private int endLine;
+
+	/** Create a ring.
+	 *
+	 * @param source the characters of the tokens.
+	 * @param capacity the minimal number of tokens, rounded up to a power of two.
+	 */
+	public TokenRing(char[] source, int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.source = source;
+		this.kinds = new int[size];
+		this.starts = new int[size];
+		this.ends = new int[size];
+		this.beginLines = new int[size];
+		this.endLines = new int[size];
+		this.mask = size - 1;
+	}
+
+	/** Add the current token of a lexer, waiting while the ring is full.
+	 * Called by the producer only.
+	 *
+	 * @param lexer the lexer, whose source is the source of this ring.
+	 * @return <code>false</code> if the ring is closed and the token is dropped.
+	 */
+	public boolean put(TokenCursor lexer) {
+		long t = reserve();
+		if (t < 0) {
+			return false;
+		}
+		int index = (int) t & this.mask;
+		this.kinds[index] = lexer.getKind();
+		this.starts[index] = lexer.getTokenStart();
+		this.ends[index] = lexer.getTokenEnd();
+		this.beginLines[index] = lexer.getBeginLine();
+		this.endLines[index] = lexer.getEndLine();
+		this.tail.lazySet(t + 1);
+		return true;
+	}
+
+	/** Add an error, which ends the tokens. Called by the producer only.
+	 *
+	 * @param lexicalError the error thrown by the lexer, usually a {@link TokenMgrError}.
+	 * @param line the line of the error.
+	 * @return <code>false</code> if the ring is closed and the error is dropped.
+	 */
+	public boolean putError(Throwable lexicalError, int line) {
+		long t = reserve();
+		if (t < 0) {
+			return false;
+		}
+		int index = (int) t & this.mask;
+		this.error = lexicalError;
+		this.kinds[index] = ERROR;
+		this.beginLines[index] = line;
+		this.endLines[index] = line;
+		this.tail.lazySet(t + 1);
+		return true;
+	}
+
+	private long reserve() {
+		long t = this.tail.get();
+		int idle = 0;
+		while (t - this.cachedHead >= this.kinds.length) {
+			if (this.closed) {
+				return -1;
+			}
+			this.cachedHead = this.head.get();
+			idle = SpscQueue.idle(idle);
+		}
+		return t;
+	}
+
+	/** Close the ring: the producer does not wait for room anymore.
+	 * Called by the consumer when it stops reading.
+	 */
+	public void close() {
+		this.closed = true;
+	}
+
+	/** Replies if the ring is closed.
+	 *
+	 * @return <code>true</code> if {@link #close()} was called.
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int scan() {
+		if (this.kind == BasicParserConstants.EOF) {
+			return this.kind;
+		}
+		long h = this.head.get();
+		int idle = 0;
+		while (h >= this.cachedTail) {
+			this.cachedTail = this.tail.get();
+			if (h < this.cachedTail) {
+				break;
+			}
+			idle = SpscQueue.idle(idle);
+		}
+		int index = (int) h & this.mask;
+		this.kind = this.kinds[index];
+		this.start = this.starts[index];
+		this.end = this.ends[index];
+		this.beginLine = this.beginLines[index];
+		this.endLine = this.endLines[index];
+		this.head.lazySet(h + 1);
+		if (this.kind == ERROR) {
+			// The next calls see the end of the tokens
+			this.kind = BasicParserConstants.EOF;
+			this.start = this.end;
+			if (this.error instanceof RuntimeException) {
+				throw (RuntimeException) this.error;
+			}
+			if (this.error instanceof Error) {
+				throw (Error) this.error;
+			}
+			throw new IllegalStateException(this.error);
+		}
+		return this.kind;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getImage() {
+		return new String(this.source, this.start, this.end - this.start);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char[] getSource() {
+		return this.source;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getTokenStart() {
+		return this.start;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getTokenEnd() {
+		return this.end;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getBeginLine() {
+		return this.beginLine;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getEndLine() {
+		return this.endLine;
+	}
+
+}
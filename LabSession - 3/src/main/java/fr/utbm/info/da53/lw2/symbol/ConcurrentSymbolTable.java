@@ -0,0 +1,372 @@
+package fr.utbm.info.da53.lw2.symbol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import fr.utbm.info.da53.lw2.type.Value;
+
+/**
+ * Symbol table which can be shared by several threads parsing at the same time.
+ * Each identifier gets a stable integer id when it is first declared. The
+ * identifiers declared by several threads at the same time get their ids in
+ * no particular order, so the ids do not follow the lines of the source.
+ * <p>
+ * An identifier keeps the smallest line it is declared at, so the threads
+ * parsing the chunks of a source in any order fill the table like a single
+ * parser going through the source. The entry of an identifier is replaced when
+ * it is declared at a smaller line, so the entries should be used once the
+ * declarations are done. As in {@link SymbolTable}, the entries are iterated
+ * in the order of their identifier.
+ * <p>
+ * The table is split into segments selected by the hash of the identifier,
+ * each one being an open-addressing hash table with linear probing. Looking up
+ * a declared identifier does not lock; only the declaration of a new
+ * identifier locks its segment.
+ */
+public class ConcurrentSymbolTable extends SymbolTable {
+
+	private static final int SEGMENT_CAPACITY = 16;
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int MAX_CHUNKS = 1 << 16;
+
+	private final Segment[] segments;
+	private final int segmentShift;
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	/** Symbols by id, in chunks allocated on demand.
+	 */
+	private final AtomicReferenceArray<AtomicReferenceArray<Symbol>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+	/** Declared identifier. Its fields are final, so it is safely visible to the
+	 * threads reading it from a slot.
+	 */
+	private static final class Symbol {
+		final int id;
+		final int hash;
+		final String identifier;
+		final AtomicReference<SymbolTableEntry> entry;
+
+		Symbol(int id, int hash, SymbolTableEntry entry) {
+			this.id = id;
+			this.hash = hash;
+			this.identifier = entry.id();
+			this.entry = new AtomicReference<SymbolTableEntry>(entry);
+		}
+
+		/** Keep the declaration with the smallest line.
+		 *
+		 * @param line the line of a declaration.
+		 * @return the entry of the identifier.
+		 */
+		SymbolTableEntry declare(int line) {
+			SymbolTableEntry current;
+			SymbolTableEntry earlier = null;
+			do {
+				current = this.entry.get();
+				if (current.line() <= line) {
+					return current;
+				}
+				if (earlier == null) {
+					earlier = new SymbolTableEntry(this.identifier, line);
+				}
+			}
+			while (!this.entry.compareAndSet(current, earlier));
+			return earlier;
+		}
+	}
+
+	/** Part of the table. Its slots are written under its lock and read without locking.
+	 */
+	private static final class Segment {
+		volatile Symbol[] slots = new Symbol[SEGMENT_CAPACITY];
+		int count;
+
+		Segment() {
+			//
+		}
+	}
+
+	/** Create a table sized for the available processors.
+	 */
+	public ConcurrentSymbolTable() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/** Create a table.
+	 *
+	 * @param concurrencyLevel the expected number of threads declaring identifiers at the same time.
+	 */
+	public ConcurrentSymbolTable(int concurrencyLevel) {
+		int segmentCount = Integer.highestOneBit(Math.max(concurrencyLevel, 1) * 8 - 1) << 1;
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; ++i) {
+			this.segments[i] = new Segment();
+		}
+		this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+	}
+
+	/** Add a symbol in the table, unless it is already declared at a smaller line.
+	 *
+	 * @param identifier is the identifier.
+	 * @param line is the line of the token.
+	 * @return the symbol table entry, never <code>null</code>
+	 */
+	@Override
+	public SymbolTableEntry declare(String identifier, int line) {
+		return symbol(SymbolTable.formatIdentifier(identifier), line).declare(line);
+	}
+
+	/** Add a symbol in the table, unless it is already declared at a smaller line,
+	 * and reply its id.
+	 *
+	 * @param identifier is the identifier.
+	 * @param line is the line of the token.
+	 * @return the id of the symbol.
+	 */
+	public int declareId(String identifier, int line) {
+		Symbol symbol = symbol(SymbolTable.formatIdentifier(identifier), line);
+		symbol.declare(line);
+		return symbol.id;
+	}
+
+	/** Return the id of the given lexeme.
+	 *
+	 * @param lexeme
+	 * @return the id, or <code>-1</code> if not found.
+	 */
+	public int id(String lexeme) {
+		if (lexeme == null || lexeme.isEmpty()) return -1;
+		String id = SymbolTable.formatIdentifier(lexeme);
+		int hash = hash(id);
+		Symbol symbol = find(segmentFor(hash).slots, hash, id);
+		return symbol == null ? -1 : symbol.id;
+	}
+
+	/** Return the entry for the given lexeme.
+	 *
+	 * @param lexeme
+	 * @return the entry, or <code>null</code> if not found.
+	 */
+	@Override
+	public SymbolTableEntry get(String lexeme) {
+		int id = id(lexeme);
+		return id < 0 ? null : get(id);
+	}
+
+	/** Return the entry with the given id.
+	 *
+	 * @param id
+	 * @return the entry, or <code>null</code> if not found or removed.
+	 */
+	public SymbolTableEntry get(int id) {
+		AtomicReferenceArray<Symbol> chunk = id >= 0 && id < size() ? this.chunks.get(id >>> CHUNK_BITS) : null;
+		// An id being allocated by another thread is not stored yet
+		Symbol symbol = chunk == null ? null : chunk.get(id & (CHUNK_SIZE - 1));
+		return symbol == null ? null : symbol.entry.get();
+	}
+
+	/** Return if the given lexeme is defined in the symbol table.
+	 *
+	 * @param lexeme
+	 * @return <code>true</code> if the lexeme is declared.
+	 */
+	@Override
+	public boolean contains(String lexeme) {
+		return id(lexeme) >= 0;
+	}
+
+	/** Remove the entry for the given lexeme. Its id is not given to another
+	 * identifier.
+	 *
+	 * @param lexeme
+	 * @return the removed entry, or <code>null</code> if not found.
+	 */
+	@Override
+	public SymbolTableEntry remove(String lexeme) {
+		if (lexeme == null || lexeme.isEmpty()) return null;
+		String id = SymbolTable.formatIdentifier(lexeme);
+		int hash = hash(id);
+		Segment segment = segmentFor(hash);
+		synchronized (segment) {
+			Symbol symbol = find(segment.slots, hash, id);
+			if (symbol == null) {
+				return null;
+			}
+			// The readers go through the slots without locking, so publish new slots
+			Symbol[] slots = new Symbol[segment.slots.length];
+			int mask = slots.length - 1;
+			for (Symbol other : segment.slots) {
+				if (other != null && other != symbol) {
+					int slot = other.hash & mask;
+					while (slots[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					slots[slot] = other;
+				}
+			}
+			--segment.count;
+			segment.slots = slots;
+			this.chunks.get(symbol.id >>> CHUNK_BITS).set(symbol.id & (CHUNK_SIZE - 1), null);
+			return symbol.entry.get();
+		}
+	}
+
+	/** Clear the symbol table. It must not be called while other threads
+	 * declare identifiers.
+	 */
+	@Override
+	public void clear() {
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				segment.slots = new Symbol[SEGMENT_CAPACITY];
+				segment.count = 0;
+			}
+		}
+		int size = size();
+		for (int id = 0; id < size; id += CHUNK_SIZE) {
+			this.chunks.set(id >>> CHUNK_BITS, null);
+		}
+		this.nextId.set(0);
+	}
+
+	/** Reset all the values of the symbol table.
+	 */
+	@Override
+	public void resetValues() {
+		for (SymbolTableEntry entry : this) {
+			entry.setValue((Value) null);
+		}
+	}
+
+	/** Replies the number of ids given to the symbols, including the removed
+	 * ones. The ids go from 0 to this number, excluded.
+	 *
+	 * @return the number of ids.
+	 */
+	public int size() {
+		return this.nextId.get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		for (SymbolTableEntry entry : this) {
+			if (b.length() > 0) {
+				b.append("\n"); //$NON-NLS-1$
+			}
+			b.append(entry.toString());
+		}
+		return b.toString();
+	}
+
+	/** Iterate on the entries in the order of their identifier, like
+	 * {@link SymbolTable}. The entries are the ones declared when the
+	 * iteration starts.
+	 *
+	 * @return the iterator.
+	 */
+	@Override
+	public Iterator<SymbolTableEntry> iterator() {
+		int size = size();
+		List<SymbolTableEntry> entries = new ArrayList<SymbolTableEntry>(size);
+		for (int id = 0; id < size; ++id) {
+			SymbolTableEntry entry = get(id);
+			if (entry != null) {
+				entries.add(entry);
+			}
+		}
+		Collections.sort(entries);
+		return Collections.unmodifiableList(entries).iterator();
+	}
+
+	private Segment segmentFor(int hash) {
+		return this.segments[hash >>> this.segmentShift];
+	}
+
+	private Symbol symbol(String id, int line) {
+		int hash = hash(id);
+		Segment segment = segmentFor(hash);
+		Symbol symbol = find(segment.slots, hash, id);
+		if (symbol != null) {
+			return symbol;
+		}
+		synchronized (segment) {
+			Symbol[] slots = segment.slots;
+			symbol = find(slots, hash, id);
+			if (symbol != null) {
+				return symbol;
+			}
+			int index = this.nextId.getAndIncrement();
+			if (index >>> CHUNK_BITS >= MAX_CHUNKS) {
+				throw new IllegalStateException("Too many symbols"); //$NON-NLS-1$
+			}
+			symbol = new Symbol(index, hash, new SymbolTableEntry(id, line));
+			AtomicReferenceArray<Symbol> chunk = this.chunks.get(index >>> CHUNK_BITS);
+			if (chunk == null) {
+				// Another segment may allocate the same chunk at the same time
+				this.chunks.compareAndSet(index >>> CHUNK_BITS, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+				chunk = this.chunks.get(index >>> CHUNK_BITS);
+			}
+			chunk.set(index & (CHUNK_SIZE - 1), symbol);
+
+			if ((segment.count + 1) * 2 > slots.length) {
+				slots = grow(slots);
+			}
+			int mask = slots.length - 1;
+			int slot = hash & mask;
+			while (slots[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = symbol;
+			++segment.count;
+			segment.slots = slots;
+			return symbol;
+		}
+	}
+
+	private static Symbol[] grow(Symbol[] slots) {
+		Symbol[] newSlots = new Symbol[slots.length * 2];
+		int mask = newSlots.length - 1;
+		for (Symbol symbol : slots) {
+			if (symbol != null) {
+				int slot = symbol.hash & mask;
+				while (newSlots[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				newSlots[slot] = symbol;
+			}
+		}
+		return newSlots;
+	}
+
+	private static Symbol find(Symbol[] slots, int hash, String id) {
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		Symbol symbol;
+		while ((symbol = slots[slot]) != null) {
+			if (symbol.hash == hash && symbol.identifier.equals(id)) {
+				return symbol;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	private static int hash(String id) {
+		// The high bits select the segment and the low bits the slot, so mix both
+		int h = id.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		return h ^ (h >>> 13);
+	}
+
+}
@@ -86,6 +86,16 @@ public class SymbolTable implements Iterable<SymbolTableEntry> {
 		return this.symbols.containsKey(formatIdentifier(lexeme));
 	}
 
+	/** Remove the entry for the given lexeme.
+	 * 
+	 * @param lexeme
+	 * @return the removed entry, or <code>null</code> if not found.
+	 */
+	public SymbolTableEntry remove(String lexeme) {
+		if (lexeme==null || lexeme.isEmpty()) return null;
+		return this.symbols.remove(formatIdentifier(lexeme));
+	}
+
 	/** Clear the symbol table.
 	 */
 	public void clear() {
@@ -50,15 +50,10 @@ public class NumberTreeNode extends AbstractValueTreeNode {
     @Override
     public String generate(ThreeAddressCode code) {
         if (this.number == null) {
-            throw new IllegalStateException("Identifier is missing or not set.");
+            throw new IllegalStateException("Number is missing or not set.");
         }
 
-        // Check if the number exists in the symbol table
-        if (code.getSymbolTable().get(this.number.toString()) == null) {
-            throw new IllegalStateException("Undefined identifier: " + this.number);
-        }
-
-        // Return the number as it directly refers to the variable
+        // A literal is an operand by itself, it is not declared in the symbol table
         return this.number.toString();
     }
 
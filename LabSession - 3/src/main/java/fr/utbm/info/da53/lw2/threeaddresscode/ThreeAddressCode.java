@@ -1,22 +1,38 @@
 package fr.utbm.info.da53.lw2.threeaddresscode;
 
+import fr.utbm.info.da53.lw2.context.Statement;
 import fr.utbm.info.da53.lw2.symbol.SymbolTable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 
 public class ThreeAddressCode {
 
     private final List<ThreeAddressRecord> code;
+    private final ThreeAddressRecordSink sink; // Receives the records instead of the list when not null
+    private int recordCount; // Number of records added, kept or not
     private final Map<Integer, Integer> lineMappings; // Tiny Basic line -> TAC line
     private final SymbolTable symbolTable; // Reuse your SymbolTable class
     private int tempVarCounter; // Counter for generating unique temporary variables
     private int labelCounter; // Counter for generating unique labels
 
     public ThreeAddressCode(SymbolTable symbolTable) {
+        this(symbolTable, null);
+    }
+
+    /**
+     * Create a three-address code which does not keep its records, but writes
+     * each of them to a sink as soon as it is added
+     *
+     * @param symbolTable The symbol table
+     * @param sink The sink of the records, or null to keep them in the code
+     */
+    public ThreeAddressCode(SymbolTable symbolTable, ThreeAddressRecordSink sink) {
         this.code = new ArrayList<>();
+        this.sink = sink;
         this.lineMappings = new HashMap<>();
         this.symbolTable = symbolTable;
         this.tempVarCounter = 0;
@@ -24,10 +40,20 @@ public class ThreeAddressCode {
     }
 
 
+    /**
+     * @return The records, empty if they are written to a sink
+     */
     public List<ThreeAddressRecord> getCode() {
         return code;
     }
 
+    /**
+     * @return The number of records added, including the ones written to a sink
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
     public Integer getLineMapping(int tinyBasicLine) {
         return this.lineMappings.get(tinyBasicLine);
     }
@@ -70,7 +96,12 @@ public class ThreeAddressCode {
      * @param record The record to add
      */
     public void addRecord(ThreeAddressRecord record) {
-        this.code.add(record);
+        if (this.sink == null) {
+            this.code.add(record);
+        } else {
+            this.sink.write(record);
+        }
+        this.recordCount++;
     }
 
     /**
@@ -93,6 +124,38 @@ public class ThreeAddressCode {
         return "L" + labelCounter++;
     }
 
+    /**
+     * Generate the code of a Tiny Basic line, and map the line to its first record
+     *
+     * @param tinyBasicLine The Tiny Basic line
+     * @param statement The statement of the line
+     */
+    public void generate(int tinyBasicLine, Statement statement) {
+        mapLine(tinyBasicLine, recordCount);
+        statement.generate(this);
+    }
+
+    /**
+     * Generate the code of a program, line after line
+     *
+     * @param program The statements by Tiny Basic line
+     */
+    public void generate(SortedMap<Integer, Statement> program) {
+        for (Map.Entry<Integer, Statement> line : program.entrySet()) {
+            generate(line.getKey(), line.getValue());
+        }
+    }
+
+    /**
+     * Remove the mapping of a Tiny Basic line
+     *
+     * @param tinyBasicLine The Tiny Basic line
+     * @return The TAC line it was mapped to, or null
+     */
+    public Integer unmapLine(int tinyBasicLine) {
+        return this.lineMappings.remove(tinyBasicLine);
+    }
+
     /**
      * Map a Tiny Basic line to a TAC line
      * @param tinyBasicLine The Tiny Basic line
@@ -0,0 +1,16 @@
+package fr.utbm.info.da53.lw2.threeaddresscode;
+
+/**
+ * Receives the records of a three-address code as soon as they are generated,
+ * so the code does not have to keep them
+ */
+public interface ThreeAddressRecordSink {
+
+    /**
+     * Write a record, after the previous ones
+     *
+     * @param record The record
+     */
+    void write(ThreeAddressRecord record);
+
+}
@@ -0,0 +1,37 @@
+package fr.utbm.info.da53.lw2.threeaddresscode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Sink writing the records to a writer, one record per line
+ */
+public class WriterRecordSink implements ThreeAddressRecordSink {
+
+    private final Writer writer;
+
+    /**
+     * @param writer The writer, which should be buffered
+     */
+    public WriterRecordSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write a record on its own line
+     *
+     * @param record The record
+     * @throws UncheckedIOException if the writer fails
+     */
+    @Override
+    public void write(ThreeAddressRecord record) {
+        try {
+            this.writer.write(record.toString());
+            this.writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that an {@link AsciiReader} replies the characters of its source,
+ * switching to the decoder on the first non-ASCII byte, and that the files
+ * too large to be mapped are read from a stream.
+ */
+class AsciiReaderTest {
+
+	@TempDir
+	Path directory;
+
+	/** Read a reader until its end, by blocks of a given size.
+	 *
+	 * @param reader the reader.
+	 * @param blockSize the number of characters read at once.
+	 * @return the characters.
+	 * @throws IOException if the reader cannot be read.
+	 */
+	private static String readAll(Reader reader, int blockSize) throws IOException {
+		StringBuilder b = new StringBuilder();
+		char[] buffer = new char[blockSize];
+		int count;
+		while ((count = reader.read(buffer, 0, blockSize)) >= 0) {
+			b.append(buffer, 0, count);
+		}
+		return b.toString();
+	}
+
+	/** Create a file larger than 2 GB. It is sparse, so it takes no room on most file systems.
+	 *
+	 * @return the file.
+	 * @throws IOException if the file cannot be created.
+	 */
+	private File largeFile() throws IOException {
+		File file = this.directory.resolve("large.bas").toFile(); //$NON-NLS-1$
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { //$NON-NLS-1$
+			raf.write("10 PRINT A\n".getBytes(StandardCharsets.US_ASCII)); //$NON-NLS-1$
+			raf.setLength(Integer.MAX_VALUE + 16L);
+		}
+		return file;
+	}
+
+	@Test
+	void asciiIsReadWithoutDecoder() throws IOException {
+		String source = "10 PRINT \"HELLO\"\r\n20 GOTO 10\n"; //$NON-NLS-1$
+		for (int blockSize : new int[] {1, 7, 4096}) {
+			AsciiReader reader = new AsciiReader(source.getBytes(StandardCharsets.US_ASCII));
+			assertEquals(source, readAll(reader, blockSize));
+			assertFalse(reader.isDecoding());
+		}
+	}
+
+	@Test
+	void nonAsciiIsDecoded() throws IOException {
+		String source = "10 PRINT \"ÉTÉ\"\n20 PRINT \"€\"\n"; //$NON-NLS-1$
+		for (int blockSize : new int[] {1, 7, 4096}) {
+			AsciiReader reader = new AsciiReader(source.getBytes(StandardCharsets.UTF_8));
+			assertEquals(source, readAll(reader, blockSize));
+			assertTrue(reader.isDecoding());
+		}
+	}
+
+	@Test
+	void smallFilesAreMapped() throws IOException {
+		String source = "10 LET A = 1\n20 PRINT \"é\"\n"; //$NON-NLS-1$
+		Path file = this.directory.resolve("small.bas"); //$NON-NLS-1$
+		Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+		try (Reader reader = AsciiReader.open(file.toFile())) {
+			assertInstanceOf(AsciiReader.class, reader);
+			assertEquals(source, readAll(reader, 8));
+		}
+	}
+
+	@Test
+	void largeFilesAreStreamed() throws IOException {
+		File file = largeFile();
+		try (Reader reader = AsciiReader.open(file)) {
+			assertFalse(reader instanceof AsciiReader);
+			char[] buffer = new char[16];
+			int count = 0;
+			while (count < buffer.length) {
+				count += reader.read(buffer, count, buffer.length - count);
+			}
+			assertArrayEquals("10 PRINT A\n\0\0\0\0\0".toCharArray(), buffer); //$NON-NLS-1$
+		}
+		SimpleCharStream stream = SourceCharStream.open(file);
+		assertFalse(stream instanceof SourceCharStream);
+		assertEquals('1', stream.BeginToken());
+		assertEquals('0', stream.readChar());
+		assertEquals(1, stream.getEndLine());
+		assertEquals(2, stream.getEndColumn());
+		stream.inputStream.close();
+	}
+
+}
@@ -0,0 +1,109 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the tokens of a {@link BasicLexer}, and of the
+ * {@link HandWrittenTokenManager} replying them, have the images, the
+ * positions and the lexical errors of the generated
+ * {@link BasicParserTokenManager}.
+ * <p>
+ * The sources have no <code>REM</code>, and the keywords are compared as
+ * identifiers: these are the documented differences of the lexers.
+ */
+class BasicLexerTest {
+
+	private static final String[] INPUTS = {
+		"", //$NON-NLS-1$
+		"\n", //$NON-NLS-1$
+		"   ", //$NON-NLS-1$
+		"10 PRINT A", //$NON-NLS-1$
+		"10 PRINT A\n", //$NON-NLS-1$
+		"10 PRINT A$", //$NON-NLS-1$
+		"10 PRINT A$\n", //$NON-NLS-1$
+		"10 PRINT \"HI\"\r\n20 END\r\n", //$NON-NLS-1$
+		"10 print \"HI\"\r20 Goto 10\r", //$NON-NLS-1$
+		"10 PRINT A\r\r\n\r", //$NON-NLS-1$
+		"\tX\t=\t1\n\t\tY = X\n", //$NON-NLS-1$
+		"10 LET A = 1.5 + 2.\n", //$NON-NLS-1$
+		"x_1 _y 1.2.3\n", //$NON-NLS-1$
+		"10 A ? B\n", //$NON-NLS-1$
+		"10 IF A >< B THEN IF C <> D THEN IF E <= F THEN IF G >= H THEN PRINT (A - B) * C / D\n", //$NON-NLS-1$
+		"10 PRINT \"abc", //$NON-NLS-1$
+		"10 PRINT \"abc\n20 END\n", //$NON-NLS-1$
+		"10 PRINT \"abc\r", //$NON-NLS-1$
+		"10 PRINT \"", //$NON-NLS-1$
+		"10 PRINT \"a\n", //$NON-NLS-1$
+		"?", //$NON-NLS-1$
+		"A\n?", //$NON-NLS-1$
+	};
+
+	/** Characters of the random sources, which cannot spell <code>REM</code>.
+	 */
+	private static final String ALPHABET = " \t\r\n\"._=+-*/()<>?$aAzZ09"; //$NON-NLS-1$
+
+	/** Describe the tokens of a token manager until its end or its first error.
+	 *
+	 * @param manager the token manager.
+	 * @return one description per token, then the message of the error if any.
+	 */
+	private static List<String> trace(BasicParserTokenManager manager) {
+		List<String> trace = new ArrayList<>();
+		try {
+			Token token;
+			do {
+				token = manager.getNextToken();
+				trace.add(describe(token));
+			}
+			while (token.kind != BasicParserConstants.EOF);
+		}
+		catch (TokenMgrError e) {
+			trace.add(e.getMessage());
+		}
+		return trace;
+	}
+
+	private static String describe(Token token) {
+		int kind = token.kind;
+		if (kind >= BasicParserConstants.PRINT && kind <= BasicParserConstants.REM) {
+			// The generated automaton prefers the identifiers to the keywords of the same text
+			kind = BasicParserConstants.IDENTIFIER;
+		}
+		return kind + " " + token.image + " " + token.beginLine + ":" + token.beginColumn //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			+ "-" + token.endLine + ":" + token.endColumn; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static void assertSameTokens(String input) {
+		List<String> expected = trace(new BasicParserTokenManager(new SimpleCharStream(new StringReader(input))));
+		assertEquals(expected, trace(new HandWrittenTokenManager(new BasicLexer(input))), input);
+		char[] chars = ("#" + input + "#").toCharArray(); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(expected, trace(new HandWrittenTokenManager(new BasicLexer(chars, 1, chars.length - 1))), input);
+	}
+
+	@Test
+	void tokensMatchGeneratedTokenManager() {
+		for (String input : INPUTS) {
+			assertSameTokens(input);
+		}
+	}
+
+	@Test
+	void randomSourcesMatchGeneratedTokenManager() {
+		Random random = new Random(53);
+		for (int i = 0; i < 20000; ++i) {
+			char[] chars = new char[random.nextInt(24)];
+			for (int j = 0; j < chars.length; ++j) {
+				chars[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+			}
+			assertSameTokens(new String(chars));
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+
+/**
+ * Checks that a {@link CompilationCache} compiles a source once for
+ * concurrent lookups, moves its least recently used programs to the soft
+ * tier, does not cache the sources which are not valid, and counts its
+ * lookups and compilations.
+ */
+class CompilationCacheTest {
+
+	private static final int THREADS = 8;
+
+	private static final String SOURCE_A = "10 LET A = B + C\n20 PRINT A\n"; //$NON-NLS-1$
+	private static final String SOURCE_B = "10 PRINT \"B\"\n"; //$NON-NLS-1$
+	private static final String SOURCE_C = "10 LET C = 1\n20 GOTO 10\n"; //$NON-NLS-1$
+
+	@Test
+	void concurrentLookupsShareOneCompilation() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompilationCache cache = new CompilationCache() {
+			@Override
+			CompiledProgram compile(char[] source, int start, int end) throws CompilerException {
+				started.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return super.compile(source, start, end);
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<CompiledProgram>> results = new ArrayList<>();
+			for (int i = 0; i < THREADS; ++i) {
+				results.add(executor.submit(() -> cache.get(SOURCE_A)));
+			}
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			// Hold the compilation until every other thread waits for it
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (cache.getCollapsedCount() < THREADS - 1 && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			CompiledProgram program = results.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<CompiledProgram> result : results) {
+				assertSame(program, result.get(10, TimeUnit.SECONDS));
+			}
+		}
+		finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+		assertEquals(1, cache.getLoadCount());
+		assertEquals(THREADS - 1, cache.getCollapsedCount());
+		assertEquals(THREADS, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void leastRecentlyUsedProgramsMoveToTheSoftTier() throws CompilerException {
+		CompilationCache cache = new CompilationCache(2);
+		CompiledProgram a = cache.get(SOURCE_A);
+		CompiledProgram b = cache.get(SOURCE_B);
+		CompiledProgram c = cache.get(SOURCE_C);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.softSize());
+		assertEquals(1, cache.getEvictionCount());
+
+		// The programs are strongly reachable from the test, so they are not collected
+		assertSame(a, cache.get(SOURCE_A));
+		assertEquals(1, cache.getSoftHitCount());
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.softSize());
+		assertEquals(2, cache.getEvictionCount());
+
+		assertSame(c, cache.get(SOURCE_C));
+		assertEquals(1, cache.getHitCount());
+		assertSame(b, cache.get(SOURCE_B));
+		assertEquals(2, cache.getSoftHitCount());
+		assertEquals(3, cache.getLoadCount());
+		assertEquals(0, cache.getCollectedCount());
+	}
+
+	@Test
+	void invalidSourcesAreNotCached() {
+		CompilationCache cache = new CompilationCache();
+		for (int i = 1; i <= 3; ++i) {
+			CompilerException e = assertThrows(CompilerException.class, () -> cache.get(Compilations.INVALID_INPUT));
+			assertEquals(2, e.line());
+			assertEquals(i, cache.getLoadFailureCount());
+			assertEquals(i, cache.getMissCount());
+		}
+		assertEquals(0, cache.getLoadCount());
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.softSize());
+	}
+
+	@Test
+	void lookupsAreCounted() throws IOException, CompilerException {
+		CompilationCache cache = new CompilationCache();
+		assertEquals(1., cache.getHitRate());
+		CompiledProgram program = cache.get(SOURCE_A);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getLoadCount());
+
+		// The same text is found whatever the way it is given
+		assertSame(program, cache.get(new StringReader(SOURCE_A)));
+		char[] chars = ("#" + SOURCE_A + "#").toCharArray(); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSame(program, cache.get(chars, 1, chars.length - 1));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getLoadCount());
+		assertEquals(2. / 3., cache.getHitRate());
+
+		cache.get(SOURCE_B);
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.getLoadCount());
+		assertEquals(0, cache.getCollapsedCount());
+		assertEquals(0, cache.getLoadFailureCount());
+		assertTrue(cache.getTotalLoadTime() > 0);
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		cache.get(SOURCE_A);
+		assertEquals(3, cache.getMissCount());
+		assertEquals(3, cache.getLoadCount());
+	}
+
+}
@@ -0,0 +1,77 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.SortedMap;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Sources and helpers shared by the tests of the compilers, which are
+ * compared with the sequential {@link HandWrittenParser}.
+ */
+final class Compilations {
+
+	/** Valid sources, without the known differences of the compilers.
+	 */
+	static final String[] INPUTS = {
+		"", //$NON-NLS-1$
+		"10 LET A = B + C\n20 PRINT A * B\n30 IF A < B THEN PRINT C\n40 PRINT \"HELLO\"\n50 END\n", //$NON-NLS-1$
+		"10 LET X = Y\r\n20 LET Y = X - Z / W\r\n30 PRINT X + Y\r\n", //$NON-NLS-1$
+		"\n10 LET X = Y\n\n20 PRINT X\n\n", //$NON-NLS-1$
+		"LET A = B\nPRINT A\nLET C = A\n", //$NON-NLS-1$
+		"10 PRINT A\n20 LET B = A", //$NON-NLS-1$
+		longInput(),
+	};
+
+	/** An invalid source, whose second line has no variable.
+	 */
+	static final String INVALID_INPUT = "10 LET A = B\n20 LET = A\n30 PRINT A\n"; //$NON-NLS-1$
+
+	private Compilations() {
+		//
+	}
+
+	private static String longInput() {
+		StringBuilder b = new StringBuilder();
+		for (int i = 1; i <= 3000; ++i) {
+			b.append(i * 10).append(" LET V").append(i % 17).append(" = V").append(i % 5) //$NON-NLS-1$ //$NON-NLS-2$
+				.append(i % 3 == 0 ? " * W" : " + V").append(i % 11).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return b.toString();
+	}
+
+	/** Parse a source with the hand-written parser.
+	 *
+	 * @param input the source.
+	 * @return the parser, whose program and symbol table are filled.
+	 * @throws IOException if the source cannot be read.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	static HandWrittenParser parse(String input) throws IOException, CompilerException {
+		HandWrittenParser parser = HandWrittenParser.read(new StringReader(input));
+		parser.executeCompiler();
+		return parser;
+	}
+
+	/** Generate the code of a program, with the identifiers of a symbol table.
+	 *
+	 * @param program the statements by line number.
+	 * @param symbolTable the identifiers declared by the parser.
+	 * @return the description of the code.
+	 */
+	static String generate(SortedMap<Integer,Statement> program, SymbolTable symbolTable) {
+		SymbolTable identifiers = new SymbolTable();
+		for (SymbolTableEntry entry : symbolTable) {
+			identifiers.declare(entry.id(), entry.line());
+		}
+		ThreeAddressCode code = new ThreeAddressCode(identifiers);
+		code.generate(program);
+		return code.toString();
+	}
+
+}
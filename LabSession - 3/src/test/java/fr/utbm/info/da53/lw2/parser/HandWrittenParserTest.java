@@ -0,0 +1,150 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.junit.jupiter.api.Test;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilationErrorType;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.GosubTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.IfThenElseTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.PrintTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.keywords.ReturnTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.relop.LowerThanTreeNode;
+import fr.utbm.info.da53.lw2.syntaxtree.variables.NumberTreeNode;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressRecord;
+
+/**
+ * Checks the trees built by a {@link HandWrittenParser}: the associativity
+ * and the precedence of the operators, the statements, the numbering of the
+ * lines, and the line of the syntax errors.
+ */
+class HandWrittenParserTest {
+
+	/** Parse a source and generate its code, without the comments of the records.
+	 *
+	 * @param input the source.
+	 * @return one description per record.
+	 * @throws IOException if the source cannot be read.
+	 * @throws CompilerException if the source is not valid.
+	 */
+	private static List<String> code(String input) throws IOException, CompilerException {
+		HandWrittenParser parser = Compilations.parse(input);
+		ThreeAddressCode code = new ThreeAddressCode(parser.getSymbolTable());
+		code.generate(parser.getProgram());
+		List<String> records = new ArrayList<>();
+		for (ThreeAddressRecord record : code.getCode()) {
+			StringBuilder b = new StringBuilder(record.getInstruction().name());
+			for (String operand : new String[] {record.getParameter1(), record.getParameter2(), record.getResult()}) {
+				if (operand != null) {
+					b.append(' ').append(operand);
+				}
+			}
+			records.add(b.toString());
+		}
+		return records;
+	}
+
+	private static void assertSyntaxError(CompilationErrorType type, int line, String input) {
+		CompilerException e = assertThrows(CompilerException.class, () -> Compilations.parse(input), input);
+		assertEquals(type, e.type(), input);
+		assertEquals(line, e.line(), input);
+	}
+
+	@Test
+	void operatorsAssociateToTheLeft() throws IOException, CompilerException {
+		assertEquals(Arrays.asList(
+				"SUBTRACTION 1 2 t0", //$NON-NLS-1$
+				"SUBTRACTION t0 3 t1", //$NON-NLS-1$
+				"PRINT t1"), //$NON-NLS-1$
+				code("10 PRINT 1-2-3\n")); //$NON-NLS-1$
+		assertEquals(Arrays.asList(
+				"DIVISION 8 4 t0", //$NON-NLS-1$
+				"DIVISION t0 2 t1", //$NON-NLS-1$
+				"PRINT t1"), //$NON-NLS-1$
+				code("10 PRINT 8/4/2\n")); //$NON-NLS-1$
+		assertEquals(Arrays.asList(
+				"ADDITION A B t0", //$NON-NLS-1$
+				"SUBTRACTION t0 C t1", //$NON-NLS-1$
+				"ADDITION t1 D t2", //$NON-NLS-1$
+				"PRINT t2"), //$NON-NLS-1$
+				code("10 PRINT A + B - C + D\n")); //$NON-NLS-1$
+	}
+
+	@Test
+	void productsBindTighterThanSums() throws IOException, CompilerException {
+		assertEquals(Arrays.asList(
+				"MULTIPLICATION 2 3 t0", //$NON-NLS-1$
+				"ADDITION 1 t0 t1", //$NON-NLS-1$
+				"DIVISION 4 2 t2", //$NON-NLS-1$
+				"SUBTRACTION t1 t2 t3", //$NON-NLS-1$
+				"PRINT t3"), //$NON-NLS-1$
+				code("10 PRINT 1+2*3-4/2\n")); //$NON-NLS-1$
+		assertEquals(Arrays.asList(
+				"ADDITION 1 2 t0", //$NON-NLS-1$
+				"SUBTRACTION 4 5 t1", //$NON-NLS-1$
+				"DIVISION 3 t1 t2", //$NON-NLS-1$
+				"MULTIPLICATION t0 t2 t3", //$NON-NLS-1$
+				"PRINT t3"), //$NON-NLS-1$
+				code("10 PRINT (1+2)*(3/(4-5))\n")); //$NON-NLS-1$
+	}
+
+	@Test
+	void ifThenElseAndSubroutines() throws IOException, CompilerException {
+		SortedMap<Integer,Statement> program = Compilations.parse(
+				"10 IF A < B THEN PRINT A ELSE GOSUB 100\n20 IF A < B THEN GOSUB 200\n100 RETURN\n").getProgram(); //$NON-NLS-1$
+		assertEquals(Arrays.asList(10, 20, 100), new ArrayList<>(program.keySet()));
+
+		IfThenElseTreeNode ifElse = assertInstanceOf(IfThenElseTreeNode.class, program.get(10));
+		assertInstanceOf(LowerThanTreeNode.class, ifElse.getCondition());
+		assertInstanceOf(PrintTreeNode.class, ifElse.getThenStatement());
+		GosubTreeNode gosub = assertInstanceOf(GosubTreeNode.class, ifElse.getElseStatement());
+		assertEquals("100", assertInstanceOf(NumberTreeNode.class, gosub.getExpression()).getNumber().toString()); //$NON-NLS-1$
+
+		IfThenElseTreeNode ifThen = assertInstanceOf(IfThenElseTreeNode.class, program.get(20));
+		assertInstanceOf(GosubTreeNode.class, ifThen.getThenStatement());
+		assertNull(ifThen.getElseStatement());
+
+		assertInstanceOf(ReturnTreeNode.class, program.get(100));
+	}
+
+	@Test
+	void duplicateLineNumbersKeepTheLastLine() throws IOException, CompilerException {
+		SortedMap<Integer,Statement> program = Compilations.parse("10 PRINT 1\n20 GOSUB 10\n10 RETURN\n").getProgram(); //$NON-NLS-1$
+		assertEquals(Arrays.asList(10, 20), new ArrayList<>(program.keySet()));
+		assertInstanceOf(ReturnTreeNode.class, program.get(10));
+	}
+
+	@Test
+	void unnumberedLinesUseTheirSourceLine() throws IOException, CompilerException {
+		SortedMap<Integer,Statement> program = Compilations.parse("PRINT 1\n\nRETURN\r\n5 END\r\nRETURN").getProgram(); //$NON-NLS-1$
+		assertEquals(Arrays.asList(1, 3, 5), new ArrayList<>(program.keySet()));
+		assertInstanceOf(PrintTreeNode.class, program.get(1));
+		// The last line is line 5 of the source, which replaces the numbered line 5
+		assertInstanceOf(ReturnTreeNode.class, program.get(5));
+	}
+
+	@Test
+	void syntaxErrorsAreReportedOnTheirSourceLine() {
+		assertSyntaxError(CompilationErrorType.SYNTAX_ERROR, 2, "10 PRINT 1\n20 LET = A\n"); //$NON-NLS-1$
+		assertSyntaxError(CompilationErrorType.EXPECTING_RIGHT_OPERAND, 3, "10 PRINT 1\n\n30 PRINT 2 +\n"); //$NON-NLS-1$
+		assertSyntaxError(CompilationErrorType.SYNTAX_ERROR, 3, "10 PRINT 1\r\n20 PRINT 2\r\n30 PRINT (1\r\n"); //$NON-NLS-1$
+		assertSyntaxError(CompilationErrorType.EXPECTING_COMPARISON_OPERATOR, 2, "10 PRINT 1\n20 IF A THEN END\n"); //$NON-NLS-1$
+		assertSyntaxError(CompilationErrorType.SYNTAX_ERROR, 1, "10 IF A < B PRINT A\n20 END\n"); //$NON-NLS-1$
+		assertSyntaxError(CompilationErrorType.SYNTAX_ERROR, 4, "10 PRINT 1\n20 PRINT 2\n30 PRINT 3\n40 PRINT 4 5\n"); //$NON-NLS-1$
+		assertSyntaxError(CompilationErrorType.ILLEGAL_CHARACTER, 2, "10 PRINT 1\n20 PRINT ?\n"); //$NON-NLS-1$
+		assertSyntaxError(CompilationErrorType.EXPECTING_EXPRESSION, 1, "GOTO\n"); //$NON-NLS-1$
+	}
+
+}
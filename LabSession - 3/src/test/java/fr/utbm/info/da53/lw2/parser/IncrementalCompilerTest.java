@@ -0,0 +1,145 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Checks that the program, the symbol table and the code of an
+ * {@link IncrementalCompiler} are the ones of the whole edited listing,
+ * compiled by the {@link HandWrittenParser}.
+ */
+class IncrementalCompilerTest {
+
+	private static final String[] STATEMENTS = {
+		"LET A = B + C", //$NON-NLS-1$
+		"LET B = 1", //$NON-NLS-1$
+		"PRINT A * B - 2", //$NON-NLS-1$
+		"GOTO 20", //$NON-NLS-1$
+		"IF A < B THEN PRINT C", //$NON-NLS-1$
+		"PRINT \"HELLO\"", //$NON-NLS-1$
+		"LET X = Y / Z", //$NON-NLS-1$
+		"END", //$NON-NLS-1$
+	};
+
+	/** Describe the code without the numbers of the temporary variables and of
+	 * the labels, which are not reused by the lines generated again.
+	 *
+	 * @param code the code.
+	 * @return the description of the records.
+	 */
+	private static String describe(ThreeAddressCode code) {
+		return code.getCode().toString().replaceAll("\\b([tL])\\d+\\b", "$1"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static boolean isTemporary(SymbolTableEntry entry) {
+		return entry.id().matches("T\\d+"); //$NON-NLS-1$
+	}
+
+	private static Set<String> identifiers(SymbolTable symbolTable) {
+		Set<String> identifiers = new TreeSet<>();
+		for (SymbolTableEntry entry : symbolTable) {
+			if (!isTemporary(entry)) {
+				identifiers.add(entry.id());
+			}
+		}
+		return identifiers;
+	}
+
+	private static void assertMatchesParser(IncrementalCompiler compiler, SortedMap<Integer,String> listing, String context)
+			throws IOException, CompilerException {
+		StringBuilder source = new StringBuilder();
+		for (Map.Entry<Integer,String> line : listing.entrySet()) {
+			source.append(line.getKey()).append(' ').append(line.getValue()).append('\n');
+		}
+		HandWrittenParser parser = HandWrittenParser.read(new StringReader(source.toString()));
+		parser.executeCompiler();
+		SymbolTable symbolTable = new SymbolTable();
+		for (SymbolTableEntry entry : parser.getSymbolTable()) {
+			symbolTable.declare(entry.id(), entry.line());
+		}
+		ThreeAddressCode expected = new ThreeAddressCode(symbolTable);
+		expected.generate(parser.getProgram());
+
+		assertEquals(parser.getProgram().keySet(), compiler.getProgram().keySet(), context);
+		assertEquals(identifiers(parser.getSymbolTable()), identifiers(compiler.getSymbolTable()), context);
+		ThreeAddressCode code = compiler.getThreeAddressCode();
+		assertEquals(describe(expected), describe(code), context);
+		for (Integer lineNumber : listing.keySet()) {
+			assertEquals(expected.getLineMapping(lineNumber.intValue()), code.getLineMapping(lineNumber.intValue()), context);
+		}
+		// The temporary variables of the replaced lines are removed
+		int temporaries = 0;
+		for (SymbolTableEntry entry : compiler.getSymbolTable()) {
+			if (isTemporary(entry)) {
+				++temporaries;
+			}
+		}
+		assertEquals(expected.getTempVarCounter(), temporaries, context);
+	}
+
+	@Test
+	void editsMatchParser() throws IOException, CompilerException {
+		Random random = new Random(24);
+		IncrementalCompiler compiler = new IncrementalCompiler();
+		SortedMap<Integer,String> listing = new TreeMap<>();
+		for (int i = 0; i < 500; ++i) {
+			int lineNumber = (random.nextInt(60) + 1) * 10;
+			if (random.nextInt(4) == 0) {
+				compiler.edit(Integer.toString(lineNumber));
+				listing.remove(Integer.valueOf(lineNumber));
+			}
+			else {
+				String statement = STATEMENTS[random.nextInt(STATEMENTS.length)];
+				if (random.nextBoolean()) {
+					compiler.edit(lineNumber + " " + statement); //$NON-NLS-1$
+				}
+				else {
+					compiler.put(lineNumber, statement);
+				}
+				listing.put(Integer.valueOf(lineNumber), statement);
+			}
+			// Read the code after some edits only, so several edits are laid out at once
+			if (i % 3 == 0) {
+				assertMatchesParser(compiler, listing, "edit " + i + " at " + lineNumber); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		assertMatchesParser(compiler, listing, "end"); //$NON-NLS-1$
+	}
+
+	@Test
+	void defaultCompilerGeneratesLiterals() throws CompilerException {
+		IncrementalCompiler compiler = new IncrementalCompiler();
+		compiler.edit("10 PRINT 1"); //$NON-NLS-1$
+		compiler.edit("20 GOTO 10"); //$NON-NLS-1$
+		assertEquals(2, compiler.getProgram().size());
+		assertEquals(Integer.valueOf(0), compiler.getThreeAddressCode().getLineMapping(10));
+	}
+
+	@Test
+	void invalidLineChangesNothing() throws CompilerException {
+		IncrementalCompiler compiler = new IncrementalCompiler();
+		compiler.edit("10 LET A = B"); //$NON-NLS-1$
+		String code = compiler.getThreeAddressCode().getCode().toString();
+		assertThrows(CompilerException.class, () -> compiler.edit("10 LET = B")); //$NON-NLS-1$
+		assertThrows(CompilerException.class, () -> compiler.edit("LET A = B")); //$NON-NLS-1$
+		assertEquals(code, compiler.getThreeAddressCode().getCode().toString());
+		assertEquals(1, compiler.getReferenceCount("A")); //$NON-NLS-1$
+	}
+
+}
@@ -0,0 +1,48 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import fr.utbm.info.da53.lw2.context.Statement;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+
+/**
+ * Checks that a {@link LazyCompiler} parses no line before it is needed, and
+ * then compiles a source like the {@link HandWrittenParser}.
+ */
+class LazyCompilerTest {
+
+	@Test
+	void linesMatchParser() throws IOException, CompilerException {
+		for (String input : Compilations.INPUTS) {
+			HandWrittenParser parser = Compilations.parse(input);
+			char[] chars = input.toCharArray();
+			LazyCompiler compiler = new LazyCompiler(LineIndex.build(chars, 0, chars.length));
+			compiler.executeCompiler();
+			assertEquals(parser.getProgram().keySet(), compiler.getProgram().keySet(), input);
+			assertEquals(0, compiler.getParsedCount());
+			// Parse the lines, in the order of the source, before reading the symbol table
+			for (Statement statement : compiler.getProgram().values()) {
+				((LazyStatement) statement).getStatement();
+			}
+			assertEquals(parser.getSymbolTable().toString(), compiler.getSymbolTable().toString(), input);
+			assertEquals(Compilations.generate(parser.getProgram(), parser.getSymbolTable()),
+					Compilations.generate(compiler.getProgram(), compiler.getSymbolTable()), input);
+		}
+	}
+
+	@Test
+	void invalidLineIsRejectedWhenParsed() throws CompilerException {
+		char[] chars = Compilations.INVALID_INPUT.toCharArray();
+		LazyCompiler compiler = new LazyCompiler(LineIndex.build(chars, 0, chars.length));
+		Statement statement = compiler.executeCompiler().get(Integer.valueOf(20));
+		assertEquals(0, compiler.getParsedCount());
+		CompilerException error = assertThrows(CompilerException.class, () -> ((LazyStatement) statement).getStatement());
+		assertEquals(2, error.line());
+	}
+
+}
@@ -0,0 +1,49 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+
+/**
+ * Checks that a {@link ParallelCompiler} compiles a source like the
+ * {@link HandWrittenParser}, whatever the size of its chunks.
+ */
+class ParallelCompilerTest {
+
+	private static final int[] CHUNK_LINES = {1, 7, 64, ParallelCompiler.DEFAULT_CHUNK_LINES};
+
+	@Test
+	void chunksMatchParser() throws IOException, CompilerException {
+		for (String input : Compilations.INPUTS) {
+			HandWrittenParser parser = Compilations.parse(input);
+			String expected = Compilations.generate(parser.getProgram(), parser.getSymbolTable());
+			char[] chars = input.toCharArray();
+			LineIndex lineIndex = LineIndex.build(chars, 0, chars.length);
+			for (int chunkLines : CHUNK_LINES) {
+				ParallelCompiler compiler = new ParallelCompiler(lineIndex, ForkJoinPool.commonPool(), chunkLines);
+				compiler.executeCompiler();
+				assertEquals(parser.getProgram().keySet(), compiler.getProgram().keySet(), input);
+				assertEquals(parser.getSymbolTable().toString(), compiler.getSymbolTable().toString(), input);
+				assertEquals(expected, Compilations.generate(compiler.getProgram(), compiler.getSymbolTable()), input);
+			}
+		}
+	}
+
+	@Test
+	void invalidSourceIsRejected() {
+		char[] chars = Compilations.INVALID_INPUT.toCharArray();
+		LineIndex lineIndex = LineIndex.build(chars, 0, chars.length);
+		for (int chunkLines : CHUNK_LINES) {
+			CompilerException error = assertThrows(CompilerException.class,
+					() -> new ParallelCompiler(lineIndex, ForkJoinPool.commonPool(), chunkLines).executeCompiler());
+			assertEquals(2, error.line());
+		}
+	}
+
+}
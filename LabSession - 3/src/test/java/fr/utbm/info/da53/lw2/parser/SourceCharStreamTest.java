@@ -0,0 +1,86 @@
+package fr.utbm.info.da53.lw2.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a {@link SourceCharStream} replies the characters and the
+ * positions of a {@link SimpleCharStream}, including after the position of a
+ * token is adjusted.
+ */
+class SourceCharStreamTest {
+
+	private static final String[] INPUTS = {
+		"10 PRINT \"HELLO\"\n20 GOTO 10\n", //$NON-NLS-1$
+		"10 LET A = 1\r\n20 LET B = A + 2\r\n\r\n30 END", //$NON-NLS-1$
+		"\tLET\tA = B\r30 PRINT A\n\n\t\tEND\n", //$NON-NLS-1$
+	};
+
+	/** Read a stream by tokens of three characters, moving one token to a new position.
+	 *
+	 * @param stream the stream to read.
+	 * @param adjusted the number of the token to move, or -1.
+	 * @param newLine the new line of the token.
+	 * @param newColumn the new column of the token.
+	 * @return the trace of the characters and the positions.
+	 */
+	private static List<String> trace(SimpleCharStream stream, int adjusted, int newLine, int newColumn) {
+		List<String> trace = new ArrayList<>();
+		int tokens = 0;
+		try {
+			while (true) {
+				StringBuilder b = new StringBuilder();
+				b.append(stream.BeginToken()).append(stream.readChar()).append(stream.readChar());
+				if (tokens == adjusted) {
+					// Like a lexical action, once the token is read
+					stream.adjustBeginLineColumn(newLine, newColumn);
+				}
+				trace.add(b.toString().replace('\n', '|') + " " + stream.getBeginLine() + ":" + stream.getBeginColumn() //$NON-NLS-1$ //$NON-NLS-2$
+					+ "-" + stream.getEndLine() + ":" + stream.getEndColumn()); //$NON-NLS-1$ //$NON-NLS-2$
+				++tokens;
+			}
+		}
+		catch (IOException e) {
+			// End of the stream
+		}
+		return trace;
+	}
+
+	@Test
+	void positionsMatchSimpleCharStream() {
+		for (String input : INPUTS) {
+			assertEquals(trace(new SimpleCharStream(new StringReader(input)), -1, 0, 0),
+					trace(new SourceCharStream(input), -1, 0, 0), input);
+		}
+	}
+
+	@Test
+	void adjustedTokenMatchesSimpleCharStream() {
+		for (String input : INPUTS) {
+			for (int token = 0; token < 6; ++token) {
+				assertEquals(trace(new SimpleCharStream(new StringReader(input)), token, 100, 3).get(token),
+						trace(new SourceCharStream(input), token, 100, 3).get(token), input);
+			}
+		}
+	}
+
+	@Test
+	void adjustmentMovesTheFollowingPositions() {
+		String input = "10 PRINT A\n20 END\n"; //$NON-NLS-1$
+		assertEquals(List.of(
+				"10  1:1-1:3", //$NON-NLS-1$
+				"PRI 5:10-5:12", //$NON-NLS-1$
+				"NT  5:13-5:15", //$NON-NLS-1$
+				"A|2 5:16-6:1", //$NON-NLS-1$
+				"0 E 6:2-6:4", //$NON-NLS-1$
+				"ND| 6:5-6:7"), //$NON-NLS-1$
+				trace(new SourceCharStream(input), 1, 5, 10));
+	}
+
+}
@@ -0,0 +1,100 @@
+package fr.utbm.info.da53.lw2.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+
+/**
+ * Checks that a {@link CompilationPipeline} generates the code of the
+ * sequential compiler, whatever the capacity of its queues and even when the
+ * line numbers are not ascending, and that a failure of its lexer is thrown
+ * instead of blocking the compilation.
+ */
+class CompilationPipelineTest {
+
+	private static final int[] CAPACITIES = {2, 16, CompilationPipeline.DEFAULT_CAPACITY};
+
+	private static final String[] INPUTS = {
+		"", //$NON-NLS-1$
+		"10 LET A = B + C\n20 PRINT A * B\n30 IF A < B THEN PRINT C\n40 PRINT \"HELLO\"\n50 END\n", //$NON-NLS-1$
+		"10 LET X = Y\r\n20 LET Y = X - Z / W\r\n30 PRINT X + Y\r\n", //$NON-NLS-1$
+		"\n10 LET X = Y\n\n20 PRINT X\n\n", //$NON-NLS-1$
+		"10 PRINT A\n20 LET B = A", //$NON-NLS-1$
+	};
+
+	private static final String[] UNORDERED_INPUTS = {
+		"20 LET A = B\n10 LET B = A\n10 LET C = A\n", //$NON-NLS-1$
+		"10 LET A = B\n20 PRINT A\n20 PRINT B\n30 LET C = A + B\n", //$NON-NLS-1$
+		"30 PRINT A\n20 PRINT B * C\n10 LET A = B\n", //$NON-NLS-1$
+		"10 LET A = B\n30 LET C = A\n20 LET B = C\n40 PRINT A\n", //$NON-NLS-1$
+	};
+
+	/** Compile a source with the hand-written parser, then generate its code.
+	 *
+	 * @param input the source.
+	 * @return the description of the code.
+	 */
+	private static String compile(String input) throws IOException, CompilerException {
+		HandWrittenParser parser = HandWrittenParser.read(new StringReader(input));
+		parser.executeCompiler();
+		SymbolTable identifiers = new SymbolTable();
+		for (SymbolTableEntry entry : parser.getSymbolTable()) {
+			identifiers.declare(entry.id(), entry.line());
+		}
+		ThreeAddressCode code = new ThreeAddressCode(identifiers);
+		code.generate(parser.getProgram());
+		return code.toString();
+	}
+
+	private static void assertMatchSequentialCompiler(String[] inputs) throws IOException, CompilerException {
+		for (String input : inputs) {
+			String expected = compile(input);
+			char[] chars = input.toCharArray();
+			for (int capacity : CAPACITIES) {
+				CompilationPipeline pipeline = new CompilationPipeline(chars, 0, chars.length, capacity);
+				assertEquals(expected, pipeline.compile().toString(), input);
+			}
+		}
+	}
+
+	@Test
+	void pipelineMatchesSequentialCompiler() throws IOException, CompilerException {
+		assertMatchSequentialCompiler(INPUTS);
+	}
+
+	@Test
+	void unorderedLinesMatchSequentialCompiler() throws IOException, CompilerException {
+		assertMatchSequentialCompiler(UNORDERED_INPUTS);
+	}
+
+	@Test
+	void invalidSourceIsRejected() {
+		char[] chars = "10 LET A = B\n20 LET = A\n30 PRINT A\n".toCharArray(); //$NON-NLS-1$
+		for (int capacity : CAPACITIES) {
+			CompilationPipeline pipeline = new CompilationPipeline(chars, 0, chars.length, capacity);
+			assertThrows(CompilerException.class, pipeline::compile);
+		}
+	}
+
+	@Test
+	void lexerFailureIsThrown() {
+		char[] chars = "10 LET A = B\n20 PRINT A\n".toCharArray(); //$NON-NLS-1$
+		// The range goes past the end of the array, so the lexer fails on its last token
+		CompilationPipeline pipeline = new CompilationPipeline(chars, 0, chars.length + 8);
+		assertTimeoutPreemptively(Duration.ofSeconds(10),
+				() -> assertThrows(ArrayIndexOutOfBoundsException.class, pipeline::compile));
+	}
+
+}
@@ -0,0 +1,132 @@
+package fr.utbm.info.da53.lw2.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fr.utbm.info.da53.lw2.error.CompilationErrorType;
+import fr.utbm.info.da53.lw2.error.CompilerException;
+import fr.utbm.info.da53.lw2.parser.HandWrittenParser;
+import fr.utbm.info.da53.lw2.symbol.SymbolTable;
+import fr.utbm.info.da53.lw2.symbol.SymbolTableEntry;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressCode;
+import fr.utbm.info.da53.lw2.threeaddresscode.ThreeAddressRecord;
+
+/**
+ * Checks that a {@link StreamingCompiler} writes the records of the sequential
+ * compiler, splits its source at the carriage returns alone without growing
+ * its buffer, and rejects the line numbers which are not ascending.
+ */
+class StreamingCompilerTest {
+
+	private static final int[] BLOCK_SIZES = {1, 16, StreamingCompiler.DEFAULT_BLOCK_SIZE};
+
+	private static String longInput() {
+		StringBuilder b = new StringBuilder();
+		for (int i = 1; i <= 2000; ++i) {
+			b.append(i * 10).append(" LET V").append(i % 13).append(" = V").append(i % 7).append(" + W\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return b.toString();
+	}
+
+	@Test
+	void recordsMatchSequentialCompiler() throws IOException, CompilerException {
+		String[] inputs = {
+			"10 LET A = B + C\n20 PRINT A * B\n30 IF A < B THEN PRINT C\n", //$NON-NLS-1$
+			"\n10 LET X = Y\r\n\r\n20 PRINT X", //$NON-NLS-1$
+			longInput(),
+		};
+		for (String input : inputs) {
+			HandWrittenParser parser = HandWrittenParser.read(new StringReader(input));
+			parser.executeCompiler();
+			SymbolTable identifiers = new SymbolTable();
+			for (SymbolTableEntry entry : parser.getSymbolTable()) {
+				identifiers.declare(entry.id(), entry.line());
+			}
+			ThreeAddressCode expected = new ThreeAddressCode(identifiers);
+			expected.generate(parser.getProgram());
+			for (int blockSize : BLOCK_SIZES) {
+				List<ThreeAddressRecord> records = new ArrayList<>();
+				StreamingCompiler compiler = new StreamingCompiler(new StringReader(input), records::add, blockSize);
+				compiler.compile();
+				assertEquals(expected.getCode().toString(), records.toString(), input);
+				assertEquals(expected.getSymbolTable().toString(), compiler.getSymbolTable().toString(), input);
+			}
+		}
+	}
+
+	/** Reader which remembers the largest number of characters requested at once.
+	 */
+	private static final class RequestReader extends FilterReader {
+		int largestRequest;
+
+		RequestReader(String input) {
+			super(new StringReader(input));
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			this.largestRequest = Math.max(this.largestRequest, length);
+			return super.read(buffer, offset, length);
+		}
+	}
+
+	private static List<ThreeAddressRecord> compile(String input, int blockSize) throws IOException, CompilerException {
+		List<ThreeAddressRecord> records = new ArrayList<>();
+		new StreamingCompiler(new StringReader(input), records::add, blockSize).compile();
+		return records;
+	}
+
+	@Test
+	void carriageReturnsAloneEndLines() throws IOException, CompilerException {
+		String input = longInput();
+		String expected = compile(input, StreamingCompiler.DEFAULT_BLOCK_SIZE).toString();
+		String carriageReturns = input.replace('\n', '\r');
+		for (int blockSize : BLOCK_SIZES) {
+			assertEquals(expected, compile(carriageReturns, blockSize).toString());
+		}
+		// The lines are shorter than the buffer, which is then never grown
+		for (int blockSize : new int[] {32, 100}) {
+			RequestReader reader = new RequestReader(carriageReturns);
+			List<ThreeAddressRecord> records = new ArrayList<>();
+			new StreamingCompiler(reader, records::add, blockSize).compile();
+			assertEquals(expected, records.toString());
+			assertEquals(blockSize, reader.largestRequest);
+		}
+	}
+
+	@Test
+	void errorsAfterCarriageReturnsAloneAreOnTheirLine() {
+		String input = "10 LET A = B\r20 PRINT A\r\r\n30 LET = A\r40 PRINT A\r"; //$NON-NLS-1$
+		for (int blockSize : BLOCK_SIZES) {
+			StreamingCompiler compiler = new StreamingCompiler(new StringReader(input), record -> { /* */ }, blockSize);
+			CompilerException error = assertThrows(CompilerException.class, compiler::compile);
+			assertEquals(CompilationErrorType.SYNTAX_ERROR, error.type());
+			// The first CR ends line 2 and the CR-LF ends the blank line 3
+			assertEquals(4, error.line());
+		}
+	}
+
+	@Test
+	void linesNotAscendingAreRejected() {
+		String[] inputs = {
+			"20 LET A = B\n10 LET B = A\n10 LET C = A\n", //$NON-NLS-1$
+			"10 LET A = B\n20 PRINT A\n20 PRINT B\n", //$NON-NLS-1$
+		};
+		for (String input : inputs) {
+			for (int blockSize : BLOCK_SIZES) {
+				StreamingCompiler compiler = new StreamingCompiler(new StringReader(input), record -> { /* */ }, blockSize);
+				CompilerException error = assertThrows(CompilerException.class, compiler::compile, input);
+				assertEquals(CompilationErrorType.INVALID_LINE_NUMBER, error.type(), input);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+package fr.utbm.info.da53.lw2.symbol;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a {@link ConcurrentSymbolTable} shared by threads which declare
+ * and remove identifiers at the same time keeps the smallest line of each
+ * identifier, gives distinct ids, and loses no declaration.
+ */
+class ConcurrentSymbolTableTest {
+
+	private static final int THREADS = 8;
+	private static final int IDENTIFIERS = 3000;
+	private static final int REMOVED = 500;
+
+	/** Replies the line at which a thread declares an identifier.
+	 *
+	 * @param identifier the index of the identifier.
+	 * @param thread the index of the thread.
+	 * @return the line.
+	 */
+	private static int line(int identifier, int thread) {
+		return 1 + (identifier * 31 + thread * 17) % 97;
+	}
+
+	private static int smallestLine(int identifier) {
+		int line = Integer.MAX_VALUE;
+		for (int thread = 0; thread < THREADS; ++thread) {
+			line = Math.min(line, line(identifier, thread));
+		}
+		return line;
+	}
+
+	@Test
+	void declarationsKeepTheSmallestLine() throws Exception {
+		ConcurrentSymbolTable table = new ConcurrentSymbolTable(THREADS);
+		CyclicBarrier barrier = new CyclicBarrier(THREADS);
+		AtomicInteger removals = new AtomicInteger();
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < THREADS; ++t) {
+			int thread = t;
+			threads.add(new Thread(() -> {
+				try {
+					List<Integer> order = new ArrayList<>();
+					for (int i = 0; i < IDENTIFIERS; ++i) {
+						order.add(Integer.valueOf(i));
+					}
+					Collections.shuffle(order, new Random(thread));
+
+					// Every thread declares every identifier, in its own order
+					barrier.await();
+					for (Integer i : order) {
+						table.declare("v" + i, line(i.intValue(), thread)); //$NON-NLS-1$
+						table.declare("R" + i, line(i.intValue(), thread)); //$NON-NLS-1$
+					}
+
+					// Then the R identifiers are removed while the others are declared again
+					barrier.await();
+					for (Integer i : order) {
+						if (i.intValue() < REMOVED && table.remove("R" + i) != null) { //$NON-NLS-1$
+							removals.incrementAndGet();
+						}
+						table.declareId("V" + i, line(i.intValue(), thread) + 1); //$NON-NLS-1$
+					}
+				}
+				catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(Collections.emptyList(), failures);
+
+		assertEquals(REMOVED, removals.get());
+		assertEquals(2 * IDENTIFIERS, table.size());
+		Set<Integer> ids = new HashSet<>();
+		for (int i = 0; i < IDENTIFIERS; ++i) {
+			int line = smallestLine(i);
+			SymbolTableEntry entry = table.get("V" + i); //$NON-NLS-1$
+			assertEquals("V" + i, entry.id()); //$NON-NLS-1$
+			assertEquals(line, entry.line(), entry.id());
+			int id = table.id("v" + i); //$NON-NLS-1$
+			assertTrue(ids.add(Integer.valueOf(id)), entry.id());
+			assertEquals(line, table.get(id).line(), entry.id());
+
+			if (i < REMOVED) {
+				assertFalse(table.contains("R" + i)); //$NON-NLS-1$
+				assertNull(table.get("R" + i)); //$NON-NLS-1$
+			}
+			else {
+				assertEquals(line, table.get("R" + i).line()); //$NON-NLS-1$
+				assertTrue(ids.add(Integer.valueOf(table.id("R" + i)))); //$NON-NLS-1$
+			}
+		}
+
+		List<String> identifiers = new ArrayList<>();
+		for (SymbolTableEntry entry : table) {
+			identifiers.add(entry.id());
+		}
+		assertEquals(2 * IDENTIFIERS - REMOVED, identifiers.size());
+		List<String> sorted = new ArrayList<>(identifiers);
+		Collections.sort(sorted);
+		assertEquals(sorted, identifiers);
+	}
+
+	@Test
+	void removedIdsAreNotReused() {
+		ConcurrentSymbolTable table = new ConcurrentSymbolTable(1);
+		int a = table.declareId("A", 3); //$NON-NLS-1$
+		int b = table.declareId("B", 1); //$NON-NLS-1$
+		assertEquals(3, table.remove("a").line()); //$NON-NLS-1$
+		assertNull(table.get(a));
+		assertNull(table.remove("A")); //$NON-NLS-1$
+		int c = table.declareId("A", 2); //$NON-NLS-1$
+		assertEquals(3, table.size());
+		assertTrue(c != a && c != b);
+		assertEquals(2, table.get("A").line()); //$NON-NLS-1$
+	}
+
+}